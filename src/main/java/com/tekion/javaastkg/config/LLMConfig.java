@@ -1,8 +1,10 @@
 package com.tekion.javaastkg.config;
 
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import dev.langchain4j.model.voyageai.VoyageAiEmbeddingModel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -97,6 +99,51 @@ public class LLMConfig {
                 .build();
     }
 
+    /**
+     * Small chat model that rewords cached answers for a new query
+     */
+    @Bean
+    @Qualifier("generationRephraseModel")
+    public ChatLanguageModel generationRephraseModel(
+            @Value("${llm.generation-rephrase.model:gpt-4o-mini}") String modelName,
+            @Value("${llm.generation-rephrase.temperature:0.1}") double temperature,
+            @Value("${llm.generation-rephrase.max-tokens:2000}") int maxTokens) {
+
+        log.info("Configuring Generation Rephrase model: {}", modelName);
+        return OpenAiChatModel.builder()
+                .apiKey(openAiApiKey)
+                .modelName(modelName)
+                .temperature(temperature)
+                .maxTokens(maxTokens)
+                .timeout(Duration.ofSeconds(30))
+                .maxRetries(3)
+                .logRequests(false)
+                .logResponses(false)
+                .build();
+    }
+
+    /**
+     * Streaming chat model for generation service (token-by-token user-facing responses)
+     */
+    @Bean
+    @Qualifier("generationStreamingModel")
+    public StreamingChatLanguageModel generationStreamingModel(
+            @Value("${llm.generation-service.model:gpt-4o}") String modelName,
+            @Value("${llm.generation-service.temperature:0.1}") double temperature,
+            @Value("${llm.generation-service.max-tokens:2000}") int maxTokens) {
+
+        log.info("Configuring Generation Service streaming model: {}", modelName);
+        return OpenAiStreamingChatModel.builder()
+                .apiKey(openAiApiKey)
+                .modelName(modelName)
+                .temperature(temperature)
+                .maxTokens(maxTokens)
+                .timeout(Duration.ofSeconds(60))
+                .logRequests(false)
+                .logResponses(false)
+                .build();
+    }
+
     /**
      * Legacy bean for backward compatibility
      */
@@ -1,10 +1,18 @@
 package com.tekion.javaastkg.controller;
 
 import com.tekion.javaastkg.ingestion.GraphBuilder;
+import com.tekion.javaastkg.ingestion.IdentifierIndexBuilder;
 import com.tekion.javaastkg.ingestion.SemanticEnricher;
 import com.tekion.javaastkg.ingestion.SpoonASTClient;
 import com.tekion.javaastkg.ingestion.VectorizationService;
 import com.tekion.javaastkg.model.AnalysisResult;
+import com.tekion.javaastkg.query.QueryResultCache;
+import com.tekion.javaastkg.query.SemanticAnswerCache;
+import com.tekion.javaastkg.query.services.GenerationCache;
+import com.tekion.javaastkg.query.services.GraphSnapshotService;
+import com.tekion.javaastkg.query.services.GraphVersionService;
+import com.tekion.javaastkg.query.services.IdentifierFilterService;
+import com.tekion.javaastkg.query.services.SymbolDictionaryService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -33,6 +41,14 @@ public class IngestionScheduler {
     private final GraphBuilder graphBuilder;
     private final SemanticEnricher enricher;
     private final VectorizationService vectorizer;
+    private final IdentifierIndexBuilder identifierIndexBuilder;
+    private final GraphSnapshotService graphSnapshotService;
+    private final SymbolDictionaryService symbolDictionaryService;
+    private final IdentifierFilterService identifierFilterService;
+    private final GraphVersionService graphVersionService;
+    private final QueryResultCache queryResultCache;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final GenerationCache generationCache;
 
     @Value("${spoon.api.url}")
     private String spoonUrl;
@@ -47,11 +63,27 @@ public class IngestionScheduler {
     public IngestionScheduler(SpoonASTClient spoonClient,
                               GraphBuilder graphBuilder,
                               SemanticEnricher enricher,
-                              VectorizationService vectorizer) {
+                              VectorizationService vectorizer,
+                              IdentifierIndexBuilder identifierIndexBuilder,
+                              GraphSnapshotService graphSnapshotService,
+                              SymbolDictionaryService symbolDictionaryService,
+                              IdentifierFilterService identifierFilterService,
+                              GraphVersionService graphVersionService,
+                              QueryResultCache queryResultCache,
+                              SemanticAnswerCache semanticAnswerCache,
+                              GenerationCache generationCache) {
         this.spoonClient = spoonClient;
         this.graphBuilder = graphBuilder;
         this.enricher = enricher;
         this.vectorizer = vectorizer;
+        this.identifierIndexBuilder = identifierIndexBuilder;
+        this.graphSnapshotService = graphSnapshotService;
+        this.symbolDictionaryService = symbolDictionaryService;
+        this.identifierFilterService = identifierFilterService;
+        this.graphVersionService = graphVersionService;
+        this.queryResultCache = queryResultCache;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.generationCache = generationCache;
     }
 
 
@@ -169,6 +201,18 @@ public class IngestionScheduler {
             log.info("Step 4/4: Generating vector embeddings for descriptions and file docs...");
             vectorizer.vectorizeDocuments();
 
+            // Refresh the identifier index and the in-memory snapshot, symbol dictionary and identifier filter
+            identifierIndexBuilder.buildIndex();
+            graphSnapshotService.rebuild();
+            symbolDictionaryService.rebuild();
+            identifierFilterService.rebuild();
+
+            // New graph version, so cached expansions and answers computed on the old graph are no longer served
+            graphVersionService.bump();
+            queryResultCache.invalidateAll();
+            semanticAnswerCache.invalidateAll();
+            generationCache.invalidateAll();
+
             // Pipeline completed successfully
             LocalDateTime endTime = LocalDateTime.now();
             long durationSeconds = java.time.Duration.between(startTime, endTime).getSeconds();
@@ -2,13 +2,24 @@ package com.tekion.javaastkg.controller;
 
 import com.tekion.javaastkg.model.QueryModels;
 import com.tekion.javaastkg.query.QueryOrchestrator;
+import com.tekion.javaastkg.query.QueryResultCache;
+import com.tekion.javaastkg.query.SemanticAnswerCache;
+import com.tekion.javaastkg.query.intelligence.TermExpansionCache;
+import com.tekion.javaastkg.query.services.GenerationCache;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * REST controller for handling knowledge queries.
@@ -21,10 +32,25 @@ import java.util.Map;
 public class QueryController {
 
     private final QueryOrchestrator queryOrchestrator;
+    private final TermExpansionCache termExpansionCache;
+    private final QueryResultCache queryResultCache;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final GenerationCache generationCache;
+
+    @Value("${query.streaming.timeout-ms:120000}")
+    private long streamTimeoutMs;
 
     @Autowired
-    public QueryController(QueryOrchestrator queryOrchestrator) {
+    public QueryController(QueryOrchestrator queryOrchestrator,
+                           TermExpansionCache termExpansionCache,
+                           QueryResultCache queryResultCache,
+                           SemanticAnswerCache semanticAnswerCache,
+                           GenerationCache generationCache) {
         this.queryOrchestrator = queryOrchestrator;
+        this.termExpansionCache = termExpansionCache;
+        this.queryResultCache = queryResultCache;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.generationCache = generationCache;
     }
 
     /**
@@ -36,7 +62,7 @@ public class QueryController {
 
         try {
             // Process query
-            QueryModels.QueryResult result = queryOrchestrator.query(request.getQuery());
+            QueryModels.QueryResult result = queryOrchestrator.query(request.getQuery(), request.getOptions());
 
             log.info("Query processed successfully with confidence: {}", result.getConfidence());
             return ResponseEntity.ok(result);
@@ -59,6 +85,63 @@ public class QueryController {
         }
     }
 
+    /**
+     * Non-blocking variant of the query endpoint. No request thread is held while the query runs.
+     */
+    @PostMapping("/query/reactive")
+    public Mono<ResponseEntity<QueryModels.QueryResult>> queryReactive(@Valid @RequestBody QueryModels.QueryRequest request) {
+        log.info("Received reactive query: {}", request.getQuery());
+
+        return queryOrchestrator.processQueryReactive(request.getQuery())
+                .map(ResponseEntity::ok)
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                                QueryModels.QueryResult.builder()
+                                        .query(request.getQuery())
+                                        .summary("The service is busy, please retry shortly.")
+                                        .confidence(0.0)
+                                        .metadata(Map.of(
+                                                "error", true,
+                                                "errorMessage", e.getMessage()
+                                        ))
+                                        .build())));
+    }
+
+    /**
+     * Streaming variant of the query endpoint. Emits stage events as retrieval progresses,
+     * then the answer token by token, then the complete result.
+     */
+    @PostMapping(value = "/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter queryStream(@Valid @RequestBody QueryModels.QueryRequest request) {
+        log.info("Received streaming query: {}", request.getQuery());
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        queryOrchestrator.processQueryStreaming(request.getQuery(), event -> sendEvent(emitter, event))
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        log.error("Streaming query failed", error);
+                        emitter.completeWithError(error);
+                    } else {
+                        emitter.complete();
+                    }
+                });
+
+        return emitter;
+    }
+
+    /**
+     * Sends a single event to the client, ignoring clients that have already disconnected
+     */
+    private void sendEvent(SseEmitter emitter, QueryModels.StreamEvent event) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(event.getStage())
+                    .data(event, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not send {} event, client likely disconnected: {}", event.getStage(), e.getMessage());
+        }
+    }
+
     /**
      * Health check endpoint
      */
@@ -84,4 +167,18 @@ public class QueryController {
                 "indexStatus", "active"
         ));
     }
+
+    /**
+     * Hit rates and sizes of the query-side caches, for sizing them
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(Map.of(
+                "termExpansion", termExpansionCache.getStats(),
+                "queryResult", queryResultCache.getStats(),
+                "queryResultCoalesced", queryResultCache.getCoalescedCount(),
+                "semanticAnswer", semanticAnswerCache.getStats(),
+                "generation", generationCache.getStats()
+        ));
+    }
 }
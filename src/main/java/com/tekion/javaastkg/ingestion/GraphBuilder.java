@@ -135,6 +135,7 @@ public class GraphBuilder {
         session.run("CREATE CONSTRAINT IF NOT EXISTS FOR (m:Method) REQUIRE m.id IS UNIQUE").consume();
         session.run("CREATE CONSTRAINT IF NOT EXISTS FOR (c:Class) REQUIRE c.id IS UNIQUE").consume();
         session.run("CREATE CONSTRAINT IF NOT EXISTS FOR (i:Interface) REQUIRE i.id IS UNIQUE").consume();
+        session.run("CREATE CONSTRAINT IF NOT EXISTS FOR (e:Enum) REQUIRE e.id IS UNIQUE").consume();
         session.run("CREATE CONSTRAINT IF NOT EXISTS FOR (d:Description) REQUIRE d.id IS UNIQUE").consume();
         session.run("CREATE CONSTRAINT IF NOT EXISTS FOR (fd:FileDoc) REQUIRE fd.id IS UNIQUE").consume();
 
@@ -145,6 +146,7 @@ public class GraphBuilder {
         
         // Specific indexes for common node types
         session.run("CREATE INDEX IF NOT EXISTS FOR (c:Class) ON (c.name)").consume();
+        session.run("CREATE INDEX IF NOT EXISTS FOR (c:Class) ON (c.packageName)").consume();
         session.run("CREATE INDEX IF NOT EXISTS FOR (m:Method) ON (m.name)").consume();
         session.run("CREATE INDEX IF NOT EXISTS FOR (m:Method) ON (m.signature)").consume();
         
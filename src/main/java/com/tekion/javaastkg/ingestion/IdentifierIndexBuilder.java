@@ -0,0 +1,180 @@
+package com.tekion.javaastkg.ingestion;
+
+import com.tekion.javaastkg.query.services.IdentifierIndex;
+import com.tekion.javaastkg.query.services.SymbolDictionary;
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Builds the identifier index that serves substring-style lookups on code identifiers.
+ * The name, signature, className and fullName of every method and type are split into
+ * camelCase tokens and lower-cased character trigrams. Each distinct token and trigram becomes
+ * one posting node holding the ids of the nodes it occurs in, with a uniqueness
+ * constraint on its value, so a lookup is an index seek instead of a scan over all identifiers.
+ * Trigrams and tokens occurring in more identifiers than the configured limits ("get", "set")
+ * would narrow nothing and make every posting fetch large; they get no posting and are listed on
+ * the index info node so lookups ignore them.
+ */
+@Service
+@Slf4j
+public class IdentifierIndexBuilder {
+
+    private static final String IDENTIFIER_QUERY = """
+            MATCH (n)
+            WHERE (n:Method OR n:Class OR n:Interface OR n:Enum) AND n.id IS NOT NULL
+            RETURN n.id AS nodeId,
+                   n.name AS name,
+                   n.signature AS signature,
+                   n.className AS className,
+                   n.fullName AS fullName
+            """;
+
+    private static final String WRITE_POSTINGS_QUERY = """
+            UNWIND $postings AS posting
+            CREATE (p:%s {value: posting.value, nodeIds: posting.nodeIds})
+            """;
+
+    private static final String[] IDENTIFIER_FIELDS = {"name", "signature", "className", "fullName"};
+
+    private final Driver neo4jDriver;
+    private final SessionConfig sessionConfig;
+
+    @Value("${ingestion.identifier-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ingestion.identifier-index.trigrams:true}")
+    private boolean trigramsEnabled;
+
+    @Value("${ingestion.identifier-index.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${ingestion.identifier-index.max-trigram-postings:5000}")
+    private int maxTrigramPostings;
+
+    @Value("${ingestion.identifier-index.max-token-postings:5000}")
+    private int maxTokenPostings;
+
+    public IdentifierIndexBuilder(Driver neo4jDriver, SessionConfig sessionConfig) {
+        this.neo4jDriver = neo4jDriver;
+        this.sessionConfig = sessionConfig;
+    }
+
+    /**
+     * Replaces the identifier index with one built from the current graph
+     */
+    public void buildIndex() {
+        if (!enabled) {
+            log.info("Identifier index disabled, skipping");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        log.info("Building identifier token{} index", trigramsEnabled ? " and trigram" : "");
+
+        try (Session session = neo4jDriver.session(sessionConfig)) {
+            dropIndex(session);
+            createConstraints(session);
+
+            Map<String, List<String>> tokenPostings = new HashMap<>();
+            Map<String, List<String>> trigramPostings = new HashMap<>();
+            int nodeCount = 0;
+
+            Result result = session.run(IDENTIFIER_QUERY);
+            while (result.hasNext()) {
+                Record record = result.next();
+                String nodeId = record.get("nodeId").asString();
+                Set<String> tokens = new HashSet<>();
+                Set<String> trigrams = new HashSet<>();
+
+                for (String field : IDENTIFIER_FIELDS) {
+                    String value = record.get(field).asString(null);
+                    if (value == null || value.isEmpty()) {
+                        continue;
+                    }
+                    tokens.addAll(SymbolDictionary.tokenize(value));
+                    if (trigramsEnabled) {
+                        trigrams.addAll(IdentifierIndex.trigrams(value));
+                    }
+                }
+
+                tokens.forEach(token -> tokenPostings.computeIfAbsent(token, t -> new ArrayList<>()).add(nodeId));
+                trigrams.forEach(trigram -> trigramPostings.computeIfAbsent(trigram, t -> new ArrayList<>()).add(nodeId));
+                nodeCount++;
+            }
+
+            List<String> skippedTokens = removeFrequent(tokenPostings, maxTokenPostings);
+            List<String> skippedTrigrams = removeFrequent(trigramPostings, maxTrigramPostings);
+
+            writePostings(session, IdentifierIndex.TOKEN_LABEL, tokenPostings);
+            writePostings(session, IdentifierIndex.TRIGRAM_LABEL, trigramPostings);
+            session.run("CREATE (:" + IdentifierIndex.INFO_LABEL
+                            + " {builtAt: datetime(), nodeCount: $nodeCount, trigrams: $trigrams,"
+                            + " skippedTrigrams: $skippedTrigrams, skippedTokens: $skippedTokens})",
+                    Map.of("nodeCount", nodeCount, "trigrams", trigramsEnabled,
+                            "skippedTrigrams", skippedTrigrams, "skippedTokens", skippedTokens)).consume();
+
+            log.info("Identifier index built in {} ms: {} identifiers, {} tokens, {} trigrams ({} tokens and {} trigrams too frequent to index)",
+                    System.currentTimeMillis() - startTime, nodeCount, tokenPostings.size(), trigramPostings.size(),
+                    skippedTokens.size(), skippedTrigrams.size());
+
+        } catch (Exception e) {
+            log.error("Failed to build identifier index", e);
+        }
+    }
+
+    /**
+     * Drops the postings listed under more nodes than the limit, returning their values
+     */
+    private static List<String> removeFrequent(Map<String, List<String>> postings, int maxPostings) {
+        List<String> skipped = new ArrayList<>();
+        postings.entrySet().removeIf(posting -> {
+            if (posting.getValue().size() <= maxPostings) {
+                return false;
+            }
+            skipped.add(posting.getKey());
+            return true;
+        });
+        return skipped;
+    }
+
+    /**
+     * Removes the previous index so lookups fall back to scanning until the new one is complete
+     */
+    private void dropIndex(Session session) {
+        session.run("MATCH (info:" + IdentifierIndex.INFO_LABEL + ") DELETE info").consume();
+        for (String label : List.of(IdentifierIndex.TOKEN_LABEL, IdentifierIndex.TRIGRAM_LABEL)) {
+            session.run("MATCH (p:" + label + ") CALL { WITH p DELETE p } IN TRANSACTIONS OF 10000 ROWS").consume();
+        }
+    }
+
+    private void createConstraints(Session session) {
+        session.run("CREATE CONSTRAINT IF NOT EXISTS FOR (t:" + IdentifierIndex.TOKEN_LABEL
+                + ") REQUIRE t.value IS UNIQUE").consume();
+        session.run("CREATE CONSTRAINT IF NOT EXISTS FOR (t:" + IdentifierIndex.TRIGRAM_LABEL
+                + ") REQUIRE t.value IS UNIQUE").consume();
+    }
+
+    private void writePostings(Session session, String label, Map<String, List<String>> postings) {
+        String query = String.format(WRITE_POSTINGS_QUERY, label);
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+        for (Map.Entry<String, List<String>> posting : postings.entrySet()) {
+            batch.add(Map.of("value", posting.getKey(), "nodeIds", posting.getValue()));
+            if (batch.size() >= batchSize) {
+                session.run(query, Map.of("postings", batch)).consume();
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            session.run(query, Map.of("postings", batch)).consume();
+        }
+        log.debug("Wrote {} {} postings", postings.size(), label);
+    }
+}
@@ -34,6 +34,8 @@ public class QueryModels {
         private boolean includeCode = true;
         private boolean includeRelationships = true;
         private int expansionDepth = 3;
+        /** Skips cached answers for this request; the fresh result is still cached */
+        private boolean bypassCache;
     }
 
     @Data
@@ -86,5 +88,29 @@ public class QueryModels {
         private GraphEntities.GraphContext graphContext;
         private Map<String, Double> scoreMap;
         private Map<String, Object> metadata;
+        /** Embedding of the query used for vector search, or null when embedding failed */
+        private float[] queryVector;
+        /** Primary intent of the query, or null when intent analysis failed */
+        private String intentType;
+    }
+
+    /**
+     * Incremental event emitted while a query is being processed in streaming mode
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StreamEvent {
+        public static final String ENTITIES_EXTRACTED = "entities";
+        public static final String SEARCH_HITS = "search";
+        public static final String SUBGRAPH_READY = "subgraph";
+        public static final String TOKEN = "token";
+        public static final String RESULT = "result";
+        public static final String ERROR = "error";
+
+        private String stage;
+        private Object data;
+        private long elapsedMs;
     }
 }
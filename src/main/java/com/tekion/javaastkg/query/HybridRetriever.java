@@ -2,17 +2,27 @@ package com.tekion.javaastkg.query;
 
 import com.tekion.javaastkg.model.GraphEntities;
 import com.tekion.javaastkg.model.QueryModels;
+import com.tekion.javaastkg.query.intelligence.QueryIntentAnalyzer;
 import com.tekion.javaastkg.query.services.*;
 import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.neo4j.driver.*;
 import org.neo4j.driver.Record;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -33,6 +43,11 @@ public class HybridRetriever {
     private final GraphExpander graphExpander;
     private final NodeScorer nodeScorer;
     private final ReRankingService reRankingService;
+    private final RetrievalPlanner retrievalPlanner;
+    private final Executor retrievalExecutor;
+    private final Executor stepExecutor;
+
+    private static final int STREAMED_HIT_LIMIT = 10;
 
     @org.springframework.beans.factory.annotation.Value("${query.retrieval.score-threshold:0.1}")
     private double scoreThreshold;
@@ -53,7 +68,10 @@ public class HybridRetriever {
                            SearchResultCombiner searchResultCombiner,
                            GraphExpander graphExpander,
                            NodeScorer nodeScorer,
-                           ReRankingService reRankingService) {
+                           ReRankingService reRankingService,
+                           RetrievalPlanner retrievalPlanner,
+                           @Qualifier("retrievalExecutor") Executor retrievalExecutor,
+                           @Qualifier("stepExecutor") Executor stepExecutor) {
         this.neo4jDriver = neo4jDriver;
         this.sessionConfig = sessionConfig;
         this.embeddingModel = embeddingModel;
@@ -64,110 +82,435 @@ public class HybridRetriever {
         this.graphExpander = graphExpander;
         this.nodeScorer = nodeScorer;
         this.reRankingService = reRankingService;
+        this.retrievalPlanner = retrievalPlanner;
+        this.retrievalExecutor = retrievalExecutor;
+        this.stepExecutor = stepExecutor;
     }
 
     /**
      * Performs hybrid retrieval for a user query using parallel full-text and vector search
      */
     public QueryModels.RetrievalResult retrieve(String query) {
+        return retrieve(query, event -> { });
+    }
+
+    /**
+     * Performs hybrid retrieval, reporting each completed stage to the given listener
+     */
+    public QueryModels.RetrievalResult retrieve(String query, Consumer<QueryModels.StreamEvent> stageListener) {
+        return retrieve(query, stageListener, QueryDeadline.unbounded());
+    }
+
+    /**
+     * Performs hybrid retrieval within the given deadline. Every stage works within its slice and
+     * degrades to partial results instead of failing when it runs out of time.
+     *
+     * <p>The front half runs as a dependency graph: intent analysis and query embedding start
+     * immediately. The intent yields the retrieval plan, which decides the indexes, limits,
+     * expansion and re-ranking of everything after it; vector search waits only for the plan and
+     * the embedding, full-text search for the plan and entity extraction. Graph expansion starts
+     * from the first branch that yields seeds; seeds contributed by the other branch are expanded
+     * once it completes and merged in.
+     */
+    public QueryModels.RetrievalResult retrieve(String query, Consumer<QueryModels.StreamEvent> stageListener,
+                                                QueryDeadline deadline) {
         log.info("Performing hybrid retrieval for query: {}", query);
+        long startTime = System.currentTimeMillis();
 
         try {
-            // Step 1: Extract and expand entities from query using enhanced extractor
-            EnhancedEntityExtractor.ExtractedEntities entities = enhancedEntityExtractor.extractAndExpand(query);
-            log.debug("Enhanced extraction: classes={}, methods={}, packages={}, terms={}, expanded={}", 
-                     entities.getClasses().size(), entities.getMethods().size(), 
-                     entities.getPackages().size(), entities.getTerms().size(),
-                     entities.isExpanded());
-
-            // Step 2: Generate query embedding
-            float[] queryVector = embeddingModel.embed(query).content().vector();
-            log.info("Generated query vector with length: {}", queryVector.length);
-
-            // Step 3: Parallel search execution
-            CompletableFuture<List<ParallelSearchService.SearchResult>> fullTextFuture = 
-                parallelSearchService.fullTextSearch(entities);
-            
-            // Use unified vector search that includes method, class, and description embeddings
-            CompletableFuture<List<ParallelSearchService.SearchResult>> vectorFuture = 
-                parallelSearchService.unifiedVectorSearch(queryVector);
+            // Plan retrieval from the intent alone, so searches need not wait for extraction
+            CompletableFuture<QueryIntentAnalyzer.QueryIntent> intentFuture = CompletableFuture
+                    .supplyAsync(() -> enhancedEntityExtractor.analyzeIntent(query, deadline), stepExecutor);
+            CompletableFuture<RetrievalPlanner.RetrievalPlan> planFuture = intentFuture
+                    .thenApply(intent -> retrievalPlanner.plan(intent))
+                    .exceptionally(e -> {
+                        log.warn("Retrieval planning failed, using the full plan: {}", e.getMessage());
+                        return retrievalPlanner.fullPlan();
+                    });
+
+            // Branch A: embed the query and run vector search, independent of extraction
+            QueryDeadline.Stage vectorStage = deadline.stage(QueryDeadline.SEARCH);
+            CompletableFuture<float[]> embeddingFuture;
+            CompletableFuture<List<ParallelSearchService.SearchResult>> vectorFuture;
+            try {
+                embeddingFuture = CompletableFuture
+                        .supplyAsync(() -> embeddingModel.embed(query).content().vector(), retrievalExecutor);
+                vectorFuture = vectorSearch(embeddingFuture, planFuture, vectorStage);
+            } catch (RejectedExecutionException e) {
+                vectorStage.degrade("skipped vector search, executor saturated");
+                embeddingFuture = CompletableFuture.failedFuture(e);
+                vectorFuture = CompletableFuture.completedFuture(new ArrayList<>());
+            }
 
-            // Step 4: Wait for both searches to complete
+            // Branch B: extract and expand entities, then run full-text search
+            CompletableFuture<EnhancedEntityExtractor.ExtractedEntities> entitiesFuture = intentFuture
+                    .thenApplyAsync(intent -> enhancedEntityExtractor.extractAndExpand(query, intent, deadline),
+                            stepExecutor);
+            entitiesFuture.thenAccept(entities -> {
+                log.debug("Enhanced extraction: classes={}, methods={}, packages={}, terms={}, expanded={}", 
+                         entities.getClasses().size(), entities.getMethods().size(), 
+                         entities.getPackages().size(), entities.getTerms().size(),
+                         entities.isExpanded());
+                emitEntities(stageListener, entities, startTime);
+            });
+            CompletableFuture<List<ParallelSearchService.SearchResult>> fullTextFuture = entitiesFuture
+                    .thenCombine(planFuture, (entities, plan) -> {
+                        QueryDeadline.Stage fullTextStage = deadline.stage(QueryDeadline.SEARCH);
+                        long searchStart = System.currentTimeMillis();
+                        return fullTextStage.bound(
+                                parallelSearchService.fullTextSearch(entities, plan, fullTextStage), new ArrayList<>())
+                                .whenComplete((results, error) -> plan.recordCost(
+                                        "fullTextSearch", System.currentTimeMillis() - searchStart));
+                    })
+                    .thenCompose(search -> search)
+                    .exceptionally(e -> {
+                        log.error("Full-text search branch failed, continuing with vector results only", e);
+                        return new ArrayList<>();
+                    });
+
+            // Start graph expansion from whichever branch produces seeds first
+            CompletableFuture<SeedExpansion> earlyExpansion = firstSeeds(
+                    fullTextFuture.thenApply(results -> selectSeedIds(searchResultCombiner.combine(results, List.of()))),
+                    vectorFuture.thenApply(results -> selectSeedIds(searchResultCombiner.combine(List.of(), results))))
+                    .thenApplyAsync(seeds -> expandEarly(seeds, planFuture.join(), deadline), stepExecutor)
+                    .exceptionally(e -> {
+                        log.error("Early graph expansion failed, expanding after search", e);
+                        return new SeedExpansion(List.of(), null, null);
+                    });
+
+            // Wait for both searches to complete
             List<ParallelSearchService.SearchResult> fullTextResults = fullTextFuture.join();
             List<ParallelSearchService.SearchResult> vectorResults = vectorFuture.join();
+            RetrievalPlanner.RetrievalPlan plan = planFuture.join();
             
             log.info("Search completed: {} full-text results, {} vector results", 
                     fullTextResults.size(), vectorResults.size());
 
-            // Step 5: Combine and rank results
+            // Combine and rank results
             List<SearchResultCombiner.RankedResult> combinedResults = 
                 searchResultCombiner.combine(fullTextResults, vectorResults);
             
             log.info("Combined and ranked {} unique results", combinedResults.size());
+            emitSearchHits(stageListener, fullTextResults, vectorResults, combinedResults, startTime);
+
+            // Extract top node IDs and expand the seeds the early expansion did not cover
+            List<String> topNodeIds = selectSeedIds(combinedResults);
+            GraphExpander.SubGraph expandedGraph = completeExpansion(earlyExpansion.join(), topNodeIds, plan, deadline);
+
+            // Steps 8-11: Score, re-rank and assemble the result
+            QueryModels.RetrievalResult result = scoreAndAssemble(query, fullTextResults, vectorResults,
+                    combinedResults, topNodeIds, expandedGraph, plan, stageListener, deadline, startTime);
+            result.setQueryVector(embeddingFuture.isDone() && !embeddingFuture.isCompletedExceptionally()
+                    ? embeddingFuture.join() : null);
+            result.setIntentType(primaryIntent(intentFuture));
+            log.info("Retrieval plan {} cost {} total {} ms", plan.describe(), plan.getStageCostsMs(),
+                    System.currentTimeMillis() - startTime);
+            return result;
 
-            // Step 6: Extract top node IDs for graph expansion
-            List<String> topNodeIds = combinedResults.stream()
-                    .filter(result -> result.getCombinedScore() >= scoreThreshold)
-                    .limit(initialLimit)
-                    .map(SearchResultCombiner.RankedResult::getNodeId)
-                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("Hybrid retrieval failed", e);
+            throw new RuntimeException("Failed to perform hybrid retrieval", e);
+        }
+    }
 
-            // Step 7: Expand graph using configurable n-hop traversal
-            GraphExpander.SubGraph expandedGraph = graphExpander.expandNHop(topNodeIds, graphExpansionDepth, initialLimit);
-            log.debug("Graph expansion completed: {} nodes, {} relationships", 
-                     expandedGraph.getNodeCount(), expandedGraph.getRelationshipCount());
-
-            // Step 8: Score nodes based on multiple criteria
-            Map<String, Double> fullTextScores = combinedResults.stream()
-                    .collect(Collectors.toMap(
-                            SearchResultCombiner.RankedResult::getNodeId,
-                            SearchResultCombiner.RankedResult::getFullTextScore,
-                            (existing, replacement) -> existing
-                    ));
-            
-            Map<String, Double> vectorScores = combinedResults.stream()
-                    .collect(Collectors.toMap(
-                            SearchResultCombiner.RankedResult::getNodeId,
-                            SearchResultCombiner.RankedResult::getVectorScore,
-                            (existing, replacement) -> existing
-                    ));
-
-            Map<String, Double> nodeScores = nodeScorer.calculateNodeScores(
-                    expandedGraph, fullTextScores, vectorScores, topNodeIds);
-            
-            // Step 9: Apply re-ranking based on embedding similarity
-            GraphExpander.SubGraph reRankedGraph = reRankingService.applyReRanking(expandedGraph, query);
+    /**
+     * Vector search with the query embedding, bounded by the stage; empty when it fails or times out
+     */
+    private CompletableFuture<List<ParallelSearchService.SearchResult>> vectorSearch(
+            CompletableFuture<float[]> embeddingFuture,
+            CompletableFuture<RetrievalPlanner.RetrievalPlan> planFuture,
+            QueryDeadline.Stage vectorStage) {
+        return vectorStage.bound(
+                embeddingFuture
+                        .thenCombine(planFuture, (queryVector, plan) -> {
+                            log.info("Generated query vector with length: {}", queryVector.length);
+                            long searchStart = System.currentTimeMillis();
+                            return parallelSearchService.unifiedVectorSearch(queryVector, plan, vectorStage)
+                                    .whenComplete((results, error) -> plan.recordCost(
+                                            "vectorSearch", System.currentTimeMillis() - searchStart));
+                        })
+                        .thenCompose(search -> search),
+                new ArrayList<>())
+                .exceptionally(e -> {
+                    log.error("Vector search branch failed, continuing with full-text results only", e);
+                    return new ArrayList<>();
+                });
+    }
+
+    /**
+     * Name of the primary intent once analysis has completed, otherwise null
+     */
+    private static String primaryIntent(CompletableFuture<QueryIntentAnalyzer.QueryIntent> intentFuture) {
+        if (!intentFuture.isDone() || intentFuture.isCompletedExceptionally()) {
+            return null;
+        }
+        QueryIntentAnalyzer.QueryIntent intent = intentFuture.join();
+        return intent != null && intent.getPrimaryIntent() != null ? intent.getPrimaryIntent().name() : null;
+    }
+
+    /**
+     * Completes with the first non-empty seed list, or with an empty list once both are empty
+     */
+    private CompletableFuture<List<String>> firstSeeds(CompletableFuture<List<String>> first,
+                                                       CompletableFuture<List<String>> second) {
+        CompletableFuture<List<String>> seeds = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+        BiConsumer<List<String>, Throwable> offer = (ids, error) -> {
+            if (error == null && !ids.isEmpty()) {
+                seeds.complete(ids);
+            }
+            if (pending.decrementAndGet() == 0) {
+                seeds.complete(List.of());
+            }
+        };
+        first.whenComplete(offer);
+        second.whenComplete(offer);
+        return seeds;
+    }
+
+    private SeedExpansion expandEarly(List<String> seedIds, RetrievalPlanner.RetrievalPlan plan,
+                                      QueryDeadline deadline) {
+        QueryDeadline.Stage stage = deadline.stage(QueryDeadline.GRAPH_EXPANSION);
+        if (seedIds.isEmpty()) {
+            return new SeedExpansion(seedIds, null, stage);
+        }
+        log.debug("Starting early graph expansion from {} seeds", seedIds.size());
+        long expansionStart = System.currentTimeMillis();
+        GraphExpander.SubGraph subGraph = graphExpander.expandNHop(seedIds, plan.getExpansionDepth(),
+                plan.getExpansionLimit(), plan.getExpansionProfile(), stage);
+        plan.recordCost("graphExpansion", System.currentTimeMillis() - expansionStart);
+        return new SeedExpansion(seedIds, subGraph, stage);
+    }
+
+    /**
+     * Expands the final seeds that the early expansion did not reach, within the remaining node budget
+     */
+    private GraphExpander.SubGraph completeExpansion(SeedExpansion early, List<String> topNodeIds,
+                                                     RetrievalPlanner.RetrievalPlan plan, QueryDeadline deadline) {
+        long expansionStart = System.currentTimeMillis();
+        if (early.getSubGraph() == null) {
+            GraphExpander.SubGraph subGraph = graphExpander.expandNHop(topNodeIds, plan.getExpansionDepth(),
+                    plan.getExpansionLimit(), plan.getExpansionProfile(),
+                    deadline.stage(QueryDeadline.GRAPH_EXPANSION));
+            plan.recordCost("graphExpansion", System.currentTimeMillis() - expansionStart);
+            return subGraph;
+        }
+
+        GraphExpander.SubGraph earlyGraph = early.getSubGraph();
+        List<String> missingSeeds = missingSeeds(early, topNodeIds);
+        if (missingSeeds.isEmpty()) {
+            return earlyGraph;
+        }
+
+        int remainingBudget = Math.max(0,
+                plan.getExpansionLimit() - (earlyGraph.getNodeCount() - early.getSeedIds().size()));
+        log.debug("Expanding {} seeds not covered by the early expansion, budget {}", missingSeeds.size(), remainingBudget);
+        GraphExpander.SubGraph lateGraph = graphExpander.expandNHop(missingSeeds, plan.getExpansionDepth(),
+                remainingBudget, plan.getExpansionProfile(), early.getStage());
+        GraphExpander.SubGraph merged = graphExpander.union(earlyGraph, lateGraph, plan.getExpansionProfile());
+        plan.recordCost("graphExpansion", System.currentTimeMillis() - expansionStart);
+        return merged;
+    }
+
+    /**
+     * Final seeds the early expansion did not cover. Description and FileDoc hits never appear in
+     * the expanded subgraph themselves, so hits outside it are resolved to their code nodes and
+     * only count as missing when one of those was not reached.
+     */
+    private List<String> missingSeeds(SeedExpansion early, List<String> topNodeIds) {
+        Map<String, GraphExpander.GraphNode> expandedNodes = early.getSubGraph().getNodes();
+        Set<String> earlySeeds = new HashSet<>(early.getSeedIds());
+        List<String> unreached = topNodeIds.stream()
+                .filter(id -> !earlySeeds.contains(id) && !expandedNodes.containsKey(id))
+                .collect(Collectors.toList());
+        if (unreached.isEmpty()) {
+            return unreached;
+        }
+        Map<String, List<String>> codeNodeIds = graphExpander.resolveCodeNodeIds(unreached);
+        return unreached.stream()
+                .filter(id -> codeNodeIds.getOrDefault(id, List.of()).stream()
+                        .anyMatch(codeNodeId -> !expandedNodes.containsKey(codeNodeId)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Non-blocking hybrid retrieval. Neo4j searches and expansion run on the async driver;
+     * entity extraction, query embedding and re-ranking wrap blocking model clients and are
+     * moved off the calling thread.
+     */
+    public Mono<QueryModels.RetrievalResult> retrieveReactive(String query) {
+        log.info("Performing reactive hybrid retrieval for query: {}", query);
+        long startTime = System.currentTimeMillis();
+        Consumer<QueryModels.StreamEvent> noListener = event -> { };
+
+        Mono<EnhancedEntityExtractor.ExtractedEntities> entitiesMono = Mono
+                .fromCallable(() -> enhancedEntityExtractor.extractAndExpand(query))
+                .subscribeOn(Schedulers.boundedElastic())
+                .cache();
+
+        Mono<List<ParallelSearchService.SearchResult>> fullTextMono = entitiesMono
+                .flatMap(parallelSearchService::fullTextSearchReactive);
+
+        Mono<List<ParallelSearchService.SearchResult>> vectorMono = Mono
+                .fromCallable(() -> embeddingModel.embed(query).content().vector())
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(parallelSearchService::unifiedVectorSearchReactive);
+
+        return Mono.zip(fullTextMono, vectorMono)
+                .flatMap(searches -> {
+                    List<ParallelSearchService.SearchResult> fullTextResults = searches.getT1();
+                    List<ParallelSearchService.SearchResult> vectorResults = searches.getT2();
+                    List<SearchResultCombiner.RankedResult> combinedResults =
+                            searchResultCombiner.combine(fullTextResults, vectorResults);
+                    List<String> topNodeIds = selectSeedIds(combinedResults);
+
+                    return graphExpander.expandNHopReactive(topNodeIds, graphExpansionDepth, initialLimit)
+                            .publishOn(Schedulers.boundedElastic())
+                            .map(expandedGraph -> scoreAndAssemble(query, fullTextResults, vectorResults,
+                                    combinedResults, topNodeIds, expandedGraph, retrievalPlanner.fullPlan(),
+                                    noListener, QueryDeadline.unbounded(), startTime));
+                })
+                .doOnError(e -> log.error("Reactive hybrid retrieval failed", e));
+    }
+
+    /**
+     * Selects the top combined results used as seeds for graph expansion
+     */
+    private List<String> selectSeedIds(List<SearchResultCombiner.RankedResult> combinedResults) {
+        return combinedResults.stream()
+                .filter(result -> result.getCombinedScore() >= scoreThreshold)
+                .limit(initialLimit)
+                .map(SearchResultCombiner.RankedResult::getNodeId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Scores and re-ranks the expanded graph, then assembles the retrieval result
+     */
+    private QueryModels.RetrievalResult scoreAndAssemble(String query,
+                                                         List<ParallelSearchService.SearchResult> fullTextResults,
+                                                         List<ParallelSearchService.SearchResult> vectorResults,
+                                                         List<SearchResultCombiner.RankedResult> combinedResults,
+                                                         List<String> topNodeIds,
+                                                         GraphExpander.SubGraph expandedGraph,
+                                                         RetrievalPlanner.RetrievalPlan plan,
+                                                         Consumer<QueryModels.StreamEvent> stageListener,
+                                                         QueryDeadline deadline,
+                                                         long startTime) {
+        log.debug("Graph expansion completed: {} nodes, {} relationships",
+                 expandedGraph.getNodeCount(), expandedGraph.getRelationshipCount());
+
+        // Step 8: Score nodes based on multiple criteria
+        Map<String, Double> fullTextScores = combinedResults.stream()
+                .collect(Collectors.toMap(
+                        SearchResultCombiner.RankedResult::getNodeId,
+                        SearchResultCombiner.RankedResult::getFullTextScore,
+                        (existing, replacement) -> existing
+                ));
+        
+        Map<String, Double> vectorScores = combinedResults.stream()
+                .collect(Collectors.toMap(
+                        SearchResultCombiner.RankedResult::getNodeId,
+                        SearchResultCombiner.RankedResult::getVectorScore,
+                        (existing, replacement) -> existing
+                ));
+
+        NodeHandles handles = expandedGraph.handles();
+        double[] nodeScores = nodeScorer.scoreNodes(handles, fullTextScores, vectorScores, topNodeIds);
+        
+        // Step 9: Apply re-ranking based on embedding similarity, when the plan asks for it
+        GraphExpander.SubGraph reRankedGraph;
+        if (plan.isReRank()) {
+            long reRankStart = System.currentTimeMillis();
+            reRankedGraph = reRankingService.applyReRanking(
+                    expandedGraph, handles, query, deadline.stage(QueryDeadline.RERANKING));
+            plan.recordCost("reRanking", System.currentTimeMillis() - reRankStart);
             log.debug("Re-ranking completed: {} nodes remaining", reRankedGraph.getNodeCount());
+        } else {
+            reRankedGraph = expandedGraph;
+            log.debug("Re-ranking skipped by the {} plan", plan.getSearchDepth());
+        }
+        emitStage(stageListener, QueryModels.StreamEvent.SUBGRAPH_READY, Map.of(
+                "expandedNodeCount", expandedGraph.getNodeCount(),
+                "nodeCount", reRankedGraph.getNodeCount(),
+                "relationshipCount", reRankedGraph.getRelationshipCount()
+        ), startTime);
+
+        // Step 10: Convert to compatible GraphContext format
+        GraphEntities.GraphContext graphContext = convertToGraphContext(reRankedGraph);
+
+        // Step 11: Build final score map combining all scoring methods
+        Map<String, Double> finalScoreMap = buildFinalScoreMap(combinedResults, handles, nodeScores, reRankedGraph);
+
+        return QueryModels.RetrievalResult.builder()
+                .topMethodIds(topNodeIds)
+                .graphContext(graphContext)
+                .scoreMap(finalScoreMap)
+                .metadata(Map.of(
+                        "fullTextResultCount", fullTextResults.size(),
+                        "vectorResultCount", vectorResults.size(),
+                        "combinedResultCount", combinedResults.size(),
+                        "expandedNodeCount", expandedGraph.getNodeCount(),
+                        "reRankedNodeCount", reRankedGraph.getNodeCount(),
+                        "scoreThreshold", scoreThreshold,
+                        "expansionDepth", plan.getExpansionDepth(),
+                        "queryProcessingTime", System.currentTimeMillis(),
+                        "degradedStages", deadline.getDegradedStages(),
+                        "retrievalPlan", plan.describe()
+                ))
+                .build();
+    }
 
-            // Step 10: Convert to compatible GraphContext format
-            GraphEntities.GraphContext graphContext = convertToGraphContext(reRankedGraph);
-
-            // Step 11: Build final score map combining all scoring methods
-            Map<String, Double> finalScoreMap = buildFinalScoreMap(combinedResults, nodeScores, reRankedGraph);
-
-            return QueryModels.RetrievalResult.builder()
-                    .topMethodIds(topNodeIds)
-                    .graphContext(graphContext)
-                    .scoreMap(finalScoreMap)
-                    .metadata(Map.of(
-                            "fullTextResultCount", fullTextResults.size(),
-                            "vectorResultCount", vectorResults.size(),
-                            "combinedResultCount", combinedResults.size(),
-                            "expandedNodeCount", expandedGraph.getNodeCount(),
-                            "reRankedNodeCount", reRankedGraph.getNodeCount(),
-                            "scoreThreshold", scoreThreshold,
-                            "expansionDepth", graphExpansionDepth,
-                            "queryProcessingTime", System.currentTimeMillis()
-                    ))
-                    .build();
+    /**
+     * Reports the extracted entities to the stage listener
+     */
+    private void emitEntities(Consumer<QueryModels.StreamEvent> stageListener,
+                              EnhancedEntityExtractor.ExtractedEntities entities, long startTime) {
+        emitStage(stageListener, QueryModels.StreamEvent.ENTITIES_EXTRACTED, Map.of(
+                "classes", entities.getClasses(),
+                "methods", entities.getMethods(),
+                "packages", entities.getPackages(),
+                "terms", entities.getTerms()
+        ), startTime);
+    }
+
+    /**
+     * Reports search hit counts and the best hits to the stage listener
+     */
+    private void emitSearchHits(Consumer<QueryModels.StreamEvent> stageListener,
+                                List<ParallelSearchService.SearchResult> fullTextResults,
+                                List<ParallelSearchService.SearchResult> vectorResults,
+                                List<SearchResultCombiner.RankedResult> combinedResults,
+                                long startTime) {
+        emitStage(stageListener, QueryModels.StreamEvent.SEARCH_HITS, Map.of(
+                "fullTextResultCount", fullTextResults.size(),
+                "vectorResultCount", vectorResults.size(),
+                "topHits", combinedResults.stream()
+                        .limit(STREAMED_HIT_LIMIT)
+                        .map(result -> Map.of(
+                                "nodeId", result.getNodeId(),
+                                "name", Objects.toString(result.getName(), ""),
+                                "score", result.getCombinedScore()))
+                        .collect(Collectors.toList())
+        ), startTime);
+    }
 
+    /**
+     * Notifies the stage listener, never letting a listener failure abort retrieval
+     */
+    private void emitStage(Consumer<QueryModels.StreamEvent> stageListener, String stage,
+                           Map<String, Object> data, long startTime) {
+        try {
+            stageListener.accept(QueryModels.StreamEvent.builder()
+                    .stage(stage)
+                    .data(data)
+                    .elapsedMs(System.currentTimeMillis() - startTime)
+                    .build());
         } catch (Exception e) {
-            log.error("Hybrid retrieval failed", e);
-            throw new RuntimeException("Failed to perform hybrid retrieval", e);
+            log.debug("Stage listener failed for stage {}: {}", stage, e.getMessage());
         }
     }
 
-
     /**
      * Converts SubGraph to GraphContext for compatibility with existing APIs
      */
@@ -246,29 +589,31 @@ public class HybridRetriever {
      * Builds final score map combining all scoring methods
      */
     private Map<String, Double> buildFinalScoreMap(List<SearchResultCombiner.RankedResult> combinedResults,
-                                                  Map<String, Double> nodeScores,
+                                                  NodeHandles handles,
+                                                  double[] nodeScores,
                                                   GraphExpander.SubGraph reRankedGraph) {
         Map<String, Double> finalScores = new LinkedHashMap<>();
         
         // Start with nodes that exist in the re-ranked graph
-        Set<String> acceptedNodeIds = reRankedGraph.getNodes().keySet();
+        BitSet accepted = handles.membersOf(reRankedGraph.getNodes().keySet());
+        BitSet scored = new BitSet(handles.size());
         
         for (SearchResultCombiner.RankedResult result : combinedResults) {
-            if (acceptedNodeIds.contains(result.getNodeId())) {
+            int handle = handles.handleOf(result.getNodeId());
+            if (handle >= 0 && accepted.get(handle) && !scored.get(handle)) {
                 double baseScore = result.getCombinedScore();
-                double nodeScore = nodeScores.getOrDefault(result.getNodeId(), 0.0);
                 
                 // Combine scores with weights
-                double finalScore = (baseScore * 0.6) + (nodeScore * 0.4);
+                double finalScore = (baseScore * 0.6) + (nodeScores[handle] * 0.4);
                 finalScores.put(result.getNodeId(), finalScore);
+                scored.set(handle);
             }
         }
         
         // Add any additional nodes that were discovered during expansion
-        for (String nodeId : acceptedNodeIds) {
-            if (!finalScores.containsKey(nodeId)) {
-                double nodeScore = nodeScores.getOrDefault(nodeId, 0.0);
-                finalScores.put(nodeId, nodeScore * 0.3); // Lower weight for expansion-only nodes
+        for (int handle = accepted.nextSetBit(0); handle >= 0; handle = accepted.nextSetBit(handle + 1)) {
+            if (!scored.get(handle)) {
+                finalScores.put(handles.idOf(handle), nodeScores[handle] * 0.3); // Lower weight for expansion-only nodes
             }
         }
         
@@ -439,4 +784,15 @@ public class HybridRetriever {
             List.of() : node.get("annotations").asList(Value::asString));
         return metadata;
     }
-}
\ No newline at end of file
+
+    /**
+     * Graph expansion started from the first branch that produced seeds
+     */
+    @Data
+    @AllArgsConstructor
+    private static class SeedExpansion {
+        private List<String> seedIds;
+        private GraphExpander.SubGraph subGraph;
+        private QueryDeadline.Stage stage;
+    }
+}
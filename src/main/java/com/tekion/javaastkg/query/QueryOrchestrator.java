@@ -2,16 +2,23 @@ package com.tekion.javaastkg.query;
 
 import com.tekion.javaastkg.model.QueryModels;
 import com.tekion.javaastkg.query.services.GenerationService;
+import com.tekion.javaastkg.query.services.QueryDeadline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Main query orchestrator that coordinates query processing.
@@ -24,39 +31,199 @@ public class QueryOrchestrator {
     
     private final HybridRetriever hybridRetriever;
     private final GenerationService generationService;
+    private final QueryResultCache queryResultCache;
+    private final SemanticAnswerCache semanticAnswerCache;
+
+    private final AtomicInteger inFlightReactiveQueries = new AtomicInteger();
+
+    @Value("${query.reactive.max-in-flight:1000}")
+    private int maxInFlightReactiveQueries;
+
+    @Value("${query.deadline.enabled:true}")
+    private boolean deadlineEnabled;
+
+    @Value("${query.deadline.total-ms:20000}")
+    private long deadlineTotalMs;
+
+    @Value("${query.deadline.slices.intent:0.1}")
+    private double intentSlice;
+
+    @Value("${query.deadline.slices.extraction:0.1}")
+    private double extractionSlice;
+
+    @Value("${query.deadline.slices.term-expansion:0.1}")
+    private double termExpansionSlice;
+
+    @Value("${query.deadline.slices.search:0.15}")
+    private double searchSlice;
+
+    @Value("${query.deadline.slices.graph-expansion:0.1}")
+    private double graphExpansionSlice;
+
+    @Value("${query.deadline.slices.re-ranking:0.1}")
+    private double reRankingSlice;
     
     /**
      * Main query processing method
      */
     @Async("queryProcessingExecutor")
     public CompletableFuture<QueryModels.QueryResult> processQuery(String query) {
+        return processQuery(query, null);
+    }
+
+    /**
+     * Processes a query through the result cache: repeated and rephrased queries are answered from
+     * the cache and identical concurrent queries share one pipeline run
+     */
+    @Async("queryProcessingExecutor")
+    public CompletableFuture<QueryModels.QueryResult> processQuery(String query, QueryModels.QueryOptions options) {
+        return CompletableFuture.completedFuture(queryResultCache.get(query, options, () -> runPipeline(query, options)));
+    }
+
+    /**
+     * Runs retrieval and generation for a query; failures are turned into an error result.
+     * Generation is skipped when the semantic cache holds an answer to a paraphrase of the query
+     * that retrieved largely the same nodes.
+     */
+    private QueryModels.QueryResult runPipeline(String query, QueryModels.QueryOptions options) {
         log.info("Processing query: {}", query);
+        QueryDeadline deadline = newDeadline();
         
         try {
             // 1. Get structured results from hybrid retriever
-            QueryModels.RetrievalResult retrievalResult = hybridRetriever.retrieve(query);
+            QueryModels.RetrievalResult retrievalResult = hybridRetriever.retrieve(query, event -> { }, deadline);
             
-            // 2. Generate natural language summary
-            String naturalLanguageSummary = generationService.generateNaturalSummary(query, retrievalResult);
+            // 2. Reuse the answer to a paraphrase, or generate one with whatever time is left
+            boolean bypassCache = options != null && options.isBypassCache();
+            SemanticAnswerCache.Match cachedAnswer = semanticAnswerCache.lookup(
+                    retrievalResult.getQueryVector(), retrievalResult.getTopMethodIds(), bypassCache);
+            GenerationService.Answer answer;
+            if (cachedAnswer != null) {
+                answer = GenerationService.Answer.generated(cachedAnswer.getAnswer());
+            } else {
+                answer = generationService.generateAnswer(query, retrievalResult, deadline);
+                if (answer.isGenerated() && deadline.getDegradedStages().isEmpty()) {
+                    semanticAnswerCache.store(retrievalResult.getQueryVector(), retrievalResult.getTopMethodIds(),
+                            answer.getText());
+                }
+            }
             
             // 3. Build combined response with both structured data and natural language
-            QueryModels.QueryResult result = buildQueryResult(query, retrievalResult, naturalLanguageSummary);
+            QueryModels.QueryResult result = buildQueryResult(query, retrievalResult, answer,
+                    deadline.getDegradedStages());
+            if (cachedAnswer != null) {
+                markCachedAnswer(result, cachedAnswer);
+            }
             
             log.info("Query processing completed successfully for: {}", query);
-            return CompletableFuture.completedFuture(result);
+            return result;
             
         } catch (Exception e) {
             log.error("Query processing failed for: {}", query, e);
-            return CompletableFuture.completedFuture(handleExecutionError(e, query));
+            return handleExecutionError(e, query);
         }
     }
     
+    /**
+     * Streaming query processing: reports retrieval stages and answer tokens to the event sink
+     * as they become available, then emits the complete result.
+     */
+    @Async("queryProcessingExecutor")
+    public CompletableFuture<QueryModels.QueryResult> processQueryStreaming(String query,
+                                                                            Consumer<QueryModels.StreamEvent> eventSink) {
+        log.info("Processing streaming query: {}", query);
+        long startTime = System.currentTimeMillis();
+        QueryDeadline deadline = newDeadline();
+
+        try {
+            // 1. Retrieval, with stage events forwarded to the sink
+            QueryModels.RetrievalResult retrievalResult = hybridRetriever.retrieve(query, eventSink, deadline);
+
+            // 2. Stream the answer token by token
+            GenerationService.Answer answer = generationService.streamNaturalSummary(query, retrievalResult,
+                    token -> eventSink.accept(QueryModels.StreamEvent.builder()
+                            .stage(QueryModels.StreamEvent.TOKEN)
+                            .data(token)
+                            .elapsedMs(System.currentTimeMillis() - startTime)
+                            .build()),
+                    deadline
+            ).join();
+
+            // 3. Emit the structured result once generation is complete
+            QueryModels.QueryResult result = buildQueryResult(query, retrievalResult, answer,
+                    deadline.getDegradedStages());
+            eventSink.accept(QueryModels.StreamEvent.builder()
+                    .stage(QueryModels.StreamEvent.RESULT)
+                    .data(result)
+                    .elapsedMs(System.currentTimeMillis() - startTime)
+                    .build());
+
+            log.info("Streaming query processing completed for: {}", query);
+            return CompletableFuture.completedFuture(result);
+
+        } catch (Exception e) {
+            log.error("Streaming query processing failed for: {}", query, e);
+            QueryModels.QueryResult errorResult = handleExecutionError(e, query);
+            eventSink.accept(QueryModels.StreamEvent.builder()
+                    .stage(QueryModels.StreamEvent.ERROR)
+                    .data(errorResult)
+                    .elapsedMs(System.currentTimeMillis() - startTime)
+                    .build());
+            return CompletableFuture.completedFuture(errorResult);
+        }
+    }
+
+    /**
+     * Non-blocking query processing. Admission is bounded by the number of in-flight queries
+     * rather than by a thread pool; excess queries fail fast with RejectedExecutionException.
+     */
+    public Mono<QueryModels.QueryResult> processQueryReactive(String query) {
+        return Mono.defer(() -> {
+            if (inFlightReactiveQueries.incrementAndGet() > maxInFlightReactiveQueries) {
+                inFlightReactiveQueries.decrementAndGet();
+                log.warn("Rejecting query, {} queries already in flight", maxInFlightReactiveQueries);
+                return Mono.<QueryModels.QueryResult>error(new RejectedExecutionException(
+                        "Too many queries in flight (limit " + maxInFlightReactiveQueries + ")"));
+            }
+
+            return hybridRetriever.retrieveReactive(query)
+                    .flatMap(retrievalResult -> Mono
+                            .fromFuture(() -> generationService.streamNaturalSummary(query, retrievalResult, token -> { },
+                                    QueryDeadline.unbounded()))
+                            .map(answer -> buildQueryResult(query, retrievalResult, answer, Map.of())))
+                    .doOnSuccess(result -> log.info("Reactive query processing completed for: {}", query))
+                    .onErrorResume(e -> {
+                        log.error("Reactive query processing failed for: {}", query, e);
+                        return Mono.just(handleExecutionError(e, query));
+                    })
+                    .doFinally(signal -> inFlightReactiveQueries.decrementAndGet());
+        });
+    }
+
+    /**
+     * Starts the latency budget of one query
+     */
+    private QueryDeadline newDeadline() {
+        if (!deadlineEnabled) {
+            return QueryDeadline.unbounded();
+        }
+        return QueryDeadline.start(deadlineTotalMs, Map.of(
+                QueryDeadline.INTENT, intentSlice,
+                QueryDeadline.EXTRACTION, extractionSlice,
+                QueryDeadline.TERM_EXPANSION, termExpansionSlice,
+                QueryDeadline.SEARCH, searchSlice,
+                QueryDeadline.GRAPH_EXPANSION, graphExpansionSlice,
+                QueryDeadline.RERANKING, reRankingSlice
+        ));
+    }
+
     /**
      * Builds the final query result combining structured retrieval data with natural language summary
      */
     private QueryModels.QueryResult buildQueryResult(String query, 
                                                     QueryModels.RetrievalResult retrievalResult,
-                                                    String naturalLanguageSummary) {
+                                                    GenerationService.Answer answer,
+                                                    Map<String, String> degradedStages) {
         
         // Initialize empty lists for the case when retrievalResult is null or empty
         List<QueryModels.RelevantComponent> components = new ArrayList<>();
@@ -105,7 +272,7 @@ public class QueryOrchestrator {
         
         return QueryModels.QueryResult.builder()
                 .query(query)
-                .summary(naturalLanguageSummary)
+                .summary(answer.getText())
                 .components(components)
                 .relationships(relationships)
                 .confidence(calculateConfidence(retrievalResult))
@@ -116,11 +283,24 @@ public class QueryOrchestrator {
                         "avgRelevanceScore", retrievalResult != null && retrievalResult.getScoreMap() != null ? 
                             retrievalResult.getScoreMap().values().stream().mapToDouble(Double::doubleValue).average().orElse(0.0) : 0.0,
                         "methodCount", components.stream().mapToInt(c -> "method".equals(c.getType()) ? 1 : 0).sum(),
-                        "classCount", components.stream().mapToInt(c -> "class".equals(c.getType()) ? 1 : 0).sum()
+                        "classCount", components.stream().mapToInt(c -> "class".equals(c.getType()) ? 1 : 0).sum(),
+                        "degradedStages", degradedStages,
+                        "answerGenerated", answer.isGenerated()
                 ))
                 .build();
     }
     
+    /**
+     * Records in the result metadata that the answer was reused from the semantic cache
+     */
+    private void markCachedAnswer(QueryModels.QueryResult result, SemanticAnswerCache.Match cachedAnswer) {
+        Map<String, Object> metadata = new HashMap<>(result.getMetadata());
+        metadata.put("answerSource", "semanticCache");
+        metadata.put("answerSimilarity", cachedAnswer.getSimilarity());
+        metadata.put("retrievedSetOverlap", cachedAnswer.getOverlap());
+        result.setMetadata(metadata);
+    }
+
     /**
      * Calculates confidence based on retrieval quality
      */
@@ -168,8 +348,15 @@ public class QueryOrchestrator {
      * Legacy compatibility method for existing callers
      */
     public QueryModels.QueryResult query(String userQuery) {
+        return query(userQuery, null);
+    }
+
+    /**
+     * Synchronous query processing with the caller's query options
+     */
+    public QueryModels.QueryResult query(String userQuery, QueryModels.QueryOptions options) {
         try {
-            return processQuery(userQuery).get();
+            return processQuery(userQuery, options).get();
         } catch (Exception e) {
             log.error("Synchronous query processing failed", e);
             return handleExecutionError(e, userQuery);
@@ -0,0 +1,193 @@
+package com.tekion.javaastkg.query;
+
+import com.tekion.javaastkg.model.QueryModels;
+import com.tekion.javaastkg.query.services.GraphVersionService;
+import com.tekion.javaastkg.util.BoundedCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of complete query results in front of the query pipeline. Queries are keyed by a
+ * canonical form (lower-cased words with plurals folded and stop words removed, in their order),
+ * the query options and the graph version, so variants such as "How does the order pricing work?"
+ * and "how does order pricing work" share one entry. Interrogatives and word order are kept:
+ * "where is X" asks something else than "why is X", and "A calls B" than "B calls A".
+ * Concurrent identical queries are collapsed into one pipeline run. Failed and degraded results,
+ * and results whose answer is a fallback rather than a generated one, are not cached.
+ */
+@Service
+@Slf4j
+public class QueryResultCache {
+
+    private static final Pattern WORD_DELIMITERS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "the", "is", "are", "was", "were", "be", "been", "do", "does", "did",
+        "can", "could", "should", "would", "will", "may", "might", "i", "we", "you", "it", "its", "me", "my", "our", "this", "that",
+        "these", "those", "in", "on", "at", "of", "for", "to", "from", "by", "with", "about",
+        "and", "or", "there", "here", "please", "show", "tell", "explain"
+    );
+
+    private final GraphVersionService graphVersionService;
+    private final Map<String, CompletableFuture<QueryModels.QueryResult>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    private BoundedCache<String, QueryModels.QueryResult> results;
+
+    @Value("${query.result-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query.result-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${query.result-cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    public QueryResultCache(GraphVersionService graphVersionService) {
+        this.graphVersionService = graphVersionService;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        results = new BoundedCache<>("queryResult", maxEntries, ttlMs);
+    }
+
+    /**
+     * Returns the cached result for the query, joins an identical query already running, or runs
+     * the pipeline and caches its result. Whatever the source, the result echoes this query's text.
+     * A request that bypasses the cache always runs the pipeline, and its result replaces the cached one.
+     */
+    public QueryModels.QueryResult get(String query, QueryModels.QueryOptions options,
+                                       Supplier<QueryModels.QueryResult> pipeline) {
+        if (!enabled) {
+            return pipeline.get();
+        }
+
+        String key = key(query, options);
+        if (options != null && options.isBypassCache()) {
+            QueryModels.QueryResult result = pipeline.get();
+            if (isCacheable(result)) {
+                results.put(key, result);
+            }
+            return result;
+        }
+
+        QueryModels.QueryResult cached = results.get(key);
+        if (cached != null) {
+            log.debug("Serving cached result for query: {}", query);
+            return forQuery(cached, query, "cache");
+        }
+
+        CompletableFuture<QueryModels.QueryResult> execution = new CompletableFuture<>();
+        CompletableFuture<QueryModels.QueryResult> running = inFlight.putIfAbsent(key, execution);
+        if (running != null) {
+            coalesced.increment();
+            log.debug("Joining identical query already in flight: {}", query);
+            return forQuery(running.join(), query, "inFlight");
+        }
+
+        try {
+            QueryModels.QueryResult result = pipeline.get();
+            if (isCacheable(result)) {
+                results.put(key, result);
+            }
+            execution.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, execution);
+        }
+    }
+
+    /**
+     * Drops every cached result; called after ingestion, when the graph has changed
+     */
+    public void invalidateAll() {
+        results.invalidateAll();
+        log.info("Query result cache invalidated");
+    }
+
+    public BoundedCache.Stats getStats() {
+        return results.stats();
+    }
+
+    /**
+     * Number of queries that were answered by joining an identical query in flight
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Canonical form of a query: lower-cased words without stop words, plurals folded,
+     * in query order
+     */
+    static String canonicalize(String query) {
+        List<String> tokens = new ArrayList<>();
+        String text = query == null ? "" : query.toLowerCase(Locale.ROOT);
+        for (String word : WORD_DELIMITERS.split(text)) {
+            if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
+                tokens.add(foldPlural(word));
+            }
+        }
+        return String.join(" ", tokens);
+    }
+
+    private static String foldPlural(String word) {
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+
+    private String key(String query, QueryModels.QueryOptions options) {
+        QueryModels.QueryOptions effective = options != null ? options : new QueryModels.QueryOptions();
+        return graphVersionService.current() + "|" + effective.getMaxResults() + "|" + effective.isIncludeCode()
+                + "|" + effective.isIncludeRelationships() + "|" + effective.getExpansionDepth()
+                + "|" + canonicalize(query);
+    }
+
+    private static boolean isCacheable(QueryModels.QueryResult result) {
+        if (result == null || result.getMetadata() == null) {
+            return false;
+        }
+        Map<String, Object> metadata = result.getMetadata();
+        if (Boolean.TRUE.equals(metadata.get("error")) || !Boolean.TRUE.equals(metadata.get("answerGenerated"))) {
+            return false;
+        }
+        Object degraded = metadata.get("degradedStages");
+        return !(degraded instanceof Map<?, ?> stages) || stages.isEmpty();
+    }
+
+    /**
+     * Copy of a shared result carrying the asking query's text and where the result came from
+     */
+    private static QueryModels.QueryResult forQuery(QueryModels.QueryResult result, String query, String source) {
+        Map<String, Object> metadata = new HashMap<>();
+        if (result.getMetadata() != null) {
+            metadata.putAll(result.getMetadata());
+        }
+        metadata.put("resultSource", source);
+        return QueryModels.QueryResult.builder()
+                .query(query)
+                .summary(result.getSummary())
+                .components(result.getComponents())
+                .relationships(result.getRelationships())
+                .metadata(metadata)
+                .confidence(result.getConfidence())
+                .processingTimeMs(result.getProcessingTimeMs())
+                .timestamp(result.getTimestamp())
+                .build();
+    }
+}
@@ -0,0 +1,369 @@
+package com.tekion.javaastkg.query;
+
+import com.tekion.javaastkg.query.services.GraphVersionService;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of generated answers looked up by query embedding, so paraphrases such as
+ * "where is tax calculated" and "which class computes tax" share one generation. An answer is
+ * reused only when the query vectors are within the cosine threshold and the new query retrieved
+ * largely the same nodes, measured as the Jaccard overlap of the seed ids.
+ *
+ * <p>Candidates are found with random-hyperplane LSH: several tables of sign bits over fixed
+ * random hyperplanes, probing each table's own bucket and the buckets one bit away. Entries are
+ * bounded in number (least recently used first out) and age, and belong to one graph version.
+ */
+@Service
+@Slf4j
+public class SemanticAnswerCache {
+
+    private static final long HYPERPLANE_SEED = 0x5EEDCAC4EL;
+
+    private final GraphVersionService graphVersionService;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder falseHits = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /** Entries by id in access order, so the eldest is the least recently used */
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private List<Map<Integer, List<Entry>>> tables;
+    private float[][][] hyperplanes;
+    private int dimension = -1;
+    private long nextId;
+
+    @Value("${query.semantic-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query.semantic-cache.similarity-threshold:0.92}")
+    private double similarityThreshold;
+
+    @Value("${query.semantic-cache.min-overlap:0.5}")
+    private double minOverlap;
+
+    @Value("${query.semantic-cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${query.semantic-cache.ttl-ms:1800000}")
+    private long ttlMs;
+
+    @Value("${query.semantic-cache.hash-tables:4}")
+    private int hashTables;
+
+    @Value("${query.semantic-cache.hash-bits:8}")
+    private int hashBits;
+
+    public SemanticAnswerCache(GraphVersionService graphVersionService) {
+        this.graphVersionService = graphVersionService;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        hashBits = Math.max(1, Math.min(hashBits, 30));
+        hashTables = Math.max(1, hashTables);
+        tables = new ArrayList<>(hashTables);
+        for (int t = 0; t < hashTables; t++) {
+            tables.add(new HashMap<>());
+        }
+        log.info("Semantic answer cache {}: threshold {}, min overlap {}, {} tables x {} bits",
+                enabled ? "enabled" : "disabled", similarityThreshold, minOverlap, hashTables, hashBits);
+    }
+
+    /**
+     * Finds a cached answer for a query vector and its retrieved node ids. Returns null on a miss,
+     * when the vector is missing, or when the request bypasses the cache. A candidate that is
+     * similar enough but retrieved different nodes is rejected and counted as a false hit.
+     */
+    public synchronized Match lookup(float[] queryVector, Collection<String> nodeIds, boolean bypass) {
+        if (!enabled || queryVector == null || queryVector.length == 0) {
+            return null;
+        }
+        lookups.increment();
+        if (bypass) {
+            bypassed.increment();
+            return null;
+        }
+        if (queryVector.length != dimension) {
+            misses.increment();
+            return null;
+        }
+
+        float[] vector = normalize(queryVector);
+        Set<String> retrieved = nodeIds != null ? new HashSet<>(nodeIds) : Set.of();
+        long version = graphVersionService.current();
+        long now = System.currentTimeMillis();
+
+        List<Entry> stale = new ArrayList<>();
+        List<Match> similar = new ArrayList<>();
+        for (Entry entry : candidates(vector)) {
+            if (entry.graphVersion != version || now - entry.createdAt > ttlMs) {
+                stale.add(entry);
+                continue;
+            }
+            double similarity = dot(vector, entry.vector);
+            if (similarity >= similarityThreshold) {
+                similar.add(new Match(entry.id, entry.answer, similarity, overlap(retrieved, entry.nodeIds)));
+            }
+        }
+        stale.forEach(this::remove);
+
+        similar.sort(Comparator.comparingDouble(Match::getSimilarity).reversed());
+        for (Match match : similar) {
+            if (match.getOverlap() >= minOverlap) {
+                entries.get(match.entryId);
+                hits.increment();
+                log.debug("Semantic cache hit: similarity {}, overlap {}",
+                        String.format("%.3f", match.getSimilarity()), String.format("%.2f", match.getOverlap()));
+                return match;
+            }
+        }
+        if (similar.isEmpty()) {
+            misses.increment();
+        } else {
+            falseHits.increment();
+            log.debug("Semantic cache rejected {} similar answers on retrieved-set overlap", similar.size());
+        }
+        return null;
+    }
+
+    /**
+     * Caches an answer under its query vector and retrieved node ids for the current graph version
+     */
+    public synchronized void store(float[] queryVector, Collection<String> nodeIds, String answer) {
+        if (!enabled || queryVector == null || queryVector.length == 0 || answer == null) {
+            return;
+        }
+        if (queryVector.length != dimension) {
+            // First vector, or a different embedding model: hyperplanes must match the dimension
+            clear();
+            dimension = queryVector.length;
+            hyperplanes = hyperplanes(dimension);
+        }
+
+        float[] vector = normalize(queryVector);
+        int[] signatures = new int[hashTables];
+        for (int t = 0; t < hashTables; t++) {
+            signatures[t] = signature(t, vector);
+        }
+        Entry entry = new Entry(nextId++, vector, signatures, answer,
+                nodeIds != null ? Set.copyOf(nodeIds) : Set.of(),
+                graphVersionService.current(), System.currentTimeMillis());
+        entries.put(entry.id, entry);
+        for (int t = 0; t < hashTables; t++) {
+            tables.get(t).computeIfAbsent(signatures[t], s -> new ArrayList<>()).add(entry);
+        }
+        stores.increment();
+
+        while (entries.size() > maxEntries) {
+            remove(entries.values().iterator().next());
+        }
+    }
+
+    /**
+     * Drops every cached answer; called after ingestion, when the graph has changed
+     */
+    public synchronized void invalidateAll() {
+        clear();
+        log.info("Semantic answer cache invalidated");
+    }
+
+    public synchronized Stats getStats() {
+        long hitCount = hits.sum();
+        long answered = hitCount + misses.sum() + falseHits.sum();
+        return Stats.builder()
+                .size(entries.size())
+                .maxEntries(maxEntries)
+                .lookups(lookups.sum())
+                .hits(hitCount)
+                .misses(misses.sum())
+                .falseHits(falseHits.sum())
+                .bypassed(bypassed.sum())
+                .stores(stores.sum())
+                .hitRate(answered == 0 ? 0.0 : (double) hitCount / answered)
+                .build();
+    }
+
+    /**
+     * Entries in the probed buckets: each table's own bucket and those differing in one bit
+     */
+    private Collection<Entry> candidates(float[] vector) {
+        Set<Entry> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int t = 0; t < hashTables; t++) {
+            Map<Integer, List<Entry>> table = tables.get(t);
+            int signature = signature(t, vector);
+            addBucket(candidates, table, signature);
+            for (int bit = 0; bit < hashBits; bit++) {
+                addBucket(candidates, table, signature ^ (1 << bit));
+            }
+        }
+        return candidates;
+    }
+
+    private static void addBucket(Set<Entry> candidates, Map<Integer, List<Entry>> table, int signature) {
+        List<Entry> bucket = table.get(signature);
+        if (bucket != null) {
+            candidates.addAll(bucket);
+        }
+    }
+
+    private int signature(int table, float[] vector) {
+        int signature = 0;
+        for (int bit = 0; bit < hashBits; bit++) {
+            if (dot(vector, hyperplanes[table][bit]) >= 0) {
+                signature |= 1 << bit;
+            }
+        }
+        return signature;
+    }
+
+    private float[][][] hyperplanes(int dimension) {
+        Random random = new Random(HYPERPLANE_SEED);
+        float[][][] planes = new float[hashTables][hashBits][dimension];
+        for (float[][] table : planes) {
+            for (float[] plane : table) {
+                for (int i = 0; i < dimension; i++) {
+                    plane[i] = (float) random.nextGaussian();
+                }
+            }
+        }
+        return planes;
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.id);
+        for (int t = 0; t < hashTables; t++) {
+            List<Entry> bucket = tables.get(t).get(entry.signatures[t]);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    tables.get(t).remove(entry.signatures[t]);
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        entries.clear();
+        tables.forEach(Map::clear);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Jaccard overlap of two retrieved sets; two empty sets count as the same retrieval
+     */
+    private static double overlap(Set<String> current, Set<String> cached) {
+        if (current.isEmpty() && cached.isEmpty()) {
+            return 1.0;
+        }
+        int intersection = 0;
+        for (String id : current) {
+            if (cached.contains(id)) {
+                intersection++;
+            }
+        }
+        int union = current.size() + cached.size() - intersection;
+        return (double) intersection / union;
+    }
+
+    /**
+     * A reusable cached answer with its similarity to the query and the overlap of the retrieved sets
+     */
+    public static final class Match {
+        private final long entryId;
+        private final String answer;
+        private final double similarity;
+        private final double overlap;
+
+        private Match(long entryId, String answer, double similarity, double overlap) {
+            this.entryId = entryId;
+            this.answer = answer;
+            this.similarity = similarity;
+            this.overlap = overlap;
+        }
+
+        public String getAnswer() {
+            return answer;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        public double getOverlap() {
+            return overlap;
+        }
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final float[] vector;
+        private final int[] signatures;
+        private final String answer;
+        private final Set<String> nodeIds;
+        private final long graphVersion;
+        private final long createdAt;
+
+        private Entry(long id, float[] vector, int[] signatures, String answer, Set<String> nodeIds,
+                      long graphVersion, long createdAt) {
+            this.id = id;
+            this.vector = vector;
+            this.signatures = signatures;
+            this.answer = answer;
+            this.nodeIds = nodeIds;
+            this.graphVersion = graphVersion;
+            this.createdAt = createdAt;
+        }
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stats {
+        private int size;
+        private int maxEntries;
+        private long lookups;
+        private long hits;
+        private long misses;
+        private long falseHits;
+        private long bypassed;
+        private long stores;
+        private double hitRate;
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
@@ -68,6 +69,17 @@ public class CompoundTermGenerator {
      * Generates compound terms from a list of query terms
      */
     public List<String> generateCompounds(List<String> terms) {
+        return generateCompounds(terms, CompoundTermGenerator::capitalize);
+    }
+
+    /**
+     * Generates compound terms from the base terms of an analyzed query, reusing its memoized capitalizations
+     */
+    public List<String> generateCompounds(QueryAnalysis analysis) {
+        return generateCompounds(analysis.getTerms(), analysis::capitalize);
+    }
+
+    private List<String> generateCompounds(List<String> terms, UnaryOperator<String> capitalizer) {
         if (!compoundGenerationEnabled || terms == null || terms.size() < 2) {
             return new ArrayList<>();
         }
@@ -80,17 +92,17 @@ public class CompoundTermGenerator {
         Set<String> compounds = new LinkedHashSet<>();
         
         // Generate 2-term combinations
-        generateTwoTermCompounds(meaningfulTerms, compounds);
+        generateTwoTermCompounds(meaningfulTerms, compounds, capitalizer);
         
         // Generate semantic expansions
-        generateSemanticCompounds(meaningfulTerms, compounds);
+        generateSemanticCompounds(meaningfulTerms, compounds, capitalizer);
         
         // Generate pattern-based compounds
         generatePatternBasedCompounds(meaningfulTerms, compounds);
         
         // Generate multi-term compounds (3+ terms)
         if (meaningfulTerms.size() >= 3) {
-            generateMultiTermCompounds(meaningfulTerms, compounds);
+            generateMultiTermCompounds(meaningfulTerms, compounds, capitalizer);
         }
         
         // Limit the number of compounds
@@ -105,30 +117,35 @@ public class CompoundTermGenerator {
     /**
      * Generates all 2-term combinations
      */
-    private void generateTwoTermCompounds(List<String> terms, Set<String> compounds) {
+    private void generateTwoTermCompounds(List<String> terms, Set<String> compounds,
+                                          UnaryOperator<String> capitalizer) {
         for (int i = 0; i < terms.size(); i++) {
             for (int j = i + 1; j < terms.size(); j++) {
                 String term1 = terms.get(i);
                 String term2 = terms.get(j);
+                String upper1 = capitalizer.apply(term1);
+                String upper2 = capitalizer.apply(term2);
+                String lower1 = term1.toLowerCase();
+                String lower2 = term2.toLowerCase();
                 
                 // Direct combinations
-                compounds.add(capitalize(term1) + capitalize(term2));
-                compounds.add(capitalize(term2) + capitalize(term1));
+                compounds.add(upper1 + upper2);
+                compounds.add(upper2 + upper1);
                 
                 // With common suffixes
-                compounds.add(capitalize(term1) + capitalize(term2) + "Service");
-                compounds.add(capitalize(term2) + capitalize(term1) + "Service");
-                compounds.add(capitalize(term1) + capitalize(term2) + "Manager");
-                compounds.add(capitalize(term2) + capitalize(term1) + "Manager");
+                compounds.add(upper1 + upper2 + "Service");
+                compounds.add(upper2 + upper1 + "Service");
+                compounds.add(upper1 + upper2 + "Manager");
+                compounds.add(upper2 + upper1 + "Manager");
                 
                 // Underscore combinations
-                compounds.add(term1.toLowerCase() + "_" + term2.toLowerCase());
-                compounds.add(term2.toLowerCase() + "_" + term1.toLowerCase());
+                compounds.add(lower1 + "_" + lower2);
+                compounds.add(lower2 + "_" + lower1);
                 
                 // Method-like combinations
-                compounds.add("get" + capitalize(term1) + capitalize(term2));
-                compounds.add("process" + capitalize(term1) + capitalize(term2));
-                compounds.add("handle" + capitalize(term1) + capitalize(term2));
+                compounds.add("get" + upper1 + upper2);
+                compounds.add("process" + upper1 + upper2);
+                compounds.add("handle" + upper1 + upper2);
             }
         }
     }
@@ -136,20 +153,26 @@ public class CompoundTermGenerator {
     /**
      * Generates compounds using semantic relationships
      */
-    private void generateSemanticCompounds(List<String> terms, Set<String> compounds) {
+    private void generateSemanticCompounds(List<String> terms, Set<String> compounds,
+                                           UnaryOperator<String> capitalizer) {
         for (String term : terms) {
             List<String> semanticAlternatives = getSemanticAlternatives(term);
+            if (semanticAlternatives.isEmpty()) {
+                continue;
+            }
             
             // Combine with other terms
             for (String otherTerm : terms) {
                 if (!term.equals(otherTerm)) {
+                    String upperOther = capitalizer.apply(otherTerm);
                     for (String alternative : semanticAlternatives) {
-                        compounds.add(capitalize(alternative) + capitalize(otherTerm));
-                        compounds.add(capitalize(otherTerm) + capitalize(alternative));
+                        String upperAlternative = capitalizer.apply(alternative);
+                        compounds.add(upperAlternative + upperOther);
+                        compounds.add(upperOther + upperAlternative);
                         
                         // With common patterns
-                        compounds.add(capitalize(alternative) + capitalize(otherTerm) + "Handler");
-                        compounds.add(capitalize(otherTerm) + capitalize(alternative) + "Processor");
+                        compounds.add(upperAlternative + upperOther + "Handler");
+                        compounds.add(upperOther + upperAlternative + "Processor");
                     }
                 }
             }
@@ -205,7 +228,8 @@ public class CompoundTermGenerator {
     /**
      * Generates compounds with 3 or more terms
      */
-    private void generateMultiTermCompounds(List<String> terms, Set<String> compounds) {
+    private void generateMultiTermCompounds(List<String> terms, Set<String> compounds,
+                                            UnaryOperator<String> capitalizer) {
         if (terms.size() > 4) {
             // Limit to prevent explosion of combinations
             return;
@@ -216,9 +240,9 @@ public class CompoundTermGenerator {
             for (int i = 0; i < terms.size(); i++) {
                 for (int j = i + 1; j < terms.size(); j++) {
                     for (int k = j + 1; k < terms.size(); k++) {
-                        String term1 = capitalize(terms.get(i));
-                        String term2 = capitalize(terms.get(j));
-                        String term3 = capitalize(terms.get(k));
+                        String term1 = capitalizer.apply(terms.get(i));
+                        String term2 = capitalizer.apply(terms.get(j));
+                        String term3 = capitalizer.apply(terms.get(k));
                         
                         // Different ordering patterns
                         compounds.add(term1 + term2 + term3);
@@ -369,7 +393,7 @@ public class CompoundTermGenerator {
     /**
      * Capitalizes first letter of a string
      */
-    private String capitalize(String str) {
+    private static String capitalize(String str) {
         if (str == null || str.isEmpty()) {
             return str;
         }
@@ -1,5 +1,7 @@
 package com.tekion.javaastkg.query.intelligence;
 
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -58,163 +60,182 @@ public class EmbeddingBasedExpander {
             return Collections.emptyList();
         }
         
-        log.debug("Finding semantically similar terms for: {}", queryTerm);
+        return findSimilarTermsBatch(List.of(queryTerm), threshold)
+            .getSimilarTerms()
+            .getOrDefault(queryTerm, Collections.emptyList());
+    }
+    
+    /**
+     * Finds similar terms for multiple query terms
+     */
+    public Map<String, List<String>> findSimilarTermsForMultiple(List<String> queryTerms) {
+        return findSimilarTermsBatch(queryTerms).getSimilarTerms();
+    }
+    
+    /**
+     * Finds similar terms for multiple query terms in one batch, using the configured threshold
+     */
+    public SimilarTermsBatch findSimilarTermsBatch(List<String> queryTerms) {
+        return findSimilarTermsBatch(queryTerms, similarityThreshold);
+    }
+    
+    /**
+     * Finds similar terms for all query terms at once: one embedAll call for every term, then
+     * one vector query per index that looks up all term vectors via UNWIND. The three index
+     * queries run in parallel.
+     */
+    public SimilarTermsBatch findSimilarTermsBatch(List<String> queryTerms, float threshold) {
+        long startTime = System.currentTimeMillis();
+        List<String> terms = queryTerms == null ? List.of() : queryTerms.stream()
+            .filter(term -> term != null && !term.trim().isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
+        
+        if (terms.isEmpty()) {
+            return SimilarTermsBatch.builder()
+                .similarTerms(new HashMap<>())
+                .build();
+        }
+        
+        log.debug("Finding semantically similar terms for {} terms", terms.size());
         
         try {
-            // Generate embedding for query term
-            float[] queryEmbedding = embeddingModel.embed(queryTerm).content().vector();
+            // Generate embeddings for all terms in one call
+            List<TextSegment> segments = terms.stream().map(TextSegment::from).collect(Collectors.toList());
+            List<float[]> queryVectors = embeddingModel.embedAll(segments).content().stream()
+                .map(Embedding::vector)
+                .collect(Collectors.toList());
             
-            // Search across all embedding types in parallel
+            // Search across all embedding types in parallel, each covering every term
             List<CompletableFuture<List<SimilarTerm>>> searchFutures = Arrays.asList(
-                CompletableFuture.supplyAsync(() -> searchMethodEmbeddings(queryEmbedding, threshold), executorService),
-                CompletableFuture.supplyAsync(() -> searchClassEmbeddings(queryEmbedding, threshold), executorService),
-                CompletableFuture.supplyAsync(() -> searchDescriptionTerms(queryEmbedding, threshold), executorService)
+                CompletableFuture.supplyAsync(() -> searchMethodEmbeddings(queryVectors, threshold), executorService),
+                CompletableFuture.supplyAsync(() -> searchClassEmbeddings(queryVectors, threshold), executorService),
+                CompletableFuture.supplyAsync(() -> searchDescriptionTerms(queryVectors, threshold), executorService)
             );
             
-            // Combine and deduplicate results
-            Set<SimilarTerm> allSimilarTerms = new HashSet<>();
+            // Group hits by the term whose vector found them, deduplicating per term
+            Map<Integer, Set<SimilarTerm>> hitsByTerm = new HashMap<>();
             for (CompletableFuture<List<SimilarTerm>> future : searchFutures) {
-                allSimilarTerms.addAll(future.join());
+                for (SimilarTerm hit : future.join()) {
+                    hitsByTerm.computeIfAbsent(hit.getTermIndex(), index -> new HashSet<>()).add(hit);
+                }
             }
             
             // Sort by similarity score and extract terms
-            List<String> similarTerms = allSimilarTerms.stream()
-                .sorted(Comparator.comparing(SimilarTerm::getScore).reversed())
-                .limit(maxEmbeddingExpansions)
-                .map(SimilarTerm::getTerm)
-                .distinct()
-                .collect(Collectors.toList());
+            Map<String, List<String>> similarTermsMap = new HashMap<>();
+            hitsByTerm.forEach((termIndex, hits) -> {
+                List<String> similarTerms = hits.stream()
+                    .sorted(Comparator.comparing(SimilarTerm::getScore).reversed())
+                    .limit(maxEmbeddingExpansions)
+                    .map(SimilarTerm::getTerm)
+                    .distinct()
+                    .collect(Collectors.toList());
+                if (!similarTerms.isEmpty()) {
+                    similarTermsMap.put(terms.get(termIndex), similarTerms);
+                }
+            });
+            
+            long latencyMs = System.currentTimeMillis() - startTime;
+            log.debug("Found similar terms for {}/{} terms in {} ms", similarTermsMap.size(), terms.size(), latencyMs);
             
-            log.debug("Found {} similar terms for '{}'", similarTerms.size(), queryTerm);
-            return similarTerms;
+            return SimilarTermsBatch.builder()
+                .similarTerms(similarTermsMap)
+                .termCount(terms.size())
+                .latencyMs(latencyMs)
+                .build();
             
         } catch (Exception e) {
-            log.error("Failed to find similar terms for '{}'", queryTerm, e);
-            return Collections.emptyList();
+            log.error("Failed to find similar terms for {}", terms, e);
+            return SimilarTermsBatch.builder()
+                .similarTerms(new HashMap<>())
+                .termCount(terms.size())
+                .latencyMs(System.currentTimeMillis() - startTime)
+                .failed(true)
+                .build();
         }
     }
     
     /**
-     * Finds similar terms for multiple query terms
+     * Searches method embeddings for similar terms
      */
-    public Map<String, List<String>> findSimilarTermsForMultiple(List<String> queryTerms) {
-        Map<String, List<String>> similarTermsMap = new HashMap<>();
+    private List<SimilarTerm> searchMethodEmbeddings(List<float[]> queryVectors, float threshold) {
+        String query = """
+            UNWIND range(0, size($queryVectors) - 1) AS termIndex
+            CALL db.index.vector.queryNodes('method_embeddings', $topK, $queryVectors[termIndex])
+            YIELD node, score
+            WHERE score >= $threshold
+            RETURN DISTINCT termIndex,
+                   node.name as term, 
+                   node.className as context, 
+                   score,
+                   'method' as type
+            """;
         
-        for (String term : queryTerms) {
-            List<String> similarTerms = findSemanticallySimilarTerms(term, similarityThreshold);
-            if (!similarTerms.isEmpty()) {
-                similarTermsMap.put(term, similarTerms);
-            }
-        }
-        
-        return similarTermsMap;
+        return searchVectorIndex("Method", query, queryVectors, threshold, false);
     }
     
     /**
-     * Searches method embeddings for similar terms
+     * Searches class embeddings for similar terms
      */
-    private List<SimilarTerm> searchMethodEmbeddings(float[] queryVector, float threshold) {
-        try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
-                CALL db.index.vector.queryNodes('method_embeddings', $topK, $queryVector)
-                YIELD node, score
-                WHERE score >= $threshold
-                RETURN DISTINCT node.name as term, 
-                       node.className as context, 
-                       score,
-                       'method' as type
-                ORDER BY score DESC
-                """;
-            
-            Map<String, Object> params = Map.of(
-                "topK", embeddingSearchLimit,
-                "queryVector", queryVector,
-                "threshold", threshold
-            );
-            
-            return session.run(query, params)
-                .list(record -> SimilarTerm.builder()
-                    .term(record.get("term").asString())
-                    .context(record.get("context").asString())
-                    .score(record.get("score").asFloat())
-                    .type(record.get("type").asString())
-                    .build());
-                    
-        } catch (Exception e) {
-            log.debug("Method embedding search failed: {}", e.getMessage());
-            return Collections.emptyList();
-        }
+    private List<SimilarTerm> searchClassEmbeddings(List<float[]> queryVectors, float threshold) {
+        String query = """
+            UNWIND range(0, size($queryVectors) - 1) AS termIndex
+            CALL db.index.vector.queryNodes('class_embeddings', $topK, $queryVectors[termIndex])
+            YIELD node, score
+            WHERE score >= $threshold
+            RETURN DISTINCT termIndex,
+                   node.name as term, 
+                   node.packageName as context, 
+                   score,
+                   labels(node)[0] as type
+            """;
+        
+        return searchVectorIndex("Class", query, queryVectors, threshold, true);
     }
     
     /**
-     * Searches class embeddings for similar terms
+     * Searches description embeddings for terms mentioned in descriptions
      */
-    private List<SimilarTerm> searchClassEmbeddings(float[] queryVector, float threshold) {
-        try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
-                CALL db.index.vector.queryNodes('class_embeddings', $topK, $queryVector)
-                YIELD node, score
-                WHERE score >= $threshold
-                RETURN DISTINCT node.name as term, 
-                       node.packageName as context, 
-                       score,
-                       labels(node)[0] as type
-                ORDER BY score DESC
-                """;
-            
-            Map<String, Object> params = Map.of(
-                "topK", embeddingSearchLimit,
-                "queryVector", queryVector,
-                "threshold", threshold
-            );
-            
-            return session.run(query, params)
-                .list(record -> SimilarTerm.builder()
-                    .term(record.get("term").asString())
-                    .context(record.get("context").asString())
-                    .score(record.get("score").asFloat())
-                    .type(record.get("type").asString().toLowerCase())
-                    .build());
-                    
-        } catch (Exception e) {
-            log.debug("Class embedding search failed: {}", e.getMessage());
-            return Collections.emptyList();
-        }
+    private List<SimilarTerm> searchDescriptionTerms(List<float[]> queryVectors, float threshold) {
+        String query = """
+            UNWIND range(0, size($queryVectors) - 1) AS termIndex
+            CALL db.index.vector.queryNodes('description_embeddings', $topK, $queryVectors[termIndex])
+            YIELD node, score
+            WHERE score >= $threshold
+            MATCH (code)-[:HAS_DESCRIPTION]->(node)
+            RETURN DISTINCT termIndex,
+                   code.name as term,
+                   COALESCE(code.className, code.packageName) as context,
+                   score,
+                   labels(code)[0] as type
+            """;
+        
+        return searchVectorIndex("Description", query, queryVectors, threshold, true);
     }
     
     /**
-     * Searches description embeddings for terms mentioned in descriptions
+     * Runs one batched vector query and maps its rows to similar terms tagged with their term index
      */
-    private List<SimilarTerm> searchDescriptionTerms(float[] queryVector, float threshold) {
+    private List<SimilarTerm> searchVectorIndex(String indexName, String query, List<float[]> queryVectors,
+                                                float threshold, boolean lowerCaseType) {
         try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
-                CALL db.index.vector.queryNodes('description_embeddings', $topK, $queryVector)
-                YIELD node, score
-                WHERE score >= $threshold
-                MATCH (code)-[:HAS_DESCRIPTION]->(node)
-                RETURN DISTINCT code.name as term,
-                       COALESCE(code.className, code.packageName) as context,
-                       score,
-                       labels(code)[0] as type
-                ORDER BY score DESC
-                """;
-            
             Map<String, Object> params = Map.of(
                 "topK", embeddingSearchLimit,
-                "queryVector", queryVector,
+                "queryVectors", queryVectors,
                 "threshold", threshold
             );
             
             return session.run(query, params)
                 .list(record -> SimilarTerm.builder()
+                    .termIndex(record.get("termIndex").asInt())
                     .term(record.get("term").asString())
                     .context(record.get("context").asString())
                     .score(record.get("score").asFloat())
-                    .type(record.get("type").asString().toLowerCase())
+                    .type(lowerCaseType ? record.get("type").asString().toLowerCase() : record.get("type").asString())
                     .build());
                     
         } catch (Exception e) {
-            log.debug("Description embedding search failed: {}", e.getMessage());
+            log.debug("{} embedding search failed: {}", indexName, e.getMessage());
             return Collections.emptyList();
         }
     }
@@ -303,13 +324,10 @@ public class EmbeddingBasedExpander {
         Map<String, List<String>> termExpansions = new HashMap<>();
         Map<String, List<CodeElement>> relatedElements = new HashMap<>();
         
+        // Get similar terms for all key terms in one batch
+        termExpansions.putAll(findSimilarTermsBatch(keyTerms, similarityThreshold).getSimilarTerms());
+        
         for (String term : keyTerms) {
-            // Get similar terms
-            List<String> similarTerms = findSemanticallySimilarTerms(term, similarityThreshold);
-            if (!similarTerms.isEmpty()) {
-                termExpansions.put(term, similarTerms);
-            }
-            
             // Get related code elements based on intent
             if (shouldFindRelatedElements(intent)) {
                 List<CodeElement> elements = findRelatedCodeElements(term);
@@ -378,6 +396,7 @@ public class EmbeddingBasedExpander {
     @NoArgsConstructor
     @AllArgsConstructor
     private static class SimilarTerm {
+        private int termIndex;
         private String term;
         private String context;
         private float score;
@@ -397,6 +416,20 @@ public class EmbeddingBasedExpander {
         }
     }
     
+    /**
+     * Similar terms found for a batch of query terms, with the latency of the whole batch
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SimilarTermsBatch {
+        private Map<String, List<String>> similarTerms;
+        private int termCount;
+        private long latencyMs;
+        private boolean failed;
+    }
+    
     /**
      * Data class for code elements
      */
@@ -1,16 +1,17 @@
 package com.tekion.javaastkg.query.intelligence;
 
+import com.tekion.javaastkg.util.BoundedCache;
+import com.tekion.javaastkg.util.EditDistance;
+import jakarta.annotation.PostConstruct;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -35,9 +36,15 @@ public class ExpansionQualityFilter {
     
     @Value("${query_optimization.quality_control.max_edit_distance:5}")
     private int maxEditDistance;
-    
-    // Cache for string similarity calculations
-    private final Map<String, Double> similarityCache = new ConcurrentHashMap<>();
+
+    @Value("${query_optimization.quality_control.similarity_cache_size:10000}")
+    private int similarityCacheSize;
+
+    @Value("${query_optimization.quality_control.similarity_cache_ttl_ms:600000}")
+    private long similarityCacheTtlMs;
+
+    // Cache for string similarity calculations, bounded so it cannot grow across queries
+    private BoundedCache<Map.Entry<String, String>, Double> similarityCache;
     
     // Common code term patterns
     private static final Set<String> COMMON_CODE_TERMS = Set.of(
@@ -53,6 +60,18 @@ public class ExpansionQualityFilter {
         "misc", "other", "unknown", "dummy", "sample", "example"
     );
 
+    @PostConstruct
+    public void initialize() {
+        similarityCache = new BoundedCache<>("stringSimilarity", similarityCacheSize, similarityCacheTtlMs);
+    }
+
+    /**
+     * Hit and eviction counters of the string similarity cache
+     */
+    public BoundedCache.Stats getSimilarityCacheStats() {
+        return similarityCache.stats();
+    }
+
     /**
      * Filters expanded terms by relevance to the original query
      */
@@ -62,11 +81,12 @@ public class ExpansionQualityFilter {
         }
         
         log.debug("Filtering {} expanded terms for query: {}", expandedTerms.size(), originalQuery);
+        QueryAnalysis analysis = QueryAnalysis.of(originalQuery);
         
         // Calculate relevance scores for all terms
         List<ScoredTerm> scoredTerms = expandedTerms.stream()
             .distinct()
-            .map(term -> new ScoredTerm(term, calculateRelevanceScore(term, originalQuery)))
+            .map(term -> new ScoredTerm(term, calculateRelevanceScore(term, analysis)))
             .filter(scored -> scored.getScore() >= relevanceThreshold)
             .sorted(Comparator.comparing(ScoredTerm::getScore).reversed())
             .limit(maxTotalExpansions)
@@ -88,29 +108,35 @@ public class ExpansionQualityFilter {
     public QualityFilterResult filterWithQualityMetrics(List<MultiLevelExpander.WeightedTerm> weightedTerms,
                                                         String originalQuery,
                                                         QueryIntentAnalyzer.QueryIntent intent) {
+        return filterWithQualityMetrics(weightedTerms, QueryAnalysis.of(originalQuery), intent);
+    }
+
+    /**
+     * Filters expanded terms with quality metrics against an already analyzed query
+     */
+    public QualityFilterResult filterWithQualityMetrics(List<MultiLevelExpander.WeightedTerm> weightedTerms,
+                                                        QueryAnalysis analysis,
+                                                        QueryIntentAnalyzer.QueryIntent intent) {
         log.info("Applying quality filtering to {} weighted terms", weightedTerms.size());
         
-        // Group terms by quality tier
+        // Group terms by quality tier in one pass: each term lands in the best tier it qualifies for
+        // (1: high quality, directly relevant; 2: good quality, somewhat relevant; 3: acceptable)
+        List<MultiLevelExpander.WeightedTerm> tier1Terms = new ArrayList<>();
+        List<MultiLevelExpander.WeightedTerm> tier2Terms = new ArrayList<>();
+        List<MultiLevelExpander.WeightedTerm> tier3Terms = new ArrayList<>();
+        for (MultiLevelExpander.WeightedTerm term : weightedTerms) {
+            if (isHighQualityTerm(term, analysis, intent)) {
+                tier1Terms.add(term);
+            } else if (isGoodQualityTerm(term, analysis, intent)) {
+                tier2Terms.add(term);
+            } else if (isAcceptableQualityTerm(term)) {
+                tier3Terms.add(term);
+            }
+        }
+
         List<QualityTier> qualityTiers = new ArrayList<>();
-        
-        // Tier 1: High quality, directly relevant
-        List<MultiLevelExpander.WeightedTerm> tier1Terms = weightedTerms.stream()
-            .filter(term -> isHighQualityTerm(term, originalQuery, intent))
-            .collect(Collectors.toList());
         qualityTiers.add(new QualityTier(1, "High Quality", tier1Terms));
-        
-        // Tier 2: Good quality, somewhat relevant
-        List<MultiLevelExpander.WeightedTerm> tier2Terms = weightedTerms.stream()
-            .filter(term -> !tier1Terms.contains(term))
-            .filter(term -> isGoodQualityTerm(term, originalQuery, intent))
-            .collect(Collectors.toList());
         qualityTiers.add(new QualityTier(2, "Good Quality", tier2Terms));
-        
-        // Tier 3: Acceptable quality
-        List<MultiLevelExpander.WeightedTerm> tier3Terms = weightedTerms.stream()
-            .filter(term -> !tier1Terms.contains(term) && !tier2Terms.contains(term))
-            .filter(term -> isAcceptableQualityTerm(term, originalQuery))
-            .collect(Collectors.toList());
         qualityTiers.add(new QualityTier(3, "Acceptable Quality", tier3Terms));
         
         // Filter out noise and combine tiers
@@ -127,6 +153,7 @@ public class ExpansionQualityFilter {
             .collect(Collectors.toList());
 
         log.info("Relevant terms: {}", filteredTerms);
+        log.debug("Similarity cache {}", similarityCache.stats());
         
         return QualityFilterResult.builder()
             .originalTermCount(weightedTerms.size())
@@ -140,15 +167,15 @@ public class ExpansionQualityFilter {
     /**
      * Calculates relevance score for a term
      */
-    private float calculateRelevanceScore(String expandedTerm, String originalQuery) {
+    private float calculateRelevanceScore(String expandedTerm, QueryAnalysis analysis) {
         float score = 0.0f;
         
         // 1. String similarity (40% weight)
-        double stringSimilarity = calculateStringSimilarity(expandedTerm, originalQuery);
+        double stringSimilarity = calculateStringSimilarity(expandedTerm, analysis);
         score += stringSimilarity * 0.4f;
         
         // 2. Semantic coherence (30% weight)
-        float semanticScore = calculateSemanticCoherence(expandedTerm, originalQuery);
+        float semanticScore = calculateSemanticCoherence(expandedTerm, analysis);
         score += semanticScore * 0.3f;
         
         // 3. Java naming convention alignment (20% weight)
@@ -165,13 +192,22 @@ public class ExpansionQualityFilter {
     /**
      * Calculates string similarity using multiple metrics
      */
-    @Cacheable("stringSimilarity")
     public double calculateStringSimilarity(String term1, String term2) {
-        String cacheKey = term1 + "|" + term2;
-        return similarityCache.computeIfAbsent(cacheKey, k -> {
+        return calculateStringSimilarity(term1, term2, null);
+    }
+
+    /**
+     * String similarity of a candidate term to the analyzed query, reusing its lower case and token sets
+     */
+    private double calculateStringSimilarity(String term, QueryAnalysis analysis) {
+        return calculateStringSimilarity(term, analysis.getOriginal(), analysis);
+    }
+
+    private double calculateStringSimilarity(String term1, String term2, QueryAnalysis analysis) {
+        return similarityCache.computeIfAbsent(Map.entry(term1, term2), k -> {
             // Normalize terms
-            String normalized1 = term1.toLowerCase();
-            String normalized2 = term2.toLowerCase();
+            String normalized1 = analysis != null ? analysis.lowerCaseOf(term1) : term1.toLowerCase();
+            String normalized2 = analysis != null ? analysis.getLowerCase() : term2.toLowerCase();
             
             // Exact match
             if (normalized1.equals(normalized2)) {
@@ -183,81 +219,47 @@ public class ExpansionQualityFilter {
                 return 0.8;
             }
             
-            // Calculate edit distance
-            int editDistance = calculateEditDistance(normalized1, normalized2);
+            // Calculate edit distance, abandoned once it exceeds the maximum
+            int editDistance = EditDistance.levenshtein(normalized1, normalized2, maxEditDistance);
             if (editDistance <= maxEditDistance) {
                 return 1.0 - (editDistance / (double) Math.max(normalized1.length(), normalized2.length()));
             }
             
             // Token-based similarity
-            return calculateTokenSimilarity(normalized1, normalized2);
+            return analysis != null
+                ? calculateTokenSimilarity(analysis.tokensOf(normalized1), analysis.tokensOf(normalized2))
+                : calculateTokenSimilarity(QueryAnalysis.identifierTokens(normalized1),
+                                           QueryAnalysis.identifierTokens(normalized2));
         });
     }
     
     /**
-     * Calculates Levenshtein edit distance
-     */
-    private int calculateEditDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        
-        for (int i = 0; i <= s1.length(); i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= s2.length(); j++) {
-            dp[0][j] = j;
-        }
-        
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                if (s1.charAt(i - 1) == s2.charAt(j - 1)) {
-                    dp[i][j] = dp[i - 1][j - 1];
-                } else {
-                    dp[i][j] = 1 + Math.min(dp[i - 1][j], Math.min(dp[i][j - 1], dp[i - 1][j - 1]));
-                }
-            }
-        }
-        
-        return dp[s1.length()][s2.length()];
-    }
-    
-    /**
-     * Calculates token-based similarity
+     * Calculates token-based similarity as the Jaccard index of the token sets
      */
-    private double calculateTokenSimilarity(String s1, String s2) {
-        Set<String> tokens1 = tokenize(s1);
-        Set<String> tokens2 = tokenize(s2);
-        
+    private double calculateTokenSimilarity(Set<String> tokens1, Set<String> tokens2) {
         if (tokens1.isEmpty() || tokens2.isEmpty()) {
             return 0.0;
         }
         
-        Set<String> intersection = new HashSet<>(tokens1);
-        intersection.retainAll(tokens2);
-        
-        Set<String> union = new HashSet<>(tokens1);
-        union.addAll(tokens2);
+        Set<String> smaller = tokens1.size() <= tokens2.size() ? tokens1 : tokens2;
+        Set<String> larger = smaller == tokens1 ? tokens2 : tokens1;
+        int intersection = 0;
+        for (String token : smaller) {
+            if (larger.contains(token)) {
+                intersection++;
+            }
+        }
         
-        return intersection.size() / (double) union.size();
-    }
-    
-    /**
-     * Tokenizes a string for similarity calculation
-     */
-    private Set<String> tokenize(String str) {
-        // Split on camelCase, snake_case, and common delimiters
-        return Arrays.stream(str.split("(?=[A-Z])|_|-|\\s+"))
-            .filter(token -> token.length() > 1)
-            .map(String::toLowerCase)
-            .collect(Collectors.toSet());
+        return intersection / (double) (tokens1.size() + tokens2.size() - intersection);
     }
     
     /**
      * Calculates semantic coherence score
      */
-    private float calculateSemanticCoherence(String expandedTerm, String originalQuery) {
+    private float calculateSemanticCoherence(String expandedTerm, QueryAnalysis analysis) {
         // Check if term shares semantic roots with query
-        Set<String> queryTokens = tokenize(originalQuery);
-        Set<String> termTokens = tokenize(expandedTerm);
+        Set<String> queryTokens = analysis.getIdentifierTokens();
+        Set<String> termTokens = analysis.tokensOf(expandedTerm);
         
         // Check for shared tokens
         long sharedTokens = termTokens.stream()
@@ -357,7 +359,7 @@ public class ExpansionQualityFilter {
     /**
      * Checks if a term is high quality
      */
-    private boolean isHighQualityTerm(MultiLevelExpander.WeightedTerm term, String originalQuery,
+    private boolean isHighQualityTerm(MultiLevelExpander.WeightedTerm term, QueryAnalysis analysis,
                                      QueryIntentAnalyzer.QueryIntent intent) {
         // High weight from expansion
         if (term.getWeight() >= 0.8f) {
@@ -365,12 +367,13 @@ public class ExpansionQualityFilter {
         }
         
         // Direct match or substring
-        if (originalQuery.toLowerCase().contains(term.getTerm().toLowerCase())) {
+        String termLower = analysis.lowerCaseOf(term.getTerm());
+        if (analysis.getLowerCase().contains(termLower)) {
             return true;
         }
         
         // Intent-specific high quality
-        if (intent != null && isIntentSpecificHighQuality(term, intent)) {
+        if (intent != null && isIntentSpecificHighQuality(termLower, intent)) {
             return true;
         }
         
@@ -380,7 +383,7 @@ public class ExpansionQualityFilter {
     /**
      * Checks if a term is good quality
      */
-    private boolean isGoodQualityTerm(MultiLevelExpander.WeightedTerm term, String originalQuery,
+    private boolean isGoodQualityTerm(MultiLevelExpander.WeightedTerm term, QueryAnalysis analysis,
                                      QueryIntentAnalyzer.QueryIntent intent) {
         // Good weight from expansion
         if (term.getWeight() >= 0.6f) {
@@ -388,7 +391,7 @@ public class ExpansionQualityFilter {
         }
         
         // Good string similarity
-        double similarity = calculateStringSimilarity(term.getTerm(), originalQuery);
+        double similarity = calculateStringSimilarity(term.getTerm(), analysis);
         if (similarity >= 0.5) {
             return true;
         }
@@ -399,7 +402,7 @@ public class ExpansionQualityFilter {
     /**
      * Checks if a term is acceptable quality
      */
-    private boolean isAcceptableQualityTerm(MultiLevelExpander.WeightedTerm term, String originalQuery) {
+    private boolean isAcceptableQualityTerm(MultiLevelExpander.WeightedTerm term) {
         // Minimum weight threshold
         if (term.getWeight() < 0.3f) {
             return false;
@@ -436,10 +439,7 @@ public class ExpansionQualityFilter {
     /**
      * Checks if a term is high quality for specific intent
      */
-    private boolean isIntentSpecificHighQuality(MultiLevelExpander.WeightedTerm term,
-                                               QueryIntentAnalyzer.QueryIntent intent) {
-        String termLower = term.getTerm().toLowerCase();
-        
+    private boolean isIntentSpecificHighQuality(String termLower, QueryIntentAnalyzer.QueryIntent intent) {
         switch (intent.getPrimaryIntent()) {
             case IMPLEMENTATION:
                 return termLower.contains("impl") || termLower.contains("execute") || 
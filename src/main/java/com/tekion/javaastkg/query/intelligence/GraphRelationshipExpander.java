@@ -1,5 +1,6 @@
 package com.tekion.javaastkg.query.intelligence;
 
+import com.tekion.javaastkg.query.services.IdentifierIndex;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,9 +13,6 @@ import org.neo4j.driver.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -25,9 +23,117 @@ import java.util.stream.Collectors;
 @Slf4j
 public class GraphRelationshipExpander {
 
+    /**
+     * Resolves every term to the methods and classes whose name contains it, closest names
+     * first. The term filter, when the identifier index narrowed it down, is filled in with
+     * String.format.
+     */
+    private static final String SEED_QUERY = """
+        UNWIND $terms AS term
+        CALL {
+            WITH term
+            MATCH (node:Method|Class|Interface)
+            WHERE %stoLower(node.name) CONTAINS toLower(term.value)
+            RETURN node ORDER BY size(node.name) ASC, node.id LIMIT $seedsPerTerm
+        }
+        RETURN collect(DISTINCT node.id) AS seedIds
+        """;
+
+    /**
+     * All four relation families for a set of seed nodes. The relationship types and the
+     * maximum depth of the direct branch are filled in with String.format.
+     */
+    private static final String RELATED_TERMS_QUERY = """
+        MATCH (seed:Method|Class|Interface)
+        WHERE seed.id IN $seedIds
+        WITH collect(seed) AS seeds
+        CALL {
+            // Direct relationships
+            WITH seeds
+            UNWIND seeds AS n
+            MATCH path = (n)-[:%s*1..%d]-(related)
+            WHERE (related:Method OR related:Class OR related:Interface) AND NOT related IN seeds
+            WITH related,
+                 min(length(path)) AS distance,
+                 count(path) AS pathCount,
+                 collect(type(last(relationships(path))))[0] AS relationshipType
+            RETURN related.name AS relatedTerm,
+                   COALESCE(related.className, related.packageName) AS context,
+                   relationshipType,
+                   distance,
+                   toFloat(pathCount) AS score,
+                   labels(related)[0] AS nodeType
+            ORDER BY distance ASC, score DESC
+            LIMIT $directLimit
+            
+            UNION ALL
+            
+            // Class hierarchy
+            WITH seeds
+            UNWIND seeds AS n
+            WITH n WHERE n:Class OR n:Interface
+            MATCH (n)-[h:EXTENDS|IMPLEMENTS]-(r)
+            WITH DISTINCT r,
+                 CASE
+                     WHEN type(h) = 'EXTENDS' AND startNode(h) = n THEN 'parent_class'
+                     WHEN type(h) = 'EXTENDS' THEN 'child_class'
+                     WHEN startNode(h) = n THEN 'implements'
+                     ELSE 'implementor'
+                 END AS relationshipType
+            RETURN r.name AS relatedTerm,
+                   r.packageName AS context,
+                   relationshipType,
+                   1 AS distance,
+                   1.0 AS score,
+                   labels(r)[0] AS nodeType
+            LIMIT $hierarchyLimit
+            
+            UNION ALL
+            
+            // Methods that frequently appear together in call chains
+            WITH seeds
+            UNWIND seeds AS m1
+            WITH m1 WHERE m1:Method
+            MATCH (m1)-[:CALLS]->(m2:Method)-[:CALLS]->(m3:Method)
+            WITH m2, m3, count(*) AS coOccurrences
+            WHERE coOccurrences > 1
+            UNWIND [m2, m3] AS m
+            WITH m, max(coOccurrences) AS coOccurrences
+            RETURN m.name AS relatedTerm,
+                   m.className AS context,
+                   'call_pattern' AS relationshipType,
+                   2 AS distance,
+                   toFloat(coOccurrences) AS score,
+                   'Method' AS nodeType
+            ORDER BY score DESC
+            LIMIT $callPatternLimit
+            
+            UNION ALL
+            
+            // Classes in the same package
+            WITH seeds
+            UNWIND seeds AS n
+            WITH n WHERE (n:Class OR n:Interface) AND n.packageName IS NOT NULL
+            MATCH (sibling:Class|Interface)
+            WHERE sibling.packageName = n.packageName
+              AND NOT sibling IN seeds
+              AND NOT sibling.name CONTAINS 'Test'
+              AND NOT sibling.name CONTAINS 'Mock'
+            WITH DISTINCT sibling
+            RETURN sibling.name AS relatedTerm,
+                   sibling.packageName AS context,
+                   'package_sibling' AS relationshipType,
+                   1 AS distance,
+                   1.0 AS score,
+                   labels(sibling)[0] AS nodeType
+            LIMIT $siblingLimit
+        }
+        RETURN relatedTerm, context, relationshipType, distance, score, nodeType
+        """;
+
     private final Driver neo4jDriver;
     private final SessionConfig sessionConfig;
-    private final ExecutorService executorService;
+    private final IdentifierIndex identifierIndex;
     
     @org.springframework.beans.factory.annotation.Value("${query_optimization.graph_expansion.max_relationship_depth:2}")
     private int maxRelationshipDepth;
@@ -38,14 +144,20 @@ public class GraphRelationshipExpander {
     @org.springframework.beans.factory.annotation.Value("${query_optimization.graph_expansion.relationship_types:CALLS,CONTAINS,EXTENDS,IMPLEMENTS}")
     private String[] relationshipTypes;
 
-    public GraphRelationshipExpander(Driver neo4jDriver, SessionConfig sessionConfig) {
+    @org.springframework.beans.factory.annotation.Value("${query_optimization.graph_expansion.seeds_per_term:5}")
+    private int seedsPerTerm;
+
+    public GraphRelationshipExpander(Driver neo4jDriver, SessionConfig sessionConfig, IdentifierIndex identifierIndex) {
         this.neo4jDriver = neo4jDriver;
         this.sessionConfig = sessionConfig;
-        this.executorService = Executors.newFixedThreadPool(3);
+        this.identifierIndex = identifierIndex;
     }
 
     /**
-     * Finds related terms through graph relationships
+     * Finds related terms through graph relationships.
+     * All terms are resolved to seed nodes in one query, narrowed by the identifier index, then
+     * the four relation families (direct relationships, hierarchy, call patterns, package siblings)
+     * are computed for all seeds in one query, so the cost does not grow with the term count.
      */
     public List<String> findRelatedTerms(List<String> queryTerms) {
         if (queryTerms == null || queryTerms.isEmpty()) {
@@ -53,22 +165,14 @@ public class GraphRelationshipExpander {
         }
         
         log.debug("Finding related terms through graph relationships for: {}", queryTerms);
+        long startTime = System.currentTimeMillis();
         
-        Set<RelatedTerm> allRelatedTerms = new HashSet<>();
-        
-        // Search for each term in parallel
-        List<CompletableFuture<Set<RelatedTerm>>> futures = queryTerms.stream()
-            .map(term -> CompletableFuture.supplyAsync(() -> findRelatedTermsForSingle(term), executorService))
-            .collect(Collectors.toList());
-        
-        // Combine results
-        for (CompletableFuture<Set<RelatedTerm>> future : futures) {
-            try {
-                allRelatedTerms.addAll(future.join());
-            } catch (Exception e) {
-                log.error("Failed to get related terms", e);
-            }
+        List<String> seedIds = resolveSeeds(queryTerms);
+        if (seedIds.isEmpty()) {
+            log.debug("No graph nodes match the query terms");
+            return Collections.emptyList();
         }
+        Set<RelatedTerm> allRelatedTerms = new HashSet<>(findRelatedTermsForSeeds(seedIds));
         
         // Sort by relevance and extract terms
         List<String> relatedTerms = allRelatedTerms.stream()
@@ -79,241 +183,80 @@ public class GraphRelationshipExpander {
             .distinct()
             .collect(Collectors.toList());
         
-        log.debug("Found {} related terms through graph relationships", relatedTerms.size());
+        log.debug("Found {} related terms through graph relationships from {} seeds in {} ms",
+            relatedTerms.size(), seedIds.size(), System.currentTimeMillis() - startTime);
         return relatedTerms;
     }
     
     /**
-     * Finds related terms for a single query term
+     * Resolves all query terms to seed nodes whose name contains the term anywhere, so "Order"
+     * still finds PurchaseOrderService. The identifier index narrows each term to its candidate
+     * nodes; without it the names are scanned.
      */
-    private Set<RelatedTerm> findRelatedTermsForSingle(String queryTerm) {
-        Set<RelatedTerm> relatedTerms = new HashSet<>();
-        
-        // Find through direct relationships
-        relatedTerms.addAll(findThroughDirectRelationships(queryTerm));
-        
-        // Find through hierarchical relationships
-        relatedTerms.addAll(findThroughHierarchy(queryTerm));
-        
-        // Find through call patterns
-        relatedTerms.addAll(findThroughCallPatterns(queryTerm));
-        
-        // Find through package siblings
-        relatedTerms.addAll(findPackageSiblings(queryTerm));
-        
-        return relatedTerms;
-    }
-    
-    /**
-     * Finds related components through direct relationships
-     */
-    private List<RelatedTerm> findThroughDirectRelationships(String queryTerm) {
-        try (Session session = neo4jDriver.session(sessionConfig)) {
-            String relationshipPattern = Arrays.stream(relationshipTypes)
-                .map(type -> ":" + type)
-                .collect(Collectors.joining("|"));
-            
-            String query = String.format("""
-                MATCH (n)
-                WHERE (n:Method OR n:Class OR n:Interface)
-                  AND (
-                    n.name CONTAINS $queryTerm 
-                    OR (n:Method AND n.signature CONTAINS $queryTerm)
-                    OR (n:Method AND n.className CONTAINS $queryTerm)
-                    OR ((n:Class OR n:Interface) AND n.fullName CONTAINS $queryTerm)
-                  )
-                MATCH path = (n)-[r%s*1..%d]-(related)
-                WHERE related:Method OR related:Class OR related:Interface
-                WITH DISTINCT related, 
-                     type(r) as relationshipType,
-                     length(path) as distance,
-                     count(path) as pathCount
-                RETURN related.name as relatedTerm,
-                       COALESCE(related.className, related.packageName) as context,
-                       relationshipType,
-                       distance,
-                       pathCount as score,
-                       labels(related)[0] as nodeType
-                ORDER BY distance ASC, score DESC
-                LIMIT $limit
-                """, relationshipPattern, maxRelationshipDepth);
-            
-            Map<String, Object> params = Map.of(
-                "queryTerm", queryTerm,
-                "limit", maxGraphExpansions
-            );
-            
-            return session.run(query, params)
-                .list(record -> RelatedTerm.builder()
-                    .term(record.get("relatedTerm").asString())
-                    .context(record.get("context").asString())
-                    .relationshipType(record.get("relationshipType").asString())
-                    .distance(record.get("distance").asInt())
-                    .score(record.get("score").asInt())
-                    .nodeType(record.get("nodeType").asString())
-                    .build());
-                    
-        } catch (Exception e) {
-            log.debug("Direct relationship search failed for '{}': {}", queryTerm, e.getMessage());
+    private List<String> resolveSeeds(List<String> queryTerms) {
+        List<String> terms = queryTerms.stream()
+            .filter(term -> term != null && !term.isBlank())
+            .map(String::trim)
+            .distinct()
+            .collect(Collectors.toList());
+        if (terms.isEmpty()) {
             return Collections.emptyList();
         }
-    }
-    
-    /**
-     * Finds related terms through class hierarchy
-     */
-    private List<RelatedTerm> findThroughHierarchy(String queryTerm) {
+        
+        Optional<Map<String, Set<String>>> candidates = identifierIndex.candidatesByTerm(terms);
+        List<Map<String, Object>> termParams = terms.stream()
+            .map(term -> Map.<String, Object>of(
+                "value", term,
+                "candidateIds", new ArrayList<>(candidates.map(byTerm -> byTerm.get(term)).orElse(Set.of()))))
+            .collect(Collectors.toList());
+        
         try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
-                // Find classes matching the query term
-                MATCH (n:Class|Interface)
-                WHERE n.name CONTAINS $queryTerm OR n.fullName CONTAINS $queryTerm
-                
-                // Find parent and child classes
-                OPTIONAL MATCH (n)-[:EXTENDS]->(parent)
-                OPTIONAL MATCH (child)-[:EXTENDS]->(n)
-                OPTIONAL MATCH (n)-[:IMPLEMENTS]->(interface)
-                OPTIONAL MATCH (implementor)-[:IMPLEMENTS]->(n)
-                
-                WITH collect(DISTINCT parent) + collect(DISTINCT child) + 
-                     collect(DISTINCT interface) + collect(DISTINCT implementor) as related
-                UNWIND related as r
-                
-                WHERE r IS NOT NULL
-                RETURN DISTINCT r.name as relatedTerm,
-                       r.packageName as context,
-                       CASE 
-                           WHEN (n)-[:EXTENDS]->(r) THEN 'parent_class'
-                           WHEN (r)-[:EXTENDS]->(n) THEN 'child_class'
-                           WHEN (n)-[:IMPLEMENTS]->(r) THEN 'implements'
-                           WHEN (r)-[:IMPLEMENTS]->(n) THEN 'implementor'
-                       END as relationshipType,
-                       1 as distance,
-                       1.0 as score,
-                       labels(r)[0] as nodeType
-                LIMIT $limit
-                """;
-            
+            String query = String.format(SEED_QUERY, candidates.isPresent() ? "node.id IN term.candidateIds AND " : "");
             Map<String, Object> params = Map.of(
-                "queryTerm", queryTerm,
-                "limit", maxGraphExpansions / 2
+                "terms", termParams,
+                "seedsPerTerm", seedsPerTerm
             );
             
             return session.run(query, params)
-                .list(record -> RelatedTerm.builder()
-                    .term(record.get("relatedTerm").asString())
-                    .context(record.get("context").asString())
-                    .relationshipType(record.get("relationshipType").asString())
-                    .distance(record.get("distance").asInt())
-                    .score(record.get("score").asDouble())
-                    .nodeType(record.get("nodeType").asString())
-                    .build());
-                    
-        } catch (Exception e) {
-            log.debug("Hierarchy search failed for '{}': {}", queryTerm, e.getMessage());
-            return Collections.emptyList();
-        }
-    }
-    
-    /**
-     * Finds related terms through call patterns
-     */
-    private List<RelatedTerm> findThroughCallPatterns(String queryTerm) {
-        try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
-                // Find methods that frequently appear together in call chains
-                MATCH (m1:Method)
-                WHERE m1.name CONTAINS $queryTerm OR m1.signature CONTAINS $queryTerm
-                MATCH (m1)-[:CALLS]->(m2:Method)-[:CALLS]->(m3:Method)
+                .single()
+                .get("seedIds")
+                .asList(Value::asString);
                 
-                WITH m2, m3, count(*) as coOccurrences
-                WHERE coOccurrences > 1
-                
-                RETURN m2.name as relatedTerm,
-                       m2.className as context,
-                       'call_pattern' as relationshipType,
-                       2 as distance,
-                       coOccurrences as score,
-                       'Method' as nodeType
-                       
-                UNION
-                
-                RETURN m3.name as relatedTerm,
-                       m3.className as context,
-                       'call_pattern' as relationshipType,
-                       2 as distance,
-                       coOccurrences as score,
-                       'Method' as nodeType
-                       
-                ORDER BY score DESC
-                LIMIT $limit
-                """;
-            
-            Map<String, Object> params = Map.of(
-                "queryTerm", queryTerm,
-                "limit", maxGraphExpansions / 2
-            );
-            
-            return session.run(query, params)
-                .list(record -> RelatedTerm.builder()
-                    .term(record.get("relatedTerm").asString())
-                    .context(record.get("context").asString())
-                    .relationshipType(record.get("relationshipType").asString())
-                    .distance(record.get("distance").asInt())
-                    .score(record.get("score").asDouble())
-                    .nodeType(record.get("nodeType").asString())
-                    .build());
-                    
         } catch (Exception e) {
-            log.debug("Call pattern search failed for '{}': {}", queryTerm, e.getMessage());
+            log.debug("Seed resolution failed for {}: {}", queryTerms, e.getMessage());
             return Collections.emptyList();
         }
     }
     
     /**
-     * Finds sibling classes in the same package
+     * Computes all four relation families for the seeds in one query.
+     * Each family keeps its own limit, as when they ran as separate queries.
      */
-    private List<RelatedTerm> findPackageSiblings(String queryTerm) {
+    private List<RelatedTerm> findRelatedTermsForSeeds(List<String> seedIds) {
         try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
-                // Find classes in the same package
-                MATCH (n:Class|Interface)
-                WHERE n.name CONTAINS $queryTerm
-                WITH n.packageName as pkg
-                WHERE pkg IS NOT NULL
-                
-                MATCH (sibling:Class|Interface)
-                WHERE sibling.packageName = pkg 
-                  AND sibling.name <> n.name
-                  AND NOT sibling.name CONTAINS 'Test'
-                  AND NOT sibling.name CONTAINS 'Mock'
-                  
-                RETURN DISTINCT sibling.name as relatedTerm,
-                       sibling.packageName as context,
-                       'package_sibling' as relationshipType,
-                       1 as distance,
-                       1.0 as score,
-                       labels(sibling)[0] as nodeType
-                LIMIT $limit
-                """;
+            String relationshipPattern = String.join("|", relationshipTypes);
+            String query = String.format(RELATED_TERMS_QUERY, relationshipPattern, maxRelationshipDepth);
             
             Map<String, Object> params = Map.of(
-                "queryTerm", queryTerm,
-                "limit", maxGraphExpansions / 3
+                "seedIds", seedIds,
+                "directLimit", maxGraphExpansions,
+                "hierarchyLimit", maxGraphExpansions / 2,
+                "callPatternLimit", maxGraphExpansions / 2,
+                "siblingLimit", maxGraphExpansions / 3
             );
             
             return session.run(query, params)
                 .list(record -> RelatedTerm.builder()
                     .term(record.get("relatedTerm").asString())
-                    .context(record.get("context").asString())
-                    .relationshipType(record.get("relationshipType").asString())
+                    .context(record.get("context").asString(null))
+                    .relationshipType(record.get("relationshipType").asString(null))
                     .distance(record.get("distance").asInt())
                     .score(record.get("score").asDouble())
-                    .nodeType(record.get("nodeType").asString())
+                    .nodeType(record.get("nodeType").asString(null))
                     .build());
                     
         } catch (Exception e) {
-            log.debug("Package sibling search failed for '{}': {}", queryTerm, e.getMessage());
+            log.debug("Related term search failed for {} seeds: {}", seedIds.size(), e.getMessage());
             return Collections.emptyList();
         }
     }
@@ -326,11 +269,17 @@ public class GraphRelationshipExpander {
             return Collections.emptyList();
         }
         
+        // Narrow the CONTAINS match to identifier index candidates when the index is built
+        Optional<List<String>> candidates = identifierIndex.candidatesContainingAll(queryTerms);
+        if (candidates.isPresent() && candidates.get().isEmpty()) {
+            return Collections.emptyList();
+        }
+        
         try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
+            String query = String.format("""
                 // Find methods/classes that contain references to multiple query terms
                 MATCH (n:Method|Class|Interface)
-                WHERE ALL(term IN $queryTerms WHERE 
+                WHERE %sALL(term IN $queryTerms WHERE 
                     n.name CONTAINS term OR 
                     n.signature CONTAINS term OR 
                     n.fullName CONTAINS term)
@@ -348,10 +297,11 @@ public class GraphRelationshipExpander {
                        type
                 ORDER BY coOccurrenceCount DESC
                 LIMIT $limit
-                """;
+                """, candidateFilter(candidates));
             
             Map<String, Object> params = Map.of(
                 "queryTerms", queryTerms,
+                "candidateIds", candidates.orElse(List.of()),
                 "limit", maxGraphExpansions
             );
             
@@ -411,11 +361,16 @@ public class GraphRelationshipExpander {
      * Finds architectural patterns like MVC, layered architecture, etc.
      */
     private List<DomainPattern> findArchitecturalPatterns(List<String> queryTerms) {
+        Optional<List<String>> candidates = identifierIndex.candidatesContainingAny(queryTerms);
+        if (candidates.isPresent() && candidates.get().isEmpty()) {
+            return Collections.emptyList();
+        }
+        
         try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
+            String query = String.format("""
                 // Look for common architectural patterns
                 MATCH (n:Class|Interface)
-                WHERE ANY(term IN $queryTerms WHERE n.name CONTAINS term)
+                WHERE %sANY(term IN $queryTerms WHERE n.name CONTAINS term)
                 
                 // Check for Controller-Service-Repository pattern
                 OPTIONAL MATCH (n)-[:CALLS|CONTAINS*1..3]-(service:Class)
@@ -432,9 +387,12 @@ public class GraphRelationshipExpander {
                        services + repositories as relatedComponents,
                        size(services) + size(repositories) as strength
                 LIMIT 5
-                """;
+                """, candidateFilter(candidates));
             
-            Map<String, Object> params = Map.of("queryTerms", queryTerms);
+            Map<String, Object> params = Map.of(
+                "queryTerms", queryTerms,
+                "candidateIds", candidates.orElse(List.of())
+            );
             
             return session.run(query, params)
                 .list(record -> DomainPattern.builder()
@@ -449,6 +407,14 @@ public class GraphRelationshipExpander {
         }
     }
     
+    /**
+     * Restricts a CONTAINS match to the identifier index candidates, which turns the label scan
+     * into a seek on the id uniqueness constraints; the CONTAINS predicate still verifies each candidate
+     */
+    private static String candidateFilter(Optional<List<String>> candidates) {
+        return candidates.isPresent() ? "n.id IN $candidateIds AND " : "";
+    }
+    
     /**
      * Finds design patterns like Factory, Observer, etc.
      */
@@ -0,0 +1,394 @@
+package com.tekion.javaastkg.query.intelligence;
+
+import com.tekion.javaastkg.query.intelligence.QueryIntentAnalyzer.IntentType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Local nearest-centroid intent classifier over hashed n-gram features.
+ * Each query becomes a sparse L2-normalized vector of hashed word unigrams, word bigrams and
+ * character trigrams; each intent is the normalized centroid of its training queries. Scores are
+ * a softmax over the cosine similarity to every centroid, so classification takes well under a
+ * millisecond and needs no network call.
+ *
+ * <p>The model is trained from the labeled queries shipped in {@code intent/intent-training.tsv}
+ * plus any intent decisions recorded from the LLM tie-breaker, and can be retrained at runtime.
+ * Recorded decisions are persisted to the decision log when one is configured; otherwise the most
+ * recent ones are kept in memory, up to a configured limit.
+ * Retraining triggered by recorded decisions runs on a background thread; classification keeps
+ * using the previous model until the new one is swapped in.
+ */
+@Service
+@Slf4j
+public class IntentClassifier {
+
+    private static final int DIMENSIONS = 1 << 14;
+    private static final double BIGRAM_WEIGHT = 1.0;
+    private static final double TRIGRAM_WEIGHT = 0.5;
+
+    private final AtomicReference<Model> model = new AtomicReference<>();
+    private final Deque<LabeledQuery> recordedDecisions = new ArrayDeque<>();
+    private final AtomicInteger decisionsSinceTraining = new AtomicInteger();
+    private final AtomicBoolean retrainPending = new AtomicBoolean();
+    private final ExecutorService retrainExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "intent-retrain");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${query_optimization.intent_classifier.training_resource:intent/intent-training.tsv}")
+    private String trainingResource;
+
+    @Value("${query_optimization.intent_classifier.decision_log:}")
+    private String decisionLog;
+
+    @Value("${query_optimization.intent_classifier.retrain_every:50}")
+    private int retrainEvery;
+
+    @Value("${query_optimization.intent_classifier.temperature:0.05}")
+    private double temperature;
+
+    @Value("${query_optimization.intent_classifier.max_recorded_decisions:1000}")
+    private int maxRecordedDecisions;
+
+    @PostConstruct
+    public void init() {
+        retrain();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retrainExecutor.shutdownNow();
+    }
+
+    /**
+     * True once a model with at least one example per intent is available
+     */
+    public boolean isTrained() {
+        Model current = model.get();
+        return current != null && current.isComplete();
+    }
+
+    /**
+     * Scores every intent for the query; scores sum to 1. Empty when no model is trained.
+     */
+    public Map<IntentType, Double> classify(String query) {
+        return classify(QueryAnalysis.of(query));
+    }
+
+    /**
+     * Scores every intent from the words of an analyzed query
+     */
+    public Map<IntentType, Double> classify(QueryAnalysis analysis) {
+        Model current = model.get();
+        if (current == null || current.isEmpty()) {
+            return new EnumMap<>(IntentType.class);
+        }
+
+        Map<Integer, Double> features = features(analysis.getWords());
+        IntentType[] intents = IntentType.values();
+        double[] similarities = new double[intents.length];
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < intents.length; i++) {
+            double[] centroid = current.centroids[i];
+            double similarity = 0.0;
+            if (centroid != null) {
+                for (Map.Entry<Integer, Double> feature : features.entrySet()) {
+                    similarity += centroid[feature.getKey()] * feature.getValue();
+                }
+            }
+            similarities[i] = centroid != null ? similarity : Double.NEGATIVE_INFINITY;
+            max = Math.max(max, similarities[i]);
+        }
+
+        double total = 0.0;
+        double[] weights = new double[intents.length];
+        for (int i = 0; i < intents.length; i++) {
+            weights[i] = similarities[i] == Double.NEGATIVE_INFINITY
+                    ? 0.0 : Math.exp((similarities[i] - max) / temperature);
+            total += weights[i];
+        }
+
+        Map<IntentType, Double> scores = new EnumMap<>(IntentType.class);
+        for (int i = 0; i < intents.length; i++) {
+            if (weights[i] > 0) {
+                scores.put(intents[i], weights[i] / total);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Records an intent decided by the LLM so the next retraining learns from it.
+     * Decisions are appended to the decision log when one is configured, and kept in memory,
+     * dropping the oldest beyond the limit, when there is none or the append fails.
+     */
+    public void recordDecision(String query, IntentType intent) {
+        if (query == null || query.isBlank() || intent == null) {
+            return;
+        }
+        LabeledQuery decision = new LabeledQuery(intent, query.replace('\t', ' ').replace('\n', ' ').trim());
+        if (!appendToDecisionLog(decision)) {
+            synchronized (recordedDecisions) {
+                recordedDecisions.addLast(decision);
+                while (recordedDecisions.size() > Math.max(0, maxRecordedDecisions)) {
+                    recordedDecisions.removeFirst();
+                }
+            }
+        }
+
+        if (retrainEvery > 0 && decisionsSinceTraining.incrementAndGet() >= retrainEvery) {
+            scheduleRetrain();
+        }
+    }
+
+    /**
+     * Appends a decision to the decision log; false when none is configured or the append fails
+     */
+    private boolean appendToDecisionLog(LabeledQuery decision) {
+        if (decisionLog == null || decisionLog.isBlank()) {
+            return false;
+        }
+        try {
+            Files.writeString(Path.of(decisionLog), decision.getIntent() + "\t" + decision.getQuery() + "\n",
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to append intent decision to {}: {}", decisionLog, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Queues one background retraining unless one is already pending
+     */
+    private void scheduleRetrain() {
+        if (!retrainPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            retrainExecutor.execute(() -> {
+                try {
+                    retrain();
+                } catch (RuntimeException e) {
+                    log.error("Background intent classifier retraining failed", e);
+                } finally {
+                    retrainPending.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            retrainPending.set(false);
+            log.debug("Intent classifier retraining not scheduled: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the centroids from the shipped training queries, the decision log and the
+     * decisions held in memory, then swaps the new model in. Concurrent retrains run one
+     * after the other; classification never waits for them.
+     */
+    public synchronized void retrain() {
+        long startTime = System.currentTimeMillis();
+        List<LabeledQuery> examples = new ArrayList<>(loadTrainingResource());
+
+        Set<String> seen = new HashSet<>();
+        examples.forEach(example -> seen.add(example.getQuery().toLowerCase(Locale.ROOT)));
+        List<LabeledQuery> decisions = new ArrayList<>(loadDecisionLog());
+        synchronized (recordedDecisions) {
+            decisions.addAll(recordedDecisions);
+        }
+        int learned = 0;
+        for (LabeledQuery decision : decisions) {
+            if (seen.add(decision.getQuery().toLowerCase(Locale.ROOT))) {
+                examples.add(decision);
+                learned++;
+            }
+        }
+
+        Model trained = train(examples);
+        model.set(trained);
+        decisionsSinceTraining.set(0);
+        log.info("Intent classifier trained in {} ms on {} queries ({} from logged decisions), counts per intent: {}",
+                System.currentTimeMillis() - startTime, examples.size(), learned, trained.countsByIntent());
+    }
+
+    private Model train(List<LabeledQuery> examples) {
+        IntentType[] intents = IntentType.values();
+        double[][] sums = new double[intents.length][];
+        int[] counts = new int[intents.length];
+
+        for (LabeledQuery example : examples) {
+            int index = example.getIntent().ordinal();
+            if (sums[index] == null) {
+                sums[index] = new double[DIMENSIONS];
+            }
+            features(example.getQuery()).forEach((feature, value) -> sums[index][feature] += value);
+            counts[index]++;
+        }
+
+        for (double[] centroid : sums) {
+            if (centroid != null) {
+                normalize(centroid);
+            }
+        }
+        return new Model(sums, counts);
+    }
+
+    private List<LabeledQuery> loadTrainingResource() {
+        ClassPathResource resource = new ClassPathResource(trainingResource);
+        if (!resource.exists()) {
+            log.warn("Intent training resource {} not found", trainingResource);
+            return List.of();
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            return parse(reader.lines().toList());
+        } catch (IOException e) {
+            log.error("Failed to load intent training resource {}", trainingResource, e);
+            return List.of();
+        }
+    }
+
+    private List<LabeledQuery> loadDecisionLog() {
+        if (decisionLog == null || decisionLog.isBlank() || !Files.exists(Path.of(decisionLog))) {
+            return List.of();
+        }
+        try {
+            return parse(Files.readAllLines(Path.of(decisionLog), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.warn("Failed to read intent decision log {}: {}", decisionLog, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Parses "INTENT&lt;tab&gt;query" lines; blank lines, comments and unknown intents are skipped
+     */
+    private List<LabeledQuery> parse(List<String> lines) {
+        List<LabeledQuery> examples = new ArrayList<>();
+        for (String line : lines) {
+            int tab = line.indexOf('\t');
+            if (line.isBlank() || line.startsWith("#") || tab < 0) {
+                continue;
+            }
+            try {
+                IntentType intent = IntentType.valueOf(line.substring(0, tab).trim());
+                String query = line.substring(tab + 1).trim();
+                if (!query.isEmpty()) {
+                    examples.add(new LabeledQuery(intent, query));
+                }
+            } catch (IllegalArgumentException e) {
+                log.debug("Skipping intent example with unknown label: {}", line);
+            }
+        }
+        return examples;
+    }
+
+    /**
+     * Hashed, L2-normalized feature vector of a query
+     */
+    private static Map<Integer, Double> features(String query) {
+        return features(QueryAnalysis.words(query));
+    }
+
+    private static Map<Integer, Double> features(List<String> words) {
+        Map<Integer, Double> features = new HashMap<>();
+
+        String previous = null;
+        for (String word : words) {
+            addFeature(features, "w:" + word, 1.0);
+            if (previous != null) {
+                addFeature(features, "b:" + previous + " " + word, BIGRAM_WEIGHT);
+            }
+            String padded = "^" + word + "$";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                addFeature(features, "c:" + padded.substring(i, i + 3), TRIGRAM_WEIGHT);
+            }
+            previous = word;
+        }
+
+        double norm = Math.sqrt(features.values().stream().mapToDouble(v -> v * v).sum());
+        if (norm > 0) {
+            features.replaceAll((feature, value) -> value / norm);
+        }
+        return features;
+    }
+
+    private static void addFeature(Map<Integer, Double> features, String feature, double weight) {
+        int hash = feature.hashCode() * 0x9E3779B9;
+        features.merge((hash ^ (hash >>> 16)) & (DIMENSIONS - 1), weight, Double::sum);
+    }
+
+    private static void normalize(double[] vector) {
+        double norm = 0.0;
+        for (double value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= norm;
+            }
+        }
+    }
+
+    /**
+     * A query with its intent label
+     */
+    @Data
+    @AllArgsConstructor
+    public static class LabeledQuery {
+        private IntentType intent;
+        private String query;
+    }
+
+    /**
+     * Trained centroids indexed by intent ordinal; null for intents without examples
+     */
+    private static final class Model {
+        private final double[][] centroids;
+        private final int[] counts;
+
+        private Model(double[][] centroids, int[] counts) {
+            this.centroids = centroids;
+            this.counts = counts;
+        }
+
+        private boolean isEmpty() {
+            return Arrays.stream(counts).allMatch(count -> count == 0);
+        }
+
+        private boolean isComplete() {
+            return Arrays.stream(counts).allMatch(count -> count > 0);
+        }
+
+        private Map<IntentType, Integer> countsByIntent() {
+            Map<IntentType, Integer> byIntent = new EnumMap<>(IntentType.class);
+            for (IntentType intent : IntentType.values()) {
+                byIntent.put(intent, counts[intent.ordinal()]);
+            }
+            return byIntent;
+        }
+    }
+}
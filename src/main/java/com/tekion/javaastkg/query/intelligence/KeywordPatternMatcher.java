@@ -0,0 +1,233 @@
+package com.tekion.javaastkg.query.intelligence;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the matches of many case-insensitive regexes in one pass over the text.
+ * Every rule has a literal keyword that each of its matches starts with. An Aho-Corasick
+ * automaton over the keywords scans the text once; the rule's regex is then only tried,
+ * anchored, at the positions where its keyword occurs. The result is the same set of matches
+ * that calling {@code find()} with every regex would return, without scanning the text once
+ * per regex.
+ *
+ * @param <K> category the rules report their matches under
+ */
+public final class KeywordPatternMatcher<K> {
+
+    private final List<Rule<K>> rules;
+    private final Map<Long, Integer> transitions;
+    private final int[] fail;
+    private final int[][] outputs;
+
+    private KeywordPatternMatcher(List<Rule<K>> rules, Map<Long, Integer> transitions, int[] fail, int[][] outputs) {
+        this.rules = rules;
+        this.transitions = transitions;
+        this.fail = fail;
+        this.outputs = outputs;
+    }
+
+    public static <K> Builder<K> builder() {
+        return new Builder<>();
+    }
+
+    public List<Rule<K>> getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns every match, ordered by rule and then by position. Matches of one rule do not
+     * overlap, as with repeated {@code Matcher.find()}.
+     */
+    public List<Hit<K>> findAll(String text) {
+        List<Hit<K>> hits = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return hits;
+        }
+
+        Matcher[] matchers = new Matcher[rules.size()];
+        int[] nextFree = new int[rules.size()];
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, Character.toLowerCase(text.charAt(i)));
+            for (int s = state; s > 0; s = fail[s]) {
+                for (int ruleIndex : outputs[s]) {
+                    Rule<K> rule = rules.get(ruleIndex);
+                    int start = i - rule.keyword.length() + 1;
+                    if (start < nextFree[ruleIndex]) {
+                        continue;
+                    }
+                    Matcher matcher = matchers[ruleIndex];
+                    if (matcher == null) {
+                        matcher = rule.pattern.matcher(text).useTransparentBounds(true).useAnchoringBounds(false);
+                        matchers[ruleIndex] = matcher;
+                    }
+                    matcher.region(start, text.length());
+                    if (matcher.lookingAt()) {
+                        hits.add(new Hit<>(rule.key, ruleIndex, start, matcher.end(), matcher.group()));
+                        nextFree[ruleIndex] = Math.max(matcher.end(), start + 1);
+                    }
+                }
+            }
+        }
+
+        hits.sort(Comparator.comparingInt((Hit<K> hit) -> hit.ruleIndex).thenComparingInt(hit -> hit.start));
+        return hits;
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            Integer next = transitions.get(key(state, c));
+            if (next != null) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    /**
+     * A regex with the literal keyword its matches start with
+     */
+    public static final class Rule<K> {
+        private final K key;
+        private final String keyword;
+        private final Pattern pattern;
+
+        private Rule(K key, String keyword, Pattern pattern) {
+            this.key = key;
+            this.keyword = keyword;
+            this.pattern = pattern;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public String getKeyword() {
+            return keyword;
+        }
+
+        public Pattern getPattern() {
+            return pattern;
+        }
+    }
+
+    /**
+     * One regex match
+     */
+    public static final class Hit<K> {
+        private final K key;
+        private final int ruleIndex;
+        private final int start;
+        private final int end;
+        private final String text;
+
+        private Hit(K key, int ruleIndex, int start, int end, String text) {
+            this.key = key;
+            this.ruleIndex = ruleIndex;
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public int getRuleIndex() {
+            return ruleIndex;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * Collects rules, then builds the keyword automaton
+     */
+    public static final class Builder<K> {
+        private final List<Rule<K>> rules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a case-insensitive regex whose matches all start with the given keyword
+         */
+        public Builder<K> add(K key, String keyword, String regex) {
+            if (keyword == null || keyword.isEmpty()) {
+                throw new IllegalArgumentException("Rule for " + key + " needs a non-empty keyword");
+            }
+            rules.add(new Rule<>(key, keyword.toLowerCase(Locale.ROOT),
+                    Pattern.compile(regex, Pattern.CASE_INSENSITIVE)));
+            return this;
+        }
+
+        public KeywordPatternMatcher<K> build() {
+            Map<Long, Integer> transitions = new HashMap<>();
+            List<List<Integer>> outputs = new ArrayList<>();
+            outputs.add(new ArrayList<>());
+            Map<Integer, List<Integer>> children = new HashMap<>();
+
+            for (int ruleIndex = 0; ruleIndex < rules.size(); ruleIndex++) {
+                String keyword = rules.get(ruleIndex).keyword;
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    long key = key(state, keyword.charAt(i));
+                    Integer next = transitions.get(key);
+                    if (next == null) {
+                        next = outputs.size();
+                        outputs.add(new ArrayList<>());
+                        transitions.put(key, next);
+                        children.computeIfAbsent(state, s -> new ArrayList<>()).add(next);
+                    }
+                    state = next;
+                }
+                outputs.get(state).add(ruleIndex);
+            }
+
+            // Characters on the edge into each state, for the failure-link pass
+            char[] edgeChar = new char[outputs.size()];
+            transitions.forEach((key, child) -> edgeChar[child] = (char) (key & 0xFFFF));
+
+            int[] fail = new int[outputs.size()];
+            ArrayDeque<Integer> queue = new ArrayDeque<>(children.getOrDefault(0, List.of()));
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int child : children.getOrDefault(state, List.of())) {
+                    int f = fail[state];
+                    Integer target = state == 0 ? null : transitions.get(key(f, edgeChar[child]));
+                    while (target == null && f != 0) {
+                        f = fail[f];
+                        target = transitions.get(key(f, edgeChar[child]));
+                    }
+                    fail[child] = target != null && target != child ? target : 0;
+                    queue.add(child);
+                }
+            }
+
+            int[][] outputArrays = new int[outputs.size()][];
+            for (int i = 0; i < outputs.size(); i++) {
+                outputArrays[i] = outputs.get(i).stream().mapToInt(Integer::intValue).toArray();
+            }
+            return new KeywordPatternMatcher<>(List.copyOf(rules), Map.copyOf(transitions), fail, outputArrays);
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package com.tekion.javaastkg.query.intelligence;
 
+import com.tekion.javaastkg.query.services.IdentifierBloomFilter;
+import com.tekion.javaastkg.query.services.IdentifierFilterService;
+import com.tekion.javaastkg.query.services.QueryDeadline;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -24,6 +32,9 @@ public class MultiLevelExpander {
     private final SemanticExpander semanticExpander;
     private final EmbeddingBasedExpander embeddingExpander;
     private final GraphRelationshipExpander graphExpander;
+    private final IdentifierFilterService identifierFilterService;
+    private final TermExpansionCache termCache;
+    private final Executor retrievalExecutor;
     
     @Value("${query_optimization.expansion.level1_weight:1.0}")
     private float level1Weight;
@@ -39,36 +50,98 @@ public class MultiLevelExpander {
     
     @Value("${query_optimization.expansion.enable_parallel_expansion:true}")
     private boolean enableParallelExpansion;
+    
+    @Value("${query_optimization.expansion.level3_min_budget_ms:500}")
+    private long level3MinBudgetMs;
+    
+    @Value("${query_optimization.expansion.prune_unknown_terms:true}")
+    private boolean pruneUnknownTerms;
+    
+    @Value("${query_optimization.expansion.parallel_levels:true}")
+    private boolean parallelLevels;
+    
+    @Value("${query_optimization.expansion.level3_late_enrichment:false}")
+    private boolean level3LateEnrichment;
 
     public MultiLevelExpander(JavaNamingPatternExpander patternExpander,
                              CompoundTermGenerator compoundGenerator,
                              SemanticExpander semanticExpander,
                              EmbeddingBasedExpander embeddingExpander,
-                             GraphRelationshipExpander graphExpander) {
+                             GraphRelationshipExpander graphExpander,
+                             IdentifierFilterService identifierFilterService,
+                             TermExpansionCache termCache,
+                             @Qualifier("retrievalExecutor") Executor retrievalExecutor) {
         this.patternExpander = patternExpander;
         this.compoundGenerator = compoundGenerator;
         this.semanticExpander = semanticExpander;
         this.embeddingExpander = embeddingExpander;
         this.graphExpander = graphExpander;
+        this.identifierFilterService = identifierFilterService;
+        this.termCache = termCache;
+        this.retrievalExecutor = retrievalExecutor;
     }
 
     /**
      * Expands query using multi-level expansion strategy
      */
     public QueryExpansion expandQuery(String originalQuery, QueryIntentAnalyzer.QueryIntent intent) {
+        return expandQuery(originalQuery, intent, QueryDeadline.unbounded());
+    }
+
+    /**
+     * Expands query within the term expansion slice of the deadline. Levels 1 and 2 are in-memory
+     * and always run; level 3 queries Neo4j and the embedding model, so it is skipped when too
+     * little time is left and abandoned when it overruns.
+     */
+    public QueryExpansion expandQuery(String originalQuery, QueryIntentAnalyzer.QueryIntent intent,
+                                      QueryDeadline deadline) {
+        QueryAnalysis analysis = intent != null && intent.getAnalysis() != null
+                && intent.getAnalysis().getOriginal().equals(originalQuery)
+            ? intent.getAnalysis() : QueryAnalysis.of(originalQuery);
+        return expandQuery(analysis, intent, deadline);
+    }
+
+    /**
+     * Expands an analyzed query; the base terms and their derived forms come from the analysis.
+     * In parallel mode the remote level 3 lookups start on the base terms before the in-memory
+     * levels 1 and 2 run, so the stage takes as long as the slowest level rather than their sum.
+     */
+    public QueryExpansion expandQuery(QueryAnalysis analysis, QueryIntentAnalyzer.QueryIntent intent,
+                                      QueryDeadline deadline) {
+        String originalQuery = analysis.getOriginal();
         log.info("Starting multi-level expansion for query: {}", originalQuery);
-        
-        // Extract base terms from query
-        List<String> baseTerms = extractTerms(originalQuery);
-        
-        // Level 1: Direct pattern-based expansion
-        ExpansionLevel level1 = performLevel1Expansion(baseTerms, intent);
-        
-        // Level 2: Semantic expansion
-        ExpansionLevel level2 = performLevel2Expansion(baseTerms, level1.getAllTerms(), intent);
-        
-        // Level 3: Graph and embedding-based expansion
-        ExpansionLevel level3 = performLevel3Expansion(baseTerms, level2.getAllTerms(), intent);
+        QueryDeadline.Stage stage = deadline.stage(QueryDeadline.TERM_EXPANSION);
+        
+        // Base terms from the query analysis
+        List<String> baseTerms = analysis.getTerms();
+        
+        ExpansionLevel level1;
+        ExpansionLevel level2;
+        ExpansionLevel level3;
+        if (parallelLevels) {
+            // Level 3 on the base terms goes out first, levels 1 and 2 run while it waits on I/O
+            CompletableFuture<ExpansionLevel> baseLevel3 = startLevel3(stage,
+                () -> performLevel3Expansion(baseTerms, Collections.emptyList(), intent));
+            level1 = pruneUnknownTerms(performLevel1Expansion(analysis, intent), baseTerms);
+            level2 = pruneUnknownTerms(performLevel2Expansion(baseTerms, level1.getAllTerms(), intent), baseTerms);
+            
+            // Optional late enrichment: graph lookups on the top level 2 terms
+            List<String> level2Terms = level2.getAllTerms();
+            CompletableFuture<ExpansionLevel> enrichedLevel3 = level3LateEnrichment
+                ? startLevel3(stage, () -> performLevel3Enrichment(baseTerms, level2Terms))
+                : CompletableFuture.completedFuture(emptyLevel(3, "Graph & Embedding"));
+            level3 = mergeLevels(baseLevel3.join(), enrichedLevel3.join());
+        } else {
+            // Level 1: Direct pattern-based expansion
+            level1 = pruneUnknownTerms(performLevel1Expansion(analysis, intent), baseTerms);
+            
+            // Level 2: Semantic expansion
+            level2 = pruneUnknownTerms(performLevel2Expansion(baseTerms, level1.getAllTerms(), intent), baseTerms);
+            
+            // Level 3: Graph and embedding-based expansion
+            List<String> level2Terms = level2.getAllTerms();
+            level3 = startLevel3(stage, () -> performLevel3Expansion(baseTerms, level2Terms, intent)).join();
+        }
         
         // Combine and weight all expansions
         QueryExpansion finalExpansion = combineExpansions(
@@ -80,24 +153,50 @@ public class MultiLevelExpander {
         return finalExpansion;
     }
     
+    /**
+     * Starts level 3 work on the retrieval executor, bounded by the stage. When too little of the
+     * stage is left or the executor is saturated it is skipped; on timeout or failure the level is empty.
+     */
+    private CompletableFuture<ExpansionLevel> startLevel3(QueryDeadline.Stage stage, Supplier<ExpansionLevel> work) {
+        ExpansionLevel skippedLevel3 = emptyLevel(3, "Graph & Embedding");
+        if (!stage.hasAtLeast(level3MinBudgetMs)) {
+            stage.degrade("skipped level 3 expansion, " + stage.remainingMs() + " ms left");
+            return CompletableFuture.completedFuture(skippedLevel3);
+        }
+        CompletableFuture<ExpansionLevel> level3;
+        try {
+            level3 = CompletableFuture.supplyAsync(work, retrievalExecutor);
+        } catch (RejectedExecutionException e) {
+            stage.degrade("skipped level 3 expansion, executor saturated");
+            return CompletableFuture.completedFuture(skippedLevel3);
+        }
+        return stage.bound(level3, skippedLevel3)
+            .exceptionally(e -> {
+                log.warn("Level 3 expansion failed: {}", e.getMessage());
+                return skippedLevel3;
+            });
+    }
+    
     /**
      * Level 1: Direct pattern-based expansion
      */
-    private ExpansionLevel performLevel1Expansion(List<String> baseTerms, QueryIntentAnalyzer.QueryIntent intent) {
+    private ExpansionLevel performLevel1Expansion(QueryAnalysis analysis, QueryIntentAnalyzer.QueryIntent intent) {
         log.debug("Performing Level 1 expansion (pattern-based)");
+        List<String> baseTerms = analysis.getTerms();
         
         Set<WeightedTerm> expansions = new LinkedHashSet<>();
         
         // Java naming pattern expansions
         for (String term : baseTerms) {
-            List<String> patternExpansions = patternExpander.expandWithPatterns(term);
+            List<String> patternExpansions = termCache.get(
+                TermExpansionCache.Expander.PATTERN, term, null, patternExpander::expandWithPatterns);
             for (String expansion : patternExpansions) {
                 expansions.add(new WeightedTerm(expansion, level1Weight, "pattern"));
             }
         }
         
         // Compound term generation
-        List<String> compounds = compoundGenerator.generateCompounds(baseTerms);
+        List<String> compounds = compoundGenerator.generateCompounds(analysis);
         for (String compound : compounds) {
             expansions.add(new WeightedTerm(compound, level1Weight * 0.9f, "compound"));
         }
@@ -123,12 +222,14 @@ public class MultiLevelExpander {
         
         Set<WeightedTerm> expansions = new LinkedHashSet<>();
         
-        // Semantic synonym expansion
+        // Semantic synonym expansion, computed once per term and reused by the context and conceptual passes
         Set<String> termsToExpand = new HashSet<>(baseTerms);
         termsToExpand.addAll(level1Terms.stream().limit(10).collect(Collectors.toList())); // Limit to prevent explosion
+        Map<String, List<String>> semanticsByTerm = new HashMap<>();
         
         for (String term : termsToExpand) {
-            List<String> semanticExpansions = semanticExpander.expandSemantics(term);
+            List<String> semanticExpansions = semanticsByTerm.computeIfAbsent(term, t -> termCache.get(
+                TermExpansionCache.Expander.SEMANTIC, t, null, semanticExpander::expandSemantics));
             for (String expansion : semanticExpansions) {
                 if (!term.equals(expansion)) {
                     expansions.add(new WeightedTerm(expansion, level2Weight, "semantic"));
@@ -143,7 +244,8 @@ public class MultiLevelExpander {
                 .collect(Collectors.toList());
             
             for (String term : baseTerms) {
-                List<String> contextExpansions = semanticExpander.expandWithContext(term, contextTerms);
+                List<String> contextExpansions = semanticExpander.expandWithContext(
+                    term, semanticsByTerm.get(term), contextTerms);
                 for (String expansion : contextExpansions) {
                     expansions.add(new WeightedTerm(expansion, level2Weight * 0.9f, "context_semantic"));
                 }
@@ -152,7 +254,7 @@ public class MultiLevelExpander {
         
         // Conceptual relationships
         for (String term : baseTerms) {
-            List<String> conceptualTerms = semanticExpander.getConceptuallyRelatedTerms(term);
+            List<String> conceptualTerms = semanticExpander.getConceptuallyRelatedTerms(term, semanticsByTerm.get(term));
             for (String conceptual : conceptualTerms) {
                 expansions.add(new WeightedTerm(conceptual, level2Weight * 0.8f, "conceptual"));
             }
@@ -177,9 +279,63 @@ public class MultiLevelExpander {
         // Graph-based relationship expansion
         List<String> graphTerms = new ArrayList<>(baseTerms);
         graphTerms.addAll(previousTerms.stream().limit(5).collect(Collectors.toList())); // Top previous expansions
+        addGraphExpansions(graphTerms, expansions);
+        
+        // Embedding-based similarity expansion
+        if (enableParallelExpansion) {
+            // Only terms not memoized yet are embedded; terms of a failed batch are not memoized
+            Map<String, List<String>> embeddingExpansions = termCache.getAll(
+                TermExpansionCache.Expander.EMBEDDING, baseTerms, null, missing -> {
+                    EmbeddingBasedExpander.SimilarTermsBatch batch = embeddingExpander.findSimilarTermsBatch(missing);
+                    log.debug("Embedding expansion covered {} base terms in {} ms",
+                        batch.getTermCount(), batch.getLatencyMs());
+                    return new TermExpansionCache.BatchResult(batch.getSimilarTerms(), !batch.isFailed());
+                });
+            
+            for (Map.Entry<String, List<String>> entry : embeddingExpansions.entrySet()) {
+                for (String similarTerm : entry.getValue()) {
+                    expansions.add(new WeightedTerm(similarTerm, level3Weight * 0.9f, "embedding_similarity"));
+                }
+            }
+        }
         
-        GraphRelationshipExpander.GraphExpansionResult graphResult = 
-            graphExpander.expandWithGraphAnalysis(graphTerms);
+        return ExpansionLevel.builder()
+            .level(3)
+            .expansions(new ArrayList<>(expansions))
+            .expansionType("Graph & Embedding")
+            .build();
+    }
+    
+    /**
+     * Late level 3 enrichment: graph lookups on the top previous expansions that are not base terms
+     */
+    private ExpansionLevel performLevel3Enrichment(List<String> baseTerms, List<String> previousTerms) {
+        List<String> graphTerms = previousTerms.stream()
+            .filter(term -> !baseTerms.contains(term))
+            .limit(5)
+            .collect(Collectors.toList());
+        if (graphTerms.isEmpty()) {
+            return emptyLevel(3, "Graph & Embedding");
+        }
+        log.debug("Enriching level 3 with graph lookups on {}", graphTerms);
+        
+        Set<WeightedTerm> expansions = new LinkedHashSet<>();
+        addGraphExpansions(graphTerms, expansions);
+        return ExpansionLevel.builder()
+            .level(3)
+            .expansions(new ArrayList<>(expansions))
+            .expansionType("Graph & Embedding")
+            .build();
+    }
+    
+    /**
+     * Adds related terms, co-occurring terms and domain pattern components found in the graph
+     */
+    private void addGraphExpansions(List<String> graphTerms, Set<WeightedTerm> expansions) {
+        // Empty results are not memoized: the expander reports failures as empty results
+        GraphRelationshipExpander.GraphExpansionResult graphResult = termCache.getForTerms(
+            TermExpansionCache.Expander.GRAPH, graphTerms, null, graphExpander::expandWithGraphAnalysis,
+            result -> result.getTotalExpansions() > 0 || !result.getDomainPatterns().isEmpty());
         
         // Add related terms from graph
         for (String relatedTerm : graphResult.getRelatedTerms()) {
@@ -192,18 +348,6 @@ public class MultiLevelExpander {
             expansions.add(new WeightedTerm(coTerm.getTerm(), Math.min(weight, level3Weight), "co_occurrence"));
         }
         
-        // Embedding-based similarity expansion
-        if (enableParallelExpansion) {
-            Map<String, List<String>> embeddingExpansions = 
-                embeddingExpander.findSimilarTermsForMultiple(baseTerms);
-            
-            for (Map.Entry<String, List<String>> entry : embeddingExpansions.entrySet()) {
-                for (String similarTerm : entry.getValue()) {
-                    expansions.add(new WeightedTerm(similarTerm, level3Weight * 0.9f, "embedding_similarity"));
-                }
-            }
-        }
-        
         // Add domain patterns from graph
         for (GraphRelationshipExpander.DomainPattern pattern : graphResult.getDomainPatterns()) {
             for (String component : pattern.getRelatedComponents()) {
@@ -211,11 +355,55 @@ public class MultiLevelExpander {
                 expansions.add(new WeightedTerm(component, Math.min(weight, level3Weight), "domain_pattern"));
             }
         }
+    }
+    
+    /**
+     * Merges the base and enrichment results of level 3, dropping duplicates
+     */
+    private ExpansionLevel mergeLevels(ExpansionLevel base, ExpansionLevel enrichment) {
+        if (enrichment.getExpansions().isEmpty()) {
+            return base;
+        }
+        Set<WeightedTerm> merged = new LinkedHashSet<>(base.getExpansions());
+        merged.addAll(enrichment.getExpansions());
+        base.setExpansions(new ArrayList<>(merged));
+        return base;
+    }
+    
+    /**
+     * Drops generated terms that match no identifier in the graph, so they are neither scored by
+     * the quality filter nor sent to search. Levels 1 and 2 invent names from patterns and synonyms;
+     * level 3 terms come from the graph itself and are not checked. Terms the user wrote are never
+     * pruned, even when re-emitted by a level, since full-text search may still match them in
+     * descriptions and docs.
+     */
+    private ExpansionLevel pruneUnknownTerms(ExpansionLevel level, List<String> baseTerms) {
+        if (!pruneUnknownTerms || !identifierFilterService.isAvailable()) {
+            return level;
+        }
         
+        Set<String> queryTerms = baseTerms.stream()
+            .map(term -> term.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toSet());
+        IdentifierBloomFilter filter = identifierFilterService.current();
+        List<WeightedTerm> known = level.getExpansions().stream()
+            .filter(term -> queryTerms.contains(term.getTerm().toLowerCase(Locale.ROOT))
+                || filter.mightContainTerm(term.getTerm()))
+            .collect(Collectors.toList());
+        int pruned = level.getExpansions().size() - known.size();
+        
+        log.debug("Level {} kept {} of {} generated terms, pruned {} unknown to the graph",
+            level.getLevel(), known.size(), level.getExpansions().size(), pruned);
+        level.setExpansions(known);
+        level.setPrunedCount(pruned);
+        return level;
+    }
+    
+    private ExpansionLevel emptyLevel(int level, String expansionType) {
         return ExpansionLevel.builder()
-            .level(3)
-            .expansions(new ArrayList<>(expansions))
-            .expansionType("Graph & Embedding")
+            .level(level)
+            .expansions(new ArrayList<>())
+            .expansionType(expansionType)
             .build();
     }
     
@@ -333,37 +521,40 @@ public class MultiLevelExpander {
     private List<WeightedTerm> getIntentSpecificPatterns(List<String> terms, QueryIntentAnalyzer.QueryIntent intent) {
         List<WeightedTerm> patterns = new ArrayList<>();
         
+        // Pattern suffixes relevant to the intent
+        String[] suffixes = intentPatternSuffixes(intent.getPrimaryIntent());
+        if (suffixes.length == 0) {
+            return patterns;
+        }
+        
         for (String term : terms) {
-            List<String> intentPatterns = patternExpander.getDomainSpecificPatterns(term);
-            
-            // Add patterns relevant to the intent
-            switch (intent.getPrimaryIntent()) {
-                case IMPLEMENTATION:
-                    patterns.addAll(createWeightedTerms(
-                        filterPatterns(intentPatterns, "Impl", "Engine", "Processor"),
-                        level1Weight * 0.95f, "intent_pattern"
-                    ));
-                    break;
-                    
-                case CONFIGURATION:
-                    patterns.addAll(createWeightedTerms(
-                        filterPatterns(intentPatterns, "Config", "Properties", "Settings"),
-                        level1Weight * 0.95f, "intent_pattern"
-                    ));
-                    break;
-                    
-                case DISCOVERY:
-                    patterns.addAll(createWeightedTerms(
-                        filterPatterns(intentPatterns, "Service", "Manager", "Handler"),
-                        level1Weight * 0.95f, "intent_pattern"
-                    ));
-                    break;
-            }
+            List<String> intentPatterns = termCache.get(TermExpansionCache.Expander.INTENT_PATTERN, term,
+                intent.getPrimaryIntent(), t -> filterPatterns(patternExpander.getDomainSpecificPatterns(t), suffixes));
+            patterns.addAll(createWeightedTerms(intentPatterns, level1Weight * 0.95f, "intent_pattern"));
         }
         
         return patterns;
     }
     
+    /**
+     * Suffixes of the domain patterns that fit an intent; none for intents without such patterns
+     */
+    private static String[] intentPatternSuffixes(QueryIntentAnalyzer.IntentType intent) {
+        switch (intent) {
+            case IMPLEMENTATION:
+                return new String[]{"Impl", "Engine", "Processor"};
+                
+            case CONFIGURATION:
+                return new String[]{"Config", "Properties", "Settings"};
+                
+            case DISCOVERY:
+                return new String[]{"Service", "Manager", "Handler"};
+                
+            default:
+                return new String[0];
+        }
+    }
+    
     /**
      * Filters patterns containing specific suffixes
      */
@@ -382,25 +573,6 @@ public class MultiLevelExpander {
             .collect(Collectors.toList());
     }
     
-    /**
-     * Extracts terms from the original query
-     */
-    private List<String> extractTerms(String query) {
-        // Remove common stop words and split by common delimiters
-        Set<String> stopWords = Set.of(
-            "the", "is", "at", "which", "on", "and", "a", "an",
-            "as", "are", "been", "have", "has", "had", "do", "does",
-            "did", "will", "would", "should", "could", "may", "might"
-        );
-        
-        return Arrays.stream(query.split("[\\s,;.!?]+"))
-            .map(String::toLowerCase)
-            .filter(term -> term.length() > 2)
-            .filter(term -> !stopWords.contains(term))
-            .distinct()
-            .collect(Collectors.toList());
-    }
-
     /**
      * Weighted term representation
      */
@@ -423,6 +595,7 @@ public class MultiLevelExpander {
         private int level;
         private List<WeightedTerm> expansions;
         private String expansionType;
+        private int prunedCount;
         
         public List<String> getAllTerms() {
             return expansions.stream()
@@ -0,0 +1,204 @@
+package com.tekion.javaastkg.query.intelligence;
+
+import com.tekion.javaastkg.query.services.SymbolDictionary;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Lexical views of one query, computed once per request and shared by intent analysis, the
+ * expanders and the quality filter instead of each splitting and lower-casing the query again.
+ * Strings that occur in several views are the same instance. Token sets and capitalized forms of
+ * candidate terms are memoized, since the same generated terms are scored against the query many times.
+ * Immutable apart from the thread-safe memos.
+ */
+public final class QueryAnalysis {
+
+    private static final Pattern TERM_DELIMITERS = Pattern.compile("[\\s,;.!?]+");
+    private static final Pattern WORD_DELIMITERS = Pattern.compile("[^a-z0-9@.]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "the", "is", "at", "which", "on", "and", "a", "an",
+        "as", "are", "been", "have", "has", "had", "do", "does",
+        "did", "will", "would", "should", "could", "may", "might"
+    );
+
+    private final String original;
+    private final String lowerCase;
+    private final List<String> terms;
+    private final List<String> words;
+    private final List<String> bigrams;
+    private final List<String> stems;
+    private final Set<String> identifierTokens;
+
+    private final Map<String, Set<String>> tokenSets = new ConcurrentHashMap<>();
+    private final Map<String, String> lowerCases = new ConcurrentHashMap<>();
+    private final Map<String, String> capitalized = new ConcurrentHashMap<>();
+
+    private QueryAnalysis(String original) {
+        Map<String, String> pool = new HashMap<>();
+        this.original = original;
+        this.lowerCase = intern(pool, original.toLowerCase());
+        this.terms = extractTerms(pool, original);
+        this.words = intern(pool, words(original));
+        this.bigrams = bigrams(words);
+        this.stems = intern(pool, SymbolDictionary.tokenize(original));
+        this.identifierTokens = tokensOf(original);
+        tokensOf(lowerCase);
+        lowerCases.put(original, lowerCase);
+    }
+
+    /**
+     * Analyzes a query; a null query is treated as empty
+     */
+    public static QueryAnalysis of(String query) {
+        return new QueryAnalysis(query == null ? "" : query);
+    }
+
+    public String getOriginal() {
+        return original;
+    }
+
+    /**
+     * The query lower-cased with the default locale, as the expanders have always compared it
+     */
+    public String getLowerCase() {
+        return lowerCase;
+    }
+
+    /**
+     * Distinct lower-cased words longer than two characters, stop words removed: the expansion base terms
+     */
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * Lower-cased words split at anything but letters, digits, '@' and '.', as the intent classifier reads them
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * Adjacent word pairs, joined by a space
+     */
+    public List<String> getBigrams() {
+        return bigrams;
+    }
+
+    /**
+     * Identifier tokens of the query with plurals folded, as matched against the symbol dictionary
+     */
+    public List<String> getStems() {
+        return stems;
+    }
+
+    /**
+     * camelCase and delimiter segments of the query, lower-cased
+     */
+    public Set<String> getIdentifierTokens() {
+        return identifierTokens;
+    }
+
+    /**
+     * Memoized camelCase and delimiter segments of any text, see {@link #identifierTokens(String)}
+     */
+    public Set<String> tokensOf(String text) {
+        return tokenSets.computeIfAbsent(text, QueryAnalysis::identifierTokens);
+    }
+
+    /**
+     * Memoized default-locale lower case of a candidate term
+     */
+    public String lowerCaseOf(String text) {
+        return lowerCases.computeIfAbsent(text, String::toLowerCase);
+    }
+
+    /**
+     * Memoized capitalized form of a term: first letter upper case, the rest lower case
+     */
+    public String capitalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        return capitalized.computeIfAbsent(text,
+                t -> Character.toUpperCase(t.charAt(0)) + t.substring(1).toLowerCase());
+    }
+
+    /**
+     * Splits before capitals (camelCase) and on underscores, hyphens and whitespace, keeping
+     * lower-cased segments of two or more characters
+     */
+    public static Set<String> identifierTokens(String text) {
+        Set<String> tokens = new HashSet<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean delimiter = c == '_' || c == '-' || Character.isWhitespace(c);
+            if (delimiter || (c >= 'A' && c <= 'Z')) {
+                addToken(tokens, text, start, i);
+                start = delimiter ? i + 1 : i;
+            }
+        }
+        addToken(tokens, text, start, text.length());
+        return Collections.unmodifiableSet(tokens);
+    }
+
+    /**
+     * Lower-cased words of a text as the intent classifier splits it
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : WORD_DELIMITERS.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static void addToken(Set<String> tokens, String text, int start, int end) {
+        if (end - start > 1) {
+            tokens.add(text.substring(start, end).toLowerCase());
+        }
+    }
+
+    private static List<String> extractTerms(Map<String, String> pool, String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String part : TERM_DELIMITERS.split(query)) {
+            String term = part.toLowerCase();
+            if (term.length() > 2 && !STOP_WORDS.contains(term)) {
+                terms.add(intern(pool, term));
+            }
+        }
+        return List.copyOf(terms);
+    }
+
+    private static List<String> bigrams(List<String> words) {
+        List<String> bigrams = new ArrayList<>(Math.max(0, words.size() - 1));
+        for (int i = 1; i < words.size(); i++) {
+            bigrams.add(words.get(i - 1) + " " + words.get(i));
+        }
+        return Collections.unmodifiableList(bigrams);
+    }
+
+    private static List<String> intern(Map<String, String> pool, List<String> strings) {
+        List<String> interned = new ArrayList<>(strings.size());
+        for (String string : strings) {
+            interned.add(intern(pool, string));
+        }
+        return Collections.unmodifiableList(interned);
+    }
+
+    private static String intern(Map<String, String> pool, String string) {
+        String existing = pool.putIfAbsent(string, string);
+        return existing != null ? existing : string;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryAnalysis{terms=" + terms + ", stems=" + stems + "}";
+    }
+}
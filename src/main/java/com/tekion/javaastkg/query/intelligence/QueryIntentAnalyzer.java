@@ -1,30 +1,51 @@
 package com.tekion.javaastkg.query.intelligence;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.tekion.javaastkg.query.services.LLMService;
+import com.tekion.javaastkg.query.services.QueryDeadline;
+import jakarta.annotation.PostConstruct;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
  * Analyzes user queries to understand intent and contextual clues.
  * This enables intelligent query expansion and focused search strategies.
+ * Queries that no pattern classifies confidently go to the local {@link IntentClassifier};
+ * the LLM is only consulted as an opt-in tie-breaker when the classifier is unsure as well.
  */
 @Service
 @Slf4j
 public class QueryIntentAnalyzer {
 
     private final LLMService llmService;
+    private final IntentClassifier intentClassifier;
+    private final Executor llmExecutor;
     
-    @Value("${query_optimization.intent_analysis.llm_fallback_enabled:true}")
-    private boolean llmFallbackEnabled;
+    @Value("${query_optimization.intent_analysis.classifier_enabled:true}")
+    private boolean classifierEnabled;
+    
+    /** Falls back to the deprecated llm_fallback_enabled key, which this setting replaced */
+    @Value("${query_optimization.intent_analysis.llm_tie_breaker_enabled:"
+            + "${query_optimization.intent_analysis.llm_fallback_enabled:false}}")
+    private boolean llmTieBreakerEnabled;
+
+    @Value("${query_optimization.intent_analysis.llm_fallback_enabled:}")
+    private String deprecatedLlmFallbackEnabled;
+    
+    @Value("${query_optimization.intent_analysis.tie_margin:0.15}")
+    private double tieMargin;
     
     @Value("${query_optimization.intent_analysis.confidence_threshold:0.7}")
     private double confidenceThreshold;
@@ -32,158 +53,165 @@ public class QueryIntentAnalyzer {
     @Value("${query_optimization.intent_analysis.multi_intent_detection:true}")
     private boolean multiIntentDetection;
 
-    // Intent pattern definitions
-    private static final Map<IntentType, List<Pattern>> INTENT_PATTERNS = new HashMap<>();
-    
-    static {
+    /**
+     * Intent and context patterns, each with the literal keyword its matches start with.
+     * Compiled into one keyword automaton so a single pass over the query finds every hit.
+     */
+    private static final KeywordPatternMatcher<Enum<?>> PATTERN_MATCHER = KeywordPatternMatcher.<Enum<?>>builder()
         // Implementation intent patterns
-        INTENT_PATTERNS.put(IntentType.IMPLEMENTATION, Arrays.asList(
-            Pattern.compile("how\\s+does.*work", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("implementation\\s+of", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("algorithm\\s+for", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("logic\\s+behind", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("how\\s+is.*implemented", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("code\\s+for", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("source\\s+of", Pattern.CASE_INSENSITIVE)
-        ));
+        .add(IntentType.IMPLEMENTATION, "how", "how\\s+does.*work")
+        .add(IntentType.IMPLEMENTATION, "implementation", "implementation\\s+of")
+        .add(IntentType.IMPLEMENTATION, "algorithm", "algorithm\\s+for")
+        .add(IntentType.IMPLEMENTATION, "logic", "logic\\s+behind")
+        .add(IntentType.IMPLEMENTATION, "how", "how\\s+is.*implemented")
+        .add(IntentType.IMPLEMENTATION, "code", "code\\s+for")
+        .add(IntentType.IMPLEMENTATION, "source", "source\\s+of")
         
         // Usage intent patterns
-        INTENT_PATTERNS.put(IntentType.USAGE, Arrays.asList(
-            Pattern.compile("where\\s+is.*used", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("what\\s+uses", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("called\\s+by", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("dependencies\\s+of", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("references\\s+to", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("who\\s+calls", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("consumers\\s+of", Pattern.CASE_INSENSITIVE)
-        ));
+        .add(IntentType.USAGE, "where", "where\\s+is.*used")
+        .add(IntentType.USAGE, "what", "what\\s+uses")
+        .add(IntentType.USAGE, "called", "called\\s+by")
+        .add(IntentType.USAGE, "dependencies", "dependencies\\s+of")
+        .add(IntentType.USAGE, "references", "references\\s+to")
+        .add(IntentType.USAGE, "who", "who\\s+calls")
+        .add(IntentType.USAGE, "consumers", "consumers\\s+of")
         
         // Configuration intent patterns
-        INTENT_PATTERNS.put(IntentType.CONFIGURATION, Arrays.asList(
-            Pattern.compile("config(uration)?\\s+(for|of)?", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("properties\\s+(for|of)?", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("settings\\s+(for|of)?", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("parameters\\s+(for|of)?", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("environment\\s+variables", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("application\\.yml", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("@Value|@ConfigurationProperties", Pattern.CASE_INSENSITIVE)
-        ));
+        .add(IntentType.CONFIGURATION, "config", "config(uration)?\\s+(for|of)?")
+        .add(IntentType.CONFIGURATION, "properties", "properties\\s+(for|of)?")
+        .add(IntentType.CONFIGURATION, "settings", "settings\\s+(for|of)?")
+        .add(IntentType.CONFIGURATION, "parameters", "parameters\\s+(for|of)?")
+        .add(IntentType.CONFIGURATION, "environment", "environment\\s+variables")
+        .add(IntentType.CONFIGURATION, "application.yml", "application\\.yml")
+        .add(IntentType.CONFIGURATION, "@value", "@Value")
+        .add(IntentType.CONFIGURATION, "@configurationproperties", "@ConfigurationProperties")
         
         // Discovery intent patterns
-        INTENT_PATTERNS.put(IntentType.DISCOVERY, Arrays.asList(
-            Pattern.compile("what\\s+handles", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("responsible\\s+for", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("manages", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("controls", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("orchestrates", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("processes", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("service\\s+for", Pattern.CASE_INSENSITIVE)
-        ));
+        .add(IntentType.DISCOVERY, "what", "what\\s+handles")
+        .add(IntentType.DISCOVERY, "responsible", "responsible\\s+for")
+        .add(IntentType.DISCOVERY, "manages", "manages")
+        .add(IntentType.DISCOVERY, "controls", "controls")
+        .add(IntentType.DISCOVERY, "orchestrates", "orchestrates")
+        .add(IntentType.DISCOVERY, "processes", "processes")
+        .add(IntentType.DISCOVERY, "service", "service\\s+for")
         
         // Status intent patterns
-        INTENT_PATTERNS.put(IntentType.STATUS, Arrays.asList(
-            Pattern.compile("status(es)?\\s+(of|for)?", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("state(s)?\\s+(of|for)?", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("condition(s)?\\s+(of|for)?", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("progress\\s+(of|for)?", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("phase(s)?\\s+(of|for)?", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("workflow\\s+state", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("execution\\s+status", Pattern.CASE_INSENSITIVE)
-        ));
-    }
-    
-    // Context pattern definitions
-    private static final Map<ContextType, List<Pattern>> CONTEXT_PATTERNS = new HashMap<>();
-    
-    static {
+        .add(IntentType.STATUS, "status", "status(es)?\\s+(of|for)?")
+        .add(IntentType.STATUS, "state", "state(s)?\\s+(of|for)?")
+        .add(IntentType.STATUS, "condition", "condition(s)?\\s+(of|for)?")
+        .add(IntentType.STATUS, "progress", "progress\\s+(of|for)?")
+        .add(IntentType.STATUS, "phase", "phase(s)?\\s+(of|for)?")
+        .add(IntentType.STATUS, "workflow", "workflow\\s+state")
+        .add(IntentType.STATUS, "execution", "execution\\s+status")
+        
         // Scope indicators
-        CONTEXT_PATTERNS.put(ContextType.SCOPE, Arrays.asList(
-            Pattern.compile("\\ball\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\bmain\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\bspecific\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\brelated\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\bevery\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\bonly\\b", Pattern.CASE_INSENSITIVE)
-        ));
+        .add(ContextType.SCOPE, "all", "\\ball\\b")
+        .add(ContextType.SCOPE, "main", "\\bmain\\b")
+        .add(ContextType.SCOPE, "specific", "\\bspecific\\b")
+        .add(ContextType.SCOPE, "related", "\\brelated\\b")
+        .add(ContextType.SCOPE, "every", "\\bevery\\b")
+        .add(ContextType.SCOPE, "only", "\\bonly\\b")
         
         // Relationship indicators
-        CONTEXT_PATTERNS.put(ContextType.RELATIONSHIP, Arrays.asList(
-            Pattern.compile("connected\\s+to", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("part\\s+of", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("depends\\s+on", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("extends", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("implements", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("uses", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("inherits\\s+from", Pattern.CASE_INSENSITIVE)
-        ));
+        .add(ContextType.RELATIONSHIP, "connected", "connected\\s+to")
+        .add(ContextType.RELATIONSHIP, "part", "part\\s+of")
+        .add(ContextType.RELATIONSHIP, "depends", "depends\\s+on")
+        .add(ContextType.RELATIONSHIP, "extends", "extends")
+        .add(ContextType.RELATIONSHIP, "implements", "implements")
+        .add(ContextType.RELATIONSHIP, "uses", "uses")
+        .add(ContextType.RELATIONSHIP, "inherits", "inherits\\s+from")
         
         // Temporal indicators
-        CONTEXT_PATTERNS.put(ContextType.TEMPORAL, Arrays.asList(
-            Pattern.compile("\\brecent(ly)?\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\blatest\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\bcurrent(ly)?\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\bdeprecated\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\bnew(est)?\\b", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("\\bold(est)?\\b", Pattern.CASE_INSENSITIVE)
-        ));
+        .add(ContextType.TEMPORAL, "recent", "\\brecent(ly)?\\b")
+        .add(ContextType.TEMPORAL, "latest", "\\blatest\\b")
+        .add(ContextType.TEMPORAL, "current", "\\bcurrent(ly)?\\b")
+        .add(ContextType.TEMPORAL, "deprecated", "\\bdeprecated\\b")
+        .add(ContextType.TEMPORAL, "new", "\\bnew(est)?\\b")
+        .add(ContextType.TEMPORAL, "old", "\\bold(est)?\\b")
         
         // Quality indicators
-        CONTEXT_PATTERNS.put(ContextType.QUALITY, Arrays.asList(
-            Pattern.compile("best\\s+practice", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("performance", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("security", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("efficient", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("optimal", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("clean\\s+code", Pattern.CASE_INSENSITIVE)
-        ));
-    }
+        .add(ContextType.QUALITY, "best", "best\\s+practice")
+        .add(ContextType.QUALITY, "performance", "performance")
+        .add(ContextType.QUALITY, "security", "security")
+        .add(ContextType.QUALITY, "efficient", "efficient")
+        .add(ContextType.QUALITY, "optimal", "optimal")
+        .add(ContextType.QUALITY, "clean", "clean\\s+code")
+        .build();
 
-    public QueryIntentAnalyzer(LLMService llmService) {
+    public QueryIntentAnalyzer(LLMService llmService,
+                               IntentClassifier intentClassifier,
+                               @Qualifier("llmExecutor") Executor llmExecutor) {
         this.llmService = llmService;
+        this.intentClassifier = intentClassifier;
+        this.llmExecutor = llmExecutor;
+    }
+
+    @PostConstruct
+    public void warnAboutDeprecatedSettings() {
+        if (!deprecatedLlmFallbackEnabled.isBlank()) {
+            log.warn("query_optimization.intent_analysis.llm_fallback_enabled is deprecated, "
+                    + "use llm_tie_breaker_enabled instead; it only applies while that key is unset");
+        }
     }
 
     /**
      * Analyzes a query to determine user intent and extract contextual information
      */
     public QueryIntent analyzeIntent(String query) {
+        return analyzeIntent(query, QueryDeadline.unbounded());
+    }
+
+    /**
+     * Analyzes intent within the intent slice of the deadline; an LLM tie-break that does not
+     * answer in time is dropped in favour of the local scores
+     */
+    public QueryIntent analyzeIntent(String query, QueryDeadline deadline) {
+        return analyzeIntent(QueryAnalysis.of(query), deadline);
+    }
+
+    /**
+     * Analyzes intent from a query analysis; the returned intent carries the analysis on to expansion
+     */
+    public QueryIntent analyzeIntent(QueryAnalysis analysis, QueryDeadline deadline) {
+        String query = analysis.getOriginal();
         log.info("Analyzing intent for query: {}", query);
+        QueryDeadline.Stage stage = deadline.stage(QueryDeadline.INTENT);
         
-        // 1. Pattern-based intent detection
-        Map<IntentType, Double> intentScores = detectIntentsWithPatterns(query);
+        // 1. Pattern-based intent detection, one pass for intent and context patterns
+        List<KeywordPatternMatcher.Hit<Enum<?>>> hits = PATTERN_MATCHER.findAll(query);
+        Map<IntentType, Double> intentScores = detectIntentsWithPatterns(analysis.getLowerCase(), hits);
         
         // 2. Context extraction
-        Map<ContextType, List<String>> contexts = extractContexts(query);
+        Map<ContextType, List<String>> contexts = extractContexts(hits);
         
-        // 3. LLM-based refinement for ambiguous cases
-        if (shouldUseLLMFallback(intentScores)) {
-            intentScores = refineLLMIntent(query, intentScores);
+        // 3. Local classifier for queries the patterns do not settle
+        if (classifierEnabled && !isConfident(intentScores) && intentClassifier.isTrained()) {
+            intentScores = combineWithClassifier(intentScores, intentClassifier.classify(analysis));
         }
         
-        // 4. Build QueryIntent result
-        return buildQueryIntent(query, intentScores, contexts);
+        // 4. Opt-in LLM tie-breaker when the local scores remain ambiguous
+        if (shouldUseLLMTieBreaker(intentScores)) {
+            intentScores = refineLLMIntent(query, intentScores, stage);
+        }
+        
+        // 5. Build QueryIntent result
+        QueryIntent intent = buildQueryIntent(query, intentScores, contexts);
+        intent.setAnalysis(analysis);
+        return intent;
     }
     
     /**
-     * Detects intents using regex patterns
+     * Detects intents from the pattern hits
      */
-    private Map<IntentType, Double> detectIntentsWithPatterns(String query) {
+    private Map<IntentType, Double> detectIntentsWithPatterns(String lowerQuery,
+                                                              List<KeywordPatternMatcher.Hit<Enum<?>>> hits) {
         Map<IntentType, Double> scores = new HashMap<>();
         
-        for (Map.Entry<IntentType, List<Pattern>> entry : INTENT_PATTERNS.entrySet()) {
-            IntentType intent = entry.getKey();
-            List<Pattern> patterns = entry.getValue();
-            
-            double maxScore = 0.0;
-            for (Pattern pattern : patterns) {
-                if (pattern.matcher(query).find()) {
-                    // Calculate score based on pattern match strength
-                    double score = calculatePatternScore(query, pattern);
-                    maxScore = Math.max(maxScore, score);
-                }
-            }
-            
-            if (maxScore > 0) {
-                scores.put(intent, maxScore);
+        for (KeywordPatternMatcher.Hit<Enum<?>> hit : hits) {
+            if (hit.getKey() instanceof IntentType intent) {
+                // Calculate score based on pattern match strength
+                double score = calculatePatternScore(lowerQuery, PATTERN_MATCHER.getRules().get(hit.getRuleIndex()));
+                scores.merge(intent, score, Math::max);
             }
         }
         
@@ -197,14 +225,14 @@ public class QueryIntentAnalyzer {
     }
     
     /**
-     * Calculates pattern match score
+     * Calculates pattern match score for a rule that matched
      */
-    private double calculatePatternScore(String query, Pattern pattern) {
+    private double calculatePatternScore(String lowerQuery, KeywordPatternMatcher.Rule<Enum<?>> rule) {
         // Base score for match
         double score = 0.8;
         
         // Boost if pattern matches at the beginning of the query
-        if (pattern.matcher(query).find() && query.toLowerCase().startsWith(pattern.pattern().toLowerCase())) {
+        if (lowerQuery.startsWith(rule.getPattern().pattern().toLowerCase())) {
             score += 0.2;
         }
         
@@ -212,25 +240,14 @@ public class QueryIntentAnalyzer {
     }
     
     /**
-     * Extracts contextual information from the query
+     * Collects the context hits by context type
      */
-    private Map<ContextType, List<String>> extractContexts(String query) {
+    private Map<ContextType, List<String>> extractContexts(List<KeywordPatternMatcher.Hit<Enum<?>>> hits) {
         Map<ContextType, List<String>> contexts = new HashMap<>();
         
-        for (Map.Entry<ContextType, List<Pattern>> entry : CONTEXT_PATTERNS.entrySet()) {
-            ContextType contextType = entry.getKey();
-            List<Pattern> patterns = entry.getValue();
-            
-            List<String> matches = new ArrayList<>();
-            for (Pattern pattern : patterns) {
-                var matcher = pattern.matcher(query);
-                while (matcher.find()) {
-                    matches.add(matcher.group());
-                }
-            }
-            
-            if (!matches.isEmpty()) {
-                contexts.put(contextType, matches);
+        for (KeywordPatternMatcher.Hit<Enum<?>> hit : hits) {
+            if (hit.getKey() instanceof ContextType contextType) {
+                contexts.computeIfAbsent(contextType, type -> new ArrayList<>()).add(hit.getText());
             }
         }
         
@@ -238,37 +255,82 @@ public class QueryIntentAnalyzer {
     }
     
     /**
-     * Determines if LLM fallback should be used
+     * True when the highest score clears the confidence threshold
      */
-    private boolean shouldUseLLMFallback(Map<IntentType, Double> intentScores) {
-        if (!llmFallbackEnabled) {
+    private boolean isConfident(Map<IntentType, Double> intentScores) {
+        double maxConfidence = intentScores.values().stream()
+            .mapToDouble(Double::doubleValue)
+            .max()
+            .orElse(0.0);
+            
+        return maxConfidence >= confidenceThreshold;
+    }
+    
+    /**
+     * Combines pattern and classifier scores: 60% classifier, 40% patterns
+     */
+    private Map<IntentType, Double> combineWithClassifier(Map<IntentType, Double> patternScores,
+                                                          Map<IntentType, Double> classifierScores) {
+        if (classifierScores.isEmpty()) {
+            return patternScores;
+        }
+        if (patternScores.isEmpty()) {
+            return classifierScores;
+        }
+        
+        Map<IntentType, Double> combinedScores = new HashMap<>();
+        Set<IntentType> allIntents = new HashSet<>();
+        allIntents.addAll(patternScores.keySet());
+        allIntents.addAll(classifierScores.keySet());
+        
+        for (IntentType intent : allIntents) {
+            double patternScore = patternScores.getOrDefault(intent, 0.0);
+            double classifierScore = classifierScores.getOrDefault(intent, 0.0);
+            combinedScores.put(intent, (classifierScore * 0.6) + (patternScore * 0.4));
+        }
+        
+        return combinedScores;
+    }
+    
+    /**
+     * Determines if the LLM should break a tie: only when enabled and the best intent is either
+     * below the threshold or within the tie margin of the runner-up
+     */
+    private boolean shouldUseLLMTieBreaker(Map<IntentType, Double> intentScores) {
+        if (!llmTieBreakerEnabled) {
             return false;
         }
         
-        // Use LLM if no clear intent detected
-        if (intentScores.isEmpty()) {
+        if (!isConfident(intentScores)) {
             return true;
         }
         
-        // Use LLM if highest confidence is below threshold
-        double maxConfidence = intentScores.values().stream()
-            .mapToDouble(Double::doubleValue)
-            .max()
-            .orElse(0.0);
+        List<Double> topScores = intentScores.values().stream()
+            .sorted(Comparator.reverseOrder())
+            .limit(2)
+            .collect(Collectors.toList());
             
-        return maxConfidence < confidenceThreshold;
+        return topScores.size() > 1 && topScores.get(0) - topScores.get(1) < tieMargin;
     }
     
     /**
-     * Refines intent detection using LLM
+     * Refines intent detection using LLM; its decision is recorded so the local classifier
+     * learns the query on its next retraining
      */
-    private Map<IntentType, Double> refineLLMIntent(String query, Map<IntentType, Double> patternScores) {
+    private Map<IntentType, Double> refineLLMIntent(String query, Map<IntentType, Double> patternScores,
+                                                    QueryDeadline.Stage stage) {
         try {
             String prompt = buildLLMIntentPrompt(query);
-            String response = llmService.analyzeText(prompt);
+            String response = stage.call(() -> llmService.analyzeText(prompt), null, llmExecutor);
+            if (response == null) {
+                return patternScores;
+            }
             
             // Parse LLM response and merge with pattern scores
             Map<IntentType, Double> llmScores = parseLLMIntentResponse(response);
+            llmScores.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .ifPresent(decision -> intentClassifier.recordDecision(query, decision.getKey()));
             
             // Combine scores: 60% LLM, 40% patterns
             Map<IntentType, Double> combinedScores = new HashMap<>();
@@ -403,6 +465,12 @@ public class QueryIntentAnalyzer {
         private Map<IntentType, Double> intentScores;
         private Map<ContextType, List<String>> contexts;
         private double confidence;
+
+        // Lexical analysis of the query, handed on to expansion so it is not recomputed
+        @JsonIgnore
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
+        private transient QueryAnalysis analysis;
         
         /**
          * Gets focus areas based on intent
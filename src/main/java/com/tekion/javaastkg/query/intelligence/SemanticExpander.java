@@ -169,6 +169,9 @@ public class SemanticExpander {
         ));
     }
     
+    // Synonym groups each term belongs to, so reverse lookups do not scan every group
+    private static final Map<String, List<String>> SYNONYM_GROUPS_BY_MEMBER = indexSynonymGroups();
+    
     // Technical action synonyms (for method names)
     private static final Map<String, Set<String>> ACTION_SYNONYMS = new HashMap<>();
     
@@ -210,11 +213,9 @@ public class SemanticExpander {
         }
         
         // Check if term is a synonym of another term (reverse lookup)
-        for (Map.Entry<String, Set<String>> entry : DOMAIN_SYNONYMS.entrySet()) {
-            if (entry.getValue().contains(normalizedTerm)) {
-                expansions.add(entry.getKey());
-                expansions.addAll(entry.getValue());
-            }
+        for (String group : SYNONYM_GROUPS_BY_MEMBER.getOrDefault(normalizedTerm, Collections.emptyList())) {
+            expansions.add(group);
+            expansions.addAll(DOMAIN_SYNONYMS.get(group));
         }
         
         // Add action synonyms if applicable
@@ -257,11 +258,18 @@ public class SemanticExpander {
      * Gets conceptually related terms for a given term
      */
     public List<String> getConceptuallyRelatedTerms(String term) {
+        return getConceptuallyRelatedTerms(term, expandSemantics(term));
+    }
+
+    /**
+     * Gets conceptually related terms reusing the term's semantic expansions
+     */
+    public List<String> getConceptuallyRelatedTerms(String term, List<String> semanticExpansions) {
         Set<String> related = new LinkedHashSet<>();
         String normalizedTerm = term.toLowerCase();
         
         // Get direct semantic relations
-        related.addAll(expandSemantics(term));
+        related.addAll(semanticExpansions);
         
         // Add conceptual relationships based on domain knowledge
         switch (normalizedTerm) {
@@ -322,10 +330,17 @@ public class SemanticExpander {
      * Expands terms based on semantic context
      */
     public List<String> expandWithContext(String term, List<String> contextTerms) {
+        return expandWithContext(term, expandSemantics(term), contextTerms);
+    }
+
+    /**
+     * Expands terms based on semantic context, reusing the term's semantic expansions
+     */
+    public List<String> expandWithContext(String term, List<String> semanticExpansions, List<String> contextTerms) {
         Set<String> expansions = new LinkedHashSet<>();
         
         // Get base expansions
-        expansions.addAll(expandSemantics(term));
+        expansions.addAll(semanticExpansions);
         
         // Add context-aware expansions
         if (contextTerms.contains("async") || contextTerms.contains("asynchronous")) {
@@ -412,6 +427,19 @@ public class SemanticExpander {
         return expansions;
     }
     
+    /**
+     * Indexes the domain synonym groups by member, in the groups' iteration order
+     */
+    private static Map<String, List<String>> indexSynonymGroups() {
+        Map<String, List<String>> groups = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : DOMAIN_SYNONYMS.entrySet()) {
+            for (String member : entry.getValue()) {
+                groups.computeIfAbsent(member, m -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        return groups;
+    }
+    
     /**
      * Checks if two terms are semantically related
      */
@@ -0,0 +1,178 @@
+package com.tekion.javaastkg.query.intelligence;
+
+import com.tekion.javaastkg.query.services.GraphVersionService;
+import com.tekion.javaastkg.util.BoundedCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cross-query memo of expander results. A term's expansions depend only on the term, for some
+ * expanders the intent, and the graph, so results are kept per expander under
+ * (graph version, intent, term). A new graph version after ingestion makes older entries
+ * unreachable; they then age out of the bounded caches. Hit rates are kept per expander.
+ */
+@Service
+@Slf4j
+public class TermExpansionCache {
+
+    /**
+     * Expanders whose results are memoized, each with its own cache and counters
+     */
+    public enum Expander {
+        PATTERN,
+        INTENT_PATTERN,
+        SEMANTIC,
+        GRAPH,
+        EMBEDDING
+    }
+
+    private static final String ANY_INTENT = "*";
+
+    private final GraphVersionService graphVersionService;
+    private final Map<Expander, BoundedCache<String, Object>> caches = new EnumMap<>(Expander.class);
+
+    @Value("${query_optimization.term_cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query_optimization.term_cache.max_entries_per_expander:5000}")
+    private int maxEntriesPerExpander;
+
+    @Value("${query_optimization.term_cache.ttl_ms:3600000}")
+    private long ttlMs;
+
+    public TermExpansionCache(GraphVersionService graphVersionService) {
+        this.graphVersionService = graphVersionService;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        for (Expander expander : Expander.values()) {
+            String name = "termExpansion." + expander.name().toLowerCase(Locale.ROOT);
+            caches.put(expander, new BoundedCache<>(name, maxEntriesPerExpander, ttlMs));
+        }
+    }
+
+    /**
+     * Returns the expander's memoized result for a term, computing and caching it on a miss
+     */
+    public List<String> get(Expander expander, String term, QueryIntentAnalyzer.IntentType intent,
+                            Function<String, List<String>> loader) {
+        if (!enabled) {
+            return loader.apply(term);
+        }
+        return cached(expander, key(term, intent), () -> List.copyOf(loader.apply(term)), result -> true);
+    }
+
+    /**
+     * Memoizes a result computed for a whole set of terms, such as one graph analysis over all
+     * base terms. The key ignores the order of the terms; results rejected by {@code cacheable}
+     * are returned but not kept.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getForTerms(Expander expander, Collection<String> terms, QueryIntentAnalyzer.IntentType intent,
+                             Function<List<String>, T> loader, Predicate<T> cacheable) {
+        List<String> termList = new ArrayList<>(terms);
+        if (!enabled) {
+            return loader.apply(termList);
+        }
+        List<String> sorted = new ArrayList<>(new TreeSet<>(termList));
+        return (T) cached(expander, key(String.join("\u0000", sorted), intent),
+                () -> loader.apply(termList), result -> cacheable.test((T) result));
+    }
+
+    /**
+     * Looks up per-term results of a batch expander: only the terms missing from the cache are
+     * passed to the loader, and what it returns is cached per term. Terms the loader leaves out
+     * map to an empty list and are cached as such unless {@code cacheMissing} is false, which
+     * callers use when the batch failed.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, List<String>> getAll(Expander expander, List<String> terms,
+                                            QueryIntentAnalyzer.IntentType intent,
+                                            Function<List<String>, BatchResult> loader) {
+        if (!enabled) {
+            return loader.apply(terms).results;
+        }
+        BoundedCache<String, Object> cache = caches.get(expander);
+        Map<String, List<String>> results = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String term : terms) {
+            Object cached = cache.get(key(term, intent));
+            if (cached != null) {
+                results.put(term, (List<String>) cached);
+            } else if (!missing.contains(term)) {
+                missing.add(term);
+            }
+        }
+        if (missing.isEmpty()) {
+            return results;
+        }
+
+        BatchResult loaded = loader.apply(missing);
+        for (String term : missing) {
+            List<String> termResults = loaded.results.get(term);
+            if (termResults != null) {
+                termResults = List.copyOf(termResults);
+                cache.put(key(term, intent), termResults);
+                results.put(term, termResults);
+            } else if (loaded.cacheMissing) {
+                cache.put(key(term, intent), List.of());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Hit, miss and eviction counters per expander
+     */
+    public Map<String, BoundedCache.Stats> getStats() {
+        Map<String, BoundedCache.Stats> stats = new LinkedHashMap<>();
+        caches.forEach((expander, cache) -> stats.put(expander.name(), cache.stats()));
+        return stats;
+    }
+
+    /**
+     * Drops every memoized result, for all expanders
+     */
+    public void invalidateAll() {
+        caches.values().forEach(BoundedCache::invalidateAll);
+    }
+
+    private Object cached(Expander expander, String key, Supplier<Object> loader,
+                          Predicate<Object> cacheable) {
+        BoundedCache<String, Object> cache = caches.get(expander);
+        Object cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Object loaded = loader.get();
+        if (loaded != null && cacheable.test(loaded)) {
+            cache.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    private String key(String term, QueryIntentAnalyzer.IntentType intent) {
+        return graphVersionService.current() + "|" + (intent != null ? intent.name() : ANY_INTENT) + "|" + term;
+    }
+
+    /**
+     * Per-term results of one batch call
+     */
+    public static final class BatchResult {
+        private final Map<String, List<String>> results;
+        private final boolean cacheMissing;
+
+        public BatchResult(Map<String, List<String>> results, boolean cacheMissing) {
+            this.results = results;
+            this.cacheMissing = cacheMissing;
+        }
+    }
+}
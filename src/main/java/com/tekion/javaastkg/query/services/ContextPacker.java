@@ -0,0 +1,155 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.util.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Packs rendered context items into a prompt token budget. Items are taken greedily by maximal
+ * marginal relevance: their score, normalized to the best score, less a penalty for resembling an
+ * item already packed, so overloads of one method or members of one class do not crowd out the rest.
+ * Items that no longer fit are skipped and counted, so the prompt can mention what was left out.
+ */
+@Service
+@Slf4j
+public class ContextPacker {
+
+    @Value("${query.generation.context-budget-tokens:6000}")
+    private int budgetTokens;
+
+    @Value("${query.generation.mmr-lambda:0.7}")
+    private double mmrLambda;
+
+    /**
+     * Packs the items into the configured budget
+     */
+    public Packed pack(List<Item> items) {
+        return pack(items, budgetTokens, mmrLambda);
+    }
+
+    /**
+     * Packs the items into {@code budget} tokens. {@code lambda} weighs relevance against
+     * diversity: 1 orders by score alone, lower values favour items unlike those already packed.
+     */
+    public static Packed pack(List<Item> items, int budget, double lambda) {
+        double maxScore = 0;
+        for (Item item : items) {
+            maxScore = Math.max(maxScore, item.score);
+        }
+
+        List<Item> remaining = new ArrayList<>(items);
+        // Highest similarity of each remaining item to anything packed so far
+        double[] redundancy = new double[remaining.size()];
+        List<Item> selected = new ArrayList<>();
+        Map<String, Integer> dropped = new LinkedHashMap<>();
+        int usedTokens = 0;
+
+        while (!remaining.isEmpty()) {
+            int best = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < remaining.size(); i++) {
+                double relevance = maxScore > 0 ? remaining.get(i).score / maxScore : 0.0;
+                double value = lambda * relevance - (1 - lambda) * redundancy[i];
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = i;
+                }
+            }
+
+            Item item = remaining.remove(best);
+            System.arraycopy(redundancy, best + 1, redundancy, best, remaining.size() - best);
+            if (usedTokens + item.tokens > budget) {
+                dropped.merge(item.kind, 1, Integer::sum);
+                continue;
+            }
+
+            selected.add(item);
+            usedTokens += item.tokens;
+            for (int i = 0; i < remaining.size(); i++) {
+                redundancy[i] = Math.max(redundancy[i], similarity(item.features, remaining.get(i).features));
+            }
+        }
+        return new Packed(selected, dropped, usedTokens);
+    }
+
+    /**
+     * Jaccard similarity of two feature sets
+     */
+    private static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (String feature : smaller) {
+            if (larger.contains(feature)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    /**
+     * One prompt section: its text, score, kind ("method", "class") and the features compared for diversity
+     */
+    public static final class Item {
+        private final String id;
+        private final String kind;
+        private final String text;
+        private final double score;
+        private final Set<String> features;
+        private final int tokens;
+
+        public Item(String id, String kind, String text, double score, Set<String> features) {
+            this.id = id;
+            this.kind = kind;
+            this.text = text;
+            this.score = score;
+            this.features = features;
+            this.tokens = TokenEstimator.estimate(text);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * Items that fit, in packing order, with counts of the dropped items per kind
+     */
+    public static final class Packed {
+        private final List<Item> items;
+        private final Map<String, Integer> dropped;
+        private final int tokens;
+
+        private Packed(List<Item> items, Map<String, Integer> dropped, int tokens) {
+            this.items = items;
+            this.dropped = dropped;
+            this.tokens = tokens;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public Map<String, Integer> getDropped() {
+            return dropped;
+        }
+
+        public int getTokens() {
+            return tokens;
+        }
+
+        public int getDroppedCount() {
+            return dropped.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+}
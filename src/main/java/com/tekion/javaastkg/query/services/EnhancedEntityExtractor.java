@@ -3,12 +3,14 @@ package com.tekion.javaastkg.query.services;
 import com.tekion.javaastkg.query.intelligence.ExpansionQualityFilter;
 import com.tekion.javaastkg.query.intelligence.IntentBasedSearchStrategy;
 import com.tekion.javaastkg.query.intelligence.MultiLevelExpander;
+import com.tekion.javaastkg.query.intelligence.QueryAnalysis;
 import com.tekion.javaastkg.query.intelligence.QueryIntentAnalyzer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -16,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Enhanced entity extraction service that integrates intelligent query expansion.
@@ -30,6 +33,7 @@ public class EnhancedEntityExtractor {
     private final MultiLevelExpander multiLevelExpander;
     private final ExpansionQualityFilter qualityFilter;
     private final IntentBasedSearchStrategy strategyBuilder;
+    private final Executor llmExecutor;
     
     @Value("${query_optimization.enabled:true}")
     private boolean queryOptimizationEnabled;
@@ -44,18 +48,51 @@ public class EnhancedEntityExtractor {
                                   QueryIntentAnalyzer intentAnalyzer,
                                   MultiLevelExpander multiLevelExpander,
                                   ExpansionQualityFilter qualityFilter,
-                                  IntentBasedSearchStrategy strategyBuilder) {
+                                  IntentBasedSearchStrategy strategyBuilder,
+                                  @Qualifier("llmExecutor") Executor llmExecutor) {
         this.basicExtractor = basicExtractor;
         this.intentAnalyzer = intentAnalyzer;
         this.multiLevelExpander = multiLevelExpander;
         this.qualityFilter = qualityFilter;
         this.strategyBuilder = strategyBuilder;
+        this.llmExecutor = llmExecutor;
     }
 
     /**
      * Extracts and intelligently expands entities from a query
      */
     public ExtractedEntities extractAndExpand(String query) {
+        return extractAndExpand(query, QueryDeadline.unbounded());
+    }
+
+    /**
+     * Extracts and expands entities, letting intent analysis and expansion degrade within the deadline
+     */
+    public ExtractedEntities extractAndExpand(String query, QueryDeadline deadline) {
+        return extractAndExpand(query, null, deadline);
+    }
+
+    /**
+     * Analyzes the intent of a query on its own, so retrieval can be planned before extraction finishes.
+     * Returns null when query optimization is disabled or the analysis fails.
+     */
+    public QueryIntentAnalyzer.QueryIntent analyzeIntent(String query, QueryDeadline deadline) {
+        if (!queryOptimizationEnabled) {
+            return null;
+        }
+        try {
+            return intentAnalyzer.analyzeIntent(QueryAnalysis.of(query), deadline);
+        } catch (Exception e) {
+            log.warn("Intent analysis failed for query '{}': {}", query, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Extracts and expands entities for an intent that was already analyzed; a null intent is analyzed here
+     */
+    public ExtractedEntities extractAndExpand(String query, QueryIntentAnalyzer.QueryIntent analyzedIntent,
+                                              QueryDeadline deadline) {
         log.info("Enhanced entity extraction for query: {}", query);
         
         // If query optimization is disabled, fall back to basic extraction
@@ -65,14 +102,20 @@ public class EnhancedEntityExtractor {
         }
         
         try {
-            // Step 1: Analyze query intent
-            QueryIntentAnalyzer.QueryIntent intent = intentAnalyzer.analyzeIntent(query);
+            // Step 1: Analyze query intent; the query is tokenized once and the analysis shared downstream
+            QueryAnalysis analysis = analyzedIntent != null && analyzedIntent.getAnalysis() != null
+                    ? analyzedIntent.getAnalysis() : QueryAnalysis.of(query);
+            QueryIntentAnalyzer.QueryIntent intent = analyzedIntent != null
+                    ? analyzedIntent : intentAnalyzer.analyzeIntent(analysis, deadline);
             log.info("Detected intent: {} with confidence: {}", intent.getPrimaryIntent(), intent.getConfidence());
             
             // Step 2: Extract basic entities (optional)
             EntityExtractor.ExtractedEntities basicEntities = null;
             if (useBasicExtraction) {
-                basicEntities = basicExtractor.extract(query);
+                basicEntities = deadline.stage(QueryDeadline.EXTRACTION)
+                        .call(() -> basicExtractor.extract(query), null, llmExecutor);
+            }
+            if (basicEntities != null) {
                 log.info("Basic extraction found: {} classes, {} methods, {} packages, {} terms",
                     basicEntities.getClasses().size(),
                     basicEntities.getMethods().size(),
@@ -81,12 +124,12 @@ public class EnhancedEntityExtractor {
             }
             
             // Step 3: Perform multi-level expansion
-            MultiLevelExpander.QueryExpansion expansion = multiLevelExpander.expandQuery(query, intent);
+            MultiLevelExpander.QueryExpansion expansion = multiLevelExpander.expandQuery(analysis, intent, deadline);
             log.info("Multi-level expansion generated {} total terms", expansion.getTotalTermCount());
             
             // Step 4: Apply quality filtering
             ExpansionQualityFilter.QualityFilterResult filterResult = 
-                qualityFilter.filterWithQualityMetrics(expansion.getAllTerms(), query, intent);
+                qualityFilter.filterWithQualityMetrics(expansion.getAllTerms(), analysis, intent);
             log.info("Quality filter reduced terms from {} to {}",
                 expansion.getTotalTermCount(), filterResult.getFilteredTermCount());
             
@@ -9,6 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -16,7 +17,8 @@ import java.util.List;
 
 /**
  * Service for extracting code entities from natural language queries.
- * Uses LLM to identify specific class names, method names, packages, and technical terms.
+ * Matches the query against the graph's symbol dictionary first; the LLM is only used when the
+ * dictionary is not built yet, or when it finds nothing and the LLM fallback is enabled.
  */
 @Service
 @Slf4j
@@ -25,12 +27,18 @@ public class EntityExtractor {
     private final ChatLanguageModel llm;
     private final ObjectMapper objectMapper;
     private final LLMRateLimiter rateLimiter;
+    private final SymbolDictionaryService symbolDictionaryService;
+
+    @Value("${query.entity-extraction.llm-fallback:false}")
+    private boolean llmFallback;
 
     public EntityExtractor(@Qualifier("contextDistillerModel") ChatLanguageModel llm,
-                          LLMRateLimiter rateLimiter) {
+                          LLMRateLimiter rateLimiter,
+                          SymbolDictionaryService symbolDictionaryService) {
         this.llm = llm;
         this.objectMapper = new ObjectMapper();
         this.rateLimiter = rateLimiter;
+        this.symbolDictionaryService = symbolDictionaryService;
     }
 
     /**
@@ -39,6 +47,40 @@ public class EntityExtractor {
     public ExtractedEntities extract(String query) {
         log.debug("Extracting entities from query: {}", query);
 
+        if (symbolDictionaryService.isAvailable()) {
+            ExtractedEntities entities = extractFromDictionary(query);
+            if (entities.hasEntities() || !llmFallback) {
+                return entities;
+            }
+            log.debug("Symbol dictionary found nothing, falling back to LLM extraction");
+        }
+
+        return extractWithLlm(query);
+    }
+
+    /**
+     * Matches the query against the known class, method and package names
+     */
+    private ExtractedEntities extractFromDictionary(String query) {
+        long startNanos = System.nanoTime();
+        SymbolDictionary.Matches matches = symbolDictionaryService.current().match(query);
+        log.debug("Symbol dictionary matched {} classes, {} methods, {} packages, {} terms in {} us",
+                matches.getClasses().size(), matches.getMethods().size(),
+                matches.getPackages().size(), matches.getTerms().size(),
+                (System.nanoTime() - startNanos) / 1_000);
+
+        return ExtractedEntities.builder()
+                .classes(matches.getClasses())
+                .methods(matches.getMethods())
+                .packages(matches.getPackages())
+                .terms(matches.getTerms())
+                .build();
+    }
+
+    /**
+     * Asks the LLM for the entities in the query
+     */
+    private ExtractedEntities extractWithLlm(String query) {
         String prompt = buildExtractionPrompt(query);
         
         try {
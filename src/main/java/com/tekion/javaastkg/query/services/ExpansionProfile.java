@@ -0,0 +1,201 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.model.EdgeType;
+import com.tekion.javaastkg.query.intelligence.QueryIntentAnalyzer.IntentType;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Named, typed recipe for graph expansion. Each rule names one edge type, the direction it is
+ * followed in, the last hop at which it may be followed and how many new nodes one node may
+ * reach through it per hop. Edge types without a rule are never followed, which keeps variable,
+ * lambda and generic type edges out of the subgraph. Rules are listed in order of preference:
+ * when a hop runs out of budget, nodes reached through earlier rules win.
+ */
+public final class ExpansionProfile {
+
+    /**
+     * Callers and references of the seeds, walking up the call chain
+     */
+    public static final ExpansionProfile USAGE = new ExpansionProfile("USAGE", List.of(
+            new EdgeRule(EdgeType.CALLS, Direction.INCOMING, 3, 20),
+            new EdgeRule(EdgeType.METHOD_REFERENCE, Direction.INCOMING, 3, 10),
+            new EdgeRule(EdgeType.INSTANTIATES, Direction.INCOMING, 2, 10),
+            new EdgeRule(EdgeType.IMPLEMENTS, Direction.INCOMING, 1, 10),
+            new EdgeRule(EdgeType.CONTAINS, Direction.INCOMING, 1, 1)));
+
+    /**
+     * Members and owners of the seeds, what they call directly and what they override
+     */
+    public static final ExpansionProfile IMPLEMENTATION = new ExpansionProfile("IMPLEMENTATION", List.of(
+            new EdgeRule(EdgeType.CONTAINS, Direction.BOTH, 1, 30),
+            new EdgeRule(EdgeType.CALLS, Direction.OUTGOING, 1, 15),
+            new EdgeRule(EdgeType.OVERRIDES, Direction.BOTH, 1, 5)));
+
+    /**
+     * Owners and members of configuration classes, and the classes that depend on them
+     */
+    public static final ExpansionProfile CONFIGURATION = new ExpansionProfile("CONFIGURATION", List.of(
+            new EdgeRule(EdgeType.CONTAINS, Direction.BOTH, 1, 20),
+            new EdgeRule(EdgeType.DEPENDS_ON, Direction.INCOMING, 1, 10)));
+
+    /**
+     * Type hierarchy and direct dependencies, for finding the components of an area
+     */
+    public static final ExpansionProfile DISCOVERY = new ExpansionProfile("DISCOVERY", List.of(
+            new EdgeRule(EdgeType.IMPLEMENTS, Direction.BOTH, 2, 15),
+            new EdgeRule(EdgeType.EXTENDS, Direction.BOTH, 2, 15),
+            new EdgeRule(EdgeType.CONTAINS, Direction.OUTGOING, 1, 20),
+            new EdgeRule(EdgeType.DEPENDS_ON, Direction.OUTGOING, 1, 10)));
+
+    /**
+     * Status enums the seeds return or accept, following RETURNS and HAS_PARAMETER from the method
+     * to the type, and the owners and members of the seeds
+     */
+    public static final ExpansionProfile STATUS = new ExpansionProfile("STATUS", List.of(
+            new EdgeRule(EdgeType.RETURNS, Direction.OUTGOING, 1, 10),
+            new EdgeRule(EdgeType.HAS_PARAMETER, Direction.OUTGOING, 1, 10),
+            new EdgeRule(EdgeType.CONTAINS, Direction.BOTH, 1, 20)));
+
+    /**
+     * Structural and behavioural edges in both directions, for queries without a clear intent
+     */
+    public static final ExpansionProfile DEFAULT = new ExpansionProfile("DEFAULT", List.of(
+            new EdgeRule(EdgeType.CALLS, Direction.BOTH, 2, 15),
+            new EdgeRule(EdgeType.OVERRIDES, Direction.BOTH, 2, 5),
+            new EdgeRule(EdgeType.IMPLEMENTS, Direction.BOTH, 2, 10),
+            new EdgeRule(EdgeType.EXTENDS, Direction.BOTH, 2, 10),
+            new EdgeRule(EdgeType.CONTAINS, Direction.BOTH, 2, 20),
+            new EdgeRule(EdgeType.METHOD_REFERENCE, Direction.BOTH, 1, 5),
+            new EdgeRule(EdgeType.INSTANTIATES, Direction.BOTH, 1, 5),
+            new EdgeRule(EdgeType.DEPENDS_ON, Direction.BOTH, 1, 5)));
+
+    private final String name;
+    private final List<EdgeRule> rules;
+    private final List<String> relationshipTypes;
+    private final int maxDepth;
+
+    public ExpansionProfile(String name, List<EdgeRule> rules) {
+        this.name = name;
+        this.rules = List.copyOf(rules);
+        this.relationshipTypes = rules.stream().map(rule -> rule.getType().name()).distinct()
+                .collect(Collectors.toUnmodifiableList());
+        this.maxDepth = rules.stream().mapToInt(EdgeRule::getMaxDepth).max().orElse(0);
+    }
+
+    /**
+     * Profile for the detected intent; DEFAULT when there is none
+     */
+    public static ExpansionProfile forIntent(IntentType intentType) {
+        if (intentType == null) {
+            return DEFAULT;
+        }
+        switch (intentType) {
+            case USAGE:
+                return USAGE;
+            case IMPLEMENTATION:
+                return IMPLEMENTATION;
+            case CONFIGURATION:
+                return CONFIGURATION;
+            case DISCOVERY:
+                return DISCOVERY;
+            case STATUS:
+                return STATUS;
+            default:
+                return DEFAULT;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<EdgeRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Last hop at which any rule may still be followed
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Rules that may be followed on the given hop, counting from 1
+     */
+    public List<EdgeRule> rulesForHop(int hop) {
+        return rules.stream().filter(rule -> rule.getMaxDepth() >= hop).collect(Collectors.toList());
+    }
+
+    /**
+     * Names of the edge types the profile follows, for collecting the edges among the reached nodes
+     */
+    public List<String> relationshipTypes() {
+        return relationshipTypes;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Direction an edge is followed in, relative to the node being expanded
+     */
+    public enum Direction {
+        OUTGOING,
+        INCOMING,
+        BOTH;
+
+        public boolean followsOutgoing() {
+            return this != INCOMING;
+        }
+
+        public boolean followsIncoming() {
+            return this != OUTGOING;
+        }
+    }
+
+    /**
+     * How one edge type is followed: direction, last hop and per-node fan-out
+     */
+    public static final class EdgeRule {
+        private final EdgeType type;
+        private final Direction direction;
+        private final int maxDepth;
+        private final int fanOut;
+
+        public EdgeRule(EdgeType type, Direction direction, int maxDepth, int fanOut) {
+            if (maxDepth < 1 || fanOut < 1) {
+                throw new IllegalArgumentException("Depth and fan-out of " + type + " must be positive");
+            }
+            this.type = type;
+            this.direction = direction;
+            this.maxDepth = maxDepth;
+            this.fanOut = fanOut;
+        }
+
+        public EdgeType getType() {
+            return type;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        public int getFanOut() {
+            return fanOut;
+        }
+
+        @Override
+        public String toString() {
+            return type + "/" + direction + "/" + maxDepth + "x" + fanOut;
+        }
+    }
+}
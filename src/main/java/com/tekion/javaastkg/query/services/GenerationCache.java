@@ -0,0 +1,180 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.util.BoundedCache;
+import com.tekion.javaastkg.util.TokenEstimator;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of generated answers keyed by the evidence in the prompt rather than by the query text.
+ * The fingerprint covers the ids of the methods and classes placed in the prompt, sorted, with
+ * their scores rounded into buckets, the intent of the query, the prompt template version and
+ * the graph version, so differently worded queries that ask the same kind of question of the
+ * same evidence share one generation. "Where is X used" and "how does X work" may retrieve the
+ * same nodes but need different answers, so they never share one.
+ * Token savings are estimated from the prompt and answer lengths of the reused generations.
+ */
+@Service
+@Slf4j
+public class GenerationCache {
+
+    private final GraphVersionService graphVersionService;
+
+    private final LongAdder rephrased = new LongAdder();
+    private final LongAdder promptTokensSaved = new LongAdder();
+    private final LongAdder completionTokensSaved = new LongAdder();
+    private final LongAdder rephraseTokensSpent = new LongAdder();
+
+    private BoundedCache<String, CachedAnswer> answers;
+
+    @Value("${query.generation-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query.generation-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${query.generation-cache.ttl-ms:1800000}")
+    private long ttlMs;
+
+    @Value("${query.generation-cache.score-bucket-width:0.1}")
+    private double scoreBucketWidth;
+
+    public GenerationCache(GraphVersionService graphVersionService) {
+        this.graphVersionService = graphVersionService;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        answers = new BoundedCache<>("generation", maxEntries, ttlMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Fingerprint of a prompt context: template version, graph version, query intent and the
+     * sorted node ids with bucketed scores, hashed to keep keys short
+     */
+    public String fingerprint(Collection<String> nodeIds, Map<String, Double> scoreMap, String intentType,
+                              String templateVersion) {
+        Map<String, Double> scores = scoreMap != null ? scoreMap : Map.of();
+        StringBuilder context = new StringBuilder()
+                .append(templateVersion).append('|')
+                .append(graphVersionService.current()).append('|')
+                .append(intentType != null ? intentType : "-");
+        for (String id : new TreeSet<>(nodeIds)) {
+            context.append('|').append(id).append(':').append(bucket(scores.get(id)));
+        }
+        return sha256(context.toString());
+    }
+
+    /**
+     * The answer generated for a fingerprint, or null
+     */
+    public CachedAnswer get(String fingerprint) {
+        return enabled ? answers.get(fingerprint) : null;
+    }
+
+    /**
+     * Caches the answer generated from a prompt with the given fingerprint
+     */
+    public void put(String fingerprint, String prompt, String answer) {
+        if (enabled && answer != null) {
+            answers.put(fingerprint, new CachedAnswer(answer,
+                    TokenEstimator.estimate(prompt), TokenEstimator.estimate(answer)));
+        }
+    }
+
+    /**
+     * Records the full-model tokens a reused answer saved, and the small-model tokens spent on
+     * rephrasing it for the new query, if it was rephrased
+     */
+    public void recordReuse(CachedAnswer answer, int rephraseTokens) {
+        promptTokensSaved.add(answer.getPromptTokens());
+        completionTokensSaved.add(answer.getAnswerTokens());
+        if (rephraseTokens > 0) {
+            rephrased.increment();
+            rephraseTokensSpent.add(rephraseTokens);
+        }
+    }
+
+    /**
+     * Drops every cached answer; called after ingestion, when the graph has changed
+     */
+    public void invalidateAll() {
+        answers.invalidateAll();
+        log.info("Generation cache invalidated");
+    }
+
+    public Stats getStats() {
+        BoundedCache.Stats cache = answers.stats();
+        return Stats.builder()
+                .size(cache.getSize())
+                .maxEntries(cache.getMaxSize())
+                .hits(cache.getHits())
+                .misses(cache.getMisses())
+                .hitRate(cache.getHitRate())
+                .rephrased(rephrased.sum())
+                .promptTokensSaved(promptTokensSaved.sum())
+                .completionTokensSaved(completionTokensSaved.sum())
+                .rephraseTokensSpent(rephraseTokensSpent.sum())
+                .build();
+    }
+
+    private long bucket(Double score) {
+        if (score == null || scoreBucketWidth <= 0) {
+            return -1;
+        }
+        return (long) Math.floor(score / scoreBucketWidth);
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform ships SHA-256; fall back to the raw context all the same
+            return text;
+        }
+    }
+
+    /**
+     * A generated answer with the estimated token counts of the call that produced it
+     */
+    @Data
+    @AllArgsConstructor
+    public static class CachedAnswer {
+        private String answer;
+        private int promptTokens;
+        private int answerTokens;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stats {
+        private int size;
+        private int maxEntries;
+        private long hits;
+        private long misses;
+        private double hitRate;
+        private long rephrased;
+        private long promptTokensSaved;
+        private long completionTokensSaved;
+        private long rephraseTokensSpent;
+    }
+}
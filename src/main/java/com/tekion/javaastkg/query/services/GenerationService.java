@@ -1,57 +1,358 @@
 package com.tekion.javaastkg.query.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tekion.javaastkg.model.GraphEntities;
 import com.tekion.javaastkg.model.QueryModels;
 import com.tekion.javaastkg.util.LLMRateLimiter;
+import com.tekion.javaastkg.util.TokenEstimator;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.ChatLanguageModel;
-import lombok.RequiredArgsConstructor;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
 /**
  * Service responsible for generating natural language summaries of retrieval results.
  * Takes structured retrieval results and creates human-readable explanations.
  */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class GenerationService {
+
+    /** Version of the prompt template; change it whenever the prompt wording or layout changes */
+    static final String PROMPT_TEMPLATE_VERSION = "2";
+
+    private static final String TIMEOUT_ANSWER = "The answer could not be generated within the time budget. "
+            + "The retrieved components below are the most relevant matches for the query.";
+
+    private static final String NO_RESULTS_ANSWER = "No relevant information found for the query.";
     
     private final ChatLanguageModel llm;
+    private final ChatLanguageModel rephraseLlm;
+    private final StreamingChatLanguageModel streamingLlm;
     private final ObjectMapper objectMapper;
     private final LLMRateLimiter rateLimiter;
+    private final Executor llmExecutor;
+    private final GenerationCache generationCache;
+    private final ContextPacker contextPacker;
+
+    @Value("${query.generation.full-context-min-budget-ms:8000}")
+    private long fullContextMinBudgetMs;
+
+    @Value("${query.generation.reduced-context-components:10}")
+    private int reducedContextComponents;
+
+    @Value("${query.generation-cache.rephrase:false}")
+    private boolean rephraseCachedAnswers;
+
+    public GenerationService(ChatLanguageModel llm,
+                             @Qualifier("generationRephraseModel") ChatLanguageModel rephraseLlm,
+                             StreamingChatLanguageModel streamingLlm,
+                             ObjectMapper objectMapper,
+                             LLMRateLimiter rateLimiter,
+                             @Qualifier("llmExecutor") Executor llmExecutor,
+                             GenerationCache generationCache,
+                             ContextPacker contextPacker) {
+        this.llm = llm;
+        this.rephraseLlm = rephraseLlm;
+        this.streamingLlm = streamingLlm;
+        this.objectMapper = objectMapper;
+        this.rateLimiter = rateLimiter;
+        this.llmExecutor = llmExecutor;
+        this.generationCache = generationCache;
+        this.contextPacker = contextPacker;
+    }
     
     /**
      * Generates natural language summary from retrieval results
      */
     public String generateNaturalSummary(String query, QueryModels.RetrievalResult retrievalResult) {
+        return generateNaturalSummary(query, retrievalResult, QueryDeadline.unbounded());
+    }
+
+    /**
+     * Generates the summary within the generation slice of the deadline, see {@link #generateAnswer}
+     */
+    public String generateNaturalSummary(String query, QueryModels.RetrievalResult retrievalResult,
+                                         QueryDeadline deadline) {
+        return generateAnswer(query, retrievalResult, deadline).getText();
+    }
+
+    /**
+     * Generates the answer within the generation slice of the deadline. With little time left
+     * the prompt carries only the best-scored components. In any case components are packed into
+     * the context token budget, see {@link ContextPacker}. If the model does not answer in time
+     * or fails, a short fallback is returned instead, marked as not generated so it is not cached.
+     * An answer generated earlier from the same evidence is reused, optionally reworded for this
+     * query by a small model, instead of calling the model again.
+     */
+    public Answer generateAnswer(String query, QueryModels.RetrievalResult retrievalResult, QueryDeadline deadline) {
         log.debug("Generating natural language summary for query: {}", query);
+        QueryDeadline.Stage stage = deadline.stage(QueryDeadline.GENERATION);
         
         try {
             if (retrievalResult == null || retrievalResult.getGraphContext() == null) {
                 log.warn("No retrieval result available for generation");
-                return "No relevant information found for the query.";
+                return Answer.fallback(NO_RESULTS_ANSWER);
             }
             
-            String prompt = buildNaturalLanguagePrompt(query, retrievalResult);
-            String summary = rateLimiter.executeWithRateLimit(
+            int maxComponents = Integer.MAX_VALUE;
+            if (!stage.hasAtLeast(fullContextMinBudgetMs)) {
+                maxComponents = reducedContextComponents;
+                stage.degrade("context reduced to " + maxComponents + " components, "
+                        + stage.remainingMs() + " ms left");
+            }
+
+            Map<String, Double> scoreMap = retrievalResult.getScoreMap();
+            List<GraphEntities.MethodNode> methods = topByScore(retrievalResult.getGraphContext().getMethods(),
+                    method -> method.getId(), scoreMap, maxComponents);
+            List<GraphEntities.ClassNode> classes = topByScore(retrievalResult.getGraphContext().getClasses(),
+                    clazz -> clazz.getId(), scoreMap, maxComponents);
+
+            ContextPacker.Packed context = packContext(methods, classes, scoreMap);
+
+            String fingerprint = contextFingerprint(context, scoreMap, retrievalResult.getIntentType());
+            if (fingerprint != null) {
+                GenerationCache.CachedAnswer cached = generationCache.get(fingerprint);
+                if (cached != null) {
+                    return Answer.generated(reuseAnswer(query, cached, stage));
+                }
+            }
+
+            String prompt = buildNaturalLanguagePrompt(query, retrievalResult, context);
+            String summary = stage.call(() -> rateLimiter.executeWithRateLimit(
                 () -> llm.generate(prompt), 
                 "Natural language generation for query: " + query
-            );
+            ), null, llmExecutor);
+            if (summary == null) {
+                return Answer.fallback(TIMEOUT_ANSWER);
+            }
+            if (summary.isBlank()) {
+                log.warn("Model returned an empty summary for query: {}", query);
+                return Answer.fallback(summary);
+            }
             
             log.info("Generated natural language summary for query: {}", query);
             log.info("Generated Answer: {}", summary.trim());
-            return summary.trim();
+            if (fingerprint != null) {
+                generationCache.put(fingerprint, prompt, summary.trim());
+            }
+            return Answer.generated(summary.trim());
         } catch (Exception e) {
             log.error("Natural language generation failed for query: {}", query, e);
-            return "Unable to generate summary due to technical error: " + e.getMessage();
+            stage.degrade("generation failed: " + e.getMessage());
+            return Answer.fallback("Unable to generate summary due to technical error: " + e.getMessage());
         }
     }
     
     /**
-     * Builds the natural language generation prompt
+     * Streams the natural language summary token by token.
+     * Each token is handed to the consumer as it arrives; the future completes with the full answer.
+     */
+    public CompletableFuture<String> streamNaturalSummary(String query,
+                                                          QueryModels.RetrievalResult retrievalResult,
+                                                          Consumer<String> tokenConsumer) {
+        return streamNaturalSummary(query, retrievalResult, tokenConsumer, QueryDeadline.unbounded())
+                .thenApply(Answer::getText);
+    }
+
+    /**
+     * Streams the answer within the generation slice of the deadline. When the slice runs out
+     * the future completes with the text streamed so far, or the timeout fallback if nothing
+     * arrived, and later tokens are no longer passed to the consumer. Only a completed stream
+     * counts as generated.
+     */
+    public CompletableFuture<Answer> streamNaturalSummary(String query,
+                                                          QueryModels.RetrievalResult retrievalResult,
+                                                          Consumer<String> tokenConsumer,
+                                                          QueryDeadline deadline) {
+        log.debug("Streaming natural language summary for query: {}", query);
+        QueryDeadline.Stage stage = deadline.stage(QueryDeadline.GENERATION);
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        StringBuilder streamed = new StringBuilder();
+
+        if (retrievalResult == null || retrievalResult.getGraphContext() == null) {
+            log.warn("No retrieval result available for streaming generation");
+            tokenConsumer.accept(NO_RESULTS_ANSWER);
+            return CompletableFuture.completedFuture(Answer.fallback(NO_RESULTS_ANSWER));
+        }
+
+        try {
+            String prompt = buildNaturalLanguagePrompt(query, retrievalResult, packContext(
+                    retrievalResult.getGraphContext().getMethods(), retrievalResult.getGraphContext().getClasses(),
+                    retrievalResult.getScoreMap()));
+            streamingLlm.generate(prompt, new StreamingResponseHandler<AiMessage>() {
+                @Override
+                public void onNext(String token) {
+                    synchronized (streamed) {
+                        if (!answer.isDone()) {
+                            streamed.append(token);
+                            tokenConsumer.accept(token);
+                        }
+                    }
+                }
+
+                @Override
+                public void onComplete(Response<AiMessage> response) {
+                    String text = response.content() != null ? response.content().text() : null;
+                    log.info("Streamed natural language summary for query: {}", query);
+                    answer.complete(text != null ? text.trim() : "");
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    log.error("Streaming generation failed for query: {}", query, error);
+                    answer.completeExceptionally(error);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to start streaming generation for query: {}", query, e);
+            answer.completeExceptionally(e);
+        }
+
+        return stage.bound(answer, null).thenApply(text -> {
+            if (text != null) {
+                return text.isEmpty() ? Answer.fallback(text) : Answer.generated(text);
+            }
+            synchronized (streamed) {
+                answer.cancel(false);
+                String partial = streamed.toString().trim();
+                return Answer.fallback(partial.isEmpty() ? TIMEOUT_ANSWER : partial);
+            }
+        });
+    }
+
+    /**
+     * Fingerprint of the evidence placed in the prompt, or null when nothing is cacheable: with no
+     * components the prompt is about the query wording alone
+     */
+    private String contextFingerprint(ContextPacker.Packed context, Map<String, Double> scoreMap, String intentType) {
+        if (!generationCache.isEnabled() || context.getItems().isEmpty()) {
+            return null;
+        }
+        List<String> nodeIds = new ArrayList<>(context.getItems().size());
+        context.getItems().forEach(item -> nodeIds.add(item.getId()));
+        return generationCache.fingerprint(nodeIds, scoreMap, intentType, PROMPT_TEMPLATE_VERSION);
+    }
+
+    /**
+     * Returns a cached answer, reworded for this query by the small model when rephrasing is
+     * enabled and the model answers in time; otherwise the answer as it was generated
+     */
+    private String reuseAnswer(String query, GenerationCache.CachedAnswer cached, QueryDeadline.Stage stage) {
+        if (!rephraseCachedAnswers) {
+            log.info("Reusing generated answer for identical prompt context, query: {}", query);
+            generationCache.recordReuse(cached, 0);
+            return cached.getAnswer();
+        }
+
+        String prompt = "Rewrite the answer below so that it directly answers the question. "
+                + "Keep every fact, class and method name; do not add new information. "
+                + "Return only the rewritten answer.\n\n"
+                + "Question: " + query + "\n\nAnswer:\n" + cached.getAnswer();
+        try {
+            String rephrased = stage.call(() -> rateLimiter.executeWithRateLimit(
+                () -> rephraseLlm.generate(prompt),
+                "Answer rephrase for query: " + query
+            ), null, llmExecutor);
+            if (rephrased != null && !rephrased.isBlank()) {
+                log.info("Rephrased cached answer for query: {}", query);
+                generationCache.recordReuse(cached,
+                        TokenEstimator.estimate(prompt) + TokenEstimator.estimate(rephrased));
+                return rephrased.trim();
+            }
+        } catch (Exception e) {
+            log.warn("Rephrasing cached answer failed, returning it unchanged: {}", e.getMessage());
+        }
+        generationCache.recordReuse(cached, 0);
+        return cached.getAnswer();
+    }
+
+    /**
+     * Renders the methods and classes as prompt sections and packs them into the context budget
+     */
+    private ContextPacker.Packed packContext(List<GraphEntities.MethodNode> methods,
+                                             List<GraphEntities.ClassNode> classes,
+                                             Map<String, Double> scoreMap) {
+        Map<String, Double> scores = scoreMap != null ? scoreMap : Map.of();
+        List<ContextPacker.Item> items = new ArrayList<>(methods.size() + classes.size());
+        for (var method : methods) {
+            items.add(new ContextPacker.Item(method.getId(), "method", renderMethod(method, scores),
+                    scores.getOrDefault(method.getId(), 0.0),
+                    Set.of("name:" + lowerCase(method.getName()), "class:" + simpleName(method.getClassName()))));
+        }
+        for (var clazz : classes) {
+            items.add(new ContextPacker.Item(clazz.getId(), "class", renderClass(clazz),
+                    scores.getOrDefault(clazz.getId(), 0.0),
+                    Set.of("class:" + lowerCase(clazz.getName()), "package:" + lowerCase(clazz.getPackageName()))));
+        }
+
+        ContextPacker.Packed packed = contextPacker.pack(items);
+        log.debug("Packed {} of {} components into ~{} prompt tokens, dropped {}",
+                packed.getItems().size(), items.size(), packed.getTokens(), packed.getDropped());
+        return packed;
+    }
+
+    private String renderMethod(GraphEntities.MethodNode method, Map<String, Double> scores) {
+        StringBuilder section = new StringBuilder();
+        section.append(String.format("=== METHOD: %s ===\n", method.getName()));
+        section.append("Signature: ").append(method.getSignature()).append("\n");
+        if (method.getClassName() != null) {
+            section.append("Class: ").append(method.getClassName()).append("\n");
+        }
+        if (method.getBusinessTags() != null && !method.getBusinessTags().isEmpty()) {
+            section.append("Tags: ").append(String.join(", ", method.getBusinessTags())).append("\n");
+        }
+        // Add relevance score if available
+        if (scores.containsKey(method.getId())) {
+            section.append("Relevance Score: ").append(String.format("%.2f", scores.get(method.getId()))).append("\n");
+        }
+        section.append("\n");
+        return section.toString();
+    }
+
+    private String renderClass(GraphEntities.ClassNode clazz) {
+        StringBuilder section = new StringBuilder();
+        section.append(String.format("=== CLASS: %s ===\n", clazz.getName()));
+        section.append("Full Name: ").append(clazz.getFullName()).append("\n");
+        if (clazz.getPackageName() != null) {
+            section.append("Package: ").append(clazz.getPackageName()).append("\n");
+        }
+        section.append("Type: ").append(clazz.getType()).append("\n");
+        section.append("Interface: ").append(clazz.isInterface()).append("\n");
+        section.append("Abstract: ").append(clazz.isAbstract()).append("\n\n");
+        return section.toString();
+    }
+
+    private static String lowerCase(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String simpleName(String className) {
+        String name = lowerCase(className);
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Builds the natural language generation prompt from the packed context
      */
-    private String buildNaturalLanguagePrompt(String query, QueryModels.RetrievalResult retrievalResult) {
+    private String buildNaturalLanguagePrompt(String query, QueryModels.RetrievalResult retrievalResult,
+                                              ContextPacker.Packed context) {
         StringBuilder prompt = new StringBuilder();
         
         prompt.append("You are an expert software architect analyzing a Java codebase. Answer the user's query in natural language based on the code context provided.\n\n");
@@ -66,33 +367,13 @@ public class GenerationService {
         } else {
             prompt.append("Retrieved Context from the Codebase:\n\n");
             
-            // Add methods with scores
-            for (var method : retrievalResult.getGraphContext().getMethods()) {
-                prompt.append(String.format("=== METHOD: %s ===\n", method.getName()));
-                prompt.append("Signature: ").append(method.getSignature()).append("\n");
-                if (method.getClassName() != null) {
-                    prompt.append("Class: ").append(method.getClassName()).append("\n");
-                }
-                if (method.getBusinessTags() != null && !method.getBusinessTags().isEmpty()) {
-                    prompt.append("Tags: ").append(String.join(", ", method.getBusinessTags())).append("\n");
-                }
-                // Add relevance score if available
-                if (retrievalResult.getScoreMap() != null && retrievalResult.getScoreMap().containsKey(method.getId())) {
-                    prompt.append("Relevance Score: ").append(String.format("%.2f", retrievalResult.getScoreMap().get(method.getId()))).append("\n");
-                }
-                prompt.append("\n");
+            // Components in packing order: most relevant first, near-duplicates pushed back
+            for (ContextPacker.Item item : context.getItems()) {
+                prompt.append(item.getText());
             }
-            
-            // Add classes
-            for (var clazz : retrievalResult.getGraphContext().getClasses()) {
-                prompt.append(String.format("=== CLASS: %s ===\n", clazz.getName()));
-                prompt.append("Full Name: ").append(clazz.getFullName()).append("\n");
-                if (clazz.getPackageName() != null) {
-                    prompt.append("Package: ").append(clazz.getPackageName()).append("\n");
-                }
-                prompt.append("Type: ").append(clazz.getType()).append("\n");
-                prompt.append("Interface: ").append(clazz.isInterface()).append("\n");
-                prompt.append("Abstract: ").append(clazz.isAbstract()).append("\n\n");
+            if (context.getDroppedCount() > 0) {
+                prompt.append(String.format("(%d further components omitted to fit the context budget: %s)\n\n",
+                        context.getDroppedCount(), describeDropped(context.getDropped())));
             }
         }
         
@@ -113,5 +394,58 @@ public class GenerationService {
         
         return prompt.toString();
     }
-    
-}
\ No newline at end of file
+
+    /**
+     * "3 methods, 1 class"
+     */
+    private static String describeDropped(Map<String, Integer> dropped) {
+        List<String> parts = new ArrayList<>();
+        dropped.forEach((kind, count) -> parts.add(count + " " + kind + (count == 1 ? "" : kind.endsWith("s") ? "es" : "s")));
+        return String.join(", ", parts);
+    }
+
+    /**
+     * Keeps the best-scored items, in their original order when nothing has to be dropped
+     */
+    private <T> List<T> topByScore(List<T> items, Function<T, String> idOf,
+                                   Map<String, Double> scoreMap, int limit) {
+        if (items.size() <= limit) {
+            return items;
+        }
+        Map<String, Double> scores = scoreMap != null ? scoreMap : Map.of();
+        return items.stream()
+                .sorted(Comparator.comparingDouble((T item) -> scores.getOrDefault(idOf.apply(item), 0.0)).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Answer text and whether the model produced it; fallbacks for missing results, timeouts and
+     * failures are not generated and must not be cached
+     */
+    public static final class Answer {
+        private final String text;
+        private final boolean generated;
+
+        private Answer(String text, boolean generated) {
+            this.text = text;
+            this.generated = generated;
+        }
+
+        public static Answer generated(String text) {
+            return new Answer(text, true);
+        }
+
+        public static Answer fallback(String text) {
+            return new Answer(text, false);
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isGenerated() {
+            return generated;
+        }
+    }
+}
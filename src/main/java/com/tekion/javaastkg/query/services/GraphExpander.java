@@ -1,5 +1,6 @@
 package com.tekion.javaastkg.query.services;
 
+import com.tekion.javaastkg.model.EdgeType;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,20 +9,148 @@ import lombok.extern.slf4j.Slf4j;
 import org.neo4j.driver.*;
 import org.neo4j.driver.Record;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 /**
  * Service for configurable graph expansion using n-hop traversal.
- * Supports different expansion strategies and relationship filtering.
+ * Expansion walks the graph hop by hop over distinct nodes (BFS frontier): every hop is one
+ * statement that returns at most a per-hop budget of new nodes, preferring nodes reached through
+ * higher-weighted relationship types, until the depth or the global node budget is used up.
+ * Cost is bounded by the budgets rather than by the number of paths through hub nodes.
+ * Retrieval expands with the {@link ExpansionProfile} of the query intent, which limits the
+ * edge types, directions, depth and fan-out that are followed.
  */
 @Service
 @Slf4j
 public class GraphExpander {
 
+    /**
+     * Preference of relationship types when a hop has more candidates than its budget
+     */
+    private static final Map<String, Double> RELATIONSHIP_WEIGHTS = Map.ofEntries(
+            Map.entry("CALLS", 1.0),
+            Map.entry("OVERRIDES", 0.9),
+            Map.entry("IMPLEMENTS", 0.9),
+            Map.entry("EXTENDS", 0.9),
+            Map.entry("CONTAINS", 0.8),
+            Map.entry("METHOD_REFERENCE", 0.7),
+            Map.entry("INSTANTIATES", 0.7),
+            Map.entry("DEPENDS_ON", 0.6),
+            Map.entry("USES_FIELD", 0.5),
+            Map.entry("RETURNS", 0.4),
+            Map.entry("HAS_PARAMETER", 0.4),
+            Map.entry("THROWS", 0.3),
+            Map.entry("ANNOTATED_BY", 0.2)
+    );
+
+    private static final double DEFAULT_RELATIONSHIP_WEIGHT = 0.3;
+
+    private static final Set<String> EXPANDABLE_LABELS = Set.of("Method", "Class", "Interface", "Enum");
+
+    private static final List<String> IMPORTANT_RELATIONSHIPS =
+            List.of("CALLS", "CONTAINS", "EXTENDS", "IMPLEMENTS", "HAS_DESCRIPTION");
+
+    /**
+     * Classes a FileDoc seed stands for: the documented package's classes, at most this many
+     */
+    private static final int FILE_DOC_SEED_CLASSES = 10;
+
+    /**
+     * Resolves $ids to code nodes through the per-label id constraints. Search hits on Description
+     * nodes resolve to the method or class they describe, FileDoc hits to classes of the package
+     * the file documents.
+     */
+    private static final String RESOLVE_NODES = """
+            UNWIND $ids AS nodeId
+            CALL {
+                WITH nodeId MATCH (n:Method {id: nodeId}) RETURN n
+                UNION
+                WITH nodeId MATCH (n:Class {id: nodeId}) RETURN n
+                UNION
+                WITH nodeId MATCH (n:Interface {id: nodeId}) RETURN n
+                UNION
+                WITH nodeId MATCH (n:Enum {id: nodeId}) RETURN n
+                UNION
+                WITH nodeId MATCH (n)-[:HAS_DESCRIPTION]->(:Description {id: nodeId}) RETURN n
+                UNION
+                WITH nodeId MATCH (doc:FileDoc {id: nodeId})
+                MATCH (n:Class {packageName: doc.packageName})
+                RETURN n ORDER BY n.id LIMIT %d
+            }
+            """.formatted(FILE_DOC_SEED_CLASSES);
+
+    private static final String SEED_QUERY = RESOLVE_NODES + """
+            RETURN DISTINCT n AS node
+            """;
+
+    /**
+     * Code node ids each of $ids resolves to, for seeding the snapshot traversal
+     */
+    private static final String RESOLVE_IDS_QUERY = RESOLVE_NODES + """
+            RETURN nodeId, collect(DISTINCT n.id) AS resolvedIds
+            """;
+
+    private static final String HOP_QUERY = RESOLVE_NODES + """
+            MATCH (n)-[r]-(m)
+            WHERE (m:Method OR m:Class OR m:Interface OR m:Enum)
+              AND NOT m.id IN $visited
+              AND ($relationshipTypes IS NULL OR type(r) IN $relationshipTypes)
+            WITH m, max(coalesce($weights[type(r)], $defaultWeight)) AS weight
+            ORDER BY weight DESC, m.id
+            LIMIT $hopBudget
+            RETURN m AS node, weight
+            """;
+
+    /**
+     * Hop following the rules of an expansion profile: one branch per rule, each matching only
+     * its edge type in its direction and capping the new nodes one frontier node contributes
+     * through it. The branches are generated per rule set by {@link #profileHopQuery}.
+     */
+    private static final String PROFILE_HOP_QUERY = """
+            WITH DISTINCT n
+            CALL {
+            %s}
+            WITH m, max(weight) AS weight
+            ORDER BY weight DESC, m.id
+            LIMIT $hopBudget
+            RETURN m AS node, weight
+            """;
+
+    private static final String PROFILE_HOP_BRANCH = """
+                WITH n
+                MATCH %s
+                WHERE (m:Method OR m:Class OR m:Interface OR m:Enum)
+                  AND NOT m.id IN $visited
+                WITH collect(DISTINCT m)[..$fanOut%d] AS reached
+                UNWIND reached AS m
+                RETURN m, $weight%d AS weight
+            """;
+
+    private static final String EDGE_QUERY = RESOLVE_NODES + """
+            MATCH (n)-[r]->(m)
+            WHERE m.id IN $ids
+              AND ($relationshipTypes IS NULL OR type(r) IN $relationshipTypes)
+            RETURN elementId(r) AS id,
+                   type(r) AS type,
+                   n.id AS startNodeId,
+                   m.id AS endNodeId,
+                   properties(r) AS properties
+            """;
+
     private final Driver neo4jDriver;
     private final SessionConfig sessionConfig;
+    private final ReactiveCypherRunner reactiveCypherRunner;
+    private final GraphSnapshotService graphSnapshotService;
+
+    /** Generated profile hop statements by rule types and directions */
+    private final Map<String, String> profileHopQueries = new ConcurrentHashMap<>();
 
     @org.springframework.beans.factory.annotation.Value("${query.retrieval.expansion.depth:2}")
     private int expansionDepth;
@@ -32,9 +161,13 @@ public class GraphExpander {
     @org.springframework.beans.factory.annotation.Value("${query.retrieval.expansion.include-all-relationships:true}")
     private boolean includeAllRelationships;
 
-    public GraphExpander(Driver neo4jDriver, SessionConfig sessionConfig) {
+    public GraphExpander(Driver neo4jDriver, SessionConfig sessionConfig,
+                         ReactiveCypherRunner reactiveCypherRunner,
+                         GraphSnapshotService graphSnapshotService) {
         this.neo4jDriver = neo4jDriver;
         this.sessionConfig = sessionConfig;
+        this.reactiveCypherRunner = reactiveCypherRunner;
+        this.graphSnapshotService = graphSnapshotService;
     }
 
     /**
@@ -45,41 +178,102 @@ public class GraphExpander {
     }
 
     /**
-     * Expands graph using n-hop traversal with custom parameters
+     * Expands graph using n-hop traversal with custom parameters.
+     * maxNodes is the global budget of nodes added beyond the start nodes.
      */
     public SubGraph expandNHop(List<String> startNodeIds, int depth, int maxNodes) {
-        log.debug("Expanding graph from {} nodes with depth={}, maxNodes={}", 
-                 startNodeIds.size(), depth, maxNodes);
+        return expandNHop(startNodeIds, depth, maxNodes, QueryDeadline.unbounded().stage(QueryDeadline.GRAPH_EXPANSION));
+    }
+
+    /**
+     * Expands within the graph expansion stage of the deadline. Hops stop once the stage runs
+     * out and the nodes reached so far are returned.
+     */
+    public SubGraph expandNHop(List<String> startNodeIds, int depth, int maxNodes, QueryDeadline.Stage stage) {
+        log.debug("Expanding graph from {} nodes with depth={}, maxNodes={}, maxNodesPerHop={}",
+                 startNodeIds.size(), depth, maxNodes, maxNodesPerHop);
+
+        return expandFrontier(startNodeIds, depth, maxNodes, defaultRelationshipTypes(), null, stage);
+    }
 
+    /**
+     * Expands within the deadline following an expansion profile: only the profile's edge types
+     * are followed, each in its direction, up to its depth and fan-out. A null profile follows
+     * the default relationship types.
+     */
+    public SubGraph expandNHop(List<String> startNodeIds, int depth, int maxNodes,
+                               ExpansionProfile profile, QueryDeadline.Stage stage) {
+        if (profile == null) {
+            return expandNHop(startNodeIds, depth, maxNodes, stage);
+        }
+        log.debug("Expanding graph from {} nodes with profile {}, depth={}, maxNodes={}",
+                 startNodeIds.size(), profile.getName(), depth, maxNodes);
+
+        return expandFrontier(startNodeIds, depth, maxNodes, relationshipTypes(profile), profile, stage);
+    }
+
+    /**
+     * Non-blocking n-hop expansion over the async driver
+     */
+    public Mono<SubGraph> expandNHopReactive(List<String> startNodeIds, int depth, int maxNodes) {
         if (startNodeIds.isEmpty()) {
-            return SubGraph.builder()
-                    .nodes(new HashMap<>())
-                    .relationships(new ArrayList<>())
-                    .metadata(Map.of("reason", "empty_start_nodes"))
-                    .build();
+            return Mono.just(emptySubGraph("empty_start_nodes"));
         }
 
-        try (Session session = neo4jDriver.session(sessionConfig)) {
-            // Generic n-hop traversal query
-            String query = buildExpansionQuery(depth, maxNodes);
-            
-            Map<String, Object> params = Map.of(
-                "nodeIds", startNodeIds,
-                "depth", depth,
-                "maxNodes", maxNodes
-            );
-
-            Result result = session.run(query, params);
-            return buildSubGraph(result, startNodeIds);
+        List<String> relationshipTypes = defaultRelationshipTypes();
 
-        } catch (Exception e) {
-            log.error("Graph expansion failed for nodes: {}", startNodeIds, e);
-            return SubGraph.builder()
-                    .nodes(new HashMap<>())
-                    .relationships(new ArrayList<>())
-                    .metadata(Map.of("error", e.getMessage()))
-                    .build();
+        GraphSnapshot snapshot = graphSnapshotService.isAvailable() ? graphSnapshotService.current() : null;
+        Mono<SubGraph> expansion;
+        if (snapshot == null) {
+            expansion = expandWithCypherReactive(startNodeIds, depth, maxNodes, relationshipTypes);
+        } else {
+            SeedResolution resolution = SeedResolution.of(snapshot, startNodeIds);
+            Mono<SeedResolution> resolved = resolution.getPending().isEmpty()
+                    ? Mono.just(resolution)
+                    : reactiveCypherRunner.list(RESOLVE_IDS_QUERY, Map.of("ids", resolution.getPending()),
+                                    this::toResolvedIds)
+                            .map(rows -> resolution.resolve(snapshot, rows));
+            expansion = resolved.flatMap(seeds -> {
+                if (seeds.getSeeds().length == 0) {
+                    return expandWithCypherReactive(seeds.getCypherIds(), depth, maxNodes, relationshipTypes);
+                }
+                SnapshotExpansion snapshotExpansion = traverseSnapshot(
+                        snapshot, seeds.getSeeds(), depth, maxNodes, relationshipTypes, null);
+                Mono<SubGraph> snapshotGraph = reactiveCypherRunner
+                        .list(SEED_QUERY, Map.of("ids", snapshotExpansion.getNodeIds()), this::toGraphNode)
+                        .map(hydrated -> snapshotExpansion.toSubGraph(hydrated, startNodeIds.size(), depth));
+                if (seeds.getCypherIds().isEmpty()) {
+                    return snapshotGraph;
+                }
+                int remainingBudget = Math.max(0, maxNodes - snapshotExpansion.addedNodeCount());
+                return snapshotGraph.zipWith(
+                        expandWithCypherReactive(seeds.getCypherIds(), depth, remainingBudget, relationshipTypes),
+                        (first, second) -> union(first, second, null));
+            });
+        }
+
+        return expansion.onErrorResume(e -> {
+            log.error("Reactive graph expansion failed for nodes: {}", startNodeIds, e);
+            return Mono.just(emptySubGraph(String.valueOf(e.getMessage())));
+        });
+    }
+
+    /**
+     * Reactive Cypher frontier expansion, one statement per hop
+     */
+    private Mono<SubGraph> expandWithCypherReactive(List<String> startNodeIds, int depth, int maxNodes,
+                                                    List<String> relationshipTypes) {
+        if (startNodeIds.isEmpty()) {
+            return Mono.just(emptySubGraph("empty_start_nodes"));
         }
+        FrontierState state = new FrontierState(depth, maxNodes, maxNodesPerHop);
+
+        return reactiveCypherRunner.list(SEED_QUERY, Map.of("ids", startNodeIds), this::toGraphNode)
+                .doOnNext(state::addSeeds)
+                .then(Mono.defer(() -> expandHopsReactive(state, relationshipTypes)))
+                .then(Mono.defer(() -> reactiveCypherRunner.list(
+                        EDGE_QUERY, edgeParams(state, relationshipTypes), this::toGraphRelationship)))
+                .map(relationships -> state.toSubGraph(relationships, startNodeIds.size()));
     }
 
     /**
@@ -89,147 +283,384 @@ public class GraphExpander {
                                                List<String> relationshipTypes,
                                                int depth) {
         log.debug("Expanding graph with specific relationships: {}", relationshipTypes);
+        return expandFrontier(startNodeIds, depth, maxNodesPerHop * depth, relationshipTypes, null,
+                QueryDeadline.unbounded().stage(QueryDeadline.GRAPH_EXPANSION));
+    }
 
+    /**
+     * Code node ids each of the given ids stands for: code nodes resolve to themselves, Description
+     * and FileDoc hits to the nodes they describe. Ids that resolve to nothing are left out.
+     */
+    public Map<String, List<String>> resolveCodeNodeIds(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        try (Session session = neo4jDriver.session(sessionConfig)) {
+            Map<String, List<String>> resolved = new LinkedHashMap<>();
+            readAll(session.run(RESOLVE_IDS_QUERY, Map.of("ids", ids)), this::toResolvedIds)
+                    .forEach(row -> resolved.put(row.getKey(), row.getValue()));
+            return resolved;
+        } catch (Exception e) {
+            log.warn("Failed to resolve code nodes for {} ids: {}", ids.size(), e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Expands on a blocking session. Start nodes are resolved to snapshot seeds, Description and
+     * FileDoc hits to the code nodes they stand for, and traversed in memory; start nodes the
+     * snapshot lacks, such as nodes ingested after its last rebuild, are expanded with the Cypher
+     * frontier and the two expansions merged.
+     * With a profile, hops follow its rules and relationshipTypes only selects the returned edges.
+     */
+    private SubGraph expandFrontier(List<String> startNodeIds, int depth, int maxNodes,
+                                    List<String> relationshipTypes, ExpansionProfile profile,
+                                    QueryDeadline.Stage stage) {
         if (startNodeIds.isEmpty()) {
-            return SubGraph.builder().nodes(new HashMap<>()).relationships(new ArrayList<>()).build();
+            return emptySubGraph("empty_start_nodes");
         }
 
         try (Session session = neo4jDriver.session(sessionConfig)) {
-            String relationshipFilter = relationshipTypes.stream()
-                    .map(type -> "'" + type + "'")
-                    .collect(Collectors.joining(", "));
-
-            String query = String.format("""
-                MATCH (start)
-                WHERE start.id IN $nodeIds OR toString(id(start)) IN $nodeIds
-                CALL {
-                    WITH start
-                    MATCH path = (start)-[r*1..%d]-(connected)
-                    WHERE type(r) IN [%s]
-                      AND (connected:Method OR connected:Class OR connected:Interface)
-                    RETURN connected, relationships(path) as rels, length(path) as distance
-                    ORDER BY distance
-                    LIMIT $maxNodes
-                }
-                WITH collect(DISTINCT connected) as nodes,
-                     collect(DISTINCT rels) as allRels
-                UNWIND allRels as relList
-                UNWIND relList as rel
-                WITH nodes, collect(DISTINCT rel) as relationships
-                RETURN nodes, relationships
-                """, depth, relationshipFilter);
-
-            Map<String, Object> params = Map.of(
-                "nodeIds", startNodeIds,
-                "maxNodes", maxNodesPerHop
-            );
-
-            Result result = session.run(query, params);
-            return buildSubGraph(result, startNodeIds);
+            GraphSnapshot snapshot = graphSnapshotService.isAvailable() ? graphSnapshotService.current() : null;
+            if (snapshot == null) {
+                return expandWithCypher(session, startNodeIds, depth, maxNodes, relationshipTypes, profile, stage);
+            }
+
+            SeedResolution seeds = SeedResolution.of(snapshot, startNodeIds);
+            if (!seeds.getPending().isEmpty()) {
+                seeds.resolve(snapshot, readAll(session.run(RESOLVE_IDS_QUERY, Map.of("ids", seeds.getPending())),
+                        this::toResolvedIds));
+            }
+            if (seeds.getSeeds().length == 0) {
+                return expandWithCypher(session, seeds.getCypherIds(), depth, maxNodes, relationshipTypes,
+                        profile, stage);
+            }
+
+            SnapshotExpansion expansion = traverseSnapshot(
+                    snapshot, seeds.getSeeds(), depth, maxNodes, relationshipTypes, profile);
+            List<GraphNode> hydrated = readAll(
+                    session.run(SEED_QUERY, Map.of("ids", expansion.getNodeIds())), this::toGraphNode);
+            SubGraph snapshotGraph = expansion.toSubGraph(hydrated, startNodeIds.size(), depth);
+            if (seeds.getCypherIds().isEmpty()) {
+                return snapshotGraph;
+            }
+
+            log.debug("{} start nodes are not in graph snapshot v{}, expanding them with Cypher",
+                    seeds.getCypherIds().size(), snapshot.getVersion());
+            int remainingBudget = Math.max(0, maxNodes - expansion.addedNodeCount());
+            SubGraph cypherGraph = expandWithCypher(session, seeds.getCypherIds(), depth, remainingBudget,
+                    relationshipTypes, profile, stage);
+            return union(snapshotGraph, cypherGraph, profile);
 
         } catch (Exception e) {
-            log.error("Relationship-filtered expansion failed", e);
-            return SubGraph.builder().nodes(new HashMap<>()).relationships(new ArrayList<>()).build();
+            log.error("Graph expansion failed for nodes: {}", startNodeIds, e);
+            return emptySubGraph(String.valueOf(e.getMessage()));
         }
     }
 
     /**
-     * Builds the expansion query based on configuration
+     * Cypher frontier expansion, streaming the rows of every hop
      */
-    private String buildExpansionQuery(int depth, int maxNodes) {
-        if (includeAllRelationships) {
-            return String.format("""
-                MATCH (start)
-                WHERE start.id IN $nodeIds OR toString(id(start)) IN $nodeIds
-                CALL {
-                    WITH start
-                    MATCH path = (start)-[*1..%d]-(connected)
-                    WHERE connected:Method OR connected:Class OR connected:Interface
-                    RETURN connected, relationships(path) as rels, length(path) as distance
-                    ORDER BY distance
-                    LIMIT %d
+    private SubGraph expandWithCypher(Session session, List<String> startNodeIds, int depth, int maxNodes,
+                                      List<String> relationshipTypes, ExpansionProfile profile,
+                                      QueryDeadline.Stage stage) {
+        if (startNodeIds.isEmpty()) {
+            return emptySubGraph("empty_start_nodes");
+        }
+
+        int hops = profile != null ? Math.min(depth, profile.getMaxDepth()) : depth;
+        FrontierState state = new FrontierState(hops, maxNodes, maxNodesPerHop);
+        state.addSeeds(readAll(session.run(SEED_QUERY, Map.of("ids", startNodeIds)), this::toGraphNode));
+
+        while (state.hasNextHop()) {
+            if (stage.isExpired()) {
+                stage.degrade("stopped after " + state.nodesPerHop.size() + " of " + depth + " hops");
+                break;
+            }
+            try {
+                Result hop;
+                if (profile != null) {
+                    List<ExpansionProfile.EdgeRule> rules = profile.rulesForHop(state.nodesPerHop.size() + 1);
+                    hop = session.run(profileHopQuery(rules), profileHopParams(state, rules), transactionConfig(stage));
+                } else {
+                    hop = session.run(HOP_QUERY, hopParams(state, relationshipTypes), transactionConfig(stage));
                 }
-                WITH collect(DISTINCT connected) as nodes,
-                     collect(DISTINCT rels) as allRels
-                UNWIND allRels as relList
-                UNWIND relList as rel
-                WITH nodes, collect(DISTINCT rel) as relationships
-                RETURN nodes, relationships
-                """, depth, maxNodes);
-        } else {
-            // Only include specific important relationships
-            return String.format("""
-                MATCH (start)
-                WHERE start.id IN $nodeIds OR toString(id(start)) IN $nodeIds
-                CALL {
-                    WITH start
-                    MATCH path = (start)-[r*1..%d]-(connected)
-                    WHERE type(r) IN ['CALLS', 'CONTAINS', 'EXTENDS', 'IMPLEMENTS', 'HAS_DESCRIPTION']
-                      AND (connected:Method OR connected:Class OR connected:Interface)
-                    RETURN connected, relationships(path) as rels, length(path) as distance
-                    ORDER BY distance
-                    LIMIT %d
+                state.completeHop(readAll(hop, this::toGraphNode));
+            } catch (Exception e) {
+                if (!stage.isExpired()) {
+                    throw e;
                 }
-                WITH collect(DISTINCT connected) as nodes,
-                     collect(DISTINCT rels) as allRels
-                UNWIND allRels as relList
-                UNWIND relList as rel
-                WITH nodes, collect(DISTINCT rel) as relationships
-                RETURN nodes, relationships
-                """, depth, maxNodes);
+                stage.degrade("hop " + (state.nodesPerHop.size() + 1) + " timed out");
+                break;
+            }
         }
+
+        List<GraphRelationship> relationships = readAll(
+                session.run(EDGE_QUERY, edgeParams(state, relationshipTypes)), this::toGraphRelationship);
+
+        return state.toSubGraph(relationships, startNodeIds.size());
     }
 
     /**
-     * Builds SubGraph from Neo4j query result
+     * Traverses the in-memory snapshot with the same budgets and relationship preference as the
+     * Cypher frontier; only node properties are left to be hydrated from Neo4j
      */
-    private SubGraph buildSubGraph(Result result, List<String> startNodeIds) {
-        Map<String, GraphNode> nodes = new HashMap<>();
-        List<GraphRelationship> relationships = new ArrayList<>();
+    private SnapshotExpansion traverseSnapshot(GraphSnapshot snapshot, int[] seeds, int depth,
+                                               int maxNodes, List<String> relationshipTypes,
+                                               ExpansionProfile profile) {
+
+        List<EdgeType> edgeTypes = Arrays.stream(EdgeType.values())
+                .filter(type -> relationshipTypes == null || relationshipTypes.contains(type.name()))
+                .sorted(Comparator.comparingDouble((EdgeType type) ->
+                        RELATIONSHIP_WEIGHTS.getOrDefault(type.name(), DEFAULT_RELATIONSHIP_WEIGHT)).reversed())
+                .collect(Collectors.toList());
 
-        try {
-            if (result.hasNext()) {
-                Record record = result.single();
+        IntPredicate expandable = index -> EXPANDABLE_LABELS.contains(snapshot.labelOf(index));
+        GraphSnapshot.Traversal traversal = profile != null
+                ? snapshot.traverse(seeds, depth, maxNodesPerHop, maxNodes, profile, expandable)
+                : snapshot.traverse(seeds, depth, maxNodesPerHop, maxNodes, edgeTypes, expandable);
 
-                // Process nodes
-                for (Value nodeValue : record.get("nodes").values()) {
-                    org.neo4j.driver.types.Node neo4jNode = nodeValue.asNode();
-                    GraphNode graphNode = convertToGraphNode(neo4jNode);
-                    nodes.put(graphNode.getId(), graphNode);
-                }
+        List<String> nodeIds = new ArrayList<>(traversal.getNodes().length);
+        for (int index : traversal.getNodes()) {
+            nodeIds.add(snapshot.idOf(index));
+        }
+
+        return new SnapshotExpansion(nodeIds, snapshotRelationships(snapshot, traversal.getNodes(), edgeTypes),
+                traversal, snapshot.getVersion());
+    }
 
-                // Process relationships
-                for (Value relValue : record.get("relationships").values()) {
-                    org.neo4j.driver.types.Relationship neo4jRel = relValue.asRelationship();
-                    GraphRelationship graphRel = convertToGraphRelationship(neo4jRel);
-                    relationships.add(graphRel);
+    /**
+     * Collects the snapshot edges of the given types among the given nodes
+     */
+    private List<GraphRelationship> snapshotRelationships(GraphSnapshot snapshot, int[] nodeIndexes,
+                                                          Collection<EdgeType> edgeTypes) {
+        BitSet members = new BitSet(snapshot.nodeCount());
+        for (int index : nodeIndexes) {
+            members.set(index);
+        }
+
+        Set<EdgeType> allowedTypes = EnumSet.noneOf(EdgeType.class);
+        allowedTypes.addAll(edgeTypes);
+        List<GraphRelationship> relationships = new ArrayList<>();
+        for (int index : nodeIndexes) {
+            String fromId = snapshot.idOf(index);
+            snapshot.forEachOutgoing(index, (type, target) -> {
+                if (members.get(target) && allowedTypes.contains(type)) {
+                    String toId = snapshot.idOf(target);
+                    relationships.add(GraphRelationship.builder()
+                            .id(fromId + "-" + type.name() + "->" + toId)
+                            .type(type.name())
+                            .startNodeId(fromId)
+                            .endNodeId(toId)
+                            .properties(new HashMap<>())
+                            .build());
                 }
+            });
+        }
+        return relationships;
+    }
+
+    /**
+     * Merges two expansions of the same graph. Edges are re-collected for the merged node set,
+     * so edges running between the two expansions are included.
+     */
+    public SubGraph union(SubGraph first, SubGraph second) {
+        return union(first, second, null);
+    }
+
+    /**
+     * Merges two expansions made with the same profile, keeping only the profile's edge types
+     */
+    public SubGraph union(SubGraph first, SubGraph second, ExpansionProfile profile) {
+        if (second == null || second.getNodeCount() == 0) {
+            return first;
+        }
+        if (first == null || first.getNodeCount() == 0) {
+            return second;
+        }
+
+        Map<String, GraphNode> nodes = new LinkedHashMap<>(first.getNodes());
+        second.getNodes().forEach(nodes::putIfAbsent);
+        List<String> relationshipTypes = relationshipTypes(profile);
+
+        List<GraphRelationship> relationships;
+        if (graphSnapshotService.isAvailable()) {
+            GraphSnapshot snapshot = graphSnapshotService.current();
+            int[] indexes = nodes.keySet().stream().mapToInt(snapshot::indexOf).filter(index -> index >= 0).toArray();
+            List<EdgeType> edgeTypes = Arrays.stream(EdgeType.values())
+                    .filter(type -> relationshipTypes == null || relationshipTypes.contains(type.name()))
+                    .collect(Collectors.toList());
+            relationships = snapshotRelationships(snapshot, indexes, edgeTypes);
+            // Edges touching nodes ingested after the snapshot are only known to the expansion that found them
+            for (SubGraph part : List.of(first, second)) {
+                part.getRelationships().stream()
+                        .filter(rel -> snapshot.indexOf(rel.getStartNodeId()) < 0 || snapshot.indexOf(rel.getEndNodeId()) < 0)
+                        .forEach(relationships::add);
             }
+        } else {
+            relationships = inducedRelationships(nodes.keySet(), relationshipTypes, first, second);
+        }
 
-            log.debug("Built subgraph with {} nodes and {} relationships", 
-                     nodes.size(), relationships.size());
+        Map<String, Object> metadata = new HashMap<>();
+        if (first.getMetadata() != null) {
+            metadata.putAll(first.getMetadata());
+        }
+        metadata.put("mergedExpansions", true);
+        metadata.put("totalNodes", nodes.size());
+        metadata.put("totalRelationships", relationships.size());
 
-            return SubGraph.builder()
-                    .nodes(nodes)
-                    .relationships(relationships)
-                    .metadata(Map.of(
-                            "startNodeCount", startNodeIds.size(),
-                            "expansionDepth", expansionDepth,
-                            "totalNodes", nodes.size(),
-                            "totalRelationships", relationships.size()
-                    ))
-                    .build();
+        return SubGraph.builder()
+                .nodes(nodes)
+                .relationships(relationships)
+                .metadata(metadata)
+                .build();
+    }
+
+    /**
+     * Loads the edges among the given nodes; falls back to the edges both expansions already had
+     */
+    private List<GraphRelationship> inducedRelationships(Collection<String> nodeIds, List<String> relationshipTypes,
+                                                         SubGraph first, SubGraph second) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", new ArrayList<>(nodeIds));
+        params.put("relationshipTypes", relationshipTypes);
 
+        try (Session session = neo4jDriver.session(sessionConfig)) {
+            return readAll(session.run(EDGE_QUERY, params), this::toGraphRelationship);
         } catch (Exception e) {
-            log.error("Failed to build subgraph from result", e);
-            return SubGraph.builder()
-                    .nodes(new HashMap<>())
-                    .relationships(new ArrayList<>())
-                    .metadata(Map.of("error", e.getMessage()))
-                    .build();
+            log.error("Failed to load edges for merged expansion, keeping the edges of each part", e);
+            Map<String, GraphRelationship> known = new LinkedHashMap<>();
+            first.getRelationships().forEach(rel -> known.putIfAbsent(rel.getId(), rel));
+            second.getRelationships().forEach(rel -> known.putIfAbsent(rel.getId(), rel));
+            return new ArrayList<>(known.values());
         }
     }
 
+    /**
+     * Runs the remaining hops one statement at a time
+     */
+    private Mono<Void> expandHopsReactive(FrontierState state, List<String> relationshipTypes) {
+        if (!state.hasNextHop()) {
+            return Mono.empty();
+        }
+        return reactiveCypherRunner.list(HOP_QUERY, hopParams(state, relationshipTypes), this::toGraphNode)
+                .doOnNext(state::completeHop)
+                .then(Mono.defer(() -> expandHopsReactive(state, relationshipTypes)));
+    }
+
+    /**
+     * Transaction timeout matching the time left in the stage
+     */
+    private TransactionConfig transactionConfig(QueryDeadline.Stage stage) {
+        Duration remaining = stage.remaining();
+        return remaining != null ? TransactionConfig.builder().withTimeout(remaining).build() : TransactionConfig.empty();
+    }
+
+    /**
+     * Relationship types to follow by default; null means all types
+     */
+    private List<String> defaultRelationshipTypes() {
+        return includeAllRelationships ? null : IMPORTANT_RELATIONSHIPS;
+    }
+
+    /**
+     * Edge types an expansion with the profile keeps; the default types without one
+     */
+    private List<String> relationshipTypes(ExpansionProfile profile) {
+        return profile != null ? profile.relationshipTypes() : defaultRelationshipTypes();
+    }
+
+    /**
+     * Profile hop statement for the rules followed on a hop. Each rule becomes a branch with a typed,
+     * directed pattern, so Neo4j expands only that relationship type instead of filtering every edge
+     * of the frontier node by type and direction. Statements are cached by their rule patterns.
+     */
+    private String profileHopQuery(List<ExpansionProfile.EdgeRule> rules) {
+        List<String> patterns = rules.stream().map(GraphExpander::rulePattern).collect(Collectors.toList());
+        return profileHopQueries.computeIfAbsent(String.join(",", patterns), key -> {
+            StringJoiner branches = new StringJoiner("    UNION ALL\n");
+            for (int i = 0; i < patterns.size(); i++) {
+                branches.add(PROFILE_HOP_BRANCH.formatted(patterns.get(i), i, i));
+            }
+            return RESOLVE_NODES + PROFILE_HOP_QUERY.formatted(branches);
+        });
+    }
+
+    /**
+     * Pattern from the frontier node n to a reached node m along one rule's edge type and direction
+     */
+    static String rulePattern(ExpansionProfile.EdgeRule rule) {
+        String type = rule.getType().name();
+        switch (rule.getDirection()) {
+            case OUTGOING:
+                return "(n)-[:" + type + "]->(m)";
+            case INCOMING:
+                return "(n)<-[:" + type + "]-(m)";
+            default:
+                return "(n)-[:" + type + "]-(m)";
+        }
+    }
+
+    private Map<String, Object> hopParams(FrontierState state, List<String> relationshipTypes) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", state.getFrontier());
+        params.put("visited", new ArrayList<>(state.getNodes().keySet()));
+        params.put("hopBudget", state.nextHopBudget());
+        params.put("weights", RELATIONSHIP_WEIGHTS);
+        params.put("defaultWeight", DEFAULT_RELATIONSHIP_WEIGHT);
+        params.put("relationshipTypes", relationshipTypes);
+        return params;
+    }
+
+    /**
+     * Parameters of a profile hop: the fan-out and weight of each rule branch, earlier rules weigh more
+     */
+    private Map<String, Object> profileHopParams(FrontierState state, List<ExpansionProfile.EdgeRule> rules) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", state.getFrontier());
+        params.put("visited", new ArrayList<>(state.getNodes().keySet()));
+        params.put("hopBudget", state.nextHopBudget());
+        for (int i = 0; i < rules.size(); i++) {
+            params.put("fanOut" + i, rules.get(i).getFanOut());
+            params.put("weight" + i, (double) (rules.size() - i));
+        }
+        return params;
+    }
+
+    private Map<String, Object> edgeParams(FrontierState state, List<String> relationshipTypes) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", new ArrayList<>(state.getNodes().keySet()));
+        params.put("relationshipTypes", relationshipTypes);
+        return params;
+    }
+
+    /**
+     * Consumes a result row by row
+     */
+    private <T> List<T> readAll(Result result, Function<Record, T> mapper) {
+        List<T> rows = new ArrayList<>();
+        while (result.hasNext()) {
+            rows.add(mapper.apply(result.next()));
+        }
+        return rows;
+    }
+
+    private SubGraph emptySubGraph(String reason) {
+        return SubGraph.builder()
+                .nodes(new HashMap<>())
+                .relationships(new ArrayList<>())
+                .metadata(Map.of("reason", reason))
+                .build();
+    }
+
+    private GraphNode toGraphNode(Record record) {
+        return convertToGraphNode(record.get("node").asNode());
+    }
+
+    private Map.Entry<String, List<String>> toResolvedIds(Record record) {
+        return Map.entry(record.get("nodeId").asString(), record.get("resolvedIds").asList(Value::asString));
+    }
+
     /**
      * Converts Neo4j node to GraphNode
      */
@@ -244,18 +675,196 @@ public class GraphExpander {
     }
 
     /**
-     * Converts Neo4j relationship to GraphRelationship
+     * Converts an edge row to GraphRelationship. Endpoints are the nodes' id properties,
+     * the same identifiers used for GraphNode ids.
      */
-    private GraphRelationship convertToGraphRelationship(org.neo4j.driver.types.Relationship rel) {
+    private GraphRelationship toGraphRelationship(Record record) {
         return GraphRelationship.builder()
-                .id(String.valueOf(rel.id()))
-                .type(rel.type())
-                .startNodeId(String.valueOf(rel.startNodeId()))
-                .endNodeId(String.valueOf(rel.endNodeId()))
-                .properties(new HashMap<>(rel.asMap()))
+                .id(record.get("id").asString())
+                .type(record.get("type").asString())
+                .startNodeId(record.get("startNodeId").asString())
+                .endNodeId(record.get("endNodeId").asString())
+                .properties(new HashMap<>(record.get("properties").asMap()))
                 .build();
     }
 
+    /**
+     * Node ids and edges selected from the snapshot, waiting for property hydration
+     */
+    @Data
+    @AllArgsConstructor
+    private static class SnapshotExpansion {
+        private List<String> nodeIds;
+        private List<GraphRelationship> relationships;
+        private GraphSnapshot.Traversal traversal;
+        private long snapshotVersion;
+
+        /**
+         * Nodes the traversal reached beyond its seeds
+         */
+        int addedNodeCount() {
+            int added = 0;
+            for (int depth : traversal.getDepths()) {
+                if (depth > 0) {
+                    added++;
+                }
+            }
+            return added;
+        }
+
+        SubGraph toSubGraph(List<GraphNode> hydrated, int startNodeCount, int depth) {
+            Map<String, GraphNode> nodes = new HashMap<>();
+            for (GraphNode node : hydrated) {
+                nodes.put(node.getId(), node);
+            }
+            List<GraphRelationship> presentRelationships = relationships.stream()
+                    .filter(rel -> nodes.containsKey(rel.getStartNodeId()) && nodes.containsKey(rel.getEndNodeId()))
+                    .collect(Collectors.toList());
+
+            log.debug("Built subgraph from snapshot v{} with {} nodes and {} relationships in {} hops",
+                     snapshotVersion, nodes.size(), presentRelationships.size(), traversal.getHops());
+
+            return SubGraph.builder()
+                    .nodes(nodes)
+                    .relationships(presentRelationships)
+                    .metadata(Map.of(
+                            "startNodeCount", startNodeCount,
+                            "expansionDepth", depth,
+                            "hopsCompleted", traversal.getHops(),
+                            "budgetExhausted", traversal.isBudgetExhausted(),
+                            "snapshotVersion", snapshotVersion,
+                            "totalNodes", nodes.size(),
+                            "totalRelationships", presentRelationships.size()
+                    ))
+                    .build();
+        }
+    }
+
+    /**
+     * Start nodes split into snapshot seeds and code node ids left to the Cypher frontier.
+     * Ids the snapshot does not hold are pending until resolved with {@link #RESOLVE_IDS_QUERY}:
+     * Description and FileDoc hits become the code nodes they stand for, and code nodes ingested
+     * after the snapshot was built resolve to themselves and go to Cypher.
+     */
+    private static class SeedResolution {
+        private final Set<Integer> seeds = new LinkedHashSet<>();
+        private final Set<String> cypherIds = new LinkedHashSet<>();
+        private final List<String> pending = new ArrayList<>();
+
+        static SeedResolution of(GraphSnapshot snapshot, List<String> startNodeIds) {
+            SeedResolution resolution = new SeedResolution();
+            for (String id : startNodeIds) {
+                int index = snapshot.indexOf(id);
+                if (index >= 0) {
+                    resolution.seeds.add(index);
+                } else {
+                    resolution.pending.add(id);
+                }
+            }
+            return resolution;
+        }
+
+        SeedResolution resolve(GraphSnapshot snapshot, List<Map.Entry<String, List<String>>> resolvedIds) {
+            for (Map.Entry<String, List<String>> row : resolvedIds) {
+                for (String id : row.getValue()) {
+                    int index = snapshot.indexOf(id);
+                    if (index >= 0) {
+                        seeds.add(index);
+                    } else {
+                        cypherIds.add(id);
+                    }
+                }
+            }
+            pending.clear();
+            return this;
+        }
+
+        int[] getSeeds() {
+            return seeds.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        List<String> getCypherIds() {
+            return new ArrayList<>(cypherIds);
+        }
+
+        List<String> getPending() {
+            return List.copyOf(pending);
+        }
+    }
+
+    /**
+     * Mutable state of one frontier expansion
+     */
+    private static class FrontierState {
+        private final int maxDepth;
+        private final int maxNodesPerHop;
+        private final Map<String, GraphNode> nodes = new LinkedHashMap<>();
+        private final List<Integer> nodesPerHop = new ArrayList<>();
+        private List<String> frontier = new ArrayList<>();
+        private int remainingBudget;
+
+        FrontierState(int maxDepth, int maxNodes, int maxNodesPerHop) {
+            this.maxDepth = maxDepth;
+            this.remainingBudget = maxNodes;
+            this.maxNodesPerHop = maxNodesPerHop;
+        }
+
+        void addSeeds(List<GraphNode> seeds) {
+            for (GraphNode seed : seeds) {
+                if (nodes.putIfAbsent(seed.getId(), seed) == null) {
+                    frontier.add(seed.getId());
+                }
+            }
+        }
+
+        boolean hasNextHop() {
+            return nodesPerHop.size() < maxDepth && !frontier.isEmpty() && remainingBudget > 0;
+        }
+
+        int nextHopBudget() {
+            return Math.min(maxNodesPerHop, remainingBudget);
+        }
+
+        void completeHop(List<GraphNode> discovered) {
+            List<String> nextFrontier = new ArrayList<>();
+            for (GraphNode node : discovered) {
+                if (nodes.putIfAbsent(node.getId(), node) == null) {
+                    nextFrontier.add(node.getId());
+                }
+            }
+            remainingBudget -= nextFrontier.size();
+            nodesPerHop.add(nextFrontier.size());
+            frontier = nextFrontier;
+        }
+
+        List<String> getFrontier() {
+            return frontier;
+        }
+
+        Map<String, GraphNode> getNodes() {
+            return nodes;
+        }
+
+        SubGraph toSubGraph(List<GraphRelationship> relationships, int startNodeCount) {
+            log.debug("Built subgraph with {} nodes and {} relationships in {} hops {}",
+                     nodes.size(), relationships.size(), nodesPerHop.size(), nodesPerHop);
+
+            return SubGraph.builder()
+                    .nodes(new HashMap<>(nodes))
+                    .relationships(relationships)
+                    .metadata(Map.of(
+                            "startNodeCount", startNodeCount,
+                            "expansionDepth", maxDepth,
+                            "hopsCompleted", nodesPerHop.size(),
+                            "nodesPerHop", List.copyOf(nodesPerHop),
+                            "budgetExhausted", remainingBudget <= 0,
+                            "totalNodes", nodes.size(),
+                            "totalRelationships", relationships.size()
+                    ))
+                    .build();
+        }
+    }
+
     /**
      * Filters subgraph by node types
      */
@@ -305,6 +914,13 @@ public class GraphExpander {
         public List<GraphNode> getNodesList() {
             return nodes != null ? new ArrayList<>(nodes.values()) : new ArrayList<>();
         }
+
+        /**
+         * Builds dense int handles for this subgraph's nodes and edges
+         */
+        public NodeHandles handles() {
+            return NodeHandles.of(this);
+        }
     }
 
     /**
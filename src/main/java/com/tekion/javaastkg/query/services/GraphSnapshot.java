@@ -0,0 +1,415 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.model.EdgeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-only compressed-sparse-row (CSR) snapshot of the code graph.
+ * Nodes are addressed by dense int indexes; every EdgeType keeps its own outgoing and incoming
+ * offset/target arrays, so neighbour iteration only touches primitive arrays.
+ * Instances are immutable and safe to share between request threads.
+ */
+public final class GraphSnapshot {
+
+    private static final GraphSnapshot EMPTY = new Builder(0L).build();
+
+    private final long version;
+    private final Instant builtAt;
+    private final String[] nodeIds;
+    private final String[] nodeLabels;
+    private final Map<String, Integer> indexById;
+    private final EnumMap<EdgeType, Adjacency> outgoing;
+    private final EnumMap<EdgeType, Adjacency> incoming;
+    private final int edgeCount;
+
+    private GraphSnapshot(long version, String[] nodeIds, String[] nodeLabels, Map<String, Integer> indexById,
+                          EnumMap<EdgeType, Adjacency> outgoing, EnumMap<EdgeType, Adjacency> incoming,
+                          int edgeCount) {
+        this.version = version;
+        this.builtAt = Instant.now();
+        this.nodeIds = nodeIds;
+        this.nodeLabels = nodeLabels;
+        this.indexById = indexById;
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+        this.edgeCount = edgeCount;
+    }
+
+    public static GraphSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(long version) {
+        return new Builder(version);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    public int nodeCount() {
+        return nodeIds.length;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public boolean isEmpty() {
+        return nodeIds.length == 0;
+    }
+
+    /**
+     * Returns the dense index of a node id, or -1 when the node is not in the snapshot
+     */
+    public int indexOf(String id) {
+        Integer index = id != null ? indexById.get(id) : null;
+        return index != null ? index : -1;
+    }
+
+    public String idOf(int index) {
+        return nodeIds[index];
+    }
+
+    public String labelOf(int index) {
+        return nodeLabels[index];
+    }
+
+    public Set<EdgeType> edgeTypes() {
+        return Collections.unmodifiableSet(outgoing.keySet());
+    }
+
+    /**
+     * Total number of edges, in either direction, touching a node
+     */
+    public int degree(int node) {
+        int degree = 0;
+        for (Adjacency adjacency : outgoing.values()) {
+            degree += adjacency.count(node);
+        }
+        for (Adjacency adjacency : incoming.values()) {
+            degree += adjacency.count(node);
+        }
+        return degree;
+    }
+
+    /**
+     * Calls the visitor for every outgoing edge of a node
+     */
+    public void forEachOutgoing(int node, EdgeVisitor visitor) {
+        outgoing.forEach((type, adjacency) -> {
+            for (int e = adjacency.offsets[node]; e < adjacency.offsets[node + 1]; e++) {
+                visitor.visit(type, adjacency.targets[e]);
+            }
+        });
+    }
+
+    /**
+     * Breadth-first traversal from the seeds, ignoring edge direction.
+     * Edge types are tried in the given order within each hop, so earlier types win when a hop
+     * is capped. Only nodes accepted by the filter are entered; seeds are always included.
+     *
+     * @param seeds          dense indexes of the start nodes (negative entries are ignored)
+     * @param maxDepth       maximum number of hops
+     * @param maxNodesPerHop maximum number of new nodes per hop
+     * @param maxNodes       maximum number of new nodes overall, seeds excluded
+     * @param edgeTypes      edge types to follow, in order of preference
+     * @param filter         predicate deciding whether a reached node may be entered
+     */
+    public Traversal traverse(int[] seeds, int maxDepth, int maxNodesPerHop, int maxNodes,
+                              List<EdgeType> edgeTypes, IntPredicate filter) {
+        BitSet visited = new BitSet(nodeIds.length);
+        IntList order = new IntList((int) Math.min(nodeIds.length, Math.max(16L, (long) maxNodes + seeds.length)));
+        IntList depths = new IntList(order.capacity());
+        IntList frontier = new IntList(seeds.length);
+
+        for (int seed : seeds) {
+            if (seed >= 0 && seed < nodeIds.length && !visited.get(seed)) {
+                visited.set(seed);
+                order.add(seed);
+                depths.add(0);
+                frontier.add(seed);
+            }
+        }
+
+        int remaining = maxNodes;
+        int depth = 0;
+        while (depth < maxDepth && frontier.size() > 0 && remaining > 0) {
+            depth++;
+            int hopBudget = Math.min(maxNodesPerHop, remaining);
+            IntList next = new IntList(Math.min(hopBudget, 64));
+
+            hop:
+            for (EdgeType type : edgeTypes) {
+                Adjacency out = outgoing.get(type);
+                Adjacency in = incoming.get(type);
+                if (out == null) {
+                    continue;
+                }
+                for (int i = 0; i < frontier.size(); i++) {
+                    int node = frontier.get(i);
+                    visitNeighbours(out, node, visited, filter, next, hopBudget, Integer.MAX_VALUE);
+                    visitNeighbours(in, node, visited, filter, next, hopBudget, Integer.MAX_VALUE);
+                    if (next.size() >= hopBudget) {
+                        break hop;
+                    }
+                }
+            }
+
+            for (int i = 0; i < next.size(); i++) {
+                order.add(next.get(i));
+                depths.add(depth);
+            }
+            remaining -= next.size();
+            frontier = next;
+        }
+
+        return new Traversal(order.toArray(), depths.toArray(), depth, remaining <= 0);
+    }
+
+    /**
+     * Breadth-first traversal from the seeds following the rules of an expansion profile.
+     * On hop h only rules whose depth reaches h are followed, each in its own direction and
+     * adding at most its fan-out of new nodes per expanded node. Rules are tried in profile
+     * order within each hop, so earlier rules win when a hop is capped.
+     *
+     * @param seeds          dense indexes of the start nodes (negative entries are ignored)
+     * @param maxDepth       maximum number of hops, further capped by the profile
+     * @param maxNodesPerHop maximum number of new nodes per hop
+     * @param maxNodes       maximum number of new nodes overall, seeds excluded
+     * @param profile        edge rules to follow
+     * @param filter         predicate deciding whether a reached node may be entered
+     */
+    public Traversal traverse(int[] seeds, int maxDepth, int maxNodesPerHop, int maxNodes,
+                              ExpansionProfile profile, IntPredicate filter) {
+        BitSet visited = new BitSet(nodeIds.length);
+        IntList order = new IntList((int) Math.min(nodeIds.length, Math.max(16L, (long) maxNodes + seeds.length)));
+        IntList depths = new IntList(order.capacity());
+        IntList frontier = new IntList(seeds.length);
+
+        for (int seed : seeds) {
+            if (seed >= 0 && seed < nodeIds.length && !visited.get(seed)) {
+                visited.set(seed);
+                order.add(seed);
+                depths.add(0);
+                frontier.add(seed);
+            }
+        }
+
+        int hops = Math.min(maxDepth, profile.getMaxDepth());
+        int remaining = maxNodes;
+        int depth = 0;
+        while (depth < hops && frontier.size() > 0 && remaining > 0) {
+            depth++;
+            int hopBudget = Math.min(maxNodesPerHop, remaining);
+            IntList next = new IntList(Math.min(hopBudget, 64));
+
+            hop:
+            for (ExpansionProfile.EdgeRule rule : profile.rulesForHop(depth)) {
+                Adjacency out = rule.getDirection().followsOutgoing() ? outgoing.get(rule.getType()) : null;
+                Adjacency in = rule.getDirection().followsIncoming() ? incoming.get(rule.getType()) : null;
+                if (out == null && in == null) {
+                    continue;
+                }
+                for (int i = 0; i < frontier.size(); i++) {
+                    int node = frontier.get(i);
+                    int added = out != null
+                            ? visitNeighbours(out, node, visited, filter, next, hopBudget, rule.getFanOut()) : 0;
+                    if (in != null) {
+                        visitNeighbours(in, node, visited, filter, next, hopBudget, rule.getFanOut() - added);
+                    }
+                    if (next.size() >= hopBudget) {
+                        break hop;
+                    }
+                }
+            }
+
+            for (int i = 0; i < next.size(); i++) {
+                order.add(next.get(i));
+                depths.add(depth);
+            }
+            remaining -= next.size();
+            frontier = next;
+        }
+
+        return new Traversal(order.toArray(), depths.toArray(), depth, remaining <= 0);
+    }
+
+    /**
+     * Visits unvisited neighbours of a node until the hop budget is full or the node has
+     * reached its fan-out; returns the number of nodes added
+     */
+    private int visitNeighbours(Adjacency adjacency, int node, BitSet visited, IntPredicate filter,
+                                IntList next, int hopBudget, int fanOut) {
+        int added = 0;
+        for (int e = adjacency.offsets[node]; e < adjacency.offsets[node + 1]; e++) {
+            if (added >= fanOut || next.size() >= hopBudget) {
+                break;
+            }
+            int neighbour = adjacency.targets[e];
+            if (!visited.get(neighbour) && filter.test(neighbour)) {
+                visited.set(neighbour);
+                next.add(neighbour);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Receives edges during iteration
+     */
+    @FunctionalInterface
+    public interface EdgeVisitor {
+        void visit(EdgeType type, int target);
+    }
+
+    /**
+     * Result of a traversal: nodes in visiting order with the hop at which each was reached
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Traversal {
+        private int[] nodes;
+        private int[] depths;
+        private int hops;
+        private boolean budgetExhausted;
+    }
+
+    /**
+     * CSR arrays for one edge type and direction: targets of node i are
+     * targets[offsets[i] .. offsets[i + 1])
+     */
+    private static final class Adjacency {
+        private final int[] offsets;
+        private final int[] targets;
+
+        private Adjacency(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        private int count(int node) {
+            return offsets[node + 1] - offsets[node];
+        }
+
+        /**
+         * Counting-sort construction from parallel source/target arrays
+         */
+        private static Adjacency of(int nodeCount, IntList sources, IntList targets) {
+            int[] offsets = new int[nodeCount + 1];
+            for (int i = 0; i < sources.size(); i++) {
+                offsets[sources.get(i) + 1]++;
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] cursor = Arrays.copyOf(offsets, nodeCount);
+            int[] sortedTargets = new int[targets.size()];
+            for (int i = 0; i < sources.size(); i++) {
+                sortedTargets[cursor[sources.get(i)]++] = targets.get(i);
+            }
+            return new Adjacency(offsets, sortedTargets);
+        }
+    }
+
+    /**
+     * Accumulates nodes and edges, then freezes them into CSR form
+     */
+    public static final class Builder {
+        private final long version;
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private final Map<String, Integer> indexById = new HashMap<>();
+        private final EnumMap<EdgeType, IntList[]> edges = new EnumMap<>(EdgeType.class);
+        private int edgeCount;
+
+        private Builder(long version) {
+            this.version = version;
+        }
+
+        /**
+         * Adds a node; duplicates keep their first index
+         */
+        public Builder addNode(String id, String label) {
+            if (id != null && !indexById.containsKey(id)) {
+                indexById.put(id, ids.size());
+                ids.add(id);
+                labels.add(label != null ? label.intern() : "Unknown");
+            }
+            return this;
+        }
+
+        /**
+         * Adds a directed edge; returns false when an endpoint is not a snapshot node
+         */
+        public boolean addEdge(EdgeType type, String fromId, String toId) {
+            Integer from = indexById.get(fromId);
+            Integer to = indexById.get(toId);
+            if (type == null || from == null || to == null) {
+                return false;
+            }
+            IntList[] pair = edges.computeIfAbsent(type, t -> new IntList[]{new IntList(64), new IntList(64)});
+            pair[0].add(from);
+            pair[1].add(to);
+            edgeCount++;
+            return true;
+        }
+
+        public GraphSnapshot build() {
+            int nodeCount = ids.size();
+            EnumMap<EdgeType, Adjacency> outgoing = new EnumMap<>(EdgeType.class);
+            EnumMap<EdgeType, Adjacency> incoming = new EnumMap<>(EdgeType.class);
+            edges.forEach((type, pair) -> {
+                outgoing.put(type, Adjacency.of(nodeCount, pair[0], pair[1]));
+                incoming.put(type, Adjacency.of(nodeCount, pair[1], pair[0]));
+            });
+            return new GraphSnapshot(version, ids.toArray(new String[0]), labels.toArray(new String[0]),
+                    Map.copyOf(indexById), outgoing, incoming, edgeCount);
+        }
+    }
+
+    /**
+     * Minimal growable int array, avoiding boxed collections on hot paths
+     */
+    static final class IntList {
+        private int[] values;
+        private int size;
+
+        IntList(int capacity) {
+            this.values = new int[Math.max(1, capacity)];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.model.EdgeType;
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Owns the in-memory CSR snapshot of the code graph used for query-time traversal.
+ * The snapshot is rebuilt from Neo4j after each ingestion and swapped in atomically, so
+ * in-flight queries keep traversing the snapshot they started with.
+ */
+@Service
+@Slf4j
+public class GraphSnapshotService {
+
+    private static final String NODE_QUERY = """
+            MATCH (n)
+            WHERE (n:Method OR n:Class OR n:Interface OR n:Enum) AND n.id IS NOT NULL
+            RETURN n.id AS id, labels(n)[0] AS label
+            """;
+
+    private static final String EDGE_QUERY = """
+            MATCH (a)-[r]->(b)
+            WHERE (a:Method OR a:Class OR a:Interface OR a:Enum)
+              AND (b:Method OR b:Class OR b:Interface OR b:Enum)
+            RETURN a.id AS fromId, type(r) AS type, b.id AS toId
+            """;
+
+    private final Driver neo4jDriver;
+    private final SessionConfig sessionConfig;
+    private final AtomicReference<GraphSnapshot> current = new AtomicReference<>(GraphSnapshot.empty());
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    @Value("${query.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query.snapshot.build-on-startup:true}")
+    private boolean buildOnStartup;
+
+    public GraphSnapshotService(Driver neo4jDriver, SessionConfig sessionConfig) {
+        this.neo4jDriver = neo4jDriver;
+        this.sessionConfig = sessionConfig;
+    }
+
+    /**
+     * Returns the current snapshot; empty until the first build completes
+     */
+    public GraphSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * True when traversal should use the snapshot instead of Neo4j
+     */
+    public boolean isAvailable() {
+        return enabled && !current.get().isEmpty();
+    }
+
+    /**
+     * Builds the first snapshot in the background once the application is up
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled && buildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from Neo4j and swaps it in. On failure the previous snapshot is kept.
+     */
+    public synchronized GraphSnapshot rebuild() {
+        if (!enabled) {
+            return current.get();
+        }
+
+        long startTime = System.currentTimeMillis();
+        log.info("Building graph snapshot");
+
+        try (Session session = neo4jDriver.session(sessionConfig)) {
+            GraphSnapshot.Builder builder = GraphSnapshot.builder(versionCounter.incrementAndGet());
+
+            Result nodes = session.run(NODE_QUERY);
+            while (nodes.hasNext()) {
+                Record record = nodes.next();
+                builder.addNode(record.get("id").asString(), record.get("label", "Unknown"));
+            }
+
+            int skippedEdges = 0;
+            Result edges = session.run(EDGE_QUERY);
+            while (edges.hasNext()) {
+                Record record = edges.next();
+                EdgeType type = parseEdgeType(record.get("type").asString());
+                if (!builder.addEdge(type, record.get("fromId", (String) null), record.get("toId", (String) null))) {
+                    skippedEdges++;
+                }
+            }
+
+            GraphSnapshot snapshot = builder.build();
+            current.set(snapshot);
+
+            log.info("Graph snapshot v{} built in {} ms: {} nodes, {} edges ({} skipped)",
+                    snapshot.getVersion(), System.currentTimeMillis() - startTime,
+                    snapshot.nodeCount(), snapshot.edgeCount(), skippedEdges);
+            return snapshot;
+
+        } catch (Exception e) {
+            log.error("Failed to build graph snapshot, keeping v{}", current.get().getVersion(), e);
+            return current.get();
+        }
+    }
+
+    private EdgeType parseEdgeType(String type) {
+        try {
+            return EdgeType.valueOf(type);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.tekion.javaastkg.query.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the knowledge graph as seen by the query side. It is bumped after every completed
+ * ingestion, so caches that include it in their keys stop serving results computed on the old graph.
+ */
+@Service
+@Slf4j
+public class GraphVersionService {
+
+    private final AtomicLong version = new AtomicLong(1);
+
+    /**
+     * The current graph version
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Moves to a new graph version; called when an ingestion run has finished
+     */
+    public long bump() {
+        long next = version.incrementAndGet();
+        log.info("Graph version bumped to v{}", next);
+        return next;
+    }
+}
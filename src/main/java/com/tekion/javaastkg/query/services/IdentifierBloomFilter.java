@@ -0,0 +1,166 @@
+package com.tekion.javaastkg.query.services;
+
+import java.util.*;
+
+/**
+ * Bloom filter over the identifiers in the graph, used to drop generated expansion terms that
+ * cannot match any code element. For every identifier it holds each run of up to
+ * {@value #MAX_RUN_TOKENS} consecutive camelCase tokens (joined and lower-cased) plus the whole
+ * identifier, so "OrderServiceImpl" answers for "order", "OrderService" and "serviceImpl" but not
+ * for "OrderServiceHandler". Lookups can return false positives at the configured rate, never
+ * false negatives. Immutable once built; the service swaps in a new filter after each ingestion.
+ */
+public final class IdentifierBloomFilter {
+
+    /**
+     * Longest token run stored besides the whole identifier
+     */
+    public static final int MAX_RUN_TOKENS = 4;
+
+    private static final IdentifierBloomFilter EMPTY = new IdentifierBloomFilter(0L, new long[0], 0, 0);
+
+    private final long version;
+    private final long[] bits;
+    private final int hashCount;
+    private final int keyCount;
+
+    private IdentifierBloomFilter(long version, long[] bits, int hashCount, int keyCount) {
+        this.version = version;
+        this.bits = bits;
+        this.hashCount = hashCount;
+        this.keyCount = keyCount;
+    }
+
+    public static IdentifierBloomFilter empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(long version, double falsePositiveRate) {
+        return new Builder(version, falsePositiveRate);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return keyCount == 0;
+    }
+
+    public int keyCount() {
+        return keyCount;
+    }
+
+    public int sizeInBytes() {
+        return bits.length * Long.BYTES;
+    }
+
+    /**
+     * True when the term may name or be part of an identifier in the graph. Terms without any
+     * alphanumeric token are not judged and always pass; so does everything on an empty filter.
+     */
+    public boolean mightContainTerm(String term) {
+        if (isEmpty()) {
+            return true;
+        }
+        List<String> tokens = SymbolDictionary.tokenize(term);
+        return tokens.isEmpty() || mightContain(String.join("", tokens));
+    }
+
+    private boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitCount = (long) bits.length * Long.SIZE;
+        for (int i = 1; i <= hashCount; i++) {
+            int combined = h1 + i * h2;
+            long index = (combined & Integer.MAX_VALUE) % bitCount;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitCount = (long) bits.length * Long.SIZE;
+        for (int i = 1; i <= hashCount; i++) {
+            int combined = h1 + i * h2;
+            long index = (combined & Integer.MAX_VALUE) % bitCount;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a followed by a murmur finalizer, so both halves are usable as independent hashes
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Collects the keys of every identifier, then sizes the filter for the configured false positive rate
+     */
+    public static final class Builder {
+        private final long version;
+        private final double falsePositiveRate;
+        private final Set<String> keys = new HashSet<>();
+
+        private Builder(long version, double falsePositiveRate) {
+            if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+                throw new IllegalArgumentException("False positive rate must be in (0, 1): " + falsePositiveRate);
+            }
+            this.version = version;
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        /**
+         * Adds the identifier and every run of up to MAX_RUN_TOKENS of its tokens
+         */
+        public Builder addIdentifier(String identifier) {
+            List<String> tokens = SymbolDictionary.tokenize(identifier);
+            if (tokens.isEmpty()) {
+                return this;
+            }
+            keys.add(String.join("", tokens));
+            for (int start = 0; start < tokens.size(); start++) {
+                StringBuilder run = new StringBuilder();
+                for (int end = start; end < Math.min(tokens.size(), start + MAX_RUN_TOKENS); end++) {
+                    run.append(tokens.get(end));
+                    keys.add(run.toString());
+                }
+            }
+            return this;
+        }
+
+        public IdentifierBloomFilter build() {
+            if (keys.isEmpty()) {
+                return new IdentifierBloomFilter(version, new long[0], 0, 0);
+            }
+            // Optimal size m = -n ln p / (ln 2)^2 and hash count k = (m / n) ln 2
+            double ln2 = Math.log(2);
+            long bitCount = (long) Math.ceil(-keys.size() * Math.log(falsePositiveRate) / (ln2 * ln2));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bitCount + Long.SIZE - 1) / Long.SIZE));
+            int hashCount = (int) Math.max(1, Math.min(16, Math.round((double) words * Long.SIZE / keys.size() * ln2)));
+
+            IdentifierBloomFilter filter = new IdentifierBloomFilter(version, new long[words], hashCount, keys.size());
+            for (String key : keys) {
+                filter.put(key);
+            }
+            return filter;
+        }
+    }
+}
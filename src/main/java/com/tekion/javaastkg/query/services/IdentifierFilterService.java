@@ -0,0 +1,117 @@
+package com.tekion.javaastkg.query.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Owns the Bloom filter of identifiers used to prune generated expansion terms that name nothing
+ * in the graph. The filter is rebuilt from Neo4j after each ingestion and swapped in atomically.
+ */
+@Service
+@Slf4j
+public class IdentifierFilterService {
+
+    private static final String IDENTIFIER_QUERY = """
+            MATCH (n)
+            WHERE (n:Class OR n:Interface OR n:Enum OR n:Method) AND n.name IS NOT NULL
+            RETURN n.name AS name, n.packageName AS packageName
+            """;
+
+    private final Driver neo4jDriver;
+    private final SessionConfig sessionConfig;
+    private final AtomicReference<IdentifierBloomFilter> current = new AtomicReference<>(IdentifierBloomFilter.empty());
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    @Value("${query.identifier-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query.identifier-filter.build-on-startup:true}")
+    private boolean buildOnStartup;
+
+    @Value("${query.identifier-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    public IdentifierFilterService(Driver neo4jDriver, SessionConfig sessionConfig) {
+        this.neo4jDriver = neo4jDriver;
+        this.sessionConfig = sessionConfig;
+    }
+
+    /**
+     * Returns the current filter; empty, and so letting every term through, until the first build completes
+     */
+    public IdentifierBloomFilter current() {
+        return current.get();
+    }
+
+    /**
+     * True when expansion should prune terms with the filter
+     */
+    public boolean isAvailable() {
+        return enabled && !current.get().isEmpty();
+    }
+
+    /**
+     * Builds the first filter in the background once the application is up
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled && buildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the filter from Neo4j and swaps it in. On failure the previous filter is kept.
+     */
+    public synchronized IdentifierBloomFilter rebuild() {
+        if (!enabled) {
+            return current.get();
+        }
+
+        long startTime = System.currentTimeMillis();
+        log.info("Building identifier filter");
+
+        try (Session session = neo4jDriver.session(sessionConfig)) {
+            IdentifierBloomFilter.Builder builder =
+                    IdentifierBloomFilter.builder(versionCounter.incrementAndGet(), falsePositiveRate);
+            Set<String> packages = new HashSet<>();
+
+            Result result = session.run(IDENTIFIER_QUERY);
+            while (result.hasNext()) {
+                Record record = result.next();
+                builder.addIdentifier(record.get("name").asString());
+                String packageName = record.get("packageName", (String) null);
+                if (packageName != null && packages.add(packageName)) {
+                    builder.addIdentifier(packageName);
+                }
+            }
+
+            IdentifierBloomFilter filter = builder.build();
+            current.set(filter);
+
+            log.info("Identifier filter v{} built in {} ms: {} keys in {} KB",
+                    filter.getVersion(), System.currentTimeMillis() - startTime,
+                    filter.keyCount(), filter.sizeInBytes() / 1024);
+            return filter;
+
+        } catch (Exception e) {
+            log.error("Failed to build identifier filter, keeping v{}", current.get().getVersion(), e);
+            return current.get();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.tekion.javaastkg.query.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Turns {@code CONTAINS} lookups on identifiers into index seeks on the identifier index.
+ * A term of three or more characters is looked up by its trigrams: only nodes whose identifiers
+ * contain every trigram of the term can contain the term. Trigrams too frequent to be worth a
+ * posting are left out of the index and ignored in lookups. When the index was built without
+ * trigrams, terms are looked up by their camelCase tokens instead, and only then are token
+ * postings fetched; over-frequent tokens are skipped the same way.
+ *
+ * <p>The returned node ids are candidates, a superset of the exact matches ignoring case.
+ * They are the stable {@code id} properties rather than element ids, which Neo4j may reuse once
+ * the graph is rebuilt. Callers restrict their query to them with {@code n.id IN $candidateIds}
+ * and keep their original {@code CONTAINS} predicate to verify the candidates. Terms shorter than three
+ * characters, such as "id" in "isValid", have no trigram to seek on and are left to that scan.
+ */
+@Service
+@Slf4j
+public class IdentifierIndex {
+
+    public static final String TOKEN_LABEL = "IdentifierToken";
+    public static final String TRIGRAM_LABEL = "IdentifierTrigram";
+    public static final String INFO_LABEL = "IdentifierIndexInfo";
+
+    /** Shortest term with a trigram, so the index can narrow its candidates */
+    public static final int MIN_TERM_LENGTH = 3;
+
+    private static final String POSTINGS_QUERY = """
+            OPTIONAL MATCH (info:IdentifierIndexInfo)
+            WITH info LIMIT 1
+            OPTIONAL MATCH (g:IdentifierTrigram)
+            WHERE g.value IN $trigrams
+            WITH info, collect(g) AS trigramNodes
+            OPTIONAL MATCH (t:IdentifierToken)
+            WHERE NOT coalesce(info.trigrams, false) AND t.value IN $tokens
+            WITH info, trigramNodes, collect(t) AS tokenNodes
+            RETURN info IS NOT NULL AS indexed,
+                   coalesce(info.trigrams, false) AS hasTrigrams,
+                   coalesce(info.skippedTrigrams, []) AS skippedTrigrams,
+                   coalesce(info.skippedTokens, []) AS skippedTokens,
+                   [g IN trigramNodes | {value: g.value, nodeIds: g.nodeIds}] AS trigramPostings,
+                   [t IN tokenNodes | {value: t.value, nodeIds: t.nodeIds}] AS tokenPostings
+            """;
+
+    private final Driver neo4jDriver;
+    private final SessionConfig sessionConfig;
+
+    public IdentifierIndex(Driver neo4jDriver, SessionConfig sessionConfig) {
+        this.neo4jDriver = neo4jDriver;
+        this.sessionConfig = sessionConfig;
+    }
+
+    /**
+     * Candidates that may contain at least one of the terms; empty when the index is not built
+     */
+    public Optional<List<String>> candidatesContainingAny(List<String> terms) {
+        return candidatesByTerm(terms).map(byTerm -> byTerm.values().stream()
+                .flatMap(Set::stream)
+                .distinct()
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Candidates that may contain every one of the terms; empty when the index is not built
+     */
+    public Optional<List<String>> candidatesContainingAll(List<String> terms) {
+        return candidatesByTerm(terms).map(byTerm -> {
+            Set<String> candidates = null;
+            for (Set<String> termCandidates : byTerm.values()) {
+                if (candidates == null) {
+                    candidates = new HashSet<>(termCandidates);
+                } else {
+                    candidates.retainAll(termCandidates);
+                }
+            }
+            return candidates == null ? new ArrayList<String>() : new ArrayList<>(candidates);
+        });
+    }
+
+    /**
+     * Candidate node ids for each non-blank term, fetched in one round trip.
+     * Empty when the index has not been built, the lookup failed or a term cannot be narrowed
+     * down by the index, so callers can fall back to scanning.
+     */
+    public Optional<Map<String, Set<String>>> candidatesByTerm(List<String> terms) {
+        List<String> lookupTerms = terms == null ? List.of() : terms.stream()
+                .filter(term -> term != null && !term.isBlank())
+                .distinct()
+                .collect(Collectors.toList());
+        if (lookupTerms.isEmpty()) {
+            return Optional.of(new LinkedHashMap<>());
+        }
+        for (String term : lookupTerms) {
+            if (term.length() < MIN_TERM_LENGTH) {
+                log.debug("Term '{}' is too short for the identifier index, falling back to scanning", term);
+                return Optional.empty();
+            }
+        }
+
+        Set<String> allTrigrams = new HashSet<>();
+        Set<String> allTokens = new HashSet<>();
+        for (String term : lookupTerms) {
+            allTrigrams.addAll(trigrams(term));
+            allTokens.addAll(SymbolDictionary.tokenize(term));
+        }
+
+        long startTime = System.currentTimeMillis();
+        try (Session session = neo4jDriver.session(sessionConfig)) {
+            Record record = session.run(POSTINGS_QUERY, Map.of(
+                    "trigrams", new ArrayList<>(allTrigrams),
+                    "tokens", new ArrayList<>(allTokens))).single();
+            if (!record.get("indexed").asBoolean()) {
+                log.debug("Identifier index not built, falling back to scanning");
+                return Optional.empty();
+            }
+
+            boolean hasTrigrams = record.get("hasTrigrams").asBoolean();
+            Set<String> skippedTrigrams = new HashSet<>(record.get("skippedTrigrams").asList(Value::asString));
+            Set<String> skippedTokens = new HashSet<>(record.get("skippedTokens").asList(Value::asString));
+            Map<String, List<String>> trigramPostings = postings(record.get("trigramPostings"));
+            Map<String, List<String>> tokenPostings = postings(record.get("tokenPostings"));
+
+            Map<String, Set<String>> candidates = new LinkedHashMap<>();
+            for (String term : lookupTerms) {
+                Set<String> termCandidates = hasTrigrams
+                        ? termCandidates(trigrams(term), skippedTrigrams, trigramPostings)
+                        : termCandidates(new HashSet<>(SymbolDictionary.tokenize(term)), skippedTokens, tokenPostings);
+                if (termCandidates == null) {
+                    log.debug("Term '{}' has only frequent trigrams or tokens, falling back to scanning", term);
+                    return Optional.empty();
+                }
+                candidates.put(term, termCandidates);
+            }
+
+            log.debug("Identifier index lookup for {} terms took {} ms", lookupTerms.size(),
+                    System.currentTimeMillis() - startTime);
+            return Optional.of(candidates);
+
+        } catch (Exception e) {
+            log.warn("Identifier index lookup failed, falling back to scanning: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Candidates for one term from the postings of its trigrams or tokens; null when all of them
+     * were too frequent to index, leaving nothing to narrow the term down with
+     */
+    static Set<String> termCandidates(Set<String> keys, Set<String> skippedKeys,
+                                      Map<String, List<String>> postings) {
+        Set<String> indexedKeys = new HashSet<>(keys);
+        indexedKeys.removeAll(skippedKeys);
+        return indexedKeys.isEmpty() ? null : intersect(indexedKeys, postings);
+    }
+
+    /**
+     * Lower-cased character trigrams of a value; empty for values shorter than three characters
+     */
+    public static Set<String> trigrams(String value) {
+        Set<String> trigrams = new HashSet<>();
+        if (value == null) {
+            return trigrams;
+        }
+        String lower = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            trigrams.add(lower.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static Map<String, List<String>> postings(Value value) {
+        Map<String, List<String>> postings = new HashMap<>();
+        for (Value posting : value.values()) {
+            postings.put(posting.get("value").asString(), posting.get("nodeIds").asList(Value::asString));
+        }
+        return postings;
+    }
+
+    /**
+     * Nodes listed under every key; a key without postings means no node can match
+     */
+    private static Set<String> intersect(Set<String> keys, Map<String, List<String>> postings) {
+        if (keys.isEmpty()) {
+            return new HashSet<>();
+        }
+        List<List<String>> lists = new ArrayList<>();
+        for (String key : keys) {
+            List<String> nodeIds = postings.get(key);
+            if (nodeIds == null) {
+                return new HashSet<>();
+            }
+            lists.add(nodeIds);
+        }
+        // Start from the shortest list so the working set stays small
+        lists.sort(Comparator.comparingInt(List::size));
+        Set<String> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(new HashSet<>(lists.get(i)));
+        }
+        return result;
+    }
+}
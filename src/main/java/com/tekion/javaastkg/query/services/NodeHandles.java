@@ -0,0 +1,227 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.query.services.GraphExpander.GraphNode;
+import com.tekion.javaastkg.query.services.GraphExpander.GraphRelationship;
+import com.tekion.javaastkg.query.services.GraphExpander.SubGraph;
+
+import java.util.*;
+
+/**
+ * Dense int handles for the nodes of one SubGraph, keyed by the node's {@code id} property.
+ * Ids are hashed once when the handles are built; afterwards distances, degrees and scores are
+ * computed over int/double arrays indexed by handle. Edges are stored undirected in CSR form.
+ * Build once per request via {@link SubGraph#handles()} and pass the instance along.
+ */
+public final class NodeHandles {
+
+    /** Distance reported for nodes that cannot be reached from any seed */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final GraphNode[] nodes;
+    private final Map<String, Integer> handleById;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int droppedEdges;
+
+    private NodeHandles(GraphNode[] nodes, Map<String, Integer> handleById,
+                        int[] offsets, int[] targets, int droppedEdges) {
+        this.nodes = nodes;
+        this.handleById = handleById;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.droppedEdges = droppedEdges;
+    }
+
+    /**
+     * Assigns handles in node iteration order and builds the undirected adjacency.
+     * Edges with an endpoint outside the subgraph, and self-loops, are dropped.
+     */
+    public static NodeHandles of(SubGraph subGraph) {
+        Collection<GraphNode> graphNodes = subGraph.getNodes() != null
+                ? subGraph.getNodes().values() : Collections.emptyList();
+        GraphNode[] nodes = new GraphNode[graphNodes.size()];
+        Map<String, Integer> handleById = new HashMap<>(graphNodes.size() * 2);
+        int count = 0;
+        for (GraphNode node : graphNodes) {
+            if (node != null && node.getId() != null && !handleById.containsKey(node.getId())) {
+                handleById.put(node.getId(), count);
+                nodes[count++] = node;
+            }
+        }
+        if (count < nodes.length) {
+            nodes = Arrays.copyOf(nodes, count);
+        }
+
+        List<GraphRelationship> relationships = subGraph.getRelationships() != null
+                ? subGraph.getRelationships() : Collections.emptyList();
+        int[] from = new int[relationships.size()];
+        int[] to = new int[relationships.size()];
+        int edges = 0;
+        for (GraphRelationship rel : relationships) {
+            Integer start = rel.getStartNodeId() != null ? handleById.get(rel.getStartNodeId()) : null;
+            Integer end = rel.getEndNodeId() != null ? handleById.get(rel.getEndNodeId()) : null;
+            if (start != null && end != null && !start.equals(end)) {
+                from[edges] = start;
+                to[edges] = end;
+                edges++;
+            }
+        }
+
+        // Counting sort of both edge directions into one CSR array
+        int[] offsets = new int[count + 1];
+        for (int e = 0; e < edges; e++) {
+            offsets[from[e] + 1]++;
+            offsets[to[e] + 1]++;
+        }
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] cursor = Arrays.copyOf(offsets, count);
+        int[] targets = new int[edges * 2];
+        for (int e = 0; e < edges; e++) {
+            targets[cursor[from[e]]++] = to[e];
+            targets[cursor[to[e]]++] = from[e];
+        }
+
+        return new NodeHandles(nodes, handleById, offsets, targets, relationships.size() - edges);
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the handle of a node id, or -1 when the node is not part of the subgraph
+     */
+    public int handleOf(String id) {
+        Integer handle = id != null ? handleById.get(id) : null;
+        return handle != null ? handle : -1;
+    }
+
+    public String idOf(int handle) {
+        return nodes[handle].getId();
+    }
+
+    public GraphNode nodeOf(int handle) {
+        return nodes[handle];
+    }
+
+    /**
+     * Number of relationships that were not indexed because an endpoint is missing
+     */
+    public int getDroppedEdges() {
+        return droppedEdges;
+    }
+
+    /**
+     * Number of indexed relationships touching a node, in either direction
+     */
+    public int degree(int handle) {
+        return offsets[handle + 1] - offsets[handle];
+    }
+
+    /**
+     * Maps ids to handles, skipping unknown and duplicate ids
+     */
+    public int[] handlesOf(Collection<String> ids) {
+        int[] handles = new int[ids.size()];
+        BitSet seen = new BitSet(nodes.length);
+        int count = 0;
+        for (String id : ids) {
+            int handle = handleOf(id);
+            if (handle >= 0 && !seen.get(handle)) {
+                seen.set(handle);
+                handles[count++] = handle;
+            }
+        }
+        return Arrays.copyOf(handles, count);
+    }
+
+    /**
+     * Handles of the given ids as a membership set
+     */
+    public BitSet membersOf(Collection<String> ids) {
+        BitSet members = new BitSet(nodes.length);
+        for (int handle : handlesOf(ids)) {
+            members.set(handle);
+        }
+        return members;
+    }
+
+    /**
+     * Copies a score map into a dense array; nodes without a score get 0
+     */
+    public double[] toDense(Map<String, Double> scores) {
+        double[] dense = new double[nodes.length];
+        if (scores == null || scores.isEmpty()) {
+            return dense;
+        }
+        for (int handle = 0; handle < nodes.length; handle++) {
+            Double score = scores.get(nodes[handle].getId());
+            if (score != null) {
+                dense[handle] = score;
+            }
+        }
+        return dense;
+    }
+
+    /**
+     * Unweighted shortest distances from the seeds, ignoring edge direction.
+     * Unreachable nodes get {@link #UNREACHABLE}.
+     */
+    public int[] distancesFrom(int[] seeds) {
+        int[] distances = new int[nodes.length];
+        Arrays.fill(distances, UNREACHABLE);
+        int[] queue = new int[nodes.length];
+        int head = 0;
+        int tail = 0;
+
+        for (int seed : seeds) {
+            if (seed >= 0 && seed < nodes.length && distances[seed] == UNREACHABLE) {
+                distances[seed] = 0;
+                queue[tail++] = seed;
+            }
+        }
+
+        while (head < tail) {
+            int node = queue[head++];
+            int next = distances[node] + 1;
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int neighbour = targets[e];
+                if (distances[neighbour] == UNREACHABLE) {
+                    distances[neighbour] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Builds the induced subgraph of the kept handles, preserving node order
+     */
+    public SubGraph restrict(SubGraph subGraph, BitSet keep, Map<String, Object> metadata) {
+        Map<String, GraphNode> keptNodes = new LinkedHashMap<>();
+        for (int handle = keep.nextSetBit(0); handle >= 0 && handle < nodes.length;
+             handle = keep.nextSetBit(handle + 1)) {
+            keptNodes.put(nodes[handle].getId(), nodes[handle]);
+        }
+
+        List<GraphRelationship> keptRels = new ArrayList<>();
+        if (subGraph.getRelationships() != null) {
+            for (GraphRelationship rel : subGraph.getRelationships()) {
+                int start = handleOf(rel.getStartNodeId());
+                int end = handleOf(rel.getEndNodeId());
+                if (start >= 0 && end >= 0 && keep.get(start) && keep.get(end)) {
+                    keptRels.add(rel);
+                }
+            }
+        }
+
+        return SubGraph.builder()
+                .nodes(keptNodes)
+                .relationships(keptRels)
+                .metadata(metadata)
+                .build();
+    }
+}
@@ -43,27 +43,49 @@ public class NodeScorer {
                                                   Map<String, Double> fullTextScores,
                                                   Map<String, Double> vectorScores,
                                                   List<String> startNodeIds) {
-        log.debug("Calculating scores for {} nodes", subGraph.getNodeCount());
-
-        Map<String, Double> nodeScores = new HashMap<>();
-        Map<String, Integer> nodeDistances = calculateDistancesFromStart(subGraph, startNodeIds);
+        NodeHandles handles = subGraph.handles();
+        return toScoreMap(handles, scoreNodes(handles, fullTextScores, vectorScores, startNodeIds));
+    }
 
-        for (GraphNode node : subGraph.getNodesList()) {
-            String nodeId = node.getId();
-            double score = calculateScore(
-                    nodeId,
-                    fullTextScores,
-                    vectorScores,
-                    nodeDistances.getOrDefault(nodeId, Integer.MAX_VALUE),
-                    node
-            );
-            
+    /**
+     * Scores every node of the subgraph in one pass over its handles.
+     * Returns a dense array indexed by handle; scores below the minimum are zeroed.
+     */
+    public double[] scoreNodes(NodeHandles handles,
+                               Map<String, Double> fullTextScores,
+                               Map<String, Double> vectorScores,
+                               List<String> startNodeIds) {
+        log.debug("Calculating scores for {} nodes", handles.size());
+
+        double[] ftScores = handles.toDense(fullTextScores);
+        double[] vecScores = handles.toDense(vectorScores);
+        int[] distances = handles.distancesFrom(handles.handlesOf(startNodeIds));
+
+        double[] scores = new double[handles.size()];
+        int scored = 0;
+        for (int handle = 0; handle < scores.length; handle++) {
+            double score = calculateScore(ftScores[handle], vecScores[handle], distances[handle],
+                    handles.nodeOf(handle));
             if (score >= minScore) {
-                nodeScores.put(nodeId, score);
+                scores[handle] = score;
+                scored++;
             }
         }
 
-        log.debug("Scored {} nodes above minimum threshold {}", nodeScores.size(), minScore);
+        log.debug("Scored {} nodes above minimum threshold {}", scored, minScore);
+        return scores;
+    }
+
+    /**
+     * Converts dense scores back to an id-keyed map, keeping only nodes above the minimum score
+     */
+    public Map<String, Double> toScoreMap(NodeHandles handles, double[] scores) {
+        Map<String, Double> nodeScores = new HashMap<>();
+        for (int handle = 0; handle < scores.length; handle++) {
+            if (scores[handle] > 0.0 && scores[handle] >= minScore) {
+                nodeScores.put(handles.idOf(handle), scores[handle]);
+            }
+        }
         return nodeScores;
     }
 
@@ -75,10 +97,14 @@ public class NodeScorer {
                                Map<String, Double> vectorScores,
                                int distanceFromStart,
                                GraphNode node) {
-        
+        return calculateScore(fullTextScores.getOrDefault(nodeId, 0.0),
+                vectorScores.getOrDefault(nodeId, 0.0), distanceFromStart, node);
+    }
+
+    private double calculateScore(double fullTextScore, double vectorScore, int distanceFromStart, GraphNode node) {
         // Base scores from search results
-        double ftScore = fullTextScores.getOrDefault(nodeId, 0.0) * fullTextWeight;
-        double vecScore = vectorScores.getOrDefault(nodeId, 0.0) * vectorWeight;
+        double ftScore = fullTextScore * fullTextWeight;
+        double vecScore = vectorScore * vectorWeight;
         
         // Distance penalty (nodes farther from start get lower scores)
         double distancePenalty = Math.min(distanceFromStart * graphDistancePenalty, 0.5);
@@ -91,63 +117,12 @@ public class NodeScorer {
         
         double finalScore = (ftScore + vecScore + typeBoost + propertyBoost) - distancePenalty;
         
-        log.trace("Score for {}: ft={:.3f}, vec={:.3f}, type={:.3f}, prop={:.3f}, dist=-{:.3f} = {:.3f}",
-                 nodeId, ftScore, vecScore, typeBoost, propertyBoost, distancePenalty, finalScore);
+        log.trace("Score for {}: ft={}, vec={}, type={}, prop={}, dist=-{} = {}",
+                 node.getId(), ftScore, vecScore, typeBoost, propertyBoost, distancePenalty, finalScore);
         
         return Math.max(0.0, finalScore);
     }
 
-    /**
-     * Calculates shortest distances from start nodes using BFS
-     */
-    private Map<String, Integer> calculateDistancesFromStart(SubGraph subGraph, List<String> startNodeIds) {
-        Map<String, Integer> distances = new HashMap<>();
-        Queue<String> queue = new LinkedList<>();
-        
-        // Initialize start nodes with distance 0
-        for (String startId : startNodeIds) {
-            if (subGraph.getNodes().containsKey(startId)) {
-                distances.put(startId, 0);
-                queue.offer(startId);
-            }
-        }
-        
-        // Build adjacency list for efficient traversal
-        Map<String, Set<String>> adjacency = buildAdjacencyList(subGraph);
-        
-        // BFS to calculate distances
-        while (!queue.isEmpty()) {
-            String currentId = queue.poll();
-            int currentDistance = distances.get(currentId);
-            
-            Set<String> neighbors = adjacency.getOrDefault(currentId, Collections.emptySet());
-            for (String neighborId : neighbors) {
-                if (!distances.containsKey(neighborId)) {
-                    distances.put(neighborId, currentDistance + 1);
-                    queue.offer(neighborId);
-                }
-            }
-        }
-        
-        return distances;
-    }
-
-    /**
-     * Builds adjacency list from subgraph relationships
-     */
-    private Map<String, Set<String>> buildAdjacencyList(SubGraph subGraph) {
-        Map<String, Set<String>> adjacency = new HashMap<>();
-        
-        for (GraphExpander.GraphRelationship rel : subGraph.getRelationships()) {
-            adjacency.computeIfAbsent(rel.getStartNodeId(), k -> new HashSet<>())
-                     .add(rel.getEndNodeId());
-            adjacency.computeIfAbsent(rel.getEndNodeId(), k -> new HashSet<>())
-                     .add(rel.getStartNodeId());
-        }
-        
-        return adjacency;
-    }
-
     /**
      * Calculates boost based on node type
      */
@@ -224,29 +199,20 @@ public class NodeScorer {
      * Applies score-based filtering to subgraph
      */
     public SubGraph filterByScore(SubGraph subGraph, Map<String, Double> nodeScores, double threshold) {
-        Set<String> acceptedNodeIds = nodeScores.entrySet().stream()
-                .filter(entry -> entry.getValue() >= threshold)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
-
-        Map<String, GraphNode> filteredNodes = subGraph.getNodes().entrySet().stream()
-                .filter(entry -> acceptedNodeIds.contains(entry.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-
-        List<GraphExpander.GraphRelationship> filteredRels = subGraph.getRelationships().stream()
-                .filter(rel -> acceptedNodeIds.contains(rel.getStartNodeId()) && 
-                              acceptedNodeIds.contains(rel.getEndNodeId()))
-                .collect(Collectors.toList());
+        NodeHandles handles = subGraph.handles();
+        double[] scores = handles.toDense(nodeScores);
+        BitSet accepted = new BitSet(handles.size());
+        for (int handle = 0; handle < scores.length; handle++) {
+            if (scores[handle] >= threshold && nodeScores.containsKey(handles.idOf(handle))) {
+                accepted.set(handle);
+            }
+        }
 
-        return SubGraph.builder()
-                .nodes(filteredNodes)
-                .relationships(filteredRels)
-                .metadata(Map.of(
-                        "scoreThreshold", threshold,
-                        "originalNodeCount", subGraph.getNodeCount(),
-                        "filteredNodeCount", filteredNodes.size()
-                ))
-                .build();
+        return handles.restrict(subGraph, accepted, Map.of(
+                "scoreThreshold", threshold,
+                "originalNodeCount", subGraph.getNodeCount(),
+                "filteredNodeCount", accepted.cardinality()
+        ));
     }
 
     /**
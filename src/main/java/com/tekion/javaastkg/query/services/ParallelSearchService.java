@@ -1,6 +1,7 @@
 package com.tekion.javaastkg.query.services;
 
 import com.tekion.javaastkg.query.services.EntityExtractor.ExtractedEntities;
+import com.tekion.javaastkg.query.services.RetrievalPlanner.SearchIndex;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,14 +10,27 @@ import lombok.extern.slf4j.Slf4j;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.TransactionConfig;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Service that performs parallel full-text and vector search operations.
@@ -26,18 +40,166 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class ParallelSearchService {
 
+    /**
+     * Full-text branches for the combined search. Each branch takes its own top hits from one index
+     * and divides by that index's best score, so scores from different indexes are comparable.
+     */
+    private static final String METHOD_FULLTEXT_BRANCH = """
+            CALL db.index.fulltext.queryNodes('method_names', $methodTerms)
+            YIELD node, score
+            WITH node, score ORDER BY score DESC LIMIT $limit
+            WITH collect({node: node, score: score}) AS hits
+            WITH hits, CASE WHEN size(hits) = 0 THEN 1.0 ELSE hits[0].score END AS maxScore
+            UNWIND hits AS hit
+            WITH hit.node AS node, hit.score / maxScore AS score
+            RETURN node.id as nodeId,
+                   node.name as name,
+                   node.signature as signature,
+                   node.className as className,
+                   score,
+                   'method' as type
+            """;
+
+    private static final String CLASS_FULLTEXT_BRANCH = """
+            CALL db.index.fulltext.queryNodes('class_names', $classTerms)
+            YIELD node, score
+            WITH node, score ORDER BY score DESC LIMIT $limit
+            WITH collect({node: node, score: score}) AS hits
+            WITH hits, CASE WHEN size(hits) = 0 THEN 1.0 ELSE hits[0].score END AS maxScore
+            UNWIND hits AS hit
+            WITH hit.node AS node, hit.score / maxScore AS score
+            RETURN node.id as nodeId,
+                   node.name as name,
+                   node.fullName as signature,
+                   node.packageName as className,
+                   score,
+                   'class' as type
+            """;
+
+    private static final String DESCRIPTION_FULLTEXT_BRANCH = """
+            CALL db.index.fulltext.queryNodes('description_content', $descriptionTerms)
+            YIELD node, score
+            WITH node, score ORDER BY score DESC LIMIT $limit
+            WITH collect({node: node, score: score}) AS hits
+            WITH hits, CASE WHEN size(hits) = 0 THEN 1.0 ELSE hits[0].score END AS maxScore
+            UNWIND hits AS hit
+            WITH hit.node AS node, hit.score / maxScore AS score
+            MATCH (code)-[:HAS_DESCRIPTION]->(node)
+            RETURN code.id as nodeId,
+                   code.name as name,
+                   COALESCE(code.signature, code.fullName) as signature,
+                   COALESCE(code.className, code.packageName) as className,
+                   score,
+                   labels(code)[0] as type
+            """;
+
+    private static final String FILE_DOC_FULLTEXT_BRANCH = """
+            CALL db.index.fulltext.queryNodes('file_doc_content', $fileDocTerms)
+            YIELD node, score
+            WITH node, score ORDER BY score DESC LIMIT $limit
+            WITH collect({node: node, score: score}) AS hits
+            WITH hits, CASE WHEN size(hits) = 0 THEN 1.0 ELSE hits[0].score END AS maxScore
+            UNWIND hits AS hit
+            WITH hit.node AS node, hit.score / maxScore AS score
+            RETURN node.id as nodeId,
+                   node.fileName as name,
+                   node.fileName as signature,
+                   node.packageName as className,
+                   score,
+                   'file_doc' as type
+            """;
+
+    /**
+     * Characters with special meaning in the Lucene query parser
+     */
+    private static final Pattern LUCENE_SPECIAL_CHARS = Pattern.compile("([+\\-!():^\\[\\]\"{}~*?|&/\\\\])");
+
+    private static final Set<String> LUCENE_OPERATORS = Set.of("AND", "OR", "NOT", "TO");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final String DESCRIPTION_VECTOR_QUERY = """
+            CALL db.index.vector.queryNodes('description_embeddings', $k, $queryVector)
+            YIELD node, score
+            MATCH (code)-[:HAS_DESCRIPTION]->(node)
+            RETURN code.id as nodeId,
+                   code.name as name,
+                   COALESCE(code.signature, code.fullName) as signature,
+                   COALESCE(code.className, code.packageName) as className,
+                   score,
+                   labels(code)[0] as type
+            ORDER BY score DESC
+            """;
+
+    private static final String FILE_DOC_VECTOR_QUERY = """
+            CALL db.index.vector.queryNodes('file_doc_embeddings', $k, $queryVector)
+            YIELD node, score
+            RETURN node.id as nodeId,
+                   node.fileName as name,
+                   node.fileName as signature,
+                   node.packageName as className,
+                   score,
+                   'file_doc' as type
+            ORDER BY score DESC
+            """;
+
+    private static final String METHOD_VECTOR_QUERY = """
+            CALL db.index.vector.queryNodes('method_embeddings', $k, $queryVector)
+            YIELD node, score
+            RETURN node.id as nodeId,
+                   node.name as name,
+                   node.signature as signature,
+                   node.className as className,
+                   score,
+                   'method' as type
+            ORDER BY score DESC
+            """;
+
+    private static final String CLASS_VECTOR_QUERY = """
+            CALL db.index.vector.queryNodes('class_embeddings', $k, $queryVector)
+            YIELD node, score
+            RETURN node.id as nodeId,
+                   node.name as name,
+                   node.fullName as signature,
+                   node.packageName as className,
+                   score,
+                   labels(node)[0] as type
+            ORDER BY score DESC
+            """;
+
+    private static final List<String> VECTOR_QUERIES =
+            List.of(METHOD_VECTOR_QUERY, CLASS_VECTOR_QUERY, DESCRIPTION_VECTOR_QUERY, FILE_DOC_VECTOR_QUERY);
+
+    /**
+     * Vector query per index kind, iterated in the same order of usefulness as VECTOR_QUERIES
+     */
+    private static final Map<SearchIndex, String> VECTOR_QUERIES_BY_INDEX = new EnumMap<>(Map.of(
+            SearchIndex.METHOD, METHOD_VECTOR_QUERY,
+            SearchIndex.CLASS, CLASS_VECTOR_QUERY,
+            SearchIndex.DESCRIPTION, DESCRIPTION_VECTOR_QUERY,
+            SearchIndex.FILE_DOC, FILE_DOC_VECTOR_QUERY));
+
     private final Driver neo4jDriver;
     private final SessionConfig sessionConfig;
+    private final ReactiveCypherRunner reactiveCypherRunner;
 
     @Value("${query.retrieval.fulltext-search-limit:50}")
     private int fullTextSearchLimit;
 
+    @Value("${query.retrieval.fulltext-top-k:100}")
+    private int fullTextTopK;
+
     @Value("${query.retrieval.vector-search-limit:50}")
     private int vectorSearchLimit;
 
-    public ParallelSearchService(Driver neo4jDriver, SessionConfig sessionConfig) {
+    @Value("${query.reactive.max-concurrent-searches:4}")
+    private int maxConcurrentSearches;
+
+    public ParallelSearchService(Driver neo4jDriver, SessionConfig sessionConfig,
+                                 ReactiveCypherRunner reactiveCypherRunner) {
         this.neo4jDriver = neo4jDriver;
         this.sessionConfig = sessionConfig;
+        this.reactiveCypherRunner = reactiveCypherRunner;
     }
 
     /**
@@ -45,6 +207,26 @@ public class ParallelSearchService {
      */
     @Async
     public CompletableFuture<List<SearchResult>> fullTextSearch(EnhancedEntityExtractor.ExtractedEntities entities) {
+        return fullTextSearch(entities, QueryDeadline.unbounded().stage(QueryDeadline.SEARCH));
+    }
+
+    /**
+     * Performs full-text search with the statement bounded by the search stage of the deadline
+     */
+    @Async
+    public CompletableFuture<List<SearchResult>> fullTextSearch(EnhancedEntityExtractor.ExtractedEntities entities,
+                                                                QueryDeadline.Stage stage) {
+        return fullTextSearch(entities, null, stage);
+    }
+
+    /**
+     * Performs full-text search on the indexes of the retrieval plan with its per-index limit.
+     * A null plan searches every index with the configured limit.
+     */
+    @Async
+    public CompletableFuture<List<SearchResult>> fullTextSearch(EnhancedEntityExtractor.ExtractedEntities entities,
+                                                                RetrievalPlanner.RetrievalPlan plan,
+                                                                QueryDeadline.Stage stage) {
         // Convert to basic entities for backward compatibility
         ExtractedEntities basicEntities = ExtractedEntities.builder()
             .classes(entities.getClasses())
@@ -52,49 +234,78 @@ public class ParallelSearchService {
             .packages(entities.getPackages())
             .terms(entities.getTerms())
             .build();
-        return fullTextSearch(basicEntities);
+        return CompletableFuture.completedFuture(plan != null
+                ? searchFullText(basicEntities, plan.getFullTextIndexes(), plan.getFullTextLimit(), stage)
+                : searchFullText(basicEntities, EnumSet.allOf(SearchIndex.class), fullTextSearchLimit, stage));
     }
     
     /**
-     * Performs full-text search based on extracted entities
+     * Performs full-text search based on extracted entities.
+     * All relevant indexes are queried in a single statement.
      */
     @Async
     public CompletableFuture<List<SearchResult>> fullTextSearch(ExtractedEntities entities) {
-        log.debug("Starting full-text search with entities: {}", entities);
-        
-        List<SearchResult> results = new ArrayList<>();
-        
+        return CompletableFuture.completedFuture(searchFullText(entities, EnumSet.allOf(SearchIndex.class),
+                fullTextSearchLimit, QueryDeadline.unbounded().stage(QueryDeadline.SEARCH)));
+    }
+
+    private List<SearchResult> searchFullText(ExtractedEntities entities, Set<SearchIndex> indexes, int limit,
+                                              QueryDeadline.Stage stage) {
+        log.debug("Starting full-text search on {} with entities: {}", indexes, entities);
+
+        FullTextStatement statement = buildFullTextStatement(entities.getMethods(), entities.getClasses(),
+                entities.getTerms(), entities.getAllEntities(), indexes, limit);
+        if (statement == null) {
+            return new ArrayList<>();
+        }
+
         try (Session session = neo4jDriver.session(sessionConfig)) {
-            // Search methods
-            if (!entities.getMethods().isEmpty()) {
-                results.addAll(searchMethods(session, entities.getMethods()));
-            }
-            
-            // Search classes
-            if (!entities.getClasses().isEmpty()) {
-                results.addAll(searchClasses(session, entities.getClasses()));
-            }
-            
-            
-            // Search descriptions if we have general terms
-            if (!entities.getTerms().isEmpty()) {
-                results.addAll(searchDescriptions(session, entities.getTerms()));
-            }
-            
-            // Search file docs with all terms
-            if (entities.hasEntities()) {
-                results.addAll(searchFileDocs(session, entities.getAllEntities()));
+            try {
+                List<SearchResult> results = session.run(statement.getQuery(), statement.getParams(),
+                                transactionConfig(stage))
+                        .list(record -> toSearchResult(record, "fulltext"));
+
+                log.debug("Full-text search completed with {} results", results.size());
+                return results;
+            } catch (Exception e) {
+                if (stage.isExpired()) {
+                    stage.degrade("full-text search timed out");
+                    return new ArrayList<>();
+                }
+                log.warn("Combined full-text search failed, searching the indexes one by one: {}", e.getMessage());
+                return searchBranchesSeparately(session, statement, stage);
             }
-            
-            log.debug("Full-text search completed with {} results", results.size());
-            return CompletableFuture.completedFuture(results);
-            
         } catch (Exception e) {
             log.error("Full-text search failed", e);
-            return CompletableFuture.completedFuture(new ArrayList<>());
+            return new ArrayList<>();
         }
     }
 
+    /**
+     * Runs each index branch as its own statement, so one index failing to parse its query does
+     * not cost the hits of the others
+     */
+    private List<SearchResult> searchBranchesSeparately(Session session, FullTextStatement statement,
+                                                        QueryDeadline.Stage stage) {
+        List<SearchResult> results = new ArrayList<>();
+        for (String branch : statement.getBranches()) {
+            if (stage.isExpired()) {
+                stage.degrade("full-text search timed out");
+                break;
+            }
+            try {
+                results.addAll(session.run(combine(List.of(branch)), statement.getParams(), transactionConfig(stage))
+                        .list(record -> toSearchResult(record, "fulltext")));
+            } catch (Exception e) {
+                log.error("Full-text index search failed", e);
+            }
+        }
+        return results.stream()
+                .sorted(Comparator.comparingDouble(SearchResult::getScore).reversed())
+                .limit(fullTextTopK)
+                .toList();
+    }
+
     /**
      * Performs vector similarity search
      */
@@ -120,183 +331,20 @@ public class ParallelSearchService {
         }
     }
 
-    /**
-     * Search methods by name
-     */
-    private List<SearchResult> searchMethods(Session session, List<String> methodNames) {
-        String searchTerms = String.join(" OR ", methodNames);
-        String query = """
-            CALL db.index.fulltext.queryNodes('method_names', $searchTerms)
-            YIELD node, score
-            RETURN node.id as nodeId, 
-                   node.name as name,
-                   node.signature as signature,
-                   node.className as className,
-                   score,
-                   'method' as type
-            ORDER BY score DESC
-            LIMIT $limit
-            """;
-
-        return session.run(query, Map.of("searchTerms", searchTerms, "limit", fullTextSearchLimit))
-                .list(record -> SearchResult.builder()
-                        .nodeId(record.get("nodeId").asString())
-                        .name(record.get("name").asString())
-                        .signature(record.get("signature").asString())
-                        .className(record.get("className").asString())
-                        .score(record.get("score").asDouble())
-                        .type(record.get("type").asString())
-                        .searchType("fulltext")
-                        .build());
-    }
-
-    /**
-     * Search classes by name
-     */
-    private List<SearchResult> searchClasses(Session session, List<String> classNames) {
-        String searchTerms = String.join(" OR ", classNames);
-        String query = """
-            CALL db.index.fulltext.queryNodes('class_names', $searchTerms)
-            YIELD node, score
-            RETURN node.id as nodeId,
-                   node.name as name,
-                   node.fullName as signature,
-                   node.packageName as className,
-                   score,
-                   'class' as type
-            ORDER BY score DESC
-            LIMIT $limit
-            """;
-
-        return session.run(query, Map.of("searchTerms", searchTerms, "limit", fullTextSearchLimit))
-                .list(record -> SearchResult.builder()
-                        .nodeId(record.get("nodeId").asString())
-                        .name(record.get("name").asString())
-                        .signature(record.get("signature").asString())
-                        .className(record.get("className").asString())
-                        .score(record.get("score").asDouble())
-                        .type(record.get("type").asString())
-                        .searchType("fulltext")
-                        .build());
-    }
-
-
-    /**
-     * Search descriptions by content
-     */
-    private List<SearchResult> searchDescriptions(Session session, List<String> terms) {
-        String searchTerms = String.join(" OR ", terms);
-        String query = """
-            CALL db.index.fulltext.queryNodes('description_content', $searchTerms)
-            YIELD node, score
-            MATCH (code)-[:HAS_DESCRIPTION]->(node)
-            RETURN code.id as nodeId,
-                   code.name as name,
-                   COALESCE(code.signature, code.fullName) as signature,
-                   COALESCE(code.className, code.packageName) as className,
-                   score,
-                   labels(code)[0] as type
-            ORDER BY score DESC
-            LIMIT $limit
-            """;
-
-        return session.run(query, Map.of("searchTerms", searchTerms, "limit", fullTextSearchLimit))
-                .list(record -> SearchResult.builder()
-                        .nodeId(record.get("nodeId").asString())
-                        .name(record.get("name").asString())
-                        .signature(record.get("signature").asString())
-                        .className(record.get("className").asString())
-                        .score(record.get("score").asDouble())
-                        .type(record.get("type").asString().toLowerCase())
-                        .searchType("fulltext")
-                        .build());
-    }
-
-    /**
-     * Search file docs by content
-     */
-    private List<SearchResult> searchFileDocs(Session session, List<String> terms) {
-        String searchTerms = String.join(" OR ", terms);
-        String query = """
-            CALL db.index.fulltext.queryNodes('file_doc_content', $searchTerms)
-            YIELD node, score
-            RETURN node.id as nodeId,
-                   node.fileName as name,
-                   node.fileName as signature,
-                   node.packageName as className,
-                   score,
-                   'file_doc' as type
-            ORDER BY score DESC
-            LIMIT $limit
-            """;
-
-        return session.run(query, Map.of("searchTerms", searchTerms, "limit", fullTextSearchLimit))
-                .list(record -> SearchResult.builder()
-                        .nodeId(record.get("nodeId").asString())
-                        .name(record.get("name").asString())
-                        .signature(record.get("signature").asString())
-                        .className(record.get("className").asString())
-                        .score(record.get("score").asDouble())
-                        .type(record.get("type").asString())
-                        .searchType("fulltext")
-                        .build());
-    }
-
     /**
      * Search description embeddings
      */
     private List<SearchResult> searchDescriptionEmbeddings(Session session, float[] queryEmbedding) {
-        String query = """
-            CALL db.index.vector.queryNodes('description_embeddings', $k, $queryVector)
-            YIELD node, score
-            MATCH (code)-[:HAS_DESCRIPTION]->(node)
-            RETURN code.id as nodeId,
-                   code.name as name,
-                   COALESCE(code.signature, code.fullName) as signature,
-                   COALESCE(code.className, code.packageName) as className,
-                   score,
-                   labels(code)[0] as type
-            ORDER BY score DESC
-            """;
-
-        return session.run(query, Map.of("k", vectorSearchLimit, "queryVector", queryEmbedding))
-                .list(record -> SearchResult.builder()
-                        .nodeId(record.get("nodeId").asString())
-                        .name(record.get("name").asString())
-                        .signature(record.get("signature").asString())
-                        .className(record.get("className").asString())
-                        .score(record.get("score").asDouble())
-                        .type(record.get("type").asString().toLowerCase())
-                        .searchType("semantic")
-                        .build());
+        return session.run(DESCRIPTION_VECTOR_QUERY, Map.of("k", vectorSearchLimit, "queryVector", queryEmbedding))
+                .list(record -> toSearchResult(record, "semantic"));
     }
 
     /**
      * Search file doc embeddings
      */
     private List<SearchResult> searchFileDocEmbeddings(Session session, float[] queryEmbedding) {
-        String query = """
-            CALL db.index.vector.queryNodes('file_doc_embeddings', $k, $queryVector)
-            YIELD node, score
-            RETURN node.id as nodeId,
-                   node.fileName as name,
-                   node.fileName as signature,
-                   node.packageName as className,
-                   score,
-                   'file_doc' as type
-            ORDER BY score DESC
-            """;
-
-        return session.run(query, Map.of("k", vectorSearchLimit, "queryVector", queryEmbedding))
-                .list(record -> SearchResult.builder()
-                        .nodeId(record.get("nodeId").asString())
-                        .name(record.get("name").asString())
-                        .signature(record.get("signature").asString())
-                        .className(record.get("className").asString())
-                        .score(record.get("score").asDouble())
-                        .type(record.get("type").asString())
-                        .searchType("semantic")
-                        .build());
+        return session.run(FILE_DOC_VECTOR_QUERY, Map.of("k", vectorSearchLimit, "queryVector", queryEmbedding))
+                .list(record -> toSearchResult(record, "semantic"));
     }
 
     /**
@@ -309,28 +357,8 @@ public class ParallelSearchService {
         List<SearchResult> results = new ArrayList<>();
         
         try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
-                CALL db.index.vector.queryNodes('method_embeddings', $k, $queryVector)
-                YIELD node, score
-                RETURN node.id as nodeId,
-                       node.name as name,
-                       node.signature as signature,
-                       node.className as className,
-                       score,
-                       'method' as type
-                ORDER BY score DESC
-                """;
-
-            results = session.run(query, Map.of("k", vectorSearchLimit, "queryVector", queryEmbedding))
-                    .list(record -> SearchResult.builder()
-                            .nodeId(record.get("nodeId").asString())
-                            .name(record.get("name").asString())
-                            .signature(record.get("signature").asString())
-                            .className(record.get("className").asString())
-                            .score(record.get("score").asDouble())
-                            .type(record.get("type").asString())
-                            .searchType("semantic")
-                            .build());
+            results = session.run(METHOD_VECTOR_QUERY, Map.of("k", vectorSearchLimit, "queryVector", queryEmbedding))
+                    .list(record -> toSearchResult(record, "semantic"));
 
             log.debug("Method embedding search completed. Found {} results", results.size());
             
@@ -351,28 +379,8 @@ public class ParallelSearchService {
         List<SearchResult> results = new ArrayList<>();
         
         try (Session session = neo4jDriver.session(sessionConfig)) {
-            String query = """
-                CALL db.index.vector.queryNodes('class_embeddings', $k, $queryVector)
-                YIELD node, score
-                RETURN node.id as nodeId,
-                       node.name as name,
-                       node.fullName as signature,
-                       node.packageName as className,
-                       score,
-                       labels(node)[0] as type
-                ORDER BY score DESC
-                """;
-
-            results = session.run(query, Map.of("k", vectorSearchLimit, "queryVector", queryEmbedding))
-                    .list(record -> SearchResult.builder()
-                            .nodeId(record.get("nodeId").asString())
-                            .name(record.get("name").asString())
-                            .signature(record.get("signature").asString())
-                            .className(record.get("className").asString())
-                            .score(record.get("score").asDouble())
-                            .type(record.get("type").asString().toLowerCase())
-                            .searchType("semantic")
-                            .build());
+            results = session.run(CLASS_VECTOR_QUERY, Map.of("k", vectorSearchLimit, "queryVector", queryEmbedding))
+                    .list(record -> toSearchResult(record, "semantic"));
 
             log.debug("Class embedding search completed. Found {} results", results.size());
             
@@ -388,35 +396,246 @@ public class ParallelSearchService {
      */
     @Async
     public CompletableFuture<List<SearchResult>> unifiedVectorSearch(float[] queryEmbedding) {
-        log.debug("Starting unified vector search across all node types");
-        
-        List<CompletableFuture<List<SearchResult>>> searchFutures = new ArrayList<>();
-        
-        // Search all available vector indexes
-        searchFutures.add(searchMethodEmbeddings(queryEmbedding));
-        searchFutures.add(searchClassEmbeddings(queryEmbedding));
-        searchFutures.add(vectorSearch(queryEmbedding)); // Existing description search
-        
-        // Combine all results
-        return CompletableFuture.allOf(searchFutures.toArray(new CompletableFuture[0]))
-                .thenApply(v -> {
-                    List<SearchResult> allResults = new ArrayList<>();
-                    for (CompletableFuture<List<SearchResult>> future : searchFutures) {
-                        try {
-                            allResults.addAll(future.get());
-                        } catch (Exception e) {
-                            log.error("Failed to get results from search future", e);
-                        }
+        return unifiedVectorSearch(queryEmbedding, QueryDeadline.unbounded().stage(QueryDeadline.SEARCH));
+    }
+
+    /**
+     * Unified vector search bounded by the search stage of the deadline. Indexes are searched in
+     * order of usefulness; once the stage runs out the remaining indexes are skipped and the hits
+     * collected so far are returned.
+     */
+    @Async
+    public CompletableFuture<List<SearchResult>> unifiedVectorSearch(float[] queryEmbedding, QueryDeadline.Stage stage) {
+        return unifiedVectorSearch(queryEmbedding, EnumSet.allOf(SearchIndex.class), vectorSearchLimit, stage);
+    }
+
+    /**
+     * Vector search over the indexes of the retrieval plan, each returning the plan's k hits
+     */
+    @Async
+    public CompletableFuture<List<SearchResult>> unifiedVectorSearch(float[] queryEmbedding,
+                                                                     RetrievalPlanner.RetrievalPlan plan,
+                                                                     QueryDeadline.Stage stage) {
+        return unifiedVectorSearch(queryEmbedding, plan.getVectorIndexes(), plan.getVectorLimit(), stage);
+    }
+
+    private CompletableFuture<List<SearchResult>> unifiedVectorSearch(float[] queryEmbedding, Set<SearchIndex> indexes,
+                                                                      int k, QueryDeadline.Stage stage) {
+        log.debug("Starting unified vector search on {}", indexes);
+
+        Map<String, Object> params = Map.of("k", k, "queryVector", queryEmbedding);
+        List<String> queries = VECTOR_QUERIES_BY_INDEX.entrySet().stream()
+                .filter(entry -> indexes.contains(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .toList();
+        List<SearchResult> allResults = new ArrayList<>();
+
+        try (Session session = neo4jDriver.session(sessionConfig)) {
+            for (int i = 0; i < queries.size(); i++) {
+                if (stage.isExpired()) {
+                    stage.degrade("vector search skipped " + (queries.size() - i)
+                            + " of " + queries.size() + " indexes");
+                    break;
+                }
+                try {
+                    allResults.addAll(session.run(queries.get(i), params, transactionConfig(stage))
+                            .list(record -> toSearchResult(record, "semantic")));
+                } catch (Exception e) {
+                    if (stage.isExpired()) {
+                        stage.degrade("vector search timed out");
+                    } else {
+                        log.error("Vector index search failed", e);
                     }
-                    
-                    // Sort by score and limit results
-                    return allResults.stream()
-                            .sorted((a, b) -> Double.compare(b.getScore(), a.getScore()))
-                            .limit(vectorSearchLimit * 2) // Allow more results for unified search
-                            .toList();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Unified vector search failed", e);
+        }
+
+        // Sort by score and limit results
+        return CompletableFuture.completedFuture(allResults.stream()
+                .sorted((a, b) -> Double.compare(b.getScore(), a.getScore()))
+                .limit(k * 2L) // Allow more results for unified search
+                .toList());
+    }
+
+    /**
+     * Non-blocking full-text search over the async driver
+     */
+    public Mono<List<SearchResult>> fullTextSearchReactive(EnhancedEntityExtractor.ExtractedEntities entities) {
+        List<String> allEntities = new ArrayList<>();
+        allEntities.addAll(entities.getClasses());
+        allEntities.addAll(entities.getMethods());
+        allEntities.addAll(entities.getPackages());
+        allEntities.addAll(entities.getTerms());
+
+        FullTextStatement statement = buildFullTextStatement(entities.getMethods(), entities.getClasses(),
+                entities.getTerms(), allEntities, EnumSet.allOf(SearchIndex.class), fullTextSearchLimit);
+        if (statement == null) {
+            return Mono.just(new ArrayList<>());
+        }
+
+        return reactiveCypherRunner.list(statement.getQuery(), statement.getParams(),
+                        record -> toSearchResult(record, "fulltext"))
+                .onErrorResume(e -> {
+                    log.warn("Combined reactive full-text search failed, searching the indexes one by one: {}",
+                            e.getMessage());
+                    return Flux.fromIterable(statement.getBranches())
+                            .flatMap(branch -> runReactiveSearch(combine(List.of(branch)), statement.getParams(),
+                                    "fulltext"), maxConcurrentSearches)
+                            .flatMapIterable(results -> results)
+                            .sort(Comparator.comparingDouble(SearchResult::getScore).reversed())
+                            .take(fullTextTopK)
+                            .collectList();
+                })
+                .doOnNext(results -> log.debug("Reactive full-text search completed with {} results", results.size()));
+    }
+
+    /**
+     * Non-blocking counterpart of unifiedVectorSearch over the async driver
+     */
+    public Mono<List<SearchResult>> unifiedVectorSearchReactive(float[] queryEmbedding) {
+        Map<String, Object> params = Map.of("k", vectorSearchLimit, "queryVector", queryEmbedding);
+
+        return Flux.fromIterable(VECTOR_QUERIES)
+                .flatMap(query -> runReactiveSearch(query, params, "semantic"), maxConcurrentSearches)
+                .flatMapIterable(results -> results)
+                .sort(Comparator.comparingDouble(SearchResult::getScore).reversed())
+                .take(vectorSearchLimit * 2L)
+                .collectList()
+                .doOnNext(results -> log.debug("Reactive vector search completed with {} results", results.size()));
+    }
+
+    /**
+     * Transaction timeout matching the time left in the stage
+     */
+    private TransactionConfig transactionConfig(QueryDeadline.Stage stage) {
+        Duration remaining = stage.remaining();
+        return remaining != null ? TransactionConfig.builder().withTimeout(remaining).build() : TransactionConfig.empty();
+    }
+
+    /**
+     * Runs one search statement, degrading to an empty list on failure like the blocking searches do
+     */
+    private Mono<List<SearchResult>> runReactiveSearch(String query, Map<String, Object> params, String searchType) {
+        return reactiveCypherRunner.list(query, params, record -> toSearchResult(record, searchType))
+                .onErrorResume(e -> {
+                    log.error("Reactive {} search failed", searchType, e);
+                    return Mono.just(new ArrayList<>());
                 });
     }
 
+    /**
+     * Builds one statement that queries every relevant full-text index among the given ones in a
+     * UNION subquery and returns the overall top K. Returns null when there is nothing to search for.
+     */
+    private FullTextStatement buildFullTextStatement(List<String> methods, List<String> classes,
+                                                     List<String> terms, List<String> allEntities,
+                                                     Set<SearchIndex> indexes, int limit) {
+        List<String> branches = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+
+        if (indexes.contains(SearchIndex.METHOD)) {
+            addBranch(branches, params, METHOD_FULLTEXT_BRANCH, "methodTerms", methods);
+        }
+        if (indexes.contains(SearchIndex.CLASS)) {
+            addBranch(branches, params, CLASS_FULLTEXT_BRANCH, "classTerms", classes);
+        }
+        if (indexes.contains(SearchIndex.DESCRIPTION)) {
+            addBranch(branches, params, DESCRIPTION_FULLTEXT_BRANCH, "descriptionTerms", terms);
+        }
+        if (indexes.contains(SearchIndex.FILE_DOC)) {
+            addBranch(branches, params, FILE_DOC_FULLTEXT_BRANCH, "fileDocTerms", allEntities);
+        }
+
+        if (branches.isEmpty()) {
+            return null;
+        }
+
+        params.put("limit", limit);
+        params.put("topK", fullTextTopK);
+
+        return new FullTextStatement(combine(branches), branches, params);
+    }
+
+    /**
+     * Wraps index branches in one UNION subquery returning the overall top K
+     */
+    private static String combine(List<String> branches) {
+        return "CALL {\n" + String.join("UNION ALL\n", branches) + """
+                }
+                RETURN nodeId, name, signature, className, score, type
+                ORDER BY score DESC
+                LIMIT $topK
+                """;
+    }
+
+    /**
+     * Adds an index branch when its terms produce a non-empty Lucene query
+     */
+    private void addBranch(List<String> branches, Map<String, Object> params,
+                           String branch, String paramName, List<String> terms) {
+        String luceneQuery = toLuceneQuery(terms);
+        if (!luceneQuery.isEmpty()) {
+            branches.add(branch);
+            params.put(paramName, luceneQuery);
+        }
+    }
+
+    /**
+     * Joins terms into a Lucene OR query, escaping query syntax so user input cannot break parsing
+     */
+    static String toLuceneQuery(List<String> terms) {
+        if (terms == null) {
+            return "";
+        }
+        return terms.stream()
+                .filter(term -> term != null && !term.isBlank())
+                .map(String::trim)
+                .map(ParallelSearchService::escapeLucene)
+                .distinct()
+                .collect(Collectors.joining(" OR "));
+    }
+
+    /**
+     * Escapes Lucene special characters word by word; boolean operator words (AND, OR, NOT, TO),
+     * also inside multi-word terms, are lower-cased so they match as words
+     */
+    static String escapeLucene(String term) {
+        return Arrays.stream(WHITESPACE.split(term.trim()))
+                .filter(word -> !word.isEmpty())
+                .map(word -> LUCENE_OPERATORS.contains(word)
+                        ? word.toLowerCase(Locale.ROOT)
+                        : LUCENE_SPECIAL_CHARS.matcher(word).replaceAll("\\\\$1"))
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Maps a search record to a SearchResult. All search queries return the same columns.
+     */
+    private SearchResult toSearchResult(org.neo4j.driver.Record record, String searchType) {
+        return SearchResult.builder()
+                .nodeId(record.get("nodeId").asString())
+                .name(record.get("name").asString())
+                .signature(record.get("signature").asString())
+                .className(record.get("className").asString())
+                .score(record.get("score").asDouble())
+                .type(record.get("type").asString().toLowerCase())
+                .searchType(searchType)
+                .build();
+    }
+
+    /**
+     * Cypher statement with its parameters
+     */
+    @Data
+    @AllArgsConstructor
+    private static class FullTextStatement {
+        private String query;
+        private List<String> branches;
+        private Map<String, Object> params;
+    }
+
     /**
      * Data class for search results
      */
@@ -0,0 +1,210 @@
+package com.tekion.javaastkg.query.services;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency budget for one query. Created when the query starts and passed down the pipeline;
+ * every stage asks for its slice with {@link #stage(String)}, checks it while working and,
+ * when the slice runs out, returns what it has and records itself as degraded.
+ * The degraded stages end up in the response metadata.
+ */
+@Slf4j
+public final class QueryDeadline {
+
+    public static final String INTENT = "intent";
+    public static final String EXTRACTION = "extraction";
+    public static final String TERM_EXPANSION = "termExpansion";
+    public static final String SEARCH = "search";
+    public static final String GRAPH_EXPANSION = "graphExpansion";
+    public static final String RERANKING = "reRanking";
+    public static final String GENERATION = "generation";
+
+    private static final QueryDeadline UNBOUNDED = new QueryDeadline(Long.MAX_VALUE, Map.of());
+
+    private final long budgetMs;
+    private final long startNanos;
+    private final Map<String, Double> slices;
+    private final Map<String, String> degradedStages = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private QueryDeadline(long budgetMs, Map<String, Double> slices) {
+        this.budgetMs = budgetMs;
+        this.startNanos = System.nanoTime();
+        this.slices = slices;
+    }
+
+    /**
+     * Starts a deadline. Slices are fractions of the total budget per stage; stages without
+     * a slice may use whatever is left.
+     */
+    public static QueryDeadline start(long budgetMs, Map<String, Double> slices) {
+        return new QueryDeadline(Math.max(1L, budgetMs), Map.copyOf(slices));
+    }
+
+    /**
+     * Deadline that never expires, for callers without a latency target
+     */
+    public static QueryDeadline unbounded() {
+        return UNBOUNDED;
+    }
+
+    public boolean isBounded() {
+        return this != UNBOUNDED;
+    }
+
+    public long elapsedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public long remainingMs() {
+        return isBounded() ? Math.max(0L, budgetMs - elapsedMs()) : Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return remainingMs() == 0L;
+    }
+
+    /**
+     * Starts the given stage: its budget is its slice of the total, capped by the time left
+     */
+    public Stage stage(String name) {
+        long remaining = remainingMs();
+        Double fraction = slices.get(name);
+        long slice = fraction != null && isBounded() ? Math.round(budgetMs * fraction) : remaining;
+        return new Stage(name, Math.min(slice, remaining));
+    }
+
+    /**
+     * Records that a stage returned partial results; the first reason per stage is kept.
+     * The unbounded deadline is shared between callers, so it only logs.
+     */
+    public void degrade(String stage, String reason) {
+        if (!isBounded()) {
+            log.warn("Stage {} degraded: {}", stage, reason);
+            return;
+        }
+        if (degradedStages.putIfAbsent(stage, reason) == null) {
+            log.warn("Stage {} degraded after {} ms: {}", stage, elapsedMs(), reason);
+        }
+    }
+
+    public boolean isDegraded(String stage) {
+        return degradedStages.containsKey(stage);
+    }
+
+    /**
+     * Degraded stages with their reasons, in the order they degraded
+     */
+    public Map<String, String> getDegradedStages() {
+        synchronized (degradedStages) {
+            return new LinkedHashMap<>(degradedStages);
+        }
+    }
+
+    /**
+     * Budget of one stage, measured from the moment the stage started
+     */
+    public final class Stage {
+        private final String name;
+        private final long budgetMs;
+        private final long startNanos;
+
+        private Stage(String name, long budgetMs) {
+            this.name = name;
+            this.budgetMs = budgetMs;
+            this.startNanos = System.nanoTime();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long remainingMs() {
+            if (budgetMs == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            return Math.max(0L, budgetMs - elapsed);
+        }
+
+        public boolean isExpired() {
+            return remainingMs() == 0L;
+        }
+
+        /**
+         * True when at least the given time is left in this stage
+         */
+        public boolean hasAtLeast(long ms) {
+            return remainingMs() >= ms;
+        }
+
+        /**
+         * Remaining time as a Duration, for driver and client timeouts; null when unbounded
+         */
+        public Duration remaining() {
+            long remaining = remainingMs();
+            return remaining == Long.MAX_VALUE ? null : Duration.ofMillis(Math.max(1L, remaining));
+        }
+
+        public void degrade(String reason) {
+            QueryDeadline.this.degrade(name, reason);
+        }
+
+        public boolean isDegraded() {
+            return QueryDeadline.this.isDegraded(name);
+        }
+
+        /**
+         * Runs blocking work within the stage budget. Unbounded stages run it on the calling
+         * thread; bounded ones run it on the executor and return the fallback on timeout, or
+         * right away when the executor is saturated and rejects the work.
+         */
+        public <T> T call(Supplier<T> work, T fallback, Executor executor) {
+            if (remainingMs() == Long.MAX_VALUE) {
+                return work.get();
+            }
+            CompletableFuture<T> future;
+            try {
+                future = CompletableFuture.supplyAsync(work, executor);
+            } catch (RejectedExecutionException e) {
+                degrade("rejected: executor saturated");
+                return fallback;
+            }
+            return bound(future, fallback).join();
+        }
+
+        /**
+         * Completes with the future's value, or with the fallback once the stage runs out of time.
+         * On timeout the stage is marked degraded and the original future is cancelled.
+         */
+        public <T> CompletableFuture<T> bound(CompletableFuture<T> future, T fallback) {
+            long remaining = remainingMs();
+            if (remaining == Long.MAX_VALUE) {
+                return future;
+            }
+
+            CompletableFuture<T> bounded = new CompletableFuture<>();
+            future.whenComplete((value, error) -> {
+                if (error != null) {
+                    bounded.completeExceptionally(error);
+                } else {
+                    bounded.complete(value);
+                }
+            });
+            CompletableFuture.delayedExecutor(remaining, TimeUnit.MILLISECONDS).execute(() -> {
+                if (bounded.complete(fallback)) {
+                    degrade("timed out after " + budgetMs + " ms");
+                    future.cancel(true);
+                }
+            });
+            return bounded;
+        }
+    }
+}
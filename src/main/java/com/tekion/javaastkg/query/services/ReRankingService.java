@@ -40,6 +40,9 @@ public class ReRankingService {
     @org.springframework.beans.factory.annotation.Value("${query.retrieval.reranking.batch-size:10}")
     private int batchSize;
 
+    @org.springframework.beans.factory.annotation.Value("${query.retrieval.reranking.min-budget-ms:300}")
+    private long minBudgetMs;
+
     public ReRankingService(Driver neo4jDriver,
                            SessionConfig sessionConfig,
                            @Qualifier("queryEmbeddingModel") EmbeddingModel embeddingModel) {
@@ -52,6 +55,13 @@ public class ReRankingService {
      * Re-ranks nodes in a subgraph based on embedding similarity to the original query
      */
     public List<RankedNode> reRank(SubGraph subGraph, String originalQuery) {
+        return reRank(subGraph, originalQuery, QueryDeadline.unbounded().stage(QueryDeadline.RERANKING));
+    }
+
+    /**
+     * Re-ranks within the re-ranking stage of the deadline; embedding lookups stop once it runs out
+     */
+    private List<RankedNode> reRank(SubGraph subGraph, String originalQuery, QueryDeadline.Stage stage) {
         if (!reRankingEnabled || subGraph.isEmpty()) {
             log.debug("Re-ranking disabled or empty subgraph, returning original order");
             return subGraph.getNodesList().stream()
@@ -70,7 +80,7 @@ public class ReRankingService {
             float[] queryEmbedding = embeddingModel.embed(originalQuery).content().vector();
             
             // 2. Get descriptions and precomputed embeddings for all nodes
-            Map<String, NodeEmbeddingData> nodeData = getNodeEmbeddingData(subGraph.getNodesList());
+            Map<String, NodeEmbeddingData> nodeData = getNodeEmbeddingData(subGraph.getNodesList(), stage);
             
             // 3. Score each node based on precomputed embedding similarity
             List<RankedNode> rankedNodes = new ArrayList<>();
@@ -115,7 +125,11 @@ public class ReRankingService {
      * Re-ranks and filters nodes, returning only those above threshold
      */
     public List<RankedNode> reRankAndFilter(SubGraph subGraph, String originalQuery) {
-        List<RankedNode> rankedNodes = reRank(subGraph, originalQuery);
+        return reRankAndFilter(subGraph, originalQuery, QueryDeadline.unbounded().stage(QueryDeadline.RERANKING));
+    }
+
+    private List<RankedNode> reRankAndFilter(SubGraph subGraph, String originalQuery, QueryDeadline.Stage stage) {
+        List<RankedNode> rankedNodes = reRank(subGraph, originalQuery, stage);
         
         List<RankedNode> filtered = rankedNodes.stream()
                 .filter(node -> node.getSimilarityScore() >= reRankThreshold)
@@ -131,12 +145,16 @@ public class ReRankingService {
     /**
      * Gets precomputed embeddings and descriptions for nodes from various sources
      */
-    private Map<String, NodeEmbeddingData> getNodeEmbeddingData(List<GraphNode> nodes) {
+    private Map<String, NodeEmbeddingData> getNodeEmbeddingData(List<GraphNode> nodes, QueryDeadline.Stage stage) {
         Map<String, NodeEmbeddingData> nodeData = new HashMap<>();
         
         try (Session session = neo4jDriver.session(sessionConfig)) {
             // Process nodes in batches for efficiency
             for (int i = 0; i < nodes.size(); i += batchSize) {
+                if (stage.isExpired()) {
+                    stage.degrade("embedding lookup stopped after " + i + " of " + nodes.size() + " nodes");
+                    break;
+                }
                 List<GraphNode> batch = nodes.subList(i, Math.min(i + batchSize, nodes.size()));
                 Map<String, NodeEmbeddingData> batchData = getEmbeddingDataForBatch(session, batch);
                 nodeData.putAll(batchData);
@@ -350,31 +368,47 @@ public class ReRankingService {
      * Applies re-ranking to a SubGraph and returns a filtered SubGraph
      */
     public SubGraph applyReRanking(SubGraph subGraph, String originalQuery) {
-        List<RankedNode> rankedNodes = reRankAndFilter(subGraph, originalQuery);
-        
-        Set<String> acceptedNodeIds = rankedNodes.stream()
-                .map(RankedNode::getNodeId)
-                .collect(Collectors.toSet());
-        
-        Map<String, GraphNode> filteredNodes = subGraph.getNodes().entrySet().stream()
-                .filter(entry -> acceptedNodeIds.contains(entry.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        
-        List<GraphExpander.GraphRelationship> filteredRels = subGraph.getRelationships().stream()
-                .filter(rel -> acceptedNodeIds.contains(rel.getStartNodeId()) && 
-                              acceptedNodeIds.contains(rel.getEndNodeId()))
-                .collect(Collectors.toList());
-        
-        return SubGraph.builder()
-                .nodes(filteredNodes)
-                .relationships(filteredRels)
-                .metadata(Map.of(
-                        "reRanked", true,
-                        "originalNodeCount", subGraph.getNodeCount(),
-                        "reRankedNodeCount", filteredNodes.size(),
-                        "reRankThreshold", reRankThreshold
-                ))
-                .build();
+        return applyReRanking(subGraph, subGraph.handles(), originalQuery);
+    }
+
+    /**
+     * Applies re-ranking using handles already built for the subgraph
+     */
+    public SubGraph applyReRanking(SubGraph subGraph, NodeHandles handles, String originalQuery) {
+        return applyReRanking(subGraph, handles, originalQuery,
+                QueryDeadline.unbounded().stage(QueryDeadline.RERANKING));
+    }
+
+    /**
+     * Applies re-ranking within the re-ranking stage of the deadline. When too little time is
+     * left, or the embedding lookups run out of time, the subgraph is returned un-re-ranked.
+     */
+    public SubGraph applyReRanking(SubGraph subGraph, NodeHandles handles, String originalQuery,
+                                   QueryDeadline.Stage stage) {
+        if (!stage.hasAtLeast(minBudgetMs)) {
+            stage.degrade("skipped, " + stage.remainingMs() + " ms left");
+            return subGraph;
+        }
+
+        List<RankedNode> rankedNodes = reRankAndFilter(subGraph, originalQuery, stage);
+        if (stage.isDegraded()) {
+            return subGraph;
+        }
+
+        BitSet accepted = new BitSet(handles.size());
+        for (RankedNode rankedNode : rankedNodes) {
+            int handle = handles.handleOf(rankedNode.getNodeId());
+            if (handle >= 0) {
+                accepted.set(handle);
+            }
+        }
+
+        return handles.restrict(subGraph, accepted, Map.of(
+                "reRanked", true,
+                "originalNodeCount", subGraph.getNodeCount(),
+                "reRankedNodeCount", accepted.cardinality(),
+                "reRankThreshold", reRankThreshold
+        ));
     }
 
     /**
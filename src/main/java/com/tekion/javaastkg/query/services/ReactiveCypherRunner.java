@@ -0,0 +1,43 @@
+package com.tekion.javaastkg.query.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.async.AsyncSession;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Runs Cypher statements on the async Neo4j driver and exposes the results as Monos.
+ * No thread is held while a statement is in flight; the session is closed on completion,
+ * error or cancellation.
+ */
+@Component
+@Slf4j
+public class ReactiveCypherRunner {
+
+    private final Driver neo4jDriver;
+    private final SessionConfig sessionConfig;
+
+    public ReactiveCypherRunner(Driver neo4jDriver, SessionConfig sessionConfig) {
+        this.neo4jDriver = neo4jDriver;
+        this.sessionConfig = sessionConfig;
+    }
+
+    /**
+     * Runs a statement and maps every record of the result
+     */
+    public <T> Mono<List<T>> list(String query, Map<String, Object> params, Function<Record, T> mapper) {
+        return Mono.usingWhen(
+                Mono.fromSupplier(() -> neo4jDriver.session(AsyncSession.class, sessionConfig)),
+                session -> Mono.fromCompletionStage(() -> session.runAsync(query, params)
+                        .thenCompose(cursor -> cursor.listAsync(mapper))),
+                session -> Mono.fromCompletionStage(session::closeAsync)
+        );
+    }
+}
@@ -0,0 +1,276 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.query.intelligence.IntentBasedSearchStrategy;
+import com.tekion.javaastkg.query.intelligence.IntentBasedSearchStrategy.SearchDepth;
+import com.tekion.javaastkg.query.intelligence.IntentBasedSearchStrategy.SearchStrategy;
+import com.tekion.javaastkg.query.intelligence.QueryIntentAnalyzer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns the intent-based search strategy into the execution plan that retrieval follows:
+ * which full-text and vector indexes are searched, how many hits each returns, how deep and
+ * with which expansion profile the seeds are expanded, and whether re-ranking runs.
+ *
+ * <p>SHALLOW and TARGETED strategies search only the indexes that hold the node types they
+ * focus on, with smaller limits and a single hop; BALANCED drops the file doc vectors; DEEP and
+ * WIDE search everything, WIDE with larger limits. Without an intent the full plan is used.
+ */
+@Service
+@Slf4j
+public class RetrievalPlanner {
+
+    private final IntentBasedSearchStrategy strategyBuilder;
+
+    @Value("${query.retrieval.planner.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query.retrieval.fulltext-search-limit:50}")
+    private int fullTextSearchLimit;
+
+    @Value("${query.retrieval.vector-search-limit:50}")
+    private int vectorSearchLimit;
+
+    @Value("${query.retrieval.initial-limit:100}")
+    private int initialLimit;
+
+    @Value("${query.retrieval.graph-expansion-depth:3}")
+    private int graphExpansionDepth;
+
+    @Value("${query.retrieval.expansion.profiles-enabled:true}")
+    private boolean expansionProfilesEnabled;
+
+    public RetrievalPlanner(IntentBasedSearchStrategy strategyBuilder) {
+        this.strategyBuilder = strategyBuilder;
+    }
+
+    /**
+     * Plans retrieval for the detected intent; the full plan when there is no intent
+     */
+    public RetrievalPlan plan(QueryIntentAnalyzer.QueryIntent intent) {
+        if (!enabled || intent == null) {
+            return fullPlan();
+        }
+        RetrievalPlan plan = plan(strategyBuilder.createStrategy(intent, null), intent.getPrimaryIntent());
+        log.debug("Planned retrieval for {} intent: {}", intent.getPrimaryIntent(), plan.describe());
+        return plan;
+    }
+
+    /**
+     * Plans retrieval for a search strategy, expanding with the profile of the given intent
+     */
+    public RetrievalPlan plan(SearchStrategy strategy, QueryIntentAnalyzer.IntentType intentType) {
+        if (!enabled || strategy == null || strategy.getSearchDepth() == null) {
+            return fullPlan();
+        }
+
+        EnumSet<SearchIndex> fullTextIndexes;
+        EnumSet<SearchIndex> vectorIndexes;
+        double limitFactor;
+        int depth;
+        boolean reRank;
+
+        switch (strategy.getSearchDepth()) {
+            case SHALLOW:
+                fullTextIndexes = EnumSet.of(SearchIndex.METHOD, SearchIndex.CLASS);
+                vectorIndexes = EnumSet.of(SearchIndex.METHOD);
+                limitFactor = 0.4;
+                depth = 1;
+                reRank = false;
+                break;
+            case TARGETED:
+                fullTextIndexes = targetedIndexes(strategy);
+                vectorIndexes = EnumSet.copyOf(fullTextIndexes);
+                limitFactor = 0.5;
+                depth = 1;
+                reRank = false;
+                break;
+            case WIDE:
+                fullTextIndexes = EnumSet.allOf(SearchIndex.class);
+                vectorIndexes = EnumSet.allOf(SearchIndex.class);
+                limitFactor = 1.5;
+                depth = graphExpansionDepth;
+                reRank = true;
+                break;
+            case DEEP:
+                fullTextIndexes = EnumSet.allOf(SearchIndex.class);
+                vectorIndexes = EnumSet.allOf(SearchIndex.class);
+                limitFactor = 1.0;
+                depth = graphExpansionDepth;
+                reRank = true;
+                break;
+            case BALANCED:
+            default:
+                fullTextIndexes = EnumSet.allOf(SearchIndex.class);
+                vectorIndexes = EnumSet.of(SearchIndex.METHOD, SearchIndex.CLASS, SearchIndex.DESCRIPTION);
+                limitFactor = 1.0;
+                depth = graphExpansionDepth;
+                reRank = true;
+                break;
+        }
+
+        // The strategy's own depth and the profile's deepest rule cap the planned one;
+        // no expansion when the strategy asks for none
+        ExpansionProfile profile = expansionProfile(intentType);
+        if (strategy.getGraphExpansionDepth() > 0) {
+            depth = Math.min(depth, strategy.getGraphExpansionDepth());
+        }
+        if (profile != null) {
+            depth = Math.min(depth, profile.getMaxDepth());
+        }
+        if (!strategy.isExpandGraphRelationships()) {
+            depth = 0;
+        }
+
+        int expansionLimit = strategy.getMaxSearchResults() > 0
+                ? Math.min(initialLimit, strategy.getMaxSearchResults()) : initialLimit;
+
+        return RetrievalPlan.builder()
+                .strategyName(strategy.getStrategyName())
+                .searchDepth(strategy.getSearchDepth())
+                .fullTextIndexes(fullTextIndexes)
+                .vectorIndexes(vectorIndexes)
+                .fullTextLimit(scaled(fullTextSearchLimit, limitFactor))
+                .vectorLimit(scaled(vectorSearchLimit, limitFactor))
+                .expansionDepth(depth)
+                .expansionLimit(expansionLimit)
+                .expansionProfile(profile)
+                .reRank(reRank)
+                .build();
+    }
+
+    /**
+     * Every index with the configured limits and depth, expanding with the DEFAULT profile, or the
+     * configured relationship types when profiles are off
+     */
+    public RetrievalPlan fullPlan() {
+        return RetrievalPlan.builder()
+                .strategyName("Full Search")
+                .searchDepth(SearchDepth.DEEP)
+                .fullTextIndexes(EnumSet.allOf(SearchIndex.class))
+                .vectorIndexes(EnumSet.allOf(SearchIndex.class))
+                .fullTextLimit(fullTextSearchLimit)
+                .vectorLimit(vectorSearchLimit)
+                .expansionDepth(graphExpansionDepth)
+                .expansionLimit(initialLimit)
+                .expansionProfile(expansionProfile(null))
+                .reRank(true)
+                .build();
+    }
+
+    /**
+     * Indexes holding the node types a targeted strategy focuses on
+     */
+    private EnumSet<SearchIndex> targetedIndexes(SearchStrategy strategy) {
+        EnumSet<SearchIndex> indexes = EnumSet.noneOf(SearchIndex.class);
+        if (strategy.isFocusOnConfigurationNodes() || strategy.isIncludePropertyFiles()) {
+            indexes.add(SearchIndex.CLASS);
+            indexes.add(SearchIndex.FILE_DOC);
+        }
+        if (strategy.isPrioritizeEnums() || strategy.isFocusOnStatusFields()) {
+            indexes.add(SearchIndex.CLASS);
+            indexes.add(SearchIndex.DESCRIPTION);
+        }
+        if (strategy.isPrioritizeMethodBodies()) {
+            indexes.add(SearchIndex.METHOD);
+        }
+        if (indexes.isEmpty()) {
+            indexes.add(SearchIndex.METHOD);
+            indexes.add(SearchIndex.CLASS);
+        }
+        return indexes;
+    }
+
+    /**
+     * Expansion profile of the intent; null, following the configured relationship types, when profiles are off
+     */
+    private ExpansionProfile expansionProfile(QueryIntentAnalyzer.IntentType intentType) {
+        return expansionProfilesEnabled ? ExpansionProfile.forIntent(intentType) : null;
+    }
+
+    private static int scaled(int limit, double factor) {
+        return Math.max(5, (int) Math.round(limit * factor));
+    }
+
+    /**
+     * The content kinds that have both a full-text and a vector index
+     */
+    public enum SearchIndex {
+        METHOD("method_names", "method_embeddings"),
+        CLASS("class_names", "class_embeddings"),
+        DESCRIPTION("description_content", "description_embeddings"),
+        FILE_DOC("file_doc_content", "file_doc_embeddings");
+
+        private final String fullTextIndex;
+        private final String vectorIndex;
+
+        SearchIndex(String fullTextIndex, String vectorIndex) {
+            this.fullTextIndex = fullTextIndex;
+            this.vectorIndex = vectorIndex;
+        }
+
+        public String getFullTextIndex() {
+            return fullTextIndex;
+        }
+
+        public String getVectorIndex() {
+            return vectorIndex;
+        }
+    }
+
+    /**
+     * Execution plan for one retrieval, with the measured cost of each stage it ran
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RetrievalPlan {
+        private String strategyName;
+        private SearchDepth searchDepth;
+        private Set<SearchIndex> fullTextIndexes;
+        private Set<SearchIndex> vectorIndexes;
+        private int fullTextLimit;
+        private int vectorLimit;
+        private int expansionDepth;
+        private int expansionLimit;
+        private ExpansionProfile expansionProfile;
+        private boolean reRank;
+
+        @Builder.Default
+        private Map<String, Long> stageCostsMs = new ConcurrentHashMap<>();
+
+        /**
+         * Records how long a stage of this plan took
+         */
+        public void recordCost(String stage, long millis) {
+            stageCostsMs.merge(stage, millis, Long::sum);
+        }
+
+        /**
+         * Number of index searches the plan runs
+         */
+        public int indexCount() {
+            return fullTextIndexes.size() + vectorIndexes.size();
+        }
+
+        /**
+         * One-line summary for logs and result metadata
+         */
+        public String describe() {
+            return String.format("%s [%s] fulltext=%s k=%d, vector=%s k=%d, expansion depth=%d limit=%d profile=%s, rerank=%s",
+                    strategyName, searchDepth, fullTextIndexes, fullTextLimit, vectorIndexes, vectorLimit,
+                    expansionDepth, expansionLimit, expansionProfile == null ? "none" : expansionProfile, reRank);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.tekion.javaastkg.query.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.*;
+
+/**
+ * Read-only dictionary of the identifiers in the code graph, used to find class, method and
+ * package names in a query without an LLM call.
+ * Identifiers are split into camelCase/snake_case tokens and stored as token sequences in an
+ * Aho-Corasick automaton over token ids, so one pass over the query tokens finds every
+ * identifier mentioned in it, whether written as "UserService", "user_service" or "user service".
+ * Instances are immutable and safe to share between request threads.
+ */
+public final class SymbolDictionary {
+
+    private static final SymbolDictionary EMPTY = new Builder(0L).build();
+
+    /** Words too generic to count as a mention of a single-token identifier */
+    private static final Set<String> STOPWORDS = Set.of(
+            "the", "and", "for", "with", "from", "into", "that", "this", "what", "where", "which",
+            "when", "how", "does", "work", "code", "class", "method", "function", "package",
+            "get", "set", "data", "value", "type", "list", "map", "string", "object", "name");
+
+    private static final int MIN_SINGLE_TOKEN_LENGTH = 4;
+
+    private final long version;
+    private final Map<String, Integer> tokenIds;
+    private final Map<Long, Integer> transitions;
+    private final int[] fail;
+    private final int[] outputLink;
+    private final int[] depth;
+    private final Map<Integer, Entry> entries;
+    private final int symbolCount;
+
+    private SymbolDictionary(long version, Map<String, Integer> tokenIds, Map<Long, Integer> transitions,
+                             int[] fail, int[] outputLink, int[] depth, Map<Integer, Entry> entries,
+                             int symbolCount) {
+        this.version = version;
+        this.tokenIds = tokenIds;
+        this.transitions = transitions;
+        this.fail = fail;
+        this.outputLink = outputLink;
+        this.depth = depth;
+        this.entries = entries;
+        this.symbolCount = symbolCount;
+    }
+
+    public static SymbolDictionary empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(long version) {
+        return new Builder(version);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int symbolCount() {
+        return symbolCount;
+    }
+
+    public int tokenCount() {
+        return tokenIds.size();
+    }
+
+    public boolean isEmpty() {
+        return symbolCount == 0;
+    }
+
+    /**
+     * True when the token occurs in at least one identifier
+     */
+    public boolean containsToken(String token) {
+        return tokenIds.containsKey(normalize(token.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Finds the identifiers mentioned in a query. Overlapping mentions are resolved in favour of
+     * the longest one; query words that occur inside identifiers but complete none are returned
+     * as terms.
+     */
+    public Matches match(String query) {
+        List<String> words = new ArrayList<>();
+        List<String> tokens = tokenize(query, words);
+        List<Hit> hits = new ArrayList<>();
+
+        int state = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            Integer tokenId = tokenIds.get(tokens.get(i));
+            if (tokenId == null) {
+                state = 0;
+                continue;
+            }
+            state = step(state, tokenId);
+            for (int s = entries.containsKey(state) ? state : outputLink[state]; s > 0; s = outputLink[s]) {
+                int length = depth[s];
+                if (length > 1 || isSignificant(tokens.get(i))) {
+                    hits.add(new Hit(i - length + 1, i + 1, s));
+                }
+            }
+        }
+
+        // Longest mentions first, then left to right; drop mentions inside an accepted one
+        hits.sort(Comparator.comparingInt((Hit h) -> h.start - h.end).thenComparingInt(h -> h.start));
+        BitSet covered = new BitSet(tokens.size());
+        Set<String> classes = new LinkedHashSet<>();
+        Set<String> methods = new LinkedHashSet<>();
+        Set<String> packages = new LinkedHashSet<>();
+        for (Hit hit : hits) {
+            int nextCovered = covered.nextSetBit(hit.start);
+            if (nextCovered >= 0 && nextCovered < hit.end) {
+                continue;
+            }
+            covered.set(hit.start, hit.end);
+            Entry entry = entries.get(hit.state);
+            classes.addAll(entry.classes);
+            methods.addAll(entry.methods);
+            packages.addAll(entry.packages);
+        }
+
+        Set<String> terms = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!covered.get(i) && tokenIds.containsKey(tokens.get(i)) && isSignificant(tokens.get(i))) {
+                terms.add(words.get(i));
+            }
+        }
+
+        return new Matches(new ArrayList<>(classes), new ArrayList<>(methods),
+                new ArrayList<>(packages), new ArrayList<>(terms));
+    }
+
+    private int step(int state, int tokenId) {
+        while (true) {
+            Integer next = transitions.get(key(state, tokenId));
+            if (next != null) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private static boolean isSignificant(String token) {
+        return token.length() >= MIN_SINGLE_TOKEN_LENGTH && !STOPWORDS.contains(token);
+    }
+
+    private static long key(int state, int tokenId) {
+        return ((long) state << 32) | (tokenId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Splits text into lowercase tokens at non-alphanumeric characters, camelCase humps
+     * (including acronyms, as in "HTTPClient") and letter/digit boundaries.
+     */
+    public static List<String> tokenize(String text) {
+        return tokenize(text, null);
+    }
+
+    /**
+     * Tokenizes text; when {@code words} is given it receives each token before plural folding
+     */
+    private static List<String> tokenize(String text, List<String> words) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (!Character.isLetterOrDigit(c)) {
+                if (start >= 0) {
+                    addToken(tokens, words, text.substring(start, i));
+                    start = -1;
+                }
+                continue;
+            }
+            if (start >= 0 && isBoundary(text, i)) {
+                addToken(tokens, words, text.substring(start, i));
+                start = i;
+            }
+            if (start < 0) {
+                start = i;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isBoundary(String text, int i) {
+        char previous = text.charAt(i - 1);
+        char current = text.charAt(i);
+        if (Character.isDigit(previous) != Character.isDigit(current)) {
+            return true;
+        }
+        if (Character.isLowerCase(previous) && Character.isUpperCase(current)) {
+            return true;
+        }
+        // End of an acronym: "HTTPClient" splits before the 'C'
+        return Character.isUpperCase(previous) && Character.isUpperCase(current)
+                && i + 1 < text.length() && Character.isLowerCase(text.charAt(i + 1));
+    }
+
+    private static void addToken(List<String> tokens, List<String> words, String token) {
+        String word = token.toLowerCase(Locale.ROOT);
+        tokens.add(normalize(word));
+        if (words != null) {
+            words.add(word);
+        }
+    }
+
+    /**
+     * Folds simple plurals so "orders" in a query matches "Order" in the code
+     */
+    private static String normalize(String token) {
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    /**
+     * Kinds of identifiers held by the dictionary
+     */
+    public enum SymbolKind {
+        CLASS,
+        METHOD,
+        PACKAGE
+    }
+
+    /**
+     * Identifiers found in a query, by kind, plus identifier tokens that matched no full name
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Matches {
+        private List<String> classes;
+        private List<String> methods;
+        private List<String> packages;
+        private List<String> terms;
+
+        public boolean hasSymbols() {
+            return !classes.isEmpty() || !methods.isEmpty() || !packages.isEmpty();
+        }
+    }
+
+    /**
+     * Distinct identifiers sharing one token sequence
+     */
+    private static final class Entry {
+        private final Set<String> classes = new LinkedHashSet<>();
+        private final Set<String> methods = new LinkedHashSet<>();
+        private final Set<String> packages = new LinkedHashSet<>();
+
+        private void add(SymbolKind kind, String symbol) {
+            switch (kind) {
+                case CLASS:
+                    classes.add(symbol);
+                    break;
+                case METHOD:
+                    methods.add(symbol);
+                    break;
+                case PACKAGE:
+                    packages.add(symbol);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * One mention: query tokens [start, end) spell the token sequence ending in state
+     */
+    private static final class Hit {
+        private final int start;
+        private final int end;
+        private final int state;
+
+        private Hit(int start, int end, int state) {
+            this.start = start;
+            this.end = end;
+            this.state = state;
+        }
+    }
+
+    /**
+     * Accumulates identifiers, then links the trie into an Aho-Corasick automaton
+     */
+    public static final class Builder {
+        private final long version;
+        private final Map<String, Integer> tokenIds = new HashMap<>();
+        private final Map<Long, Integer> transitions = new HashMap<>();
+        private final List<Integer> depths = new ArrayList<>(List.of(0));
+        private final Map<Integer, Entry> entries = new HashMap<>();
+        private int symbolCount;
+
+        private Builder(long version) {
+            this.version = version;
+        }
+
+        /**
+         * Adds an identifier under the given kind; it is matched by its tokens
+         */
+        public Builder add(SymbolKind kind, String symbol) {
+            return add(kind, symbol, symbol);
+        }
+
+        /**
+         * Adds an identifier that is matched by the tokens of {@code text}, e.g. a package by its
+         * last segment
+         */
+        public Builder add(SymbolKind kind, String text, String symbol) {
+            List<String> tokens = tokenize(text);
+            if (kind == null || symbol == null || tokens.isEmpty()) {
+                return this;
+            }
+            int state = 0;
+            for (String token : tokens) {
+                int tokenId = tokenIds.computeIfAbsent(token, t -> tokenIds.size());
+                long key = key(state, tokenId);
+                Integer next = transitions.get(key);
+                if (next == null) {
+                    next = depths.size();
+                    depths.add(depths.get(state) + 1);
+                    transitions.put(key, next);
+                }
+                state = next;
+            }
+            entries.computeIfAbsent(state, s -> new Entry()).add(kind, symbol);
+            symbolCount++;
+            return this;
+        }
+
+        public SymbolDictionary build() {
+            int stateCount = depths.size();
+            int[] depth = new int[stateCount];
+            for (int i = 0; i < stateCount; i++) {
+                depth[i] = depths.get(i);
+            }
+
+            // Children per state, for the breadth-first failure-link pass
+            Map<Integer, List<long[]>> children = new HashMap<>();
+            transitions.forEach((key, child) -> children
+                    .computeIfAbsent((int) (key >>> 32), s -> new ArrayList<>())
+                    .add(new long[]{key & 0xFFFFFFFFL, child}));
+
+            int[] fail = new int[stateCount];
+            int[] outputLink = new int[stateCount];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (long[] edge : children.getOrDefault(0, List.of())) {
+                queue.add((int) edge[1]);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (long[] edge : children.getOrDefault(state, List.of())) {
+                    int tokenId = (int) edge[0];
+                    int child = (int) edge[1];
+                    int f = fail[state];
+                    Integer target = null;
+                    while (target == null) {
+                        target = transitions.get(key(f, tokenId));
+                        if (target == null && f == 0) {
+                            target = 0;
+                        }
+                        f = fail[f];
+                    }
+                    fail[child] = target;
+                    outputLink[child] = entries.containsKey(target) ? target : outputLink[target];
+                    queue.add(child);
+                }
+            }
+
+            return new SymbolDictionary(version, Map.copyOf(tokenIds), Map.copyOf(transitions),
+                    fail, outputLink, depth, Map.copyOf(entries), symbolCount);
+        }
+    }
+}
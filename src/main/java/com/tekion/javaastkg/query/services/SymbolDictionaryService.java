@@ -0,0 +1,119 @@
+package com.tekion.javaastkg.query.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Owns the symbol dictionary of class, method and package names used for LLM-free entity
+ * extraction. The dictionary is rebuilt from Neo4j after each ingestion and swapped in atomically.
+ */
+@Service
+@Slf4j
+public class SymbolDictionaryService {
+
+    private static final String SYMBOL_QUERY = """
+            MATCH (n)
+            WHERE (n:Class OR n:Interface OR n:Enum OR n:Method) AND n.name IS NOT NULL
+            RETURN labels(n)[0] AS label, n.name AS name, n.packageName AS packageName
+            """;
+
+    private final Driver neo4jDriver;
+    private final SessionConfig sessionConfig;
+    private final AtomicReference<SymbolDictionary> current = new AtomicReference<>(SymbolDictionary.empty());
+    private final AtomicLong versionCounter = new AtomicLong();
+
+    @Value("${query.symbol-dictionary.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query.symbol-dictionary.build-on-startup:true}")
+    private boolean buildOnStartup;
+
+    public SymbolDictionaryService(Driver neo4jDriver, SessionConfig sessionConfig) {
+        this.neo4jDriver = neo4jDriver;
+        this.sessionConfig = sessionConfig;
+    }
+
+    /**
+     * Returns the current dictionary; empty until the first build completes
+     */
+    public SymbolDictionary current() {
+        return current.get();
+    }
+
+    /**
+     * True when extraction should consult the dictionary
+     */
+    public boolean isAvailable() {
+        return enabled && !current.get().isEmpty();
+    }
+
+    /**
+     * Builds the first dictionary in the background once the application is up
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled && buildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the dictionary from Neo4j and swaps it in. On failure the previous dictionary is kept.
+     */
+    public synchronized SymbolDictionary rebuild() {
+        if (!enabled) {
+            return current.get();
+        }
+
+        long startTime = System.currentTimeMillis();
+        log.info("Building symbol dictionary");
+
+        try (Session session = neo4jDriver.session(sessionConfig)) {
+            SymbolDictionary.Builder builder = SymbolDictionary.builder(versionCounter.incrementAndGet());
+            Set<String> packages = new HashSet<>();
+
+            Result result = session.run(SYMBOL_QUERY);
+            while (result.hasNext()) {
+                Record record = result.next();
+                String name = record.get("name").asString();
+                String packageName = record.get("packageName", (String) null);
+
+                builder.add("Method".equals(record.get("label", "")) ? SymbolDictionary.SymbolKind.METHOD
+                        : SymbolDictionary.SymbolKind.CLASS, name);
+                if (packageName != null && packages.add(packageName)) {
+                    // Packages are mentioned by their last segment far more often than in full
+                    builder.add(SymbolDictionary.SymbolKind.PACKAGE, packageName);
+                    builder.add(SymbolDictionary.SymbolKind.PACKAGE,
+                            packageName.substring(packageName.lastIndexOf('.') + 1), packageName);
+                }
+            }
+
+            SymbolDictionary dictionary = builder.build();
+            current.set(dictionary);
+
+            log.info("Symbol dictionary v{} built in {} ms: {} symbols, {} distinct tokens",
+                    dictionary.getVersion(), System.currentTimeMillis() - startTime,
+                    dictionary.symbolCount(), dictionary.tokenCount());
+            return dictionary;
+
+        } catch (Exception e) {
+            log.error("Failed to build symbol dictionary, keeping v{}", current.get().getVersion(), e);
+            return current.get();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.tekion.javaastkg.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Small in-process cache bounded by entry count and, optionally, by time since write.
+ * Entries are kept in access order and the least recently used entry is evicted once the cache
+ * is full. Hits, misses, evictions and expirations are counted for monitoring.
+ * Thread-safe; loaders run outside the lock, so two threads may load the same key concurrently.
+ */
+public final class BoundedCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param name      name used in stats and logs
+     * @param maxSize   maximum number of entries
+     * @param ttlMillis time an entry stays valid after it was written; 0 or less never expires
+     */
+    public BoundedCache(String name, int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache " + name + " needs a positive size: " + maxSize);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis > 0 ? ttlMillis * 1_000_000L : 0L;
+        this.entries = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, or null when absent or expired
+     */
+    public V get(K key) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && isExpired(entry, now)) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /**
+     * Caches a value; null values are not cached
+     */
+    public void put(K key, V value) {
+        if (value == null) {
+            return;
+        }
+        Entry<V> entry = new Entry<>(value, System.nanoTime());
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Returns the cached value or loads, caches and returns it. A null result is returned but not cached.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        V loaded = loader.apply(key);
+        put(key, loaded);
+        return loaded;
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Drops every expired entry; lookups drop them lazily, this reclaims the ones never looked up again
+     */
+    public int purgeExpired() {
+        if (ttlNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        int purged = 0;
+        synchronized (entries) {
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (isExpired(iterator.next(), now)) {
+                    iterator.remove();
+                    purged++;
+                }
+            }
+        }
+        expirations.add(purged);
+        return purged;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Stats stats() {
+        return new Stats(name, size(), maxSize, hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return ttlNanos > 0 && now - entry.writtenAt > ttlNanos;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long writtenAt;
+
+        private Entry(V value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    /**
+     * Point-in-time counters of a cache
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private String name;
+        private int size;
+        private int maxSize;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long expirations;
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : hits / (double) requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: size=%d/%d hits=%d misses=%d hitRate=%.2f evictions=%d expirations=%d",
+                    name, size, maxSize, hits, misses, getHitRate(), evictions, expirations);
+        }
+    }
+}
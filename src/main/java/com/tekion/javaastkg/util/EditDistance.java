@@ -0,0 +1,141 @@
+package com.tekion.javaastkg.util;
+
+/**
+ * Levenshtein distance with an early cutoff. Strings whose shorter side fits in 64 characters
+ * use Myers' bit-parallel algorithm, one word operation per character of the longer side and no
+ * allocation; longer pairs fall back to a two-row dynamic programme. Either way the computation
+ * stops as soon as the distance is known to exceed the cutoff.
+ */
+public final class EditDistance {
+
+    private static final int ASCII = 128;
+
+    /**
+     * Per-thread match masks of the pattern's ASCII characters, cleared after every call
+     */
+    private static final ThreadLocal<long[]> PATTERN_MASKS = ThreadLocal.withInitial(() -> new long[ASCII]);
+
+    private EditDistance() {
+    }
+
+    /**
+     * Edit distance between the two strings, or {@code maxDistance + 1} once it exceeds {@code maxDistance}
+     */
+    public static int levenshtein(CharSequence first, CharSequence second, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Cutoff must not be negative: " + maxDistance);
+        }
+        CharSequence pattern = first.length() <= second.length() ? first : second;
+        CharSequence text = pattern == first ? second : first;
+
+        // The distance is at least the difference in length
+        if (text.length() - pattern.length() > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (pattern.length() == 0) {
+            return text.length();
+        }
+        return pattern.length() <= Long.SIZE
+                ? bitParallel(pattern, text, maxDistance)
+                : twoRow(pattern, text, maxDistance);
+    }
+
+    /**
+     * Myers / Hyyro bit-vector algorithm: the vertical deltas of one DP column are held in two
+     * words and the last row's score is tracked as the column advances over the text
+     */
+    private static int bitParallel(CharSequence pattern, CharSequence text, int maxDistance) {
+        int m = pattern.length();
+        int n = text.length();
+        long[] masks = PATTERN_MASKS.get();
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < ASCII) {
+                masks[c] |= 1L << i;
+            }
+        }
+
+        try {
+            long positive = -1L;
+            long negative = 0L;
+            long lastRow = 1L << (m - 1);
+            int score = m;
+
+            for (int j = 0; j < n; j++) {
+                char c = text.charAt(j);
+                long equal = c < ASCII ? masks[c] : nonAsciiMask(pattern, c);
+
+                long vertical = equal | negative;
+                long horizontal = (((equal & positive) + positive) ^ positive) | equal;
+                long horizontalPositive = negative | ~(horizontal | positive);
+                long horizontalNegative = positive & horizontal;
+
+                if ((horizontalPositive & lastRow) != 0) {
+                    score++;
+                } else if ((horizontalNegative & lastRow) != 0) {
+                    score--;
+                }
+
+                // Row 0 grows by one per text character
+                horizontalPositive = (horizontalPositive << 1) | 1L;
+                horizontalNegative = horizontalNegative << 1;
+                positive = horizontalNegative | ~(vertical | horizontalPositive);
+                negative = horizontalPositive & vertical;
+
+                // Each remaining character lowers the score by at most one
+                if (score - (n - j - 1) > maxDistance) {
+                    return maxDistance + 1;
+                }
+            }
+            return score <= maxDistance ? score : maxDistance + 1;
+
+        } finally {
+            for (int i = 0; i < m; i++) {
+                char c = pattern.charAt(i);
+                if (c < ASCII) {
+                    masks[c] = 0L;
+                }
+            }
+        }
+    }
+
+    private static long nonAsciiMask(CharSequence pattern, char c) {
+        long mask = 0L;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == c) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Classic dynamic programme over two rows, abandoned once a whole row exceeds the cutoff
+     */
+    private static int twoRow(CharSequence pattern, CharSequence text, int maxDistance) {
+        int m = pattern.length();
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int i = 0; i <= m; i++) {
+            previous[i] = i;
+        }
+
+        for (int j = 1; j <= text.length(); j++) {
+            char c = text.charAt(j - 1);
+            current[0] = j;
+            int rowMin = j;
+            for (int i = 1; i <= m; i++) {
+                int substitution = previous[i - 1] + (pattern.charAt(i - 1) == c ? 0 : 1);
+                current[i] = Math.min(substitution, Math.min(previous[i], current[i - 1]) + 1);
+                rowMin = Math.min(rowMin, current[i]);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m] <= maxDistance ? previous[m] : maxDistance + 1;
+    }
+}
@@ -0,0 +1,24 @@
+package com.tekion.javaastkg.util;
+
+/**
+ * Rough token counts for prompt budgeting and savings reports, without a model tokenizer.
+ * English prose and code average about four characters per token for the GPT-4 family;
+ * the estimate rounds up so budgets err on the safe side.
+ */
+public final class TokenEstimator {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * Estimated number of tokens in a text; null and empty texts have none
+     */
+    public static int estimate(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
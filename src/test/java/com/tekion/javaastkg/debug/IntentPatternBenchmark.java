@@ -0,0 +1,169 @@
+package com.tekion.javaastkg.debug;
+
+import com.tekion.javaastkg.query.intelligence.KeywordPatternMatcher;
+import com.tekion.javaastkg.query.intelligence.QueryIntentAnalyzer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Micro-benchmark comparing the single-pass keyword automaton used by QueryIntentAnalyzer
+ * against scanning the query once per regex, as the analyzer used to do.
+ * That both produce the same intent scores and contexts for every corpus query is checked by
+ * KeywordPatternMatcherTest, which shares the corpus and both scans.
+ * Run the main method with a warmed-up JVM; times are averages per query.
+ */
+public class IntentPatternBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 10_000;
+
+    public static final List<String> CORPUS = List.of(
+            "How does the payment retry logic work?",
+            "where is UserService used",
+            "what uses the OrderRepository in the billing module",
+            "configuration for the neo4j connection pool",
+            "which class is responsible for sending invoice emails",
+            "what are the possible states of a repair order",
+            "how is pagination implemented in the search api",
+            "who calls validateCustomer and what depends on it",
+            "environment variables needed to run the ingestion pipeline locally",
+            "show me all related classes that extend BaseController",
+            "latest changes to the deprecated pricing engine",
+            "best practice for caching embeddings with good performance",
+            "status of the deal workflow after approval",
+            "what handles webhook retries and processes failed deliveries",
+            "properties of the @ConfigurationProperties class for llm settings",
+            "logic behind the discount calculation for new customers",
+            "source of the OAuth token refresh",
+            "which component manages the scheduler and controls job phases",
+            "references to the old vehicle inventory service",
+            "implementation of the graph expansion algorithm for n-hop traversal",
+            "only the main entry points of the query controller",
+            "progress of long running imports and their execution status",
+            "dependencies of the embedding service",
+            "efficient way to find every method called by processOrder",
+            "explain the service for appointment reminders",
+            "Find DealerService",
+            "what is the recently added security filter connected to",
+            "settings for the spoon api client timeouts",
+            "how does the cache eviction work for the current graph snapshot",
+            "consumers of the order created event that inherits from BaseEvent");
+
+    public static void main(String[] args) {
+        KeywordPatternMatcher<Enum<?>> matcher = analyzerMatcher();
+        Map<Enum<?>, List<Pattern>> patternsByKey = patternsByKey(matcher);
+
+        System.out.println("=== Intent/context pattern benchmark ===");
+        System.out.printf("%d rules, %d corpus queries%n%n", matcher.getRules().size(), CORPUS.size());
+
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (String query : CORPUS) {
+                sink += scanPerPattern(patternsByKey, query).size() + scanOnce(matcher, query).size();
+            }
+        }
+
+        long perPatternNanos = 0;
+        long automatonNanos = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String query : CORPUS) {
+                sink += scanPerPattern(patternsByKey, query).size();
+            }
+            long middle = System.nanoTime();
+            for (String query : CORPUS) {
+                sink += scanOnce(matcher, query).size();
+            }
+            perPatternNanos += middle - start;
+            automatonNanos += System.nanoTime() - middle;
+        }
+
+        long queries = (long) MEASURED_ROUNDS * CORPUS.size();
+        double perPattern = (double) perPatternNanos / queries;
+        double automaton = (double) automatonNanos / queries;
+        System.out.printf("Per-pattern scan:  %8.0f ns/query%n", perPattern);
+        System.out.printf("Keyword automaton: %8.0f ns/query%n", automaton);
+        System.out.printf("Speedup:           %8.1fx%n", perPattern / automaton);
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * The keyword automaton QueryIntentAnalyzer matches queries with
+     */
+    @SuppressWarnings("unchecked")
+    public static KeywordPatternMatcher<Enum<?>> analyzerMatcher() {
+        return (KeywordPatternMatcher<Enum<?>>)
+                ReflectionTestUtils.getField(QueryIntentAnalyzer.class, "PATTERN_MATCHER");
+    }
+
+    /**
+     * The automaton's rules as independent patterns, grouped by category as the old pattern maps were
+     */
+    public static Map<Enum<?>, List<Pattern>> patternsByKey(KeywordPatternMatcher<Enum<?>> matcher) {
+        Map<Enum<?>, List<Pattern>> patternsByKey = new LinkedHashMap<>();
+        for (KeywordPatternMatcher.Rule<Enum<?>> rule : matcher.getRules()) {
+            patternsByKey.computeIfAbsent(rule.getKey(), key -> new ArrayList<>()).add(rule.getPattern());
+        }
+        return patternsByKey;
+    }
+
+    /**
+     * The previous approach: every intent pattern scans the query and rescans it for scoring,
+     * every context pattern scans it for all of its matches
+     */
+    public static Map<Enum<?>, Object> scanPerPattern(Map<Enum<?>, List<Pattern>> patternsByKey, String query) {
+        Map<Enum<?>, Object> result = new LinkedHashMap<>();
+        String lowerQuery = query.toLowerCase();
+        for (Map.Entry<Enum<?>, List<Pattern>> entry : patternsByKey.entrySet()) {
+            if (entry.getKey() instanceof QueryIntentAnalyzer.IntentType) {
+                double maxScore = 0.0;
+                for (Pattern pattern : entry.getValue()) {
+                    if (pattern.matcher(query).find()) {
+                        double score = 0.8;
+                        if (pattern.matcher(query).find() && lowerQuery.startsWith(pattern.pattern().toLowerCase())) {
+                            score += 0.2;
+                        }
+                        maxScore = Math.max(maxScore, score);
+                    }
+                }
+                if (maxScore > 0) {
+                    result.put(entry.getKey(), maxScore);
+                }
+            } else {
+                List<String> matches = new ArrayList<>();
+                for (Pattern pattern : entry.getValue()) {
+                    Matcher m = pattern.matcher(query);
+                    while (m.find()) {
+                        matches.add(m.group());
+                    }
+                }
+                if (!matches.isEmpty()) {
+                    result.put(entry.getKey(), matches);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The analyzer's approach: one pass, then intent scores and contexts from the hits
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Enum<?>, Object> scanOnce(KeywordPatternMatcher<Enum<?>> matcher, String query) {
+        Map<Enum<?>, Object> result = new LinkedHashMap<>();
+        String lowerQuery = query.toLowerCase();
+        for (KeywordPatternMatcher.Hit<Enum<?>> hit : matcher.findAll(query)) {
+            if (hit.getKey() instanceof QueryIntentAnalyzer.IntentType) {
+                Pattern pattern = matcher.getRules().get(hit.getRuleIndex()).getPattern();
+                double score = lowerQuery.startsWith(pattern.pattern().toLowerCase()) ? 1.0 : 0.8;
+                result.merge(hit.getKey(), score, (a, b) -> Math.max((Double) a, (Double) b));
+            } else {
+                ((List<String>) result.computeIfAbsent(hit.getKey(), key -> new ArrayList<String>())).add(hit.getText());
+            }
+        }
+        return result;
+    }
+}
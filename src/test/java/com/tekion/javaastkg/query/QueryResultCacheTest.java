@@ -0,0 +1,42 @@
+package com.tekion.javaastkg.query;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies which query variants share a cache key
+ */
+class QueryResultCacheTest {
+
+    @Test
+    void ignoresCasePunctuationStopWordsAndPlurals() {
+        assertEquals(QueryResultCache.canonicalize("How does the order pricing work?"),
+                QueryResultCache.canonicalize("how does order pricing work"));
+        assertEquals(QueryResultCache.canonicalize("Where are the OrderServices used"),
+                QueryResultCache.canonicalize("where is orderservice used"));
+    }
+
+    @Test
+    void keepsInterrogatives() {
+        assertEquals("how order pricing work", QueryResultCache.canonicalize("How does order pricing work?"));
+        assertNotEquals(QueryResultCache.canonicalize("where is tax calculated"),
+                QueryResultCache.canonicalize("why is tax calculated"));
+        assertNotEquals(QueryResultCache.canonicalize("what calls processOrder"),
+                QueryResultCache.canonicalize("which calls processOrder"));
+        assertNotEquals(QueryResultCache.canonicalize("when is the invoice sent"),
+                QueryResultCache.canonicalize("how is the invoice sent"));
+    }
+
+    @Test
+    void keepsWordOrder() {
+        assertNotEquals(QueryResultCache.canonicalize("does OrderService call PaymentService"),
+                QueryResultCache.canonicalize("does PaymentService call OrderService"));
+    }
+
+    @Test
+    void handlesEmptyQueries() {
+        assertEquals("", QueryResultCache.canonicalize(null));
+        assertEquals("", QueryResultCache.canonicalize("   ?"));
+    }
+}
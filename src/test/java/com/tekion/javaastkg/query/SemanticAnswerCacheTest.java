@@ -0,0 +1,102 @@
+package com.tekion.javaastkg.query;
+
+import com.tekion.javaastkg.query.services.GraphVersionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies when a cached answer is reused for a paraphrase and when it is rejected
+ */
+class SemanticAnswerCacheTest {
+
+    private static final int DIMENSION = 64;
+
+    private final Random random = new Random(7);
+    private GraphVersionService graphVersionService;
+    private SemanticAnswerCache cache;
+    private float[] question;
+
+    @BeforeEach
+    void setUp() {
+        graphVersionService = new GraphVersionService();
+        cache = new SemanticAnswerCache(graphVersionService);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "similarityThreshold", 0.92);
+        ReflectionTestUtils.setField(cache, "minOverlap", 0.5);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "hashTables", 4);
+        ReflectionTestUtils.setField(cache, "hashBits", 8);
+        cache.initialize();
+
+        question = randomVector();
+        cache.store(question, List.of("a", "b", "c"), "Tax is calculated in TaxService.calculate");
+    }
+
+    @Test
+    void paraphraseWithTheSameRetrievalIsAHit() {
+        SemanticAnswerCache.Match match = cache.lookup(paraphrase(question), List.of("a", "b", "c", "d"), false);
+
+        assertNotNull(match);
+        assertEquals("Tax is calculated in TaxService.calculate", match.getAnswer());
+        assertTrue(match.getSimilarity() >= 0.92);
+        assertEquals(0.75, match.getOverlap(), 1e-9);
+        assertEquals(1, cache.getStats().getHits());
+    }
+
+    @Test
+    void similarQueryThatRetrievedOtherNodesIsAFalseHit() {
+        assertNull(cache.lookup(paraphrase(question), List.of("a", "x", "y", "z"), false));
+
+        SemanticAnswerCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.getFalseHits());
+        assertEquals(0, stats.getHits());
+    }
+
+    @Test
+    void unrelatedQueryIsAMiss() {
+        assertNull(cache.lookup(randomVector(), List.of("a", "b", "c"), false));
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    void answersFromAnOlderGraphVersionAreNotReused() {
+        graphVersionService.bump();
+
+        assertNull(cache.lookup(question, List.of("a", "b", "c"), false));
+        SemanticAnswerCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(0, stats.getSize());
+    }
+
+    @Test
+    void bypassSkipsTheLookup() {
+        assertNull(cache.lookup(question, List.of("a", "b", "c"), true));
+        assertEquals(1, cache.getStats().getBypassed());
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    /**
+     * The vector with a little noise added, as the embedding of a rewording would be
+     */
+    private float[] paraphrase(float[] vector) {
+        float[] paraphrase = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            paraphrase[i] = vector[i] + (float) (0.1 * random.nextGaussian());
+        }
+        return paraphrase;
+    }
+}
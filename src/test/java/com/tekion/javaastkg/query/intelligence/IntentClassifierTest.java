@@ -0,0 +1,72 @@
+package com.tekion.javaastkg.query.intelligence;
+
+import com.tekion.javaastkg.query.intelligence.QueryIntentAnalyzer.IntentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies classification and retraining from recorded decisions, without the shipped training
+ * queries or a decision log, so the model only knows what the test records
+ */
+class IntentClassifierTest {
+
+    private IntentClassifier classifier;
+
+    @BeforeEach
+    void setUp() {
+        classifier = new IntentClassifier();
+        ReflectionTestUtils.setField(classifier, "trainingResource", "intent/no-such-training.tsv");
+        ReflectionTestUtils.setField(classifier, "decisionLog", "");
+        ReflectionTestUtils.setField(classifier, "retrainEvery", 0);
+        ReflectionTestUtils.setField(classifier, "temperature", 0.05);
+        ReflectionTestUtils.setField(classifier, "maxRecordedDecisions", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        classifier.shutdown();
+    }
+
+    @Test
+    void anUntrainedClassifierScoresNothing() {
+        classifier.retrain();
+
+        assertFalse(classifier.isTrained());
+        assertTrue(classifier.classify("who calls the payment service").isEmpty());
+    }
+
+    @Test
+    void retrainingLearnsRecordedDecisions() {
+        classifier.recordDecision("who calls the payment service", IntentType.USAGE);
+        classifier.recordDecision("where is validateOrder used", IntentType.USAGE);
+        classifier.recordDecision("how is the order total calculated", IntentType.IMPLEMENTATION);
+        classifier.recordDecision("how does the payment retry work", IntentType.IMPLEMENTATION);
+        assertTrue(classifier.classify("who calls validateOrder").isEmpty());
+
+        classifier.retrain();
+        Map<IntentType, Double> scores = classifier.classify("who calls validateOrder");
+
+        assertEquals(Set.of(IntentType.USAGE, IntentType.IMPLEMENTATION), scores.keySet());
+        assertEquals(1.0, scores.values().stream().mapToDouble(Double::doubleValue).sum(), 1e-9);
+        assertTrue(scores.get(IntentType.USAGE) > scores.get(IntentType.IMPLEMENTATION));
+    }
+
+    @Test
+    void onlyTheMostRecentDecisionsAreKept() {
+        ReflectionTestUtils.setField(classifier, "maxRecordedDecisions", 1);
+        classifier.recordDecision("who calls the payment service", IntentType.USAGE);
+        classifier.recordDecision("how is the order total calculated", IntentType.IMPLEMENTATION);
+
+        classifier.retrain();
+
+        // The older USAGE decision was dropped, so the model only knows IMPLEMENTATION
+        assertEquals(Set.of(IntentType.IMPLEMENTATION), classifier.classify("who calls the payment service").keySet());
+    }
+}
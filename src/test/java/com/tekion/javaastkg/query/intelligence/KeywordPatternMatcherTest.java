@@ -0,0 +1,41 @@
+package com.tekion.javaastkg.query.intelligence;
+
+import com.tekion.javaastkg.debug.IntentPatternBenchmark;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that the analyzer's keyword automaton yields the same intent scores and contexts as
+ * scanning the query once per pattern, over the benchmark corpus
+ */
+class KeywordPatternMatcherTest {
+
+    @Test
+    void automatonMatchesPerPatternScanOnTheCorpus() {
+        KeywordPatternMatcher<Enum<?>> matcher = IntentPatternBenchmark.analyzerMatcher();
+        Map<Enum<?>, List<Pattern>> patternsByKey = IntentPatternBenchmark.patternsByKey(matcher);
+
+        for (String query : IntentPatternBenchmark.CORPUS) {
+            assertEquals(IntentPatternBenchmark.scanPerPattern(patternsByKey, query),
+                    IntentPatternBenchmark.scanOnce(matcher, query), query);
+        }
+    }
+
+    @Test
+    void findsOverlappingKeywordsCaseInsensitively() {
+        KeywordPatternMatcher<String> matcher = KeywordPatternMatcher.<String>builder()
+                .add("usage", "uses", "uses")
+                .add("usage", "used", "used\\s+by")
+                .add("impl", "implement", "implement\\w*")
+                .build();
+
+        List<KeywordPatternMatcher.Hit<String>> hits = matcher.findAll("Who USES it, and where is it Used By the implementation");
+        assertEquals(List.of("USES", "Used By", "implementation"),
+                hits.stream().map(KeywordPatternMatcher.Hit::getText).toList());
+    }
+}
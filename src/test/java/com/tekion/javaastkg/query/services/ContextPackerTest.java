@@ -0,0 +1,61 @@
+package com.tekion.javaastkg.query.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies budget, score order and diversity of the prompt context packer
+ */
+class ContextPackerTest {
+
+    private static ContextPacker.Item method(String id, String name, String className, double score, int tokens) {
+        return new ContextPacker.Item(id, "method", "x".repeat(tokens * 4), score,
+                Set.of("name:" + name, "class:" + className));
+    }
+
+    private static List<String> ids(ContextPacker.Packed packed) {
+        return packed.getItems().stream().map(ContextPacker.Item::getId).toList();
+    }
+
+    @Test
+    void ordersByScoreWithoutDiversity() {
+        ContextPacker.Packed packed = ContextPacker.pack(List.of(
+                method("a", "save", "Repo", 0.2, 10),
+                method("b", "load", "Repo", 0.9, 10),
+                method("c", "find", "Repo", 0.5, 10)), 1000, 1.0);
+
+        assertEquals(List.of("b", "c", "a"), ids(packed));
+        assertEquals(30, packed.getTokens());
+        assertEquals(0, packed.getDroppedCount());
+    }
+
+    @Test
+    void stopsAtTheBudgetAndCountsDroppedItems() {
+        ContextPacker.Packed packed = ContextPacker.pack(List.of(
+                method("a", "save", "Repo", 0.9, 40),
+                method("b", "load", "Repo", 0.8, 40),
+                method("c", "find", "Repo", 0.7, 15),
+                new ContextPacker.Item("d", "class", "x".repeat(200), 0.6, Set.of("class:repo"))), 100, 1.0);
+
+        assertEquals(List.of("a", "b", "c"), ids(packed));
+        assertTrue(packed.getTokens() <= 100);
+        assertEquals(Map.of("class", 1), packed.getDropped());
+    }
+
+    @Test
+    void overloadsDoNotCrowdOutOtherMethods() {
+        ContextPacker.Packed packed = ContextPacker.pack(List.of(
+                method("calc1", "calculate", "TaxService", 1.0, 10),
+                method("calc2", "calculate", "TaxService", 0.98, 10),
+                method("calc3", "calculate", "TaxService", 0.97, 10),
+                method("rate", "lookupRate", "TaxRateRepository", 0.8, 10)), 20, 0.7);
+
+        assertEquals(List.of("calc1", "rate"), ids(packed));
+        assertEquals(Map.of("method", 2), packed.getDropped());
+    }
+}
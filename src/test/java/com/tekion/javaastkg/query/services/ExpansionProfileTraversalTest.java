@@ -0,0 +1,70 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.model.EdgeType;
+import com.tekion.javaastkg.query.services.ExpansionProfile.Direction;
+import com.tekion.javaastkg.query.services.ExpansionProfile.EdgeRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that profile traversal honours direction, per-rule depth and fan-out on a known snapshot:
+ *
+ * <pre>
+ *   caller2 --CALLS--> caller1 --CALLS--> seed --CALLS--> callee
+ *   caller3 --CALLS--> seed                seed --DECLARES--> local
+ *   Owner --CONTAINS--> seed
+ * </pre>
+ */
+class ExpansionProfileTraversalTest {
+
+    private static GraphSnapshot knownSnapshot() {
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(1L);
+        for (String id : List.of("seed", "caller1", "caller2", "caller3", "callee", "local", "Owner")) {
+            builder.addNode(id, "Method");
+        }
+        builder.addEdge(EdgeType.CALLS, "caller2", "caller1");
+        builder.addEdge(EdgeType.CALLS, "caller1", "seed");
+        builder.addEdge(EdgeType.CALLS, "caller3", "seed");
+        builder.addEdge(EdgeType.CALLS, "seed", "callee");
+        builder.addEdge(EdgeType.DECLARES, "seed", "local");
+        builder.addEdge(EdgeType.CONTAINS, "Owner", "seed");
+        return builder.build();
+    }
+
+    private static Set<String> reached(GraphSnapshot snapshot, ExpansionProfile profile, int depth) {
+        GraphSnapshot.Traversal traversal = snapshot.traverse(
+                new int[]{snapshot.indexOf("seed")}, depth, 50, 100, profile, index -> true);
+        Set<String> ids = new HashSet<>();
+        for (int index : traversal.getNodes()) {
+            ids.add(snapshot.idOf(index));
+        }
+        return ids;
+    }
+
+    @Test
+    void usageFollowsIncomingCallsOnly() {
+        assertEquals(Set.of("seed", "caller1", "caller2", "caller3", "Owner"),
+                reached(knownSnapshot(), ExpansionProfile.USAGE, 3));
+    }
+
+    @Test
+    void implementationStaysOneHopAndSkipsUnlistedEdges() {
+        assertEquals(Set.of("seed", "callee", "Owner"),
+                reached(knownSnapshot(), ExpansionProfile.IMPLEMENTATION, 3));
+    }
+
+    @Test
+    void ruleDepthAndFanOutCapTheExpansion() {
+        ExpansionProfile oneCaller = new ExpansionProfile("ONE_CALLER", List.of(
+                new EdgeRule(EdgeType.CALLS, Direction.INCOMING, 1, 1)));
+
+        Set<String> reached = reached(knownSnapshot(), oneCaller, 3);
+
+        assertEquals(2, reached.size());
+        assertTrue(reached.contains("caller1") || reached.contains("caller3"));
+        assertFalse(reached.contains("caller2"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.model.EdgeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.Values;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Verifies how start nodes are resolved for the in-memory snapshot and which ones are left to the
+ * Cypher frontier:
+ *
+ * <pre>
+ *   seed --CALLS--> callee        (in the snapshot)
+ *   description                   (in Neo4j only, describes seed)
+ *   addedAfterRebuild             (in Neo4j only)
+ * </pre>
+ */
+class GraphExpanderSnapshotTest {
+
+    private Session session;
+    private GraphSnapshotService snapshotService;
+    private GraphExpander expander;
+
+    @BeforeEach
+    void setUp() {
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(1L);
+        builder.addNode("seed", "Method");
+        builder.addNode("callee", "Method");
+        builder.addEdge(EdgeType.CALLS, "seed", "callee");
+        GraphSnapshot snapshot = builder.build();
+
+        snapshotService = mock(GraphSnapshotService.class);
+        when(snapshotService.isAvailable()).thenReturn(true);
+        when(snapshotService.current()).thenReturn(snapshot);
+
+        session = mock(Session.class);
+        when(session.run(anyString(), anyMap())).thenReturn(mock(Result.class));
+        Driver driver = mock(Driver.class);
+        when(driver.session(any(SessionConfig.class))).thenReturn(session);
+
+        expander = new GraphExpander(driver, SessionConfig.defaultConfig(), mock(ReactiveCypherRunner.class),
+                snapshotService);
+        ReflectionTestUtils.setField(expander, "maxNodesPerHop", 50);
+        ReflectionTestUtils.setField(expander, "includeAllRelationships", true);
+    }
+
+    @Test
+    void seedsInTheSnapshotAreTraversedInMemory() {
+        expander.expandNHop(List.of("seed"), 2, 10);
+
+        // Only the traversed nodes are hydrated from Neo4j
+        verify(session).run(anyString(), eq(Map.of("ids", List.of("seed", "callee"))));
+    }
+
+    @Test
+    void aDescriptionHitIsResolvedToItsMethodAndTraversedInMemory() {
+        resolves("description", "seed");
+
+        expander.expandNHop(List.of("description"), 2, 10);
+
+        verify(session).run(anyString(), eq(Map.of("ids", List.of("seed", "callee"))));
+        verify(session, never()).run(argThat((String query) -> !query.contains("resolvedIds")),
+                eq(Map.of("ids", List.of("description"))));
+    }
+
+    @Test
+    void onlyStartNodesMissingFromTheSnapshotAreExpandedWithCypher() {
+        resolves("addedAfterRebuild", "addedAfterRebuild");
+
+        GraphExpander.SubGraph subGraph = expander.expandNHop(List.of("seed", "addedAfterRebuild"), 2, 10);
+
+        // The snapshot part is traversed in memory, the node it lacks seeds the Cypher frontier
+        verify(session).run(anyString(), eq(Map.of("ids", List.of("seed", "callee"))));
+        verify(session).run(argThat((String query) -> !query.contains("resolvedIds")),
+                eq(Map.of("ids", List.of("addedAfterRebuild"))));
+        verify(session, never()).run(anyString(), eq(Map.of("ids", List.of("seed", "addedAfterRebuild"))));
+        assertNotNull(subGraph);
+    }
+
+    @Test
+    void aStatusExpansionReachesTheEnumAMethodReturns() {
+        GraphSnapshot.Builder builder = GraphSnapshot.builder(2L);
+        builder.addNode("getStatus", "Method");
+        builder.addNode("OrderStatus", "Enum");
+        builder.addEdge(EdgeType.RETURNS, "getStatus", "OrderStatus");
+        when(snapshotService.current()).thenReturn(builder.build());
+
+        expander.expandNHop(List.of("getStatus"), 1, 10, ExpansionProfile.STATUS,
+                QueryDeadline.unbounded().stage(QueryDeadline.GRAPH_EXPANSION));
+
+        verify(session).run(anyString(), eq(Map.of("ids", List.of("getStatus", "OrderStatus"))));
+    }
+
+    /**
+     * Answers the id resolution query for a start node with the code node it resolves to
+     */
+    private void resolves(String startNodeId, String codeNodeId) {
+        Record record = mock(Record.class);
+        when(record.get("nodeId")).thenReturn(Values.value(startNodeId));
+        when(record.get("resolvedIds")).thenReturn(Values.value(List.of(codeNodeId)));
+        Result result = mock(Result.class);
+        when(result.hasNext()).thenReturn(true, false);
+        when(result.next()).thenReturn(record);
+        when(session.run(argThat((String query) -> query != null && query.contains("resolvedIds")),
+                eq(Map.of("ids", List.of(startNodeId))))).thenReturn(result);
+    }
+}
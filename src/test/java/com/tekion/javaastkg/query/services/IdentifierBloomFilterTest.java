@@ -0,0 +1,63 @@
+package com.tekion.javaastkg.query.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies which generated terms the identifier filter keeps and its false positive rate
+ */
+class IdentifierBloomFilterTest {
+
+    private static IdentifierBloomFilter knownFilter() {
+        return IdentifierBloomFilter.builder(1L, 0.01)
+                .addIdentifier("OrderServiceImpl")
+                .addIdentifier("processPayments")
+                .addIdentifier("com.tekion.billing")
+                .build();
+    }
+
+    @Test
+    void keepsIdentifiersAndTheirTokenRunsInAnyForm() {
+        IdentifierBloomFilter filter = knownFilter();
+
+        assertTrue(filter.mightContainTerm("OrderServiceImpl"));
+        assertTrue(filter.mightContainTerm("OrderService"));
+        assertTrue(filter.mightContainTerm("service_impl"));
+        assertTrue(filter.mightContainTerm("order"));
+        assertTrue(filter.mightContainTerm("process payment"));
+        assertTrue(filter.mightContainTerm("billing"));
+    }
+
+    @Test
+    void dropsNamesThatDoNotOccur() {
+        IdentifierBloomFilter filter = knownFilter();
+
+        assertFalse(filter.mightContainTerm("OrderServiceHandler"));
+        assertFalse(filter.mightContainTerm("ImplOrder"));
+        assertFalse(filter.mightContainTerm("invoice"));
+    }
+
+    @Test
+    void emptyFilterAndUnjudgeableTermsPass() {
+        assertTrue(IdentifierBloomFilter.empty().mightContainTerm("anything"));
+        assertTrue(knownFilter().mightContainTerm("--"));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfiguredRate() {
+        IdentifierBloomFilter.Builder builder = IdentifierBloomFilter.builder(1L, 0.01);
+        for (int i = 0; i < 5_000; i++) {
+            builder.addIdentifier("knownSymbol" + i);
+        }
+        IdentifierBloomFilter filter = builder.build();
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContainTerm("missingName" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,129 @@
+package com.tekion.javaastkg.query.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.Values;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Verifies that index candidates never miss an identifier a brute-force {@code CONTAINS} would find,
+ * over a small fixture whose postings are built the way IdentifierIndexBuilder builds them
+ */
+class IdentifierIndexTest {
+
+    private static final Map<String, String> IDENTIFIERS = Map.of(
+            "n1", "isValid",
+            "n2", "getUserIdList",
+            "n3", "UserService",
+            "n4", "getOrderId",
+            "n5", "validateUser",
+            "n6", "getName");
+
+    /** Trigrams and tokens in more identifiers than this are left out, as "get", "use", "ser" and "user" are here */
+    private static final int MAX_POSTINGS = 2;
+
+    private Session session;
+    private Record record;
+    private IdentifierIndex index;
+
+    @BeforeEach
+    void setUp() {
+        record = mock(Record.class);
+        when(record.get("indexed")).thenReturn(Values.value(true));
+        when(record.get("hasTrigrams")).thenReturn(Values.value(true));
+        stubPostings("Trigram", IdentifierIndex::trigrams);
+        // Token postings are only fetched for an index without trigrams
+        when(record.get("skippedTokens")).thenReturn(Values.value(List.of()));
+        when(record.get("tokenPostings")).thenReturn(Values.value(List.of()));
+        Result result = mock(Result.class);
+        when(result.single()).thenReturn(record);
+
+        session = mock(Session.class);
+        when(session.run(anyString(), anyMap())).thenReturn(result);
+        Driver driver = mock(Driver.class);
+        when(driver.session(any(SessionConfig.class))).thenReturn(session);
+
+        index = new IdentifierIndex(driver, SessionConfig.defaultConfig());
+    }
+
+    @Test
+    void candidatesAreASupersetOfContainsMatches() {
+        for (String term : List.of("Valid", "UserId", "getOrder", "service", "list", "Name")) {
+            Map<String, Set<String>> candidates = index.candidatesByTerm(List.of(term)).orElseThrow();
+
+            assertTrue(candidates.get(term).containsAll(bruteForce(term)), term);
+        }
+    }
+
+    @Test
+    void twoCharacterTermsFallBackToScanning() {
+        // "id" occurs in isValid and getUserIdList, but neither has a trigram to seek it by
+        assertEquals(Set.of("n1", "n2", "n4"), bruteForce("id"));
+
+        assertTrue(index.candidatesByTerm(List.of("id")).isEmpty());
+        assertTrue(index.candidatesContainingAny(List.of("user", "id")).isEmpty());
+        verifyNoInteractions(session);
+    }
+
+    @Test
+    void termsWithOnlyFrequentTrigramsFallBackToScanning() {
+        assertTrue(index.candidatesByTerm(List.of("get")).isEmpty());
+        assertTrue(index.candidatesByTerm(List.of("user")).isEmpty());
+    }
+
+    @Test
+    void frequentTrigramsDoNotNarrowTheCandidates() {
+        // "get" has no posting, yet getUserIdList still matches through its other trigrams
+        Set<String> candidates = index.candidatesByTerm(List.of("getUser")).orElseThrow().get("getUser");
+
+        assertEquals(Set.of("n2"), candidates);
+    }
+
+    @Test
+    void anIndexWithoutTrigramsNarrowsByTokensAndSkipsFrequentOnes() {
+        when(record.get("hasTrigrams")).thenReturn(Values.value(false));
+        stubPostings("Token", name -> new HashSet<>(SymbolDictionary.tokenize(name)));
+
+        // "get" is too frequent to index, "order" alone narrows getOrder down
+        assertEquals(Set.of("n4"), index.candidatesByTerm(List.of("getOrder")).orElseThrow().get("getOrder"));
+        assertTrue(index.candidatesByTerm(List.of("user")).isEmpty());
+    }
+
+    /**
+     * Builds the postings for one kind of key the way IdentifierIndexBuilder does, capped at MAX_POSTINGS
+     */
+    private void stubPostings(String kind, Function<String, Set<String>> keysOf) {
+        Map<String, List<String>> postingsByKey = new TreeMap<>();
+        IDENTIFIERS.forEach((nodeId, name) -> keysOf.apply(name)
+                .forEach(key -> postingsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(nodeId)));
+        List<String> skipped = new ArrayList<>();
+        postingsByKey.entrySet().removeIf(posting ->
+                posting.getValue().size() > MAX_POSTINGS && skipped.add(posting.getKey()));
+
+        List<Map<String, Object>> postings = new ArrayList<>();
+        postingsByKey.forEach((value, nodeIds) -> postings.add(Map.of("value", value, "nodeIds", nodeIds)));
+        when(record.get("skipped" + kind + "s")).thenReturn(Values.value(skipped));
+        when(record.get(kind.toLowerCase(Locale.ROOT) + "Postings")).thenReturn(Values.value(postings));
+    }
+
+    private static Set<String> bruteForce(String term) {
+        Set<String> matches = new HashSet<>();
+        IDENTIFIERS.forEach((nodeId, name) -> {
+            if (name.toLowerCase(Locale.ROOT).contains(term.toLowerCase(Locale.ROOT))) {
+                matches.add(nodeId);
+            }
+        });
+        return matches;
+    }
+}
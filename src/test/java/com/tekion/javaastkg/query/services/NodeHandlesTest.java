@@ -0,0 +1,118 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.query.services.GraphExpander.GraphNode;
+import com.tekion.javaastkg.query.services.GraphExpander.GraphRelationship;
+import com.tekion.javaastkg.query.services.GraphExpander.SubGraph;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies handle assignment, BFS distances and distance-aware scoring on a known subgraph:
+ *
+ * <pre>
+ *   A --CALLS--> B --CALLS--> C --CONTAINS--> D      E (isolated)
+ *   A --CALLS--> X (not in subgraph)
+ * </pre>
+ */
+class NodeHandlesTest {
+
+    private static SubGraph knownSubGraph() {
+        Map<String, GraphNode> nodes = new LinkedHashMap<>();
+        for (String id : List.of("A", "B", "C", "D", "E")) {
+            nodes.put(id, GraphNode.builder()
+                    .id(id)
+                    .labels(List.of("Method"))
+                    .properties(Map.of("name", id.toLowerCase()))
+                    .build());
+        }
+        return SubGraph.builder()
+                .nodes(nodes)
+                .relationships(List.of(
+                        edge("A", "CALLS", "B"),
+                        edge("B", "CALLS", "C"),
+                        edge("D", "CONTAINS", "C"),
+                        edge("A", "CALLS", "X")))
+                .metadata(Map.of())
+                .build();
+    }
+
+    private static GraphRelationship edge(String from, String type, String to) {
+        return GraphRelationship.builder()
+                .id(from + "-" + type + "->" + to)
+                .type(type)
+                .startNodeId(from)
+                .endNodeId(to)
+                .properties(Map.of())
+                .build();
+    }
+
+    @Test
+    void assignsHandlesInNodeOrderAndDropsDanglingEdges() {
+        NodeHandles handles = knownSubGraph().handles();
+
+        assertEquals(5, handles.size());
+        assertEquals(0, handles.handleOf("A"));
+        assertEquals("D", handles.idOf(handles.handleOf("D")));
+        assertEquals(-1, handles.handleOf("X"));
+        assertEquals(1, handles.getDroppedEdges());
+    }
+
+    @Test
+    void computesDegreesOverIndexedEdges() {
+        NodeHandles handles = knownSubGraph().handles();
+
+        assertEquals(1, handles.degree(handles.handleOf("A")));
+        assertEquals(2, handles.degree(handles.handleOf("B")));
+        assertEquals(2, handles.degree(handles.handleOf("C")));
+        assertEquals(1, handles.degree(handles.handleOf("D")));
+        assertEquals(0, handles.degree(handles.handleOf("E")));
+    }
+
+    @Test
+    void computesDistancesIgnoringDirection() {
+        NodeHandles handles = knownSubGraph().handles();
+
+        int[] distances = handles.distancesFrom(handles.handlesOf(List.of("A", "X")));
+
+        assertEquals(0, distances[handles.handleOf("A")]);
+        assertEquals(1, distances[handles.handleOf("B")]);
+        assertEquals(2, distances[handles.handleOf("C")]);
+        assertEquals(3, distances[handles.handleOf("D")]);
+        assertEquals(NodeHandles.UNREACHABLE, distances[handles.handleOf("E")]);
+    }
+
+    @Test
+    void restrictKeepsOnlyInducedEdges() {
+        SubGraph subGraph = knownSubGraph();
+        NodeHandles handles = subGraph.handles();
+
+        SubGraph restricted = handles.restrict(subGraph, handles.membersOf(List.of("B", "C", "E")), Map.of());
+
+        assertEquals(List.of("B", "C", "E"), new ArrayList<>(restricted.getNodes().keySet()));
+        assertEquals(1, restricted.getRelationshipCount());
+        assertEquals("B", restricted.getRelationships().get(0).getStartNodeId());
+    }
+
+    @Test
+    void scorerPenalisesDistanceFromSeeds() {
+        NodeScorer scorer = new NodeScorer();
+        ReflectionTestUtils.setField(scorer, "fullTextWeight", 0.4);
+        ReflectionTestUtils.setField(scorer, "vectorWeight", 0.6);
+        ReflectionTestUtils.setField(scorer, "graphDistancePenalty", 0.1);
+        ReflectionTestUtils.setField(scorer, "minScore", 0.0);
+        ReflectionTestUtils.setField(scorer, "nodeTypeBoost", 1.0);
+
+        NodeHandles handles = knownSubGraph().handles();
+        double[] scores = scorer.scoreNodes(handles, Map.of(), Map.of(), List.of("A"));
+
+        assertEquals(1.0, scores[handles.handleOf("A")], 1e-9);
+        assertEquals(0.9, scores[handles.handleOf("B")], 1e-9);
+        assertEquals(0.8, scores[handles.handleOf("C")], 1e-9);
+        assertEquals(0.7, scores[handles.handleOf("D")], 1e-9);
+        assertEquals(0.5, scores[handles.handleOf("E")], 1e-9);
+    }
+}
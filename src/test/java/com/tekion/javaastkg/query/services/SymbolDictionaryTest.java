@@ -0,0 +1,66 @@
+package com.tekion.javaastkg.query.services;
+
+import com.tekion.javaastkg.query.services.SymbolDictionary.SymbolKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies tokenization and longest-match lookup of identifiers mentioned in queries
+ */
+class SymbolDictionaryTest {
+
+    private static SymbolDictionary knownDictionary() {
+        return SymbolDictionary.builder(1L)
+                .add(SymbolKind.CLASS, "UserService")
+                .add(SymbolKind.CLASS, "User")
+                .add(SymbolKind.CLASS, "HTTPClient")
+                .add(SymbolKind.CLASS, "OrderProcessingService")
+                .add(SymbolKind.METHOD, "processOrder")
+                .add(SymbolKind.METHOD, "get")
+                .add(SymbolKind.PACKAGE, "com.tekion.query")
+                .add(SymbolKind.PACKAGE, "query", "com.tekion.query")
+                .build();
+    }
+
+    @Test
+    void splitsCamelCaseSnakeCaseAcronymsAndDigits() {
+        assertEquals(List.of("http", "client", "user", "service", "v", "2", "api"),
+                SymbolDictionary.tokenize("HTTPClient user_service v2Api"));
+    }
+
+    @Test
+    void matchesIdentifiersWrittenInAnyForm() {
+        SymbolDictionary dictionary = knownDictionary();
+
+        SymbolDictionary.Matches matches = dictionary.match("How does the user service call processOrder?");
+
+        assertEquals(List.of("UserService"), matches.getClasses());
+        assertEquals(List.of("processOrder"), matches.getMethods());
+    }
+
+    @Test
+    void prefersLongestMentionAndFoldsPlurals() {
+        SymbolDictionary.Matches matches = knownDictionary().match("which orders processing services exist");
+
+        assertEquals(List.of("OrderProcessingService"), matches.getClasses());
+        assertTrue(matches.getTerms().isEmpty());
+    }
+
+    @Test
+    void matchesPackagesByLastSegment() {
+        SymbolDictionary.Matches matches = knownDictionary().match("classes in the query package");
+
+        assertEquals(List.of("com.tekion.query"), matches.getPackages());
+    }
+
+    @Test
+    void ignoresGenericSingleWordsButKeepsKnownTokensAsTerms() {
+        SymbolDictionary.Matches matches = knownDictionary().match("get the order details");
+
+        assertFalse(matches.hasSymbols());
+        assertEquals(List.of("order"), matches.getTerms());
+    }
+}
@@ -0,0 +1,69 @@
+package com.tekion.javaastkg.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the bit-parallel and two-row edit distances against the full matrix, with and without cutoff
+ */
+class EditDistanceTest {
+
+    private static int reference(String a, String b) {
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            dp[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            dp[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(dp[i - 1][j - 1] + cost, Math.min(dp[i - 1][j], dp[i][j - 1]) + 1);
+            }
+        }
+        return dp[a.length()][b.length()];
+    }
+
+    private static String randomString(Random random, int maxLength, String alphabet) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    void knownDistances() {
+        assertEquals(3, EditDistance.levenshtein("kitten", "sitting", 10));
+        assertEquals(0, EditDistance.levenshtein("orderservice", "orderservice", 5));
+        assertEquals(5, EditDistance.levenshtein("", "abcde", 5));
+        assertEquals(1, EditDistance.levenshtein("z\u00e4hler", "zahler", 5));
+    }
+
+    @Test
+    void exceedingTheCutoffReportsCutoffPlusOne() {
+        assertEquals(3, EditDistance.levenshtein("payment", "paymentProcessorImpl", 2));
+        assertEquals(3, EditDistance.levenshtein("abcdef", "uvwxyz", 2));
+    }
+
+    @Test
+    void matchesFullMatrixOnRandomPairs() {
+        Random random = new Random(42);
+        for (int round = 0; round < 5_000; round++) {
+            // Long strings exercise the two-row fallback, short ones the bit-parallel path
+            int maxLength = round % 10 == 0 ? 90 : 40;
+            String a = randomString(random, maxLength, "abcde\u00e9");
+            String b = randomString(random, maxLength, "abcde\u00e9");
+            int expected = reference(a, b);
+            int cutoff = random.nextInt(12);
+
+            assertEquals(expected, EditDistance.levenshtein(a, b, 200), a + " / " + b);
+            assertEquals(Math.min(expected, cutoff + 1), EditDistance.levenshtein(a, b, cutoff), a + " / " + b);
+        }
+    }
+}